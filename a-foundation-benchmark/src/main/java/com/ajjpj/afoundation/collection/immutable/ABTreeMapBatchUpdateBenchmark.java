@@ -0,0 +1,73 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * This compares applying a batch of 10k updates and 10k removals to an ABTreeMap, either key by key or with the batch operations
+ *  updatedAll / removedAll that traverse the tree only once.
+ *
+ * @author arno
+ */
+@Fork(1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class ABTreeMapBatchUpdateBenchmark {
+
+    @Param ({"100",
+            "100000000"})
+    private int size;
+
+    @Param ({"4", "8", "16"})
+    private int maxNumEntries;
+
+    private ABTreeMap<Long, Integer> base;
+    private AHashMap<Long, Integer> batchUpdates;
+    private List<Long> batchRemovals;
+
+    @Setup
+    public void setUp() {
+        final ABTreeMap<Long, Integer> empty = ABTreeMap.empty (new ABTreeSpec (maxNumEntries, Comparator.<Long>naturalOrder ()));
+
+        final Random rand = new Random (12345);
+        final int baseSize = Math.min (size, 1_000_000);
+
+        final AHashMap.Builder<Long, Integer> initial = AHashMap.builder ();
+        for (int i=0; i<baseSize; i++) {
+            initial.add ((long) rand.nextInt (size), i);
+        }
+        base = empty.updatedAll (initial.build ());
+
+        final AHashMap.Builder<Long, Integer> updates = AHashMap.builder ();
+        batchRemovals = new ArrayList<> ();
+        for (int i=0; i<10_000; i++) {
+            updates.add ((long) rand.nextInt (size), rand.nextInt ());
+            batchRemovals.add ((long) rand.nextInt (size));
+        }
+        batchUpdates = updates.build ();
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testKeyByKey() {
+        ABTreeMap<Long, Integer> result = base;
+        for (AMapEntry<Long, Integer> e: batchUpdates) {
+            result = result.updated (e.getKey (), e.getValue ());
+        }
+        for (Long key: batchRemovals) {
+            result = result.removed (key);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testBatch() {
+        return base.updatedAll (batchUpdates).removedAll (batchRemovals);
+    }
+}
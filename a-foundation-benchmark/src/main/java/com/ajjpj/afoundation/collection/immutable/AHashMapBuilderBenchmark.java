@@ -0,0 +1,40 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * This compares bulk construction of an AHashMap through repeated calls to updated() with a transient {@link AHashMap.Builder}.
+ *
+ * @author arno
+ */
+@Fork(1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class AHashMapBuilderBenchmark {
+
+    @Param ({"100",
+            "10000",
+            "1000000"})
+    private int size;
+
+    @Benchmark
+    public AMap<Long, Integer> testUpdated() {
+        AMap<Long, Integer> result = AHashMap.empty ();
+        for (int i=0; i<size; i++) {
+            result = result.updated ((long) i, i);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testBuilder() {
+        final AHashMap.Builder<Long, Integer> builder = AHashMap.builder ();
+        for (int i=0; i<size; i++) {
+            builder.add ((long) i, i);
+        }
+        return builder.build ();
+    }
+}
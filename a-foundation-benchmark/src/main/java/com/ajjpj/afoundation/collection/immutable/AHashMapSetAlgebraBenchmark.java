@@ -0,0 +1,59 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+
+/**
+ * This merges two large maps that were derived from a common ancestor by a number of updates, comparing {@link AHashMap#union} with
+ *  calling updated() for every entry of the second map.
+ *
+ * @author arno
+ */
+@Fork(1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class AHashMapSetAlgebraBenchmark {
+    @Param ({"10000",
+            "1000000"})
+    private int size;
+
+    @Param ({"10",
+            "1000"})
+    private int numChanges;
+
+    private AHashMap<Long, Integer> base;
+    private AHashMap<Long, Integer> changed;
+
+    @Setup
+    public void setUp() {
+        final AHashMap.Builder<Long, Integer> builder = AHashMap.builder ();
+        for (int i=0; i<size; i++) {
+            builder.add ((long) i, i);
+        }
+        base = builder.build ();
+
+        final Random rand = new Random (12345);
+        changed = base;
+        for (int i=0; i<numChanges; i++) {
+            changed = changed.updated ((long) rand.nextInt (2*size), -i);
+        }
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testUnion() {
+        return base.union (changed, (v1, v2) -> v2);
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testUpdateLoop() {
+        AHashMap<Long, Integer> result = base;
+        for (AMapEntry<Long, Integer> e: changed) {
+            result = result.updated (e.getKey (), e.getValue ());
+        }
+        return result;
+    }
+}
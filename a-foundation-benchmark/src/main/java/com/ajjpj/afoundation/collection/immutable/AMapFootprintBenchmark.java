@@ -0,0 +1,104 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+
+
+/**
+ * This compares maps with primitive values to an {@link ALongHashMap} holding boxed Longs. JMH has no notion of retained memory, so
+ *  the setup measures the heap occupied by a map of 'size' entries and prints it per entry. The benchmarks themselves measure
+ *  construction and lookup, and running them with '-prof gc' shows the bytes allocated per operation.
+ *
+ * @author arno
+ */
+@Fork(1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class AMapFootprintBenchmark {
+    @Param ({"10000",
+            "1000000"})
+    private int size;
+
+    @Param ({
+            "ALongHashMap",
+            "ALongLongHashMap"
+    })
+    private String mapType;
+
+    private long[] keys;
+
+    private ALongHashMap<Long> boxedMap;
+    private ALongLongHashMap primitiveMap;
+
+    @Setup
+    public void setUp() {
+        final Random rand = new Random (12345);
+        keys = new long[size];
+        for (int i=0; i<size; i++) {
+            keys[i] = rand.nextLong ();
+        }
+
+        final long before = usedHeap ();
+        switch (mapType) {
+            case "ALongHashMap":     boxedMap = buildBoxed (); break;
+            case "ALongLongHashMap": primitiveMap = buildPrimitive (); break;
+            default: throw new IllegalArgumentException (mapType);
+        }
+        final long after = usedHeap ();
+
+        System.out.println ();
+        System.out.println (mapType + " with " + size + " entries: " + (after - before) / size + " bytes per entry");
+    }
+
+    private static long usedHeap () {
+        for (int i=0; i<3; i++) {
+            System.gc ();
+        }
+        return Runtime.getRuntime ().totalMemory () - Runtime.getRuntime ().freeMemory ();
+    }
+
+    private ALongHashMap<Long> buildBoxed () {
+        ALongHashMap<Long> result = ALongHashMap.empty ();
+        for (long key: keys) {
+            result = result.updated (key, Long.valueOf (key * 31));
+        }
+        return result;
+    }
+
+    private ALongLongHashMap buildPrimitive () {
+        ALongLongHashMap result = ALongLongHashMap.empty ();
+        for (long key: keys) {
+            result = result.updated (key, key * 31);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Object testBuild() {
+        if (boxedMap != null) {
+            return buildBoxed ();
+        }
+        return buildPrimitive ();
+    }
+
+    @Benchmark
+    public long testRandomRead() {
+        final Random rand = new Random (12345);
+
+        long result = 0;
+        if (boxedMap != null) {
+            for (int i=0; i<100_000; i++) {
+                result += boxedMap.getRequired (keys[rand.nextInt (size)]);
+            }
+        }
+        else {
+            for (int i=0; i<100_000; i++) {
+                result += primitiveMap.getRequired (keys[rand.nextInt (size)]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * This aggregates the values of a large map, comparing a sequential stream and a parallel stream (which splits along the map's internal
+ *  structure) with copying the entries into an ArrayList and streaming that in parallel.
+ *
+ * @author arno
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class AMapParallelStreamBenchmark {
+    @Param ({"10000000"})
+    private int size;
+
+    @Param ({
+            "AHashMap",
+            "ALongHashMap",
+            "ARedBlackTree",
+            "ABTree16"
+    })
+    private String mapType;
+
+    private AMap<Long, Long> map;
+
+    @Setup
+    public void setUp() {
+        switch (mapType) {
+            case "AHashMap":      map = AHashMap.empty (); break;
+            case "ALongHashMap":  map = ALongHashMap.empty (); break;
+            case "ARedBlackTree": map = ARedBlackTreeMap.empty (Comparator.<Long>naturalOrder ()); break;
+            case "ABTree16":      map = ABTreeMap.empty (new ABTreeSpec (16, Comparator.<Long>naturalOrder ())); break;
+            default: throw new IllegalArgumentException (mapType);
+        }
+
+        final Random rand = new Random (12345);
+        while (map.size () < size) {
+            final long key = rand.nextLong ();
+            map = map.updated (key, key & 0xffff);
+        }
+    }
+
+    @Benchmark
+    public long testSequentialStream() {
+        return map.stream ().mapToLong (AMapEntry::getValue).sum ();
+    }
+
+    @Benchmark
+    public long testParallelStream() {
+        return map.parallelStream ().mapToLong (AMapEntry::getValue).sum ();
+    }
+
+    @Benchmark
+    public long testCopyAndParallelStream() {
+        final List<AMapEntry<Long, Long>> copy = new ArrayList<> (map.size ());
+        for (AMapEntry<Long, Long> e: map) {
+            copy.add (e);
+        }
+        return copy.parallelStream ().mapToLong (AMapEntry::getValue).sum ();
+    }
+}
@@ -2,7 +2,10 @@ package com.ajjpj.afoundation.collection.immutable;
 
 import org.openjdk.jmh.annotations.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 
@@ -25,40 +28,68 @@ public class AMapReadBenchmark {
 //            "ALongHashMap64",
             "ARedBlackTree",
             "ALongRedBlackTree",
+            "ALongBTree",
 //            "ABTree4",
 //            "ABTree8",
-//            "ABTree16"
+            "ABTree16"
     })
     private String mapType;
 
+    private static final Comparator<Long> NATURAL_ORDER = new Comparator<Long> () {
+        @SuppressWarnings ("unchecked")
+        @Override public int compare (Long o1, Long o2) {
+            return o1.compareTo (o2);
+        }
+    };
+
+    private AMap<Long, Integer> emptyMap;
+
+    private long[] sortedKeys;
+    private long[] shuffledKeys;
+    private List<Long> sortedKeyList;
+    private List<Long> shuffledKeyList;
+    private List<Integer> values;
+
     @Setup
     public void setUp() {
-        final Comparator<Long> NATURAL_ORDER = new Comparator<Long> () {
-            @SuppressWarnings ("unchecked")
-            @Override public int compare (Long o1, Long o2) {
-                return o1.compareTo (o2);
-            }
-        };
-
         switch (mapType) {
             case "AHashMap": map = AHashMap.<Long, Integer>empty (); break;
             case "ALongHashMap64": map = ALongHashMap.<Integer>empty (); break;
             case "ARedBlackTree": map = ARedBlackTreeMap.<Long, Integer>empty (NATURAL_ORDER); break;
             case "ALongRedBlackTree": map = ALongRedBlackTreeMap.empty (); break;
+            case "ALongBTree": map = ALongBTreeMap.empty (); break;
             case "ABTree4":  map = ABTreeMap.empty (new ABTreeSpec (4, NATURAL_ORDER)); break;
             case "ABTree8":  map = ABTreeMap.empty (new ABTreeSpec (8, NATURAL_ORDER)); break;
             case "ABTree16": map = ABTreeMap.empty (new ABTreeSpec (16, NATURAL_ORDER)); break;
             default: throw new IllegalArgumentException (mapType);
         }
 
+        emptyMap = map;
+
         for (int i=0; i<size; i++) {
             map = map.updated ((long) i, i);
         }
+
+        sortedKeyList = new ArrayList<> ();
+        values = new ArrayList<> ();
+        for (int i=0; i<size; i++) {
+            sortedKeyList.add ((long) i);
+            values.add (i);
+        }
+        shuffledKeyList = new ArrayList<> (sortedKeyList);
+        Collections.shuffle (shuffledKeyList, new Random (12345));
+
+        sortedKeys = new long[size];
+        shuffledKeys = new long[size];
+        for (int i=0; i<size; i++) {
+            sortedKeys[i] = sortedKeyList.get (i);
+            shuffledKeys[i] = shuffledKeyList.get (i);
+        }
     }
 
     private AMap<Long, Integer> map;
 
-//    @Benchmark
+    @Benchmark
     public void testRandomRead() {
         final Random rand = new Random (12345);
 
@@ -78,4 +109,37 @@ public class AMapReadBenchmark {
             }
         }
     }
+
+    @Benchmark
+    public AMap<Long, Integer> testBuildIncrementally() {
+        AMap<Long, Integer> result = emptyMap;
+        for (int i=0; i<size; i++) {
+            result = result.updated (shuffledKeys[i], i);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testBuildFromSorted() {
+        switch (mapType) {
+            case "ARedBlackTree": return ARedBlackTreeMap.fromSortedKeysAndValues (NATURAL_ORDER, sortedKeyList, values);
+            case "ALongRedBlackTree": return ALongRedBlackTreeMap.fromSortedKeysAndValues (sortedKeys, values);
+            default:
+                // no bulk loading for this map type --> compare with inserting in ascending order
+                AMap<Long, Integer> result = emptyMap;
+                for (int i=0; i<size; i++) {
+                    result = result.updated (sortedKeys[i], i);
+                }
+                return result;
+        }
+    }
+
+    @Benchmark
+    public AMap<Long, Integer> testBuildFromUnsorted() {
+        switch (mapType) {
+            case "ARedBlackTree": return ARedBlackTreeMap.fromKeysAndValues (NATURAL_ORDER, shuffledKeyList, values);
+            case "ALongRedBlackTree": return ALongRedBlackTreeMap.fromKeysAndValues (shuffledKeys, values);
+            default: return testBuildIncrementally ();
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.Random;
+
+
+/**
+ * @author arno
+ */
+@Fork(1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 5)
+@State (Scope.Benchmark)
+public class ASortedMapRangeBenchmark {
+    @Param ({"10000",
+            "1000000"})
+    private int size;
+
+    @Param ({"10",
+            "1000"})
+    private int rangeSize;
+
+    @Param ({
+            "ARedBlackTree",
+            "ABTree16",
+            "ABTree64",
+            "ALongBTree"
+    })
+    private String mapType;
+
+    private static final Comparator<Long> NATURAL_ORDER = new Comparator<Long> () {
+        @SuppressWarnings ("unchecked")
+        @Override public int compare (Long o1, Long o2) {
+            return o1.compareTo (o2);
+        }
+    };
+
+    private ASortedMap<Long, Integer> map;
+
+    @Setup
+    public void setUp() {
+        switch (mapType) {
+            case "ARedBlackTree": map = ARedBlackTreeMap.empty (NATURAL_ORDER); break;
+            case "ABTree16": map = ABTreeMap.empty (new ABTreeSpec (16, NATURAL_ORDER)); break;
+            case "ABTree64": map = ABTreeMap.empty (new ABTreeSpec (64, NATURAL_ORDER)); break;
+            case "ALongBTree": map = ALongBTreeMap.empty (); break;
+            default: throw new IllegalArgumentException (mapType);
+        }
+
+        for (int i=0; i<size; i++) {
+            map = map.updated ((long) i, i);
+        }
+    }
+
+    @Benchmark
+    public long testRangeScan() {
+        final Random rand = new Random (12345);
+
+        long result = 0;
+        for (int i=0; i<1000; i++) {
+            final long from = rand.nextInt (size - rangeSize);
+            for (AMapEntry<Long, Integer> e: map.rangeIE (from, from + rangeSize)) {
+                result += e.getValue ();
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long testFullScan() {
+        long result = 0;
+        for (AMapEntry<Long, Integer> e: map) {
+            result += e.getValue ();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long testFirstGreaterOrEquals() {
+        final Random rand = new Random (12345);
+
+        long result = 0;
+        for (int i=0; i<1000; i++) {
+            result += map.firstGreaterOrEquals ((long) rand.nextInt (size)).get ().getValue ();
+        }
+        return result;
+    }
+}
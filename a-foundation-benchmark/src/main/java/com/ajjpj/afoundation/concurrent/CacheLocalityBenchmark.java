@@ -0,0 +1,77 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This benchmark measures the benefit of locality hints: The same partitions of data are processed repeatedly, and every partition fits
+ *  into a core's L2 cache while all of them together do not. Submitting each partition's processing with {@link AThreadPool#submitWithAffinity}
+ *  keeps every partition on the same worker thread (and hopefully the same core), while plain submission distributes them randomly.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class CacheLocalityBenchmark {
+    public static final int NUM_PARTITIONS = 4 * PoolBenchmark.POOL_SIZE;
+
+    @Param ({"16384", "65536"})
+    public int partitionSize; // number of longs, i.e. 128 or 512 KB per partition
+
+    @Param ({"plain", "affinity"})
+    public String strategy;
+
+    private AThreadPoolWithAdmin pool;
+    private long[][] partitions;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+
+        partitions = new long[NUM_PARTITIONS][];
+        for (int i=0; i<NUM_PARTITIONS; i++) {
+            partitions[i] = new long[partitionSize];
+            for (int j=0; j<partitionSize; j++) {
+                partitions[i][j] = j;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Benchmark
+    public long testProcessAllPartitions() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (NUM_PARTITIONS);
+        final AtomicLong result = new AtomicLong ();
+
+        for (int i=0; i<NUM_PARTITIONS; i++) {
+            final long[] partition = partitions[i];
+            final Runnable task = () -> {
+                long sum = 0;
+                for (int j=0; j<partition.length; j++) {
+                    partition[j] += 1;
+                    sum += partition[j];
+                }
+                result.addAndGet (sum);
+                latch.countDown ();
+            };
+
+            if ("affinity".equals (strategy)) {
+                pool.submitWithAffinity (i, task);
+            }
+            else {
+                pool.submit (task);
+            }
+        }
+
+        latch.await ();
+        return result.get ();
+    }
+}
@@ -0,0 +1,90 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.function.AStatement1;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the overhead of converting between AFuture and CompletableFuture, comparing
+ *  {@link AFuture#toCompletableFuture()} and {@link AFuture#fromCompletionStage} with the adapters applications had to write by hand before.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class CompletionStageBridgeBenchmark {
+    private AThreadPoolWithAdmin pool;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Benchmark
+    public Integer testToCompletableFutureHandRolled() throws Exception {
+        final ASettableFuture<Integer> f = ASettableFuture.create ();
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        f.onSuccess (AThreadPool.SYNC_THREADPOOL, (AStatement1<Integer, RuntimeException>) cf::complete);
+        f.onFailure (AThreadPool.SYNC_THREADPOOL, (AStatement1<Throwable, RuntimeException>) cf::completeExceptionally);
+
+        f.completeAsSuccess (1);
+        return cf.join ();
+    }
+
+    @Benchmark
+    public Integer testToCompletableFuture() throws Exception {
+        final ASettableFuture<Integer> f = ASettableFuture.create ();
+        final CompletableFuture<Integer> cf = f.toCompletableFuture ();
+
+        f.completeAsSuccess (1);
+        return cf.join ();
+    }
+
+    @Benchmark
+    public Integer testFromCompletionStageHandRolled() throws Exception {
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        final ASettableFuture<Integer> f = ASettableFuture.create ();
+        cf.thenAccept (f::completeAsSuccess);
+        cf.exceptionally (th -> {
+            f.completeAsFailure (th);
+            return null;
+        });
+
+        cf.complete (1);
+        return f.value (1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Integer testFromCompletionStageBlocking() throws Exception {
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        final AFuture<Integer> f = AFuture.submit (pool, cf::get);
+
+        cf.complete (1);
+        return f.value (1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Integer testFromCompletionStage() throws Exception {
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        final AFuture<Integer> f = AFuture.fromCompletionStage (cf);
+
+        cf.complete (1);
+        return f.value (1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Integer testAsyncStagesOnAThreadPool() throws Exception {
+        return CompletableFuture.supplyAsync (() -> 1, pool)
+                .thenApplyAsync (x -> x+1, pool)
+                .get (1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This benchmark compares deadline misses of FIFO and EDF ({@link SharedQueueStrategy#Deadline}) scheduling under overload: Every
+ *  operation submits a burst of tasks with a random mix of tight and loose deadlines, more than the pool can process before the tight
+ *  deadlines expire. The number of tasks that met or missed their deadlines is reported as auxiliary counters.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class DeadlineSchedulingBenchmark {
+    public static final int BURST_SIZE = 2000;
+    public static final long TOKENS_PER_TASK = 2000;
+
+    @Param ({"fifo", "edf"})
+    public String strategy;
+
+    private AThreadPoolWithAdmin pool;
+
+    @State (Scope.Thread)
+    @AuxCounters
+    public static class Counters {
+        public long met;
+        public long missed;
+
+        @Setup (Level.Iteration)
+        public void reset() {
+            met = 0;
+            missed = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final AThreadPoolBuilder builder = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE);
+        switch (strategy) {
+            case "fifo": break;
+            case "edf":  builder.withSharedQueueStrategy (SharedQueueStrategy.Deadline); break;
+            default: throw new IllegalStateException ();
+        }
+        pool = builder.build ();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Benchmark
+    public void testBurst(Counters counters) throws InterruptedException {
+        final Random rand = new Random (12345);
+        final CountDownLatch latch = new CountDownLatch (BURST_SIZE);
+        final AtomicLong missed = new AtomicLong ();
+
+        for (int i=0; i<BURST_SIZE; i++) {
+            // 20% of the tasks are latency critical
+            final long timeoutMicros = rand.nextInt (5) == 0 ? 200 : 20_000;
+            final long deadline = System.nanoTime () + TimeUnit.MICROSECONDS.toNanos (timeoutMicros);
+
+            pool.submit (new ADeadlineTask () {
+                @Override public long getDeadlineNanos () {
+                    return deadline;
+                }
+
+                @Override public void run () {
+                    Blackhole.consumeCPU (TOKENS_PER_TASK);
+                    if (System.nanoTime () - deadline > 0) missed.incrementAndGet ();
+                    latch.countDown ();
+                }
+            });
+        }
+
+        latch.await ();
+        counters.missed += missed.get ();
+        counters.met += BURST_SIZE - missed.get ();
+    }
+}
@@ -0,0 +1,75 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the overhead of using an AThreadPool through the {@link ExecutorService} API, comparing it to a
+ *  {@link ForkJoinPool} which is an ExecutorService natively.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class ExecutorServiceBenchmark {
+    public static final int NUM_TASKS = 1000;
+
+    @Param ({"a-pool", "fork-join"})
+    public String strategy;
+
+    private ExecutorService es;
+    private List<Callable<Integer>> tasks;
+
+    @Setup
+    public void setUp() {
+        switch (strategy) {
+            case "a-pool":    es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ()); break;
+            case "fork-join": es = new ForkJoinPool (PoolBenchmark.POOL_SIZE); break;
+            default: throw new IllegalStateException ();
+        }
+
+        tasks = new ArrayList<> ();
+        for (int i=0; i<NUM_TASKS; i++) {
+            final int n = i;
+            tasks.add (() -> n);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        es.shutdown ();
+        es.awaitTermination (1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public int testSubmitAndGet() throws Exception {
+        final List<Future<Integer>> futures = new ArrayList<> (NUM_TASKS);
+        for (Callable<Integer> task: tasks) {
+            futures.add (es.submit (task));
+        }
+
+        int result = 0;
+        for (Future<Integer> f: futures) {
+            result += f.get ();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int testInvokeAll() throws Exception {
+        int result = 0;
+        for (Future<Integer> f: es.invokeAll (tasks)) {
+            result += f.get ();
+        }
+        return result;
+    }
+}
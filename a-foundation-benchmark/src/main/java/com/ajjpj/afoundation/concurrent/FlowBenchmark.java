@@ -0,0 +1,62 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares processing a sequence of elements through an {@link AFlow} with submitting one task per element and combining
+ *  the results afterwards.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class FlowBenchmark {
+    private static final int NUM_ELEMENTS = 10_000;
+
+    private AThreadPoolWithAdmin pool;
+    private List<Integer> values;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+        values = new ArrayList<> ();
+        for (int i=0; i<NUM_ELEMENTS; i++) values.add (i);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Benchmark
+    public Long testTaskPerElement() throws Exception {
+        final List<AFuture<Long>> futures = new ArrayList<> (NUM_ELEMENTS);
+        for (Integer i: values) {
+            futures.add (AFuture.submit (pool, () -> (long) i * 2));
+        }
+        return AFuture.fold (pool, 0L, futures, (a, b) -> a+b).value (10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Long testFlow() throws Exception {
+        return AFlow.fromIterable (pool, values)
+                .map (i -> (long) i * 2)
+                .fold (0L, (a, b) -> a+b)
+                .value (10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Long testFlowFlatMap() throws Exception {
+        return AFlow.fromIterable (pool, values, 1000)
+                .buffer (1000)
+                .flatMap (chunk -> AFlow.fromIterable (pool, chunk).map (i -> (long) i * 2), PoolBenchmark.POOL_SIZE)
+                .fold (0L, (a, b) -> a+b)
+                .value (10, TimeUnit.SECONDS);
+    }
+}
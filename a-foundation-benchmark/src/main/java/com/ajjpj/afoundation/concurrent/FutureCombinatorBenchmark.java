@@ -0,0 +1,88 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares combining a large number of futures into a single future using AFuture's static combinators with
+ *  doing the same using {@link CompletableFuture#allOf}.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class FutureCombinatorBenchmark {
+    @Param ({"100", "100000"})
+    private int numFutures;
+
+    private AThreadPoolWithAdmin pool;
+    private List<Integer> values;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+
+        values = new ArrayList<> (numFutures);
+        for (int i=0; i<numFutures; i++) {
+            values.add (i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Benchmark
+    public AList<Integer> testLift() throws Exception {
+        final List<AFuture<Integer>> futures = new ArrayList<> (numFutures);
+        for (Integer i: values) {
+            futures.add (AFuture.submit (pool, () -> i));
+        }
+        return AFuture.lift (pool, futures).value (1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public List<Integer> testCompletableFutureAllOf() throws Exception {
+        final List<CompletableFuture<Integer>> futures = new ArrayList<> (numFutures);
+        for (Integer i: values) {
+            futures.add (CompletableFuture.supplyAsync (() -> i, pool::submit));
+        }
+
+        return CompletableFuture.allOf (futures.toArray (new CompletableFuture[futures.size ()]))
+                .thenApply (x -> {
+                    final List<Integer> result = new ArrayList<> (futures.size ());
+                    for (CompletableFuture<Integer> f: futures) {
+                        result.add (f.join ());
+                    }
+                    return result;
+                })
+                .get (1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public AList<Integer> testTraverse() throws Exception {
+        return AFuture.traverse (pool, values, i -> AFuture.submit (pool, () -> i)).value (1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public AList<Integer> testTraverseBounded() throws Exception {
+        return AFuture.traverse (pool, values, i -> AFuture.submit (pool, () -> i), 2 * PoolBenchmark.POOL_SIZE).value (1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public Integer testFold() throws Exception {
+        final List<AFuture<Integer>> futures = new ArrayList<> (numFutures);
+        for (Integer i: values) {
+            futures.add (AFuture.submit (pool, () -> i));
+        }
+        return AFuture.fold (pool, 0, futures, (a, b) -> a+b).value (1, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark measures the throughput of ordered per-key processing with {@link AKeyedExecutor}, comparing it with the traditional
+ *  approach of hashing keys onto a number of single-threaded executors. Keys are either distributed uniformly or skewed so that a small number
+ *  of keys accounts for most of the tasks.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class KeyedExecutorBenchmark {
+    private static final int NUM_KEYS = 10_000;
+    private static final int NUM_TASKS = 100_000;
+    private static final int WORK_PER_TASK = 100;
+
+    @Param ({"uniform", "skewed"})
+    public String distribution;
+
+    private AThreadPoolWithAdmin pool;
+    private AKeyedExecutor<Integer> keyedExecutor;
+    private ExecutorService[] singleThreadedExecutors;
+
+    private int[] keys;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+        keyedExecutor = AKeyedExecutor.create (pool, 16 * PoolBenchmark.POOL_SIZE);
+
+        singleThreadedExecutors = new ExecutorService[PoolBenchmark.POOL_SIZE];
+        for (int i=0; i<singleThreadedExecutors.length; i++) {
+            singleThreadedExecutors[i] = Executors.newSingleThreadExecutor ();
+        }
+
+        final Random rand = new Random (12345);
+        keys = new int[NUM_TASKS];
+        for (int i=0; i<NUM_TASKS; i++) {
+            switch (distribution) {
+                case "uniform": keys[i] = rand.nextInt (NUM_KEYS); break;
+                // the cube of a uniform random variable concentrates most of the mass on small keys
+                case "skewed":  final double d = rand.nextDouble (); keys[i] = (int) (d * d * d * NUM_KEYS); break;
+                default: throw new IllegalArgumentException (distribution);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        for (ExecutorService es: singleThreadedExecutors) {
+            es.shutdown ();
+        }
+    }
+
+    @Benchmark
+    public void testKeyedExecutor() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (NUM_TASKS);
+        for (int key: keys) {
+            keyedExecutor.submit (key, () -> {
+                Blackhole.consumeCPU (WORK_PER_TASK);
+                latch.countDown ();
+            });
+        }
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void testSingleThreadedExecutors() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (NUM_TASKS);
+        for (int key: keys) {
+            singleThreadedExecutors[Math.floorMod (Integer.hashCode (key), singleThreadedExecutors.length)].execute (() -> {
+                Blackhole.consumeCPU (WORK_PER_TASK);
+                latch.countDown ();
+            });
+        }
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,152 @@
+package com.ajjpj.afoundation.concurrent;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * This benchmark compares {@link ASerialExecutor} with akka actors for two typical messaging patterns: 'ping-pong' where two
+ *  actors send a message back and forth, and 'fan-in' where many producer threads send messages to a single actor.
+ */
+@Fork (1)
+@Threads (1)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 3, time = 3)
+@State (Scope.Benchmark)
+public class SerialExecutorBenchmark {
+    private static final int NUM_PING_PONG = 10_000;
+    private static final int NUM_PRODUCERS = 4;
+    private static final int NUM_PER_PRODUCER = 10_000;
+
+    private AThreadPoolWithAdmin pool;
+    private ActorSystem actorSystem;
+
+    @Setup
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (PoolBenchmark.POOL_SIZE).build ();
+        actorSystem = ActorSystem.create ();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        actorSystem.shutdown ();
+        actorSystem.awaitTermination ();
+    }
+
+    //--------------------------------- ping-pong
+
+    static class SerialPingPong {
+        final ASerialExecutor executor;
+        final CountDownLatch latch;
+        SerialPingPong partner;
+
+        SerialPingPong (AThreadPool pool, CountDownLatch latch) {
+            this.executor = ASerialExecutor.create (pool);
+            this.latch = latch;
+        }
+
+        void send (int remaining) {
+            executor.submit (() -> {
+                if (remaining == 0) latch.countDown ();
+                else partner.send (remaining-1);
+            });
+        }
+    }
+
+    @Benchmark
+    public void testPingPongSerialExecutor() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final SerialPingPong a = new SerialPingPong (pool, latch);
+        final SerialPingPong b = new SerialPingPong (pool, latch);
+        a.partner = b;
+        b.partner = a;
+
+        a.send (NUM_PING_PONG);
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static class PingPongActor extends UntypedActor {
+        private final CountDownLatch latch;
+
+        public PingPongActor (CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override public void onReceive (Object message) {
+            final int remaining = (Integer) message;
+            if (remaining == 0) latch.countDown ();
+            else getSender ().tell (remaining-1, getSelf ());
+        }
+    }
+
+    @Benchmark
+    public void testPingPongAkka() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final ActorRef a = actorSystem.actorOf (Props.create (PingPongActor.class, latch));
+        final ActorRef b = actorSystem.actorOf (Props.create (PingPongActor.class, latch));
+
+        a.tell (NUM_PING_PONG, b);
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        actorSystem.stop (a);
+        actorSystem.stop (b);
+    }
+
+    //--------------------------------- fan-in
+
+    @Benchmark
+    public void testFanInSerialExecutor() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final ASerialExecutor executor = ASerialExecutor.create (pool);
+        final int[] count = new int[1];
+
+        fanIn (() -> executor.submit (() -> {
+            if (++count[0] == NUM_PRODUCERS * NUM_PER_PRODUCER) latch.countDown ();
+        }));
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static class CountingActor extends UntypedActor {
+        private final CountDownLatch latch;
+        private int count;
+
+        public CountingActor (CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override public void onReceive (Object message) {
+            if (++count == NUM_PRODUCERS * NUM_PER_PRODUCER) latch.countDown ();
+        }
+    }
+
+    @Benchmark
+    public void testFanInAkka() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final ActorRef actor = actorSystem.actorOf (Props.create (CountingActor.class, latch));
+
+        fanIn (() -> actor.tell (Boolean.TRUE, ActorRef.noSender ()));
+        latch.await (PoolBenchmark.TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        actorSystem.stop (actor);
+    }
+
+    private static void fanIn (Runnable send) throws InterruptedException {
+        final Thread[] producers = new Thread[NUM_PRODUCERS];
+        for (int i=0; i<NUM_PRODUCERS; i++) {
+            producers[i] = new Thread (() -> {
+                for (int j=0; j<NUM_PER_PRODUCER; j++) send.run ();
+            });
+            producers[i].start ();
+        }
+        for (Thread t: producers) {
+            t.join ();
+        }
+    }
+}
@@ -7,11 +7,12 @@ import java.util.*;
 
 
 /**
- * An immutable BTree implementation
+ * An immutable BTree implementation. Iteration, including range scans via the {@link ASortedMap} methods, walks the tree in key order
+ *  leaf by leaf, taking O(log n + k) for k entries.
  *
  * @author arno
  */
-public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> {
+public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> implements ASortedMap<K,V> {
     public final ABTreeSpec spec;
     transient private Integer cachedHashcode = null; // intentionally not volatile: This class is immutable, so recalculating per thread works
 
@@ -25,10 +26,43 @@ public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> {
     }
 
     public abstract AOption<V> get (K key);
-//    public Iterable<K> keys ();
-//    public Iterable<V> values ();
-//    public Iterable<K> keys (K keyMin, K keyMax);
-//    public Iterable<V> values (K keyMin, K keyMax);
+
+    /**
+     * @return the entry at a given position in key order, in O(log n)
+     * @throws IndexOutOfBoundsException if the index is negative or not smaller than the map's size
+     */
+    public AMapEntry<K,V> getAt (int index) {
+        if (index < 0 || index >= size ()) {
+            throw new IndexOutOfBoundsException ("index " + index + ", size " + size ());
+        }
+        return entryAt (index);
+    }
+
+    /**
+     * @return the number of keys in this map that are smaller than a given key, i.e. the position at which the key is or would be stored
+     *  in key order. This takes O(log n).
+     */
+    public abstract int rank (K key);
+
+    /**
+     * This returns the entries from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) in key order. Positioning takes O(log n),
+     *  so this can be used for paginating large maps without iterating over them from the start.
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > size()} or {@code fromIndex > toIndex}
+     */
+    public Iterable<AMapEntry<K,V>> slice (final int fromIndex, final int toIndex) {
+        if (fromIndex < 0 || toIndex > size () || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException ("from " + fromIndex + " to " + toIndex + ", size " + size ());
+        }
+
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromIndex, toIndex - fromIndex);
+            }
+        };
+    }
+
+    abstract AMapEntry<K,V> entryAt (int index);
 
     @SuppressWarnings ("unchecked")
     public ABTreeMap<K,V> updated (K key, V value) {
@@ -51,7 +85,165 @@ public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> {
                 ((IndexNode) removeResult.newNode).children.length == 1) {
             return ((IndexNode) removeResult.newNode).children[0];
         }
-        return _removed (key, null).newNode;
+        return removeResult.newNode;
+    }
+
+    /**
+     * This applies a batch of updates in a single traversal of the tree: the batch is sorted, and every node that is affected by one or
+     *  more of the updates is rebuilt exactly once, splitting it bottom-up as often as necessary. This is much cheaper than a sequence of
+     *  {@link #updated} calls, each of which copies a path from the root to a leaf. If the batch contains a key several times, the last
+     *  of its values is used.
+     */
+    @SuppressWarnings ("unchecked")
+    public ABTreeMap<K,V> updatedAll (Iterable<? extends AMapEntry<? extends K, ? extends V>> entries) {
+        // keys and values are copied while iterating because some maps' iterators reuse a single entry object
+        Object[] batchKeys = new Object[16];
+        Object[] batchValues = new Object[16];
+        int batchSize = 0;
+        for (AMapEntry<? extends K, ? extends V> e: entries) {
+            if (batchSize == batchKeys.length) {
+                batchKeys = Arrays.copyOf (batchKeys, 2*batchSize);
+                batchValues = Arrays.copyOf (batchValues, 2*batchSize);
+            }
+            batchKeys[batchSize] = e.getKey ();
+            batchValues[batchSize] = e.getValue ();
+            batchSize += 1;
+        }
+        if (batchSize == 0) {
+            return this;
+        }
+
+        // the sort is stable, so the last value for a key remains the last one after sorting
+        final Object[] sortKeys = batchKeys;
+        final Integer[] order = new Integer[batchSize];
+        for (int i=0; i<batchSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort (order, (i1, i2) -> spec.comparator.compare (sortKeys[i1], sortKeys[i2]));
+
+        final Object[] keys = new Object[batchSize];
+        final Object[] values = new Object[batchSize];
+        int n = 0;
+        for (int idx: order) {
+            if (n > 0 && spec.comparator.compare (keys[n-1], batchKeys[idx]) == 0) {
+                values[n-1] = batchValues[idx];
+            }
+            else {
+                keys[n] = batchKeys[idx];
+                values[n] = batchValues[idx];
+                n += 1;
+            }
+        }
+
+        final List<ABTreeMap> nodes = new ArrayList<> ();
+        _updatedAll (keys, values, 0, n, nodes);
+        return buildRoot (spec, nodes);
+    }
+
+    /**
+     * This removes a batch of keys in a single traversal of the tree, rebuilding every affected node exactly once and merging underfull
+     *  nodes bottom-up, see {@link #updatedAll}.
+     */
+    @SuppressWarnings ("unchecked")
+    public ABTreeMap<K,V> removedAll (Iterable<? extends K> keys) {
+        final List<Object> sorted = new ArrayList<> ();
+        for (K key: keys) {
+            sorted.add (key);
+        }
+        if (sorted.isEmpty ()) {
+            return this;
+        }
+        sorted.sort (spec.comparator);
+
+        final List<ABTreeMap> nodes = new ArrayList<> ();
+        _removedAll (sorted.toArray (), 0, sorted.size (), nodes);
+        return buildRoot (spec, nodes);
+    }
+
+    /**
+     * This applies the sorted and duplicate-free updates between {@code from} (inclusive) and {@code to} (exclusive) to this subtree, and
+     *  adds the resulting nodes to {@code result}. They are of the same height as this node, and they need not satisfy the 'minimum number
+     *  of entries' constraint themselves - see {@link #normalize}.
+     */
+    abstract void _updatedAll (Object[] keys, Object[] values, int from, int to, List<ABTreeMap> result);
+
+    /**
+     * see {@link #_updatedAll}
+     */
+    abstract void _removedAll (Object[] keys, int from, int to, List<ABTreeMap> result);
+
+    /**
+     * @return the number of entries in a leaf, or the number of children in an index node
+     */
+    abstract int numEntries ();
+
+    private static ABTreeMap buildRoot (ABTreeSpec spec, List<ABTreeMap> nodes) {
+        // The tree's depth can grow here if the nodes returned by the old root do not fit into a single node...
+        while (nodes.size () > 1) {
+            nodes = IndexNode.chunked (spec, normalize (spec, nodes));
+        }
+
+        // ... or it can shrink if they underflowed. The 'minimum number of children' constraint does not apply to root nodes.
+        ABTreeMap result = nodes.get (0);
+        while (result instanceof IndexNode && ((IndexNode) result).children.length == 1) {
+            result = ((IndexNode) result).children[0];
+        }
+        return result;
+    }
+
+    /**
+     * This merges underfull nodes with their neighbours. The nodes must all have the same height, and they must be consistent internally
+     *  except that the nodes themselves may be underfull, as well as descendants that are their parents' only child. The resulting
+     *  nodes are all consistent - except if there is only a single node.
+     */
+    static List<ABTreeMap> normalize (ABTreeSpec spec, List<ABTreeMap> nodes) {
+        final List<ABTreeMap> result = new ArrayList<> (nodes.size ());
+        for (ABTreeMap node: nodes) {
+            if (! result.isEmpty ()) {
+                final ABTreeMap prev = result.get (result.size () - 1);
+                if (prev.numEntries () < spec.minNumEntries || node.numEntries () < spec.minNumEntries) {
+                    result.remove (result.size () - 1);
+                    result.addAll (mergedForBulk (spec, prev, node));
+                    continue;
+                }
+            }
+            result.add (node);
+        }
+        return result;
+    }
+
+    private static List<ABTreeMap> mergedForBulk (ABTreeSpec spec, ABTreeMap left, ABTreeMap right) {
+        if (left instanceof LeafNode) {
+            final LeafNode l = (LeafNode) left;
+            final LeafNode r = (LeafNode) right;
+
+            final Object[] keys = Arrays.copyOf (l.keys, l.keys.length + r.keys.length);
+            System.arraycopy (r.keys, 0, keys, l.keys.length, r.keys.length);
+            final Object[] values = Arrays.copyOf (l.values, l.values.length + r.values.length);
+            System.arraycopy (r.values, 0, values, l.values.length, r.values.length);
+
+            return LeafNode.chunked (spec, keys, values, keys.length);
+        }
+
+        final List<ABTreeMap> children = new ArrayList<> ();
+        Collections.addAll (children, ((IndexNode) left).children);
+        Collections.addAll (children, ((IndexNode) right).children);
+        return IndexNode.chunked (spec, normalize (spec, children));
+    }
+
+    /**
+     * @return the number of chunks into which a given number of entries must be split so that no chunk is overfull. Distributing entries
+     *  evenly between them leaves no chunk underfull either, unless there is only one.
+     */
+    static int numChunks (ABTreeSpec spec, int numEntries) {
+        return Math.max (1, (numEntries + spec.maxNumEntries - 1) / spec.maxNumEntries);
+    }
+
+    static Object smallestKey (ABTreeMap node) {
+        while (node instanceof IndexNode) {
+            node = ((IndexNode) node).children[0];
+        }
+        return ((LeafNode) node).keys[0];
     }
 
     abstract UpdateResult _updated (Object key, Object value);
@@ -70,18 +262,278 @@ public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> {
     }
 
     @Override public Iterator<AMapEntry<K, V>> iterator () {
-        return new BTreeIterator<> (this);
+        return new BTreeCursor<> (this, null, true, null, true);
     }
 
-    private static class BTreeIterator<K,V> implements Iterator<AMapEntry<K,V>>, AMapEntry<K,V> {
-        private final Deque<Object> stack = new ArrayDeque<> ();
+    /**
+     * The spliterator splits along the index nodes' children, traversing entries in key order. Unlike the iterator, it passes on a
+     *  separate entry object for every entry.
+     */
+    @Override public Spliterator<AMapEntry<K, V>> spliterator () {
+        return new TreeSpliterator<> (this, size (), new TreeSpliterator.Shape<AMapEntry<K, V>> () {
+            @Override public Object[] split (Object subtree) {
+                return subtree instanceof IndexNode ? ((IndexNode) subtree).children : null;
+            }
+
+            @SuppressWarnings ("unchecked")
+            @Override public Iterator<AMapEntry<K, V>> iterator (Object subtree) {
+                return copyingIterator (((ABTreeMap<K,V>) subtree).iterator (), BTreeEntry::new);
+            }
+        }, Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+
+    /**
+     * @return the first entry in this subtree, or null if it is empty
+     */
+    abstract AMapEntry<K,V> firstEntry ();
+
+    /**
+     * @return the last entry in this subtree, or null if it is empty
+     */
+    abstract AMapEntry<K,V> lastEntry ();
+
+    /**
+     * @return the first entry with a key greater than (or equal to, if {@code inclusive} is true) a given key, or null if there is none
+     */
+    abstract AMapEntry<K,V> firstGreater (Object key, boolean inclusive);
+
+    /**
+     * @return the last entry with a key smaller than (or equal to, if {@code inclusive} is true) a given key, or null if there is none
+     */
+    abstract AMapEntry<K,V> lastSmaller (Object key, boolean inclusive);
+
+    @Override public AOption<AMapEntry<K, V>> first () {
+        return AOption.fromNullable (firstEntry ());
+    }
+    @Override public AOption<AMapEntry<K, V>> last () {
+        return AOption.fromNullable (lastEntry ());
+    }
+
+    @Override public AOption<AMapEntry<K, V>> firstGreaterThan (K key) {
+        return AOption.fromNullable (firstGreater (key, false));
+    }
+    @Override public AOption<AMapEntry<K, V>> firstGreaterOrEquals (K key) {
+        return AOption.fromNullable (firstGreater (key, true));
+    }
+    @Override public AOption<AMapEntry<K, V>> lastSmallerThan (K key) {
+        return AOption.fromNullable (lastSmaller (key, false));
+    }
+    @Override public AOption<AMapEntry<K, V>> lastSmallerOrEquals (K key) {
+        return AOption.fromNullable (lastSmaller (key, true));
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> rangeII (final K fromKey, final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, true, toKey, true);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> rangeIE (final K fromKey, final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, true, toKey, false);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> rangeEI (final K fromKey, final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, false, toKey, true);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> rangeEE (final K fromKey, final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, false, toKey, false);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> fromI (final K fromKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, true, null, false);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> fromE (final K fromKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, fromKey, false, null, false);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> toI (final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, null, false, toKey, true);
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<K, V>> toE (final K toKey) {
+        return new Iterable<AMapEntry<K, V>> () {
+            @Override public Iterator<AMapEntry<K, V>> iterator () {
+                return new BTreeCursor<> (ABTreeMap.this, null, false, toKey, false);
+            }
+        };
+    }
+
+    /**
+     * An immutable entry, returned by the methods that look up a single entry. Iteration on the other hand returns the iterator itself as
+     *  a flyweight entry.
+     */
+    static class BTreeEntry<K,V> implements AMapEntry<K,V> {
+        private final K key;
+        private final V value;
+
+        BTreeEntry (K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override public K getKey () {
+            return key;
+        }
+        @Override public V getValue () {
+            return value;
+        }
+
+        @Override public String toString () {
+            return "BTreeEntry{" + key + "=" + value + "}";
+        }
+    }
+
+    /**
+     * This cursor iterates over a tree in key order, optionally restricted to a range of keys. It keeps the path from the root to the
+     *  current leaf in arrays that are allocated once, so moving from one leaf to the next requires no allocation. Positioning the cursor
+     *  at the lower boundary is a single descent from the root, so iterating over k entries takes O(log n + k).<p>
+     *
+     * Null boundaries mean that the range is unbounded on that side. Alternatively, the cursor can be positioned by index, iterating
+     *  over a given number of entries.
+     */
+    private static class BTreeCursor<K,V> implements Iterator<AMapEntry<K,V>>, AMapEntry<K,V> {
+        private final Comparator comparator;
+        private final Object to;
+        private final boolean toInclusive;
+        private int remaining;
+
+        // all leaves are at the same depth, so the path always has the same length
+        private final IndexNode[] path;
+        private final int[] pathIdx;
+
+        private LeafNode leaf;
+        private int leafIdx;
+        private boolean hasNext;
 
         private K curKey;
         private V curValue;
 
-        public BTreeIterator (ABTreeMap root) {
-            if (! root.isEmpty ()) {
-                stack.push (root);
+        BTreeCursor (ABTreeMap root, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+            this.comparator = root.spec.comparator;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            this.remaining = Integer.MAX_VALUE;
+
+            final int depth = depth (root);
+            path = new IndexNode[depth];
+            pathIdx = new int[depth];
+
+            ABTreeMap node = root;
+            for (int level=0; level<depth; level++) {
+                path[level] = (IndexNode) node;
+                pathIdx[level] = from == null ? 0 : path[level].lookupKey (from);
+                node = path[level].children[pathIdx[level]];
+            }
+
+            leaf = (LeafNode) node;
+            leafIdx = from == null ? 0 : leaf.indexOfFirstGreater (from, fromInclusive);
+            if (leafIdx == leaf.keys.length) {
+                nextLeaf ();
+            }
+            updateHasNext ();
+        }
+
+        BTreeCursor (ABTreeMap root, int fromIndex, int count) {
+            this.comparator = root.spec.comparator;
+            this.to = null;
+            this.toInclusive = false;
+            this.remaining = count;
+
+            final int depth = depth (root);
+            path = new IndexNode[depth];
+            pathIdx = new int[depth];
+
+            ABTreeMap node = root;
+            int index = fromIndex;
+            for (int level=0; level<depth; level++) {
+                path[level] = (IndexNode) node;
+                int childIdx = 0;
+                // the last child takes all remaining positions, including the one after the last entry
+                while (childIdx < path[level].children.length - 1 && index >= path[level].children[childIdx].size ()) {
+                    index -= path[level].children[childIdx].size ();
+                    childIdx += 1;
+                }
+                pathIdx[level] = childIdx;
+                node = path[level].children[childIdx];
+            }
+
+            leaf = (LeafNode) node;
+            leafIdx = index;
+            if (leafIdx == leaf.keys.length) {
+                nextLeaf ();
+            }
+            updateHasNext ();
+        }
+
+        private static int depth (ABTreeMap root) {
+            int result = 0;
+            for (ABTreeMap node = root; node instanceof IndexNode; node = ((IndexNode) node).children[0]) {
+                result += 1;
+            }
+            return result;
+        }
+
+        private void nextLeaf () {
+            int level = path.length - 1;
+            while (level >= 0 && pathIdx[level] == path[level].children.length - 1) {
+                level -= 1;
+            }
+            if (level < 0) {
+                leaf = null;
+                return;
+            }
+
+            pathIdx[level] += 1;
+            ABTreeMap node = path[level].children[pathIdx[level]];
+            for (level += 1; level < path.length; level++) {
+                path[level] = (IndexNode) node;
+                pathIdx[level] = 0;
+                node = path[level].children[0];
+            }
+
+            leaf = (LeafNode) node;
+            leafIdx = 0;
+        }
+
+        @SuppressWarnings ("unchecked")
+        private void updateHasNext () {
+            if (leaf == null || remaining == 0) {
+                hasNext = false;
+            }
+            else if (to == null) {
+                hasNext = true;
+            }
+            else {
+                final int cmp = comparator.compare (leaf.keys[leafIdx], to);
+                hasNext = cmp < 0 || (cmp == 0 && toInclusive);
             }
         }
 
@@ -93,35 +545,25 @@ public abstract class ABTreeMap<K, V> extends AbstractAMap<K,V> {
         }
 
         @Override public boolean hasNext () {
-            return !stack.isEmpty ();
+            return hasNext;
         }
 
         @SuppressWarnings ("unchecked")
         @Override public AMapEntry<K, V> next () {
-            Object next;
+            if (! hasNext) {
+                throw new NoSuchElementException ();
+            }
 
-            while (true) {
-                next = stack.pop ();
+            curKey = (K) leaf.keys[leafIdx];
+            curValue = (V) leaf.values[leafIdx];
 
-                if (next instanceof LeafNode) {
-                    final LeafNode leafNode = (LeafNode) next;
-                    for (int i=0; i<leafNode.size (); i++) {
-                        stack.push (leafNode.values[i]); // push key and value separately to avoid creating temporary object
-                        stack.push (leafNode.keys[i]);
-                    }
-                }
-                else if (next instanceof IndexNode) {
-                    final IndexNode indexNode = (IndexNode) next;
-                    for (ABTreeMap child: indexNode.children) {
-                        stack.push (child);
-                    }
-                }
-                else {
-                    curKey = (K) next;
-                    curValue = (V) stack.pop ();
-                    return this;
-                }
+            leafIdx += 1;
+            remaining -= 1;
+            if (leafIdx == leaf.keys.length) {
+                nextLeaf ();
             }
+            updateHasNext ();
+            return this;
         }
 
         @Override public void remove () {
@@ -1,5 +1,7 @@
 package com.ajjpj.afoundation.collection.immutable;
 
+import java.util.Arrays;
+
 
 /**
  * @author arno
@@ -12,7 +14,7 @@ public class ABTreeSet<T> extends MapAsSetWrapper<T, ABTreeSet<T>> {
 
     @SuppressWarnings ("unchecked")
     public static <T> ABTreeSet<T> create (ABTreeSpec spec, T... elements) {
-        return create (spec, elements);
+        return create (spec, Arrays.asList (elements));
     }
 
     public static <T> ABTreeSet<T> create (ABTreeSpec spec, Iterable<T> elements) {
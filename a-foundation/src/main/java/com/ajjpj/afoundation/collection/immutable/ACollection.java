@@ -6,6 +6,10 @@ import com.ajjpj.afoundation.function.APartialFunction;
 import com.ajjpj.afoundation.function.APredicate;
 
 import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -122,5 +126,27 @@ public interface ACollection<T> extends ATraversable<T>, Iterable<T> {
      * Creates a java.util.Collection wrapper around this collection and returns that view.
      */
     Collection<T> asJavaUtilCollection();
+
+    /**
+     * The spliterator reports the collection's exact size. Sets backed by hash maps or tree maps split along the maps' internal structure
+     *  without copying; the default implementation splits by copying batches of elements from the iterator.
+     */
+    @Override default Spliterator<T> spliterator () {
+        return Spliterators.spliterator (iterator (), size (), Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * @return a sequential {@link Stream} of this collection's elements
+     */
+    default Stream<T> stream () {
+        return StreamSupport.stream (spliterator (), false);
+    }
+
+    /**
+     * @return a possibly parallel {@link Stream} of this collection's elements
+     */
+    default Stream<T> parallelStream () {
+        return StreamSupport.stream (spliterator (), true);
+    }
 }
 
@@ -2,11 +2,16 @@ package com.ajjpj.afoundation.collection.immutable;
 
 import com.ajjpj.afoundation.collection.AEquality;
 import com.ajjpj.afoundation.function.AFunction1;
+import com.ajjpj.afoundation.function.AFunction2;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
 
 
 /**
@@ -59,13 +64,13 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
      *  <code>java.util.Map</code>.
      */
     public static <K,V> AHashMap<K,V> fromJavaUtilMap(AEquality equality, Map<K,V> map) {
-        AHashMap<K,V> result = empty(equality);
+        final Builder<K,V> builder = builder(equality);
 
         for(Map.Entry<K,V> entry: map.entrySet()) {
-            result = result.updated(entry.getKey(), entry.getValue());
+            builder.add(entry.getKey(), entry.getValue());
         }
 
-        return result;
+        return builder.build();
     }
 
     /**
@@ -83,15 +88,15 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
         final Iterator<K> ki = keys.iterator();
         final Iterator<V> vi = values.iterator();
 
-        AHashMap<K,V> result = empty(equality);
+        final Builder<K,V> builder = builder(equality);
 
         while(ki.hasNext()) {
             final K key = ki.next();
             final V value = vi.next();
 
-            result = result.updated(key, value);
+            builder.add(key, value);
         }
-        return result;
+        return builder.build();
     }
 
     /**
@@ -111,15 +116,60 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
     public static <K,V, E extends Throwable> AHashMap<K,V> fromKeysAndFunction(AEquality equality, Iterable<K> keys, AFunction1<? super K, ? extends V, E> f) throws E {
         final Iterator<K> ki = keys.iterator();
 
-        AHashMap<K,V> result = AHashMap.empty(equality);
+        final Builder<K,V> builder = builder(equality);
 
         while(ki.hasNext()) {
             final K key = ki.next();
             final V value = f.apply(key);
 
-            result = result.updated(key, value);
+            builder.add(key, value);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a builder for an AHashMap with default (i.e. equals-based) equalityForEquals, see {@link Builder}.
+     */
+    public static <K,V> Builder<K,V> builder() {
+        return builder(DEFAULT_EQUALITY);
+    }
+    /**
+     * Returns a builder for an AHashMap with the given equalityForEquals strategy, see {@link Builder}.
+     */
+    public static <K,V> Builder<K,V> builder(AEquality equality) {
+        return new Builder<>(AHashMap.<K,V>empty(equality));
+    }
+
+    /**
+     * A Builder creates an AHashMap by adding one entry at a time, like repeated calls to {@link #updated(Object, Object)} would, but
+     *  without the garbage: The builder creates mutable trie nodes that it modifies in place rather than copying them. {@link #build()}
+     *  replaces them with regular trie nodes, so the maps it returns are as immutable - and as safe to share between threads - as all other
+     *  maps. The builder can be used to add more entries after calling {@code build()}, copying nodes as needed.<p>
+     *
+     * A builder is not thread safe.
+     */
+    public static class Builder<K,V> {
+        private AHashMap<K,V> root;
+
+        private Builder(AHashMap<K,V> root) {
+            this.root = root;
+        }
+
+        public Builder<K,V> add(K key, V value) {
+            root = root.doUpdatedTransient(key, computeHash(key, root.equality), 0, value);
+            return this;
+        }
+
+        public int size() {
+            return root.size();
+        }
+
+        public AHashMap<K,V> build() {
+            if (root instanceof TransientTrieMap) {
+                root = ((TransientTrieMap<K,V>) root).freeze();
+            }
+            return root;
         }
-        return result;
     }
 
     private AHashMap(AEquality equality) {
@@ -150,10 +200,78 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
         return doRemoved(key, computeHash(key, equality), 0);
     }
 
+    /**
+     * Returns a map with the entries of both this map and {@code other}. For keys that are contained in both maps, the merge function is
+     *  called with the value from this map and the value from {@code other}, unless both maps hold the same value instance, which is
+     *  then kept.<p>
+     *
+     * If both maps have the same key equality, this walks their tries in lockstep, reusing subtrees that only one of the maps has or that
+     *  both maps share. Maps derived from a common ancestor are merged in time proportional to the parts in which they differ.
+     */
+    public <E extends Throwable> AHashMap<K,V> union(AHashMap<K,V> other, AFunction2<? super V, ? super V, ? extends V, E> mergeFunction) throws E {
+        if (! equality.equals(other.equality)) {
+            AHashMap<K,V> result = this;
+            for (AMapEntry<K,V> e: other) {
+                final AOption<V> existing = result.get(e.getKey());
+                final V value = existing.isDefined() && existing.get() != e.getValue() ? mergeFunction.apply(existing.get(), e.getValue()) : e.getValue();
+                result = result.updated(e.getKey(), value);
+            }
+            return result;
+        }
+        return union0(this, other, 0, mergeFunction);
+    }
+
+    /**
+     * Returns a map with those entries of this map whose keys are contained in {@code other}. See {@link #union} for performance
+     *  characteristics.
+     */
+    public AHashMap<K,V> intersect(AHashMap<K,?> other) {
+        if (! equality.equals(other.equality)) {
+            final Builder<K,V> builder = builder(equality);
+            for (AMapEntry<K,V> e: this) {
+                if (other.containsKey(e.getKey())) {
+                    builder.add(e.getKey(), e.getValue());
+                }
+            }
+            return builder.build();
+        }
+        return intersect0(this, other, 0);
+    }
+
+    /**
+     * Returns a map with those entries of this map whose keys are not contained in {@code other}. See {@link #union} for performance
+     *  characteristics.
+     */
+    public AHashMap<K,V> diff(AHashMap<K,?> other) {
+        if (! equality.equals(other.equality)) {
+            AHashMap<K,V> result = this;
+            for (AMapEntry<K,?> e: other) {
+                result = result.removed(e.getKey());
+            }
+            return result;
+        }
+        return diff0(this, other, 0);
+    }
+
+    /**
+     * Returns a map with those entries of this map whose keys are contained in {@code keys}. This is the same as {@link #intersect}
+     *  with the set's underlying map.
+     */
+    public AHashMap<K,V> filterKeys(AHashSet<K> keys) {
+        return intersect(keys.hashMap());
+    }
+
     @Override public Iterator<AMapEntry<K, V>> iterator() {
         return new HashMapIterator<> (this);
     }
 
+    /**
+     * The spliterator splits along the trie's child arrays.
+     */
+    @Override public Spliterator<AMapEntry<K, V>> spliterator() {
+        return new TreeSpliterator<>(this, size(), subtree -> subtree instanceof HashTrieMap ? ((HashTrieMap) subtree).elems : null, Spliterator.DISTINCT);
+    }
+
     static class HashMapIterator<K,V> implements Iterator<AMapEntry<K,V>> {
         private final Deque<Object> stack = new ArrayDeque<> ();
 
@@ -227,6 +345,21 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
         return this;
     }
 
+    /**
+     * @return the entry stored for the key, or null if there is none
+     */
+    AMapEntry<K,V> doGetEntry(K key, int hash, int level) {
+        return null;
+    }
+
+    /**
+     * Same as {@link #doUpdated}, except that {@link TransientTrieMap}s are modified in place, and new trie nodes are created as
+     *  TransientTrieMaps. Leaf nodes are always copied.
+     */
+    AHashMap<K,V> doUpdatedTransient(K key, int hash, int level, V value) {
+        return doUpdated(key, hash, level, value);
+    }
+
     private static int computeHash(Object key, AEquality equality) {
         int h = equality.hashCode(key);
         h = h + ~(h << 9);
@@ -241,9 +374,9 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
     }
 
     /**
-     * very internal method. It assumes hash0 != hash1.
+     * very internal method. It assumes hash0 != hash1. The new trie nodes are TransientTrieMaps if {@code isTransient} is true.
      */
-    private static<K,V> HashTrieMap<K,V> mergeLeafMaps(int hash0, AHashMap<K,V> elem0, int hash1, AHashMap<K,V> elem1, int level, int size, AEquality equality) {
+    private static<K,V> AHashMap<K,V> mergeLeafMaps(int hash0, AHashMap<K,V> elem0, int hash1, AHashMap<K,V> elem1, int level, int size, AEquality equality, boolean isTransient) {
         final int index0 = (hash0 >>> level) & 0x1f;
         final int index1 = (hash1 >>> level) & 0x1f;
         if(index0 != index1) {
@@ -257,18 +390,305 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
                 elems[0] = elem1;
                 elems[1] = elem0;
             }
-            return new HashTrieMap<>(bitmap, elems, size, equality);
+            return isTransient ? new TransientTrieMap<>(bitmap, elems, size, equality) : new HashTrieMap<>(bitmap, elems, size, equality);
         }
         else {
             final AHashMap<K,V>[] elems = createArray(1);
             final int bitmap = (1 << index0);
             // try again, based on the
-            elems[0] = mergeLeafMaps(hash0, elem0, hash1, elem1, level + LEVEL_INCREMENT, size, equality);
-            return new HashTrieMap<>(bitmap, elems, size, equality);
+            elems[0] = mergeLeafMaps(hash0, elem0, hash1, elem1, level + LEVEL_INCREMENT, size, equality, isTransient);
+            return isTransient ? new TransientTrieMap<>(bitmap, elems, size, equality) : new HashTrieMap<>(bitmap, elems, size, equality);
         }
     }
 
 
+    //------------------------------ set algebra. Trie nodes of both maps are at the same level, and identical subtrees are reused.
+
+    @SuppressWarnings("unchecked")
+    private static <K,V,E extends Throwable> AHashMap<K,V> union0(AHashMap<K,V> a, AHashMap<K,V> b, int level, AFunction2<? super V, ? super V, ? extends V, E> mergeFunction) throws E {
+        if (a == b || b.isEmpty()) return a;
+        if (a.isEmpty()) return b;
+
+        if (a instanceof HashTrieMap && b instanceof HashTrieMap) {
+            final HashTrieMap<K,V> ta = (HashTrieMap<K,V>) a;
+            final HashTrieMap<K,V> tb = (HashTrieMap<K,V>) b;
+
+            final int bitmap = ta.bitmap | tb.bitmap;
+            final AHashMap<K,V>[] elems = createArray(Integer.bitCount(bitmap));
+            boolean sameAsA = bitmap == ta.bitmap;
+            boolean sameAsB = bitmap == tb.bitmap;
+            int size = 0;
+
+            int ia = 0, ib = 0, offset = 0;
+            for (int bits = bitmap; bits != 0; bits &= bits - 1) {
+                final int mask = Integer.lowestOneBit(bits);
+                final AHashMap<K,V> subA = (ta.bitmap & mask) != 0 ? ta.elems[ia++] : null;
+                final AHashMap<K,V> subB = (tb.bitmap & mask) != 0 ? tb.elems[ib++] : null;
+
+                final AHashMap<K,V> sub;
+                if (subA == null) sub = subB;
+                else if (subB == null) sub = subA;
+                else sub = union0(subA, subB, level + LEVEL_INCREMENT, mergeFunction);
+
+                sameAsA = sameAsA && sub == subA;
+                sameAsB = sameAsB && sub == subB;
+                size += sub.size();
+                elems[offset++] = sub;
+            }
+
+            if (sameAsA) return a;
+            if (sameAsB) return b;
+            return new HashTrieMap<>(bitmap, elems, size, a.equality);
+        }
+
+        if (a instanceof HashMap1 && b instanceof HashMap1) {
+            final HashMap1<K,V> la = (HashMap1<K,V>) a;
+            final HashMap1<K,V> lb = (HashMap1<K,V>) b;
+            if (la.hash == lb.hash && a.equality.equals(la.key, lb.key)) {
+                // the same key in both maps: the result can often be one of the leaves
+                final V value = la.value == lb.value ? la.value : mergeFunction.apply(la.value, lb.value);
+                if (value == la.value) return a;
+                if (value == lb.value) return b;
+                return new HashMap1<>(la.key, la.hash, value, a.equality);
+            }
+        }
+
+        if (! (b instanceof HashTrieMap)) {
+            // add b's entries to a
+            final int hash = leafHash(b);
+            AHashMap<K,V> result = a;
+            for (AMapEntry<K,V> e: leafEntries(b)) {
+                final AOption<V> existing = result.doGet(e.getKey(), hash, level);
+                final V value = existing.isDefined() && existing.get() != e.getValue() ? mergeFunction.apply(existing.get(), e.getValue()) : e.getValue();
+                result = result.doUpdated(e.getKey(), hash, level, value);
+            }
+            return result;
+        }
+
+        // add a's entries to b
+        final int hash = leafHash(a);
+        AHashMap<K,V> result = b;
+        for (AMapEntry<K,V> e: leafEntries(a)) {
+            final AOption<V> existing = result.doGet(e.getKey(), hash, level);
+            final V value = existing.isDefined() && existing.get() != e.getValue() ? mergeFunction.apply(e.getValue(), existing.get()) : e.getValue();
+            result = result.doUpdated(e.getKey(), hash, level, value);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> AHashMap<K,V> intersect0(AHashMap<K,V> a, AHashMap<K,?> b, int level) {
+        if ((Object) a == b || a.isEmpty()) return a;
+        if (b.isEmpty()) return empty(a.equality);
+
+        if (a instanceof HashTrieMap && b instanceof HashTrieMap) {
+            final HashTrieMap<K,V> ta = (HashTrieMap<K,V>) a;
+            final HashTrieMap<K,?> tb = (HashTrieMap<K,?>) b;
+
+            final AHashMap<K,V>[] elems = createArray(Integer.bitCount(ta.bitmap & tb.bitmap));
+            int bitmap = 0;
+            int size = 0;
+            int numElems = 0;
+            boolean same = ta.bitmap == (ta.bitmap & tb.bitmap);
+
+            int ia = 0, ib = 0;
+            for (int bits = ta.bitmap | tb.bitmap; bits != 0; bits &= bits - 1) {
+                final int mask = Integer.lowestOneBit(bits);
+                final AHashMap<K,V> subA = (ta.bitmap & mask) != 0 ? ta.elems[ia++] : null;
+                final AHashMap<K,?> subB = (tb.bitmap & mask) != 0 ? tb.elems[ib++] : null;
+                if (subA == null || subB == null) {
+                    continue;
+                }
+
+                final AHashMap<K,V> sub = intersect0(subA, subB, level + LEVEL_INCREMENT);
+                same = same && sub == subA;
+                if (sub.nonEmpty()) {
+                    bitmap |= mask;
+                    size += sub.size();
+                    elems[numElems++] = sub;
+                }
+            }
+
+            if (same) return a;
+            return trieOf(bitmap, elems, numElems, size, a.equality);
+        }
+
+        if (a instanceof HashTrieMap) {
+            // b is a leaf: look up its keys in a
+            final int hash = leafHash(b);
+            AHashMap<K,V> result = empty(a.equality);
+            for (AMapEntry<K,?> e: leafEntries(b)) {
+                final AMapEntry<K,V> entry = a.doGetEntry(e.getKey(), hash, level);
+                if (entry != null) {
+                    result = result.doUpdated(entry.getKey(), hash, level, entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        // a is a leaf: keep those of its entries that b contains
+        AHashMap<K,V> result = a;
+        final int hash = leafHash(a);
+        for (AMapEntry<K,V> e: leafEntries(a)) {
+            if (b.doGetEntry(e.getKey(), hash, level) == null) {
+                result = result.doRemoved(e.getKey(), hash, level);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> AHashMap<K,V> diff0(AHashMap<K,V> a, AHashMap<K,?> b, int level) {
+        if ((Object) a == b) return empty(a.equality);
+        if (a.isEmpty() || b.isEmpty()) return a;
+
+        if (a instanceof HashTrieMap && b instanceof HashTrieMap) {
+            final HashTrieMap<K,V> ta = (HashTrieMap<K,V>) a;
+            final HashTrieMap<K,?> tb = (HashTrieMap<K,?>) b;
+
+            final AHashMap<K,V>[] elems = createArray(ta.elems.length);
+            int bitmap = 0;
+            int size = 0;
+            int numElems = 0;
+            boolean same = true;
+
+            for (int bits = ta.bitmap, ia = 0; bits != 0; bits &= bits - 1, ia++) {
+                final int mask = Integer.lowestOneBit(bits);
+                final AHashMap<K,V> subA = ta.elems[ia];
+
+                final AHashMap<K,V> sub;
+                if ((tb.bitmap & mask) != 0) {
+                    sub = diff0(subA, tb.elems[Integer.bitCount(tb.bitmap & (mask - 1))], level + LEVEL_INCREMENT);
+                }
+                else {
+                    sub = subA;
+                }
+
+                same = same && sub == subA;
+                if (sub.nonEmpty()) {
+                    bitmap |= mask;
+                    size += sub.size();
+                    elems[numElems++] = sub;
+                }
+            }
+
+            if (same) return a;
+            return trieOf(bitmap, elems, numElems, size, a.equality);
+        }
+
+        if (a instanceof HashTrieMap) {
+            // b is a leaf: remove its keys from a
+            final int hash = leafHash(b);
+            AHashMap<K,V> result = a;
+            for (AMapEntry<K,?> e: leafEntries(b)) {
+                result = result.doRemoved(e.getKey(), hash, level);
+            }
+            return result;
+        }
+
+        // a is a leaf: remove those of its entries that b contains
+        AHashMap<K,V> result = a;
+        final int hash = leafHash(a);
+        for (AMapEntry<K,V> e: leafEntries(a)) {
+            if (b.doGetEntry(e.getKey(), hash, level) != null) {
+                result = result.doRemoved(e.getKey(), hash, level);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This is the structural diff for {@link AMapDiff}. It walks both tries in lockstep like the set algebra above, skipping subtrees that
+     *  are shared by both maps.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> void collectChanges(AHashMap<K,V> oldMap, AHashMap<K,V> newMap, int level, AMapDiff.Builder<K,V> result) {
+        if (oldMap == newMap) {
+            return;
+        }
+
+        if (oldMap instanceof HashTrieMap && newMap instanceof HashTrieMap) {
+            final HashTrieMap<K,V> to = (HashTrieMap<K,V>) oldMap;
+            final HashTrieMap<K,V> tn = (HashTrieMap<K,V>) newMap;
+
+            int io = 0, in = 0;
+            for (int bits = to.bitmap | tn.bitmap; bits != 0; bits &= bits - 1) {
+                final int mask = Integer.lowestOneBit(bits);
+                final AHashMap<K,V> subOld = (to.bitmap & mask) != 0 ? to.elems[io++] : empty(oldMap.equality);
+                final AHashMap<K,V> subNew = (tn.bitmap & mask) != 0 ? tn.elems[in++] : empty(oldMap.equality);
+                collectChanges(subOld, subNew, level + LEVEL_INCREMENT, result);
+            }
+            return;
+        }
+
+        // at least one of the nodes is a leaf or empty, so the other node's entries are looked up in it
+        if (! (oldMap instanceof HashTrieMap)) {
+            final int hash = oldMap.isEmpty() ? 0 : leafHash(oldMap);
+            final Iterable<AMapEntry<K,V>> oldEntries = oldMap.isEmpty() ? Collections.<AMapEntry<K,V>>emptyList() : leafEntries(oldMap);
+            for (AMapEntry<K,V> e: oldEntries) {
+                final AMapEntry<K,V> newEntry = newMap.doGetEntry(e.getKey(), hash, level);
+                if (newEntry == null) {
+                    result.removed(e);
+                }
+                else if (! Objects.equals(e.getValue(), newEntry.getValue())) {
+                    result.changed(e.getKey(), e.getValue(), newEntry.getValue());
+                }
+            }
+            for (AMapEntry<K,V> e: newMap) {
+                if (oldMap.doGetEntry(e.getKey(), computeHash(e.getKey(), oldMap.equality), level) == null) {
+                    result.added(e);
+                }
+            }
+        }
+        else {
+            final int hash = newMap.isEmpty() ? 0 : leafHash(newMap);
+            final Iterable<AMapEntry<K,V>> newEntries = newMap.isEmpty() ? Collections.<AMapEntry<K,V>>emptyList() : leafEntries(newMap);
+            for (AMapEntry<K,V> e: newEntries) {
+                final AMapEntry<K,V> oldEntry = oldMap.doGetEntry(e.getKey(), hash, level);
+                if (oldEntry == null) {
+                    result.added(e);
+                }
+                else if (! Objects.equals(oldEntry.getValue(), e.getValue())) {
+                    result.changed(e.getKey(), oldEntry.getValue(), e.getValue());
+                }
+            }
+            for (AMapEntry<K,V> e: oldMap) {
+                if (newMap.doGetEntry(e.getKey(), computeHash(e.getKey(), newMap.equality), level) == null) {
+                    result.removed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * creates a trie node from the first {@code numElems} elements of {@code elems}, collapsing it the same way {@link #doRemoved} does
+     */
+    private static <K,V> AHashMap<K,V> trieOf(int bitmap, AHashMap<K,V>[] elems, int numElems, int size, AEquality equality) {
+        if (numElems == 0) {
+            return empty(equality);
+        }
+        if (numElems == 1 && ! (elems[0] instanceof HashTrieMap)) {
+            return elems[0];
+        }
+        return new HashTrieMap<>(bitmap, numElems == elems.length ? elems : Arrays.copyOf(elems, numElems), size, equality);
+    }
+
+    private static int leafHash(AHashMap<?,?> leaf) {
+        if (leaf instanceof HashMap1) {
+            return ((HashMap1) leaf).hash;
+        }
+        return ((HashMapCollision1) leaf).hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> Iterable<AMapEntry<K,V>> leafEntries(AHashMap<K,V> leaf) {
+        if (leaf instanceof HashMap1) {
+            return Collections.<AMapEntry<K,V>>singletonList((HashMap1<K,V>) leaf);
+        }
+        return ((HashMapCollision1<K,V>) leaf).kvs;
+    }
+
+
     static class HashMap1<K,V> extends AHashMap<K,V> implements AMapEntry<K,V> {
         private final K key;
         private final int hash;
@@ -299,7 +719,19 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
             return AOption.none();
         }
 
+        @Override AMapEntry<K,V> doGetEntry(K key, int hash, int level) {
+            return equality.equals(this.key, key) ? this : null;
+        }
+
         @Override AHashMap<K,V> doUpdated(K key, int hash, int level, V value) {
+            return doUpdated(key, hash, level, value, false);
+        }
+
+        @Override AHashMap<K,V> doUpdatedTransient(K key, int hash, int level, V value) {
+            return doUpdated(key, hash, level, value, true);
+        }
+
+        private AHashMap<K,V> doUpdated(K key, int hash, int level, V value, boolean isTransient) {
             if (hash == this.hash && equality.equals(key, this.key)) {
                 if(this.value == value) {
                     return this;
@@ -312,7 +744,7 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
                 if (hash != this.hash) {
                     // they have different hashes, but may collide at this level - find a level at which they don't
                     final AHashMap<K,V> that = new HashMap1<>(key, hash, value, equality);
-                    return mergeLeafMaps(this.hash, this, hash, that, level, 2, equality);
+                    return mergeLeafMaps(this.hash, this, hash, that, level, 2, equality, isTransient);
                 }
                 else {
                     // hash collision --> store all elements in the same bin
@@ -357,14 +789,35 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
             }
         }
 
+        @Override
+        AMapEntry<K,V> doGetEntry(K key, int hash, int level) {
+            if (hash == this.hash) {
+                for (AMapEntry<K,V> e: kvs) {
+                    if (equality.equals(e.getKey(), key)) {
+                        return e;
+                    }
+                }
+            }
+            return null;
+        }
+
         @Override
         AHashMap<K,V> doUpdated(K key, int hash, int level, V value) {
+            return doUpdated(key, hash, level, value, false);
+        }
+
+        @Override
+        AHashMap<K,V> doUpdatedTransient(K key, int hash, int level, V value) {
+            return doUpdated(key, hash, level, value, true);
+        }
+
+        private AHashMap<K,V> doUpdated(K key, int hash, int level, V value, boolean isTransient) {
             if (hash == this.hash) {
                 return new HashMapCollision1<>(hash, kvs.updated(key, value));
             }
             else {
                 final HashMap1<K,V> that = new HashMap1<>(key, hash, value, equality);
-                return mergeLeafMaps(this.hash, this, hash, that, level, size() + 1, equality);
+                return mergeLeafMaps(this.hash, this, hash, that, level, size() + 1, equality, isTransient);
             }
         }
 
@@ -423,6 +876,15 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
             }
         }
 
+        @Override
+        AMapEntry<K,V> doGetEntry(K key, int hash, int level) {
+            final int mask = 1 << ((hash >>> level) & 0x1f);
+            if ((bitmap & mask) != 0) {
+                return elems[Integer.bitCount(bitmap & (mask - 1))].doGetEntry(key, hash, level + LEVEL_INCREMENT);
+            }
+            return null;
+        }
+
         @Override
         AHashMap<K,V>  doUpdated(K key, int hash, int level, V value) {
             final int index = (hash >>> level) & 0x1f;
@@ -451,6 +913,32 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
             }
         }
 
+        @Override
+        AHashMap<K,V> doUpdatedTransient(K key, int hash, int level, V value) {
+            final int index = (hash >>> level) & 0x1f;
+            final int mask = (1 << index);
+            final int offset = Integer.bitCount(bitmap & (mask - 1));
+
+            if ((bitmap & mask) != 0) {
+                // children of an immutable node are immutable, so 'sub' is not modified in place
+                final AHashMap<K,V> sub = elems[offset];
+                final AHashMap<K,V> subNew = sub.doUpdatedTransient(key, hash, level + LEVEL_INCREMENT, value);
+                if (subNew == sub) {
+                    return this;
+                }
+                final AHashMap<K,V>[] elemsNew = elems.clone();
+                elemsNew[offset] = subNew;
+                return new TransientTrieMap<>(bitmap, elemsNew, size + (subNew.size() - sub.size()), equality);
+            }
+            else {
+                final AHashMap<K,V>[] elemsNew = createArray(elems.length + 1);
+                System.arraycopy(elems, 0, elemsNew, 0, offset);
+                elemsNew[offset] = new HashMap1<>(key, hash, value, equality);
+                System.arraycopy(elems, offset, elemsNew, offset + 1, elems.length - offset);
+                return new TransientTrieMap<>(bitmap | mask, elemsNew, size + 1, equality);
+            }
+        }
+
         @Override
         AHashMap<K,V> doRemoved(K key, int hash, int level) {
             final int index = (hash >>> level) & 0x1f;
@@ -498,15 +986,76 @@ public class AHashMap<K, V> extends AbstractAMap<K,V> {
         }
     }
 
+    /**
+     * A trie node that is modified in place by the {@link Builder} holding it. TransientTrieMaps are only reachable from a Builder, and
+     *  {@link #freeze()} replaces them with HashTrieMaps before a map is returned to application code.
+     */
+    static class TransientTrieMap<K,V> extends AHashMap<K,V> {
+        private int bitmap;
+        private AHashMap<K,V>[] elems;
+        private int size;
+
+        TransientTrieMap(int bitmap, AHashMap<K, V>[] elems, int size, AEquality equality) {
+            super(equality);
+
+            this.bitmap = bitmap;
+            this.elems = elems;
+            this.size = size;
+        }
+
+        @Override public int size() {
+            return size;
+        }
+
+        @Override
+        AHashMap<K,V> doUpdatedTransient(K key, int hash, int level, V value) {
+            final int index = (hash >>> level) & 0x1f;
+            final int mask = (1 << index);
+            final int offset = Integer.bitCount(bitmap & (mask - 1));
+
+            if ((bitmap & mask) != 0) {
+                final AHashMap<K,V> sub = elems[offset];
+                final int subSizeBefore = sub.size(); // 'sub' may be modified in place by the following call
+                final AHashMap<K,V> subNew = sub.doUpdatedTransient(key, hash, level + LEVEL_INCREMENT, value);
+                elems[offset] = subNew;
+                size += subNew.size() - subSizeBefore;
+            }
+            else {
+                final AHashMap<K,V>[] elemsNew = createArray(elems.length + 1);
+                System.arraycopy(elems, 0, elemsNew, 0, offset);
+                elemsNew[offset] = new HashMap1<>(key, hash, value, equality);
+                System.arraycopy(elems, offset, elemsNew, offset + 1, elems.length - offset);
+                elems = elemsNew;
+                bitmap |= mask;
+                size += 1;
+            }
+            return this;
+        }
+
+        /**
+         * This replaces this node and all TransientTrieMaps below it with HashTrieMaps, handing over the element arrays. The node must not
+         *  be used afterwards. Only nodes created since the previous call to {@link Builder#build()} are visited: Their children are either
+         *  TransientTrieMaps as well or subtrees that are immutable already.
+         */
+        HashTrieMap<K,V> freeze() {
+            for (int i=0; i<elems.length; i++) {
+                if (elems[i] instanceof TransientTrieMap) {
+                    elems[i] = ((TransientTrieMap<K,V>) elems[i]).freeze();
+                }
+            }
+            return new HashTrieMap<>(bitmap, elems, size, equality);
+        }
+    }
+
     private Object readResolve() {
         // rebuild the map in case hashCodes of entries were changed by serialization
 
-        AHashMap<K,V> result = AHashMap.empty (equality);
+        final Builder<K,V> builder = AHashMap.builder (equality);
 
         for (AMapEntry<K,V> entry: this) {
-            result = result.updated (entry.getKey (), entry.getValue ());
+            builder.add (entry.getKey (), entry.getValue ());
         }
 
-        return result;
+        return builder.build ();
     }
 }
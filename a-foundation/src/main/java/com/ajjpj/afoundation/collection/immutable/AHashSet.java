@@ -45,18 +45,90 @@ public class AHashSet<T> extends MapAsSetWrapper<T, AHashSet<T>> {
     }
 
     public static <T> AHashSet<T> create (AEquality equality, Iterable<T> elements) {
-        AHashSet<T> result = empty (equality);
+        final Builder<T> builder = builder (equality);
 
         for (T el: elements) {
-            result = result.with (el);
+            builder.add (el);
+        }
+        return builder.build ();
+    }
+
+    public static <T> Builder<T> builder () {
+        return builder (AEquality.EQUALS);
+    }
+
+    public static <T> Builder<T> builder (AEquality equality) {
+        return new Builder<> (equality);
+    }
+
+    /**
+     * A Builder creates an AHashSet by adding one element at a time, modifying its internal data structures in place rather than
+     *  copying them. See {@link AHashMap.Builder} for details.
+     */
+    public static class Builder<T> {
+        private final AEquality equality;
+        private final AHashMap.Builder<T, Boolean> inner;
+
+        private Builder (AEquality equality) {
+            this.equality = equality;
+            this.inner = AHashMap.builder (equality);
+        }
+
+        public Builder<T> add (T el) {
+            inner.add (el, Boolean.TRUE);
+            return this;
+        }
+
+        public int size () {
+            return inner.size ();
+        }
+
+        public AHashSet<T> build () {
+            final AHashMap<T, Boolean> map = inner.build ();
+            return map.isEmpty () ? empty (equality) : new AHashSet<> (map);
         }
-        return result;
     }
 
     public static <T> AHashSet<T> fromMap (AHashMap<T, ?> inner) {
         return new AHashSet<> (inner);
     }
 
+    AHashMap<T, ?> hashMap () {
+        // the constructor is private, and all factories pass in an AHashMap
+        return (AHashMap<T, ?>) inner ();
+    }
+
+    /**
+     * Returns a set with the elements of both sets. If both sets have the same equality, this reuses the parts of their internal
+     *  hash tries they share, see {@link AHashMap#union}.
+     */
+    @SuppressWarnings ("unchecked")
+    public AHashSet<T> union (AHashSet<T> other) {
+        final AHashMap<T, Object> map = (AHashMap<T, Object>) hashMap ();
+        return wrap (map.union ((AHashMap<T, Object>) other.hashMap (), (v1, v2) -> v1));
+    }
+
+    /**
+     * Returns a set with the elements that are contained in both sets, see {@link AHashMap#intersect}.
+     */
+    public AHashSet<T> intersect (AHashSet<T> other) {
+        return wrap (hashMap ().intersect (other.hashMap ()));
+    }
+
+    /**
+     * Returns a set with the elements of this set that are not contained in {@code other}, see {@link AHashMap#diff}.
+     */
+    public AHashSet<T> diff (AHashSet<T> other) {
+        return wrap (hashMap ().diff (other.hashMap ()));
+    }
+
+    private AHashSet<T> wrap (AHashMap<T, ?> map) {
+        if (map == hashMap ()) {
+            return this;
+        }
+        return map.isEmpty () ? empty (map.equality) : new AHashSet<> (map);
+    }
+
     private Object readResolve() {
         if (isEmpty ()) {
             if (equalityForEquals () == AEquality.EQUALS) return EMPTY_EQUALS;
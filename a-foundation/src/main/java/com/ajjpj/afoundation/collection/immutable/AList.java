@@ -187,6 +187,14 @@ abstract public class AList<T> extends AbstractACollection<T, AList<T>> implemen
         };
     }
 
+    /**
+     * A linked list can not be split without traversing it, so the spliterator splits by copying batches of elements into arrays.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.IMMUTABLE | Spliterator.ORDERED);
+    }
+
 
     static final class AHead<T> extends AList<T> {
         private final T head;
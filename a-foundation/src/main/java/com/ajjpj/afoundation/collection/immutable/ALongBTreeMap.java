@@ -0,0 +1,731 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import com.ajjpj.afoundation.collection.AEquality;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+
+/**
+ * This is a B-tree map for keys of primitive 'long' values. Its structure is the same as {@link ABTreeMap}'s, but the classes are not
+ *  related by type. Keys are stored in {@code long[]} arrays and compared directly rather than through a comparator, so lookups neither
+ *  box keys nor make megamorphic calls, and each node's keys are contiguous in memory.<p>
+ *
+ * The {@link ASortedMap} methods are implemented with a cursor taking O(log n + k) for k entries. There are overloads with primitive
+ *  keys, and {@link #longIterator()} and {@link #longIterator(long, boolean, long, boolean)} return {@link ALongMapIterator}s that do
+ *  not box keys at all.
+ *
+ * @author arno
+ */
+public class ALongBTreeMap<V> extends AbstractAMap<Long,V> implements ASortedMap<Long,V> {
+    public static final int DEFAULT_MAX_NUM_ENTRIES = 32;
+
+    private static final LongLeafNode EMPTY_LEAF = new LongLeafNode (new long[0], new Object[0]);
+
+    @SuppressWarnings ("unchecked")
+    private static final ALongBTreeMap EMPTY = new ALongBTreeMap (DEFAULT_MAX_NUM_ENTRIES, EMPTY_LEAF);
+
+    /**
+     * the maximum number of entries per leaf, and of children per index node
+     */
+    final int maxNumEntries;
+    final Node root;
+
+    @SuppressWarnings ("unchecked")
+    public static <V> ALongBTreeMap<V> empty () {
+        return EMPTY;
+    }
+
+    /**
+     * @param maxNumEntries the maximum number of entries per leaf, and of children per index node. This must be at least 4.
+     */
+    public static <V> ALongBTreeMap<V> empty (int maxNumEntries) {
+        if (maxNumEntries < 4) {
+            throw new IllegalArgumentException ("maxNumEntries must be at least 4, was " + maxNumEntries);
+        }
+        return new ALongBTreeMap<> (maxNumEntries, EMPTY_LEAF);
+    }
+
+    private ALongBTreeMap (int maxNumEntries, Node root) {
+        this.maxNumEntries = maxNumEntries;
+        this.root = root;
+    }
+
+    @Override public int size () {
+        return root.size ();
+    }
+
+    @Override public boolean containsKey (Long key) {
+        return containsKey (key.longValue ());
+    }
+    public boolean containsKey (long key) {
+        final LongLeafNode leaf = leafFor (key);
+        final int idx = lowerBound (leaf.keys, key);
+        return idx < leaf.keys.length && leaf.keys[idx] == key;
+    }
+
+    @Override public AOption<V> get (Long key) {
+        return get (key.longValue ());
+    }
+    @SuppressWarnings ("unchecked")
+    public AOption<V> get (long key) {
+        final LongLeafNode leaf = leafFor (key);
+        final int idx = lowerBound (leaf.keys, key);
+        if (idx < leaf.keys.length && leaf.keys[idx] == key) {
+            return AOption.some ((V) leaf.values[idx]);
+        }
+        return AOption.none ();
+    }
+
+    public V getRequired (long key) {
+        return get (key).get ();
+    }
+
+    private LongLeafNode leafFor (long key) {
+        Node node = root;
+        while (node instanceof LongIndexNode) {
+            final LongIndexNode indexNode = (LongIndexNode) node;
+            node = indexNode.children[upperBound (indexNode.separators, key)];
+        }
+        return (LongLeafNode) node;
+    }
+
+    @Override public ASet<Long> keys () {
+        return ALongBTreeSet.create (this);
+    }
+
+    @Override public AEquality keyEquality () {
+        return AEquality.EQUALS;
+    }
+
+    @Override public ALongBTreeMap<V> clear () {
+        return new ALongBTreeMap<> (maxNumEntries, EMPTY_LEAF);
+    }
+
+    @Override public ALongBTreeMap<V> updated (Long key, V value) {
+        return updated (key.longValue (), value);
+    }
+    public ALongBTreeMap<V> updated (long key, V value) {
+        final Split split = new Split ();
+        final Node newRoot = root.updated (key, value, maxNumEntries, split);
+
+        if (split.right == null) {
+            return new ALongBTreeMap<> (maxNumEntries, newRoot);
+        }
+        // This is the only place where the tree depth can grow.
+        return new ALongBTreeMap<> (maxNumEntries, new LongIndexNode (new long[] {split.separator}, new Node[] {newRoot, split.right}));
+    }
+
+    @Override public ALongBTreeMap<V> removed (Long key) {
+        return removed (key.longValue ());
+    }
+    public ALongBTreeMap<V> removed (long key) {
+        final Node newRoot = root.removed (key, maxNumEntries);
+        if (newRoot == root) {
+            return this;
+        }
+
+        // This is the only place where the tree depth can shrink.
+        if (newRoot instanceof LongIndexNode && ((LongIndexNode) newRoot).children.length == 1) {
+            return new ALongBTreeMap<> (maxNumEntries, ((LongIndexNode) newRoot).children[0]);
+        }
+        return new ALongBTreeMap<> (maxNumEntries, newRoot);
+    }
+
+    //------------------------------ sorted access
+
+    @Override public AOption<AMapEntry<Long, V>> first () {
+        return toOption (root.firstEntry ());
+    }
+    @Override public AOption<AMapEntry<Long, V>> last () {
+        return toOption (root.lastEntry ());
+    }
+
+    @Override public AOption<AMapEntry<Long, V>> firstGreaterThan (Long key) {
+        return firstGreaterThan (key.longValue ());
+    }
+    public AOption<AMapEntry<Long, V>> firstGreaterThan (long key) {
+        return toOption (root.firstGreater (key, false));
+    }
+
+    @Override public AOption<AMapEntry<Long, V>> firstGreaterOrEquals (Long key) {
+        return firstGreaterOrEquals (key.longValue ());
+    }
+    public AOption<AMapEntry<Long, V>> firstGreaterOrEquals (long key) {
+        return toOption (root.firstGreater (key, true));
+    }
+
+    @Override public AOption<AMapEntry<Long, V>> lastSmallerThan (Long key) {
+        return lastSmallerThan (key.longValue ());
+    }
+    public AOption<AMapEntry<Long, V>> lastSmallerThan (long key) {
+        return toOption (root.lastSmaller (key, false));
+    }
+
+    @Override public AOption<AMapEntry<Long, V>> lastSmallerOrEquals (Long key) {
+        return lastSmallerOrEquals (key.longValue ());
+    }
+    public AOption<AMapEntry<Long, V>> lastSmallerOrEquals (long key) {
+        return toOption (root.lastSmaller (key, true));
+    }
+
+    /**
+     * Nodes are not generic, so this is where their entries are cast to the map's value type.
+     */
+    @SuppressWarnings ("unchecked")
+    private AOption<AMapEntry<Long, V>> toOption (LongEntry<?> entry) {
+        return AOption.fromNullable ((LongEntry<V>) entry);
+    }
+
+    @Override public Iterator<AMapEntry<Long, V>> iterator () {
+        return asIterator (longIterator ());
+    }
+
+    public ALongMapIterator<V> longIterator () {
+        return new LongCursor<> (root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * This returns a cursor over all entries with keys in a given range, without boxing keys.
+     */
+    public ALongMapIterator<V> longIterator (long fromKey, boolean fromInclusive, long toKey, boolean toInclusive) {
+        // convert the boundaries to inclusive ones, taking care of overflow
+        if ((!fromInclusive && fromKey == Long.MAX_VALUE) || (!toInclusive && toKey == Long.MIN_VALUE)) {
+            return new LongCursor<> (root, 1, 0);
+        }
+        return new LongCursor<> (root, fromInclusive ? fromKey : fromKey+1, toInclusive ? toKey : toKey-1);
+    }
+
+    private Iterable<AMapEntry<Long, V>> range (final long fromKey, final boolean fromInclusive, final long toKey, final boolean toInclusive) {
+        return new Iterable<AMapEntry<Long, V>> () {
+            @Override public Iterator<AMapEntry<Long, V>> iterator () {
+                return asIterator (longIterator (fromKey, fromInclusive, toKey, toInclusive));
+            }
+        };
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> rangeII (Long fromKey, Long toKey) {
+        return rangeII (fromKey.longValue (), toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> rangeII (long fromKey, long toKey) {
+        return range (fromKey, true, toKey, true);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> rangeIE (Long fromKey, Long toKey) {
+        return rangeIE (fromKey.longValue (), toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> rangeIE (long fromKey, long toKey) {
+        return range (fromKey, true, toKey, false);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> rangeEI (Long fromKey, Long toKey) {
+        return rangeEI (fromKey.longValue (), toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> rangeEI (long fromKey, long toKey) {
+        return range (fromKey, false, toKey, true);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> rangeEE (Long fromKey, Long toKey) {
+        return rangeEE (fromKey.longValue (), toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> rangeEE (long fromKey, long toKey) {
+        return range (fromKey, false, toKey, false);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> fromI (Long fromKey) {
+        return fromI (fromKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> fromI (long fromKey) {
+        return range (fromKey, true, Long.MAX_VALUE, true);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> fromE (Long fromKey) {
+        return fromE (fromKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> fromE (long fromKey) {
+        return range (fromKey, false, Long.MAX_VALUE, true);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> toI (Long toKey) {
+        return toI (toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> toI (long toKey) {
+        return range (Long.MIN_VALUE, true, toKey, true);
+    }
+
+    @Override public Iterable<AMapEntry<Long, V>> toE (Long toKey) {
+        return toE (toKey.longValue ());
+    }
+    public Iterable<AMapEntry<Long, V>> toE (long toKey) {
+        return range (Long.MIN_VALUE, true, toKey, false);
+    }
+
+    /**
+     * The spliterator traverses entries in key order. Unlike the iterator, it passes on a separate entry object for every entry.
+     */
+    @Override public Spliterator<AMapEntry<Long, V>> spliterator () {
+        return Spliterators.spliterator (copyingIterator (iterator (), LongEntry::new), size (), Spliterator.IMMUTABLE | Spliterator.DISTINCT | Spliterator.ORDERED);
+    }
+
+    private static <V> Iterator<AMapEntry<Long, V>> asIterator (final ALongMapIterator<V> inner) {
+        return new Iterator<AMapEntry<Long, V>> () {
+            @Override public boolean hasNext () {
+                return inner.hasNext ();
+            }
+
+            @Override public AMapEntry<Long, V> next () {
+                inner.next ();
+                return inner;
+            }
+
+            @Override public void remove () {
+                throw new UnsupportedOperationException ();
+            }
+        };
+    }
+
+    //------------------------------ binary search
+
+    /**
+     * @return the index of the first element that is greater than or equal to a given key, or the array's length if there is none. The
+     *  loop body has no data dependent branches, so the JIT can compile it to conditional moves, and mispredictions are avoided.
+     */
+    static int lowerBound (long[] arr, long key) {
+        int n = arr.length;
+        if (n == 0) {
+            return 0;
+        }
+
+        int base = 0;
+        while (n > 1) {
+            final int half = n >>> 1;
+            base = arr[base + half] < key ? base + half : base;
+            n -= half;
+        }
+        return base + (arr[base] < key ? 1 : 0);
+    }
+
+    /**
+     * @return the index of the first element that is greater than a given key, or the array's length if there is none
+     */
+    static int upperBound (long[] arr, long key) {
+        int n = arr.length;
+        if (n == 0) {
+            return 0;
+        }
+
+        int base = 0;
+        while (n > 1) {
+            final int half = n >>> 1;
+            base = arr[base + half] <= key ? base + half : base;
+            n -= half;
+        }
+        return base + (arr[base] <= key ? 1 : 0);
+    }
+
+    //------------------------------ tree nodes
+
+    /**
+     * This holds the second half of a node that was split. It is passed down the tree, and it is reused on the way up because every node
+     *  evaluates its child's split before it may be split in turn.
+     */
+    static class Split {
+        long separator;
+        Node right;
+    }
+
+    static abstract class Node {
+        abstract int size ();
+
+        /**
+         * @return the number of entries in a leaf, or of children in an index node
+         */
+        abstract int numEntries ();
+
+        /**
+         * @return the (left) updated node. If it had to be split, the right half and the separator are stored in {@code split}, otherwise
+         *  {@code split.right} is null.
+         */
+        abstract Node updated (long key, Object value, int maxNumEntries, Split split);
+
+        /**
+         * @return the updated node, which may be underfull, or the node itself if the key is not in this subtree
+         */
+        abstract Node removed (long key, int maxNumEntries);
+
+        /**
+         * This merges this node and its right neighbour, redistributing their entries if the result would be overfull. In that case, the
+         *  second node and the new separator are stored in {@code split}, otherwise {@code split.right} is null.
+         */
+        abstract Node mergeWith (Node rightNeighbour, long separator, int maxNumEntries, Split split);
+
+        abstract LongEntry<?> firstEntry ();
+        abstract LongEntry<?> lastEntry ();
+        abstract LongEntry<?> firstGreater (long key, boolean inclusive);
+        abstract LongEntry<?> lastSmaller (long key, boolean inclusive);
+    }
+
+    static final class LongLeafNode extends Node {
+        final long[] keys;
+        final Object[] values;
+
+        LongLeafNode (long[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override int size () {
+            return keys.length;
+        }
+        @Override int numEntries () {
+            return keys.length;
+        }
+
+        @Override Node updated (long key, Object value, int maxNumEntries, Split split) {
+            final int idx = lowerBound (keys, key);
+            if (idx < keys.length && keys[idx] == key) {
+                final Object[] newValues = values.clone ();
+                newValues[idx] = value;
+                return new LongLeafNode (keys, newValues);
+            }
+
+            final long[] newKeys = new long[keys.length + 1];
+            System.arraycopy (keys, 0, newKeys, 0, idx);
+            newKeys[idx] = key;
+            System.arraycopy (keys, idx, newKeys, idx+1, keys.length - idx);
+
+            final Object[] newValues = new Object[values.length + 1];
+            System.arraycopy (values, 0, newValues, 0, idx);
+            newValues[idx] = value;
+            System.arraycopy (values, idx, newValues, idx+1, values.length - idx);
+
+            return splitIfNecessary (newKeys, newValues, maxNumEntries, split);
+        }
+
+        private static Node splitIfNecessary (long[] keys, Object[] values, int maxNumEntries, Split split) {
+            if (keys.length <= maxNumEntries) {
+                split.right = null;
+                return new LongLeafNode (keys, values);
+            }
+
+            final int mid = keys.length / 2;
+            split.separator = keys[mid];
+            split.right = new LongLeafNode (Arrays.copyOfRange (keys, mid, keys.length), Arrays.copyOfRange (values, mid, values.length));
+            return new LongLeafNode (Arrays.copyOf (keys, mid), Arrays.copyOf (values, mid));
+        }
+
+        @Override Node removed (long key, int maxNumEntries) {
+            final int idx = lowerBound (keys, key);
+            if (idx == keys.length || keys[idx] != key) {
+                return this;
+            }
+
+            final long[] newKeys = new long[keys.length - 1];
+            System.arraycopy (keys, 0, newKeys, 0, idx);
+            System.arraycopy (keys, idx+1, newKeys, idx, keys.length - idx - 1);
+
+            final Object[] newValues = new Object[values.length - 1];
+            System.arraycopy (values, 0, newValues, 0, idx);
+            System.arraycopy (values, idx+1, newValues, idx, values.length - idx - 1);
+
+            return new LongLeafNode (newKeys, newValues);
+        }
+
+        @Override Node mergeWith (Node rightNeighbour, long separator, int maxNumEntries, Split split) {
+            final LongLeafNode right = (LongLeafNode) rightNeighbour;
+
+            final long[] allKeys = Arrays.copyOf (keys, keys.length + right.keys.length);
+            System.arraycopy (right.keys, 0, allKeys, keys.length, right.keys.length);
+
+            final Object[] allValues = Arrays.copyOf (values, values.length + right.values.length);
+            System.arraycopy (right.values, 0, allValues, values.length, right.values.length);
+
+            return splitIfNecessary (allKeys, allValues, maxNumEntries, split);
+        }
+
+        @Override LongEntry<?> firstEntry () {
+            return keys.length == 0 ? null : new LongEntry<> (keys[0], values[0]);
+        }
+        @Override LongEntry<?> lastEntry () {
+            return keys.length == 0 ? null : new LongEntry<> (keys[keys.length-1], values[keys.length-1]);
+        }
+
+        @Override LongEntry<?> firstGreater (long key, boolean inclusive) {
+            final int idx = inclusive ? lowerBound (keys, key) : upperBound (keys, key);
+            return idx == keys.length ? null : new LongEntry<> (keys[idx], values[idx]);
+        }
+        @Override LongEntry<?> lastSmaller (long key, boolean inclusive) {
+            final int idx = (inclusive ? upperBound (keys, key) : lowerBound (keys, key)) - 1;
+            return idx < 0 ? null : new LongEntry<> (keys[idx], values[idx]);
+        }
+    }
+
+    static final class LongIndexNode extends Node {
+        // one more child than separators. Every separator is greater than all keys in the child to its left, and smaller than or equal
+        //  to all keys in the child to its right.
+        final long[] separators;
+        final Node[] children;
+        private final int size;
+
+        LongIndexNode (long[] separators, Node[] children) {
+            this.separators = separators;
+            this.children = children;
+
+            int size = 0;
+            for (Node child: children) {
+                size += child.size ();
+            }
+            this.size = size;
+        }
+
+        @Override int size () {
+            return size;
+        }
+        @Override int numEntries () {
+            return children.length;
+        }
+
+        @Override Node updated (long key, Object value, int maxNumEntries, Split split) {
+            final int childIdx = upperBound (separators, key);
+            final Node newChild = children[childIdx].updated (key, value, maxNumEntries, split);
+
+            if (split.right == null) {
+                final Node[] newChildren = children.clone ();
+                newChildren[childIdx] = newChild;
+                return new LongIndexNode (separators, newChildren);
+            }
+
+            final long[] newSeparators = new long[separators.length + 1];
+            System.arraycopy (separators, 0, newSeparators, 0, childIdx);
+            newSeparators[childIdx] = split.separator;
+            System.arraycopy (separators, childIdx, newSeparators, childIdx+1, separators.length - childIdx);
+
+            final Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy (children, 0, newChildren, 0, childIdx);
+            newChildren[childIdx] = newChild;
+            newChildren[childIdx+1] = split.right;
+            System.arraycopy (children, childIdx+1, newChildren, childIdx+2, children.length - childIdx - 1);
+
+            return splitIfNecessary (newSeparators, newChildren, maxNumEntries, split);
+        }
+
+        private static Node splitIfNecessary (long[] separators, Node[] children, int maxNumEntries, Split split) {
+            if (children.length <= maxNumEntries) {
+                split.right = null;
+                return new LongIndexNode (separators, children);
+            }
+
+            // the separator between the two halves moves up to the parent
+            final int numLeft = children.length / 2;
+            split.separator = separators[numLeft-1];
+            split.right = new LongIndexNode (Arrays.copyOfRange (separators, numLeft, separators.length), Arrays.copyOfRange (children, numLeft, children.length));
+            return new LongIndexNode (Arrays.copyOf (separators, numLeft-1), Arrays.copyOf (children, numLeft));
+        }
+
+        @Override Node removed (long key, int maxNumEntries) {
+            final int childIdx = upperBound (separators, key);
+            final Node newChild = children[childIdx].removed (key, maxNumEntries);
+            if (newChild == children[childIdx]) {
+                return this;
+            }
+
+            if (newChild.numEntries () >= maxNumEntries/2) {
+                final Node[] newChildren = children.clone ();
+                newChildren[childIdx] = newChild;
+                return new LongIndexNode (separators, newChildren);
+            }
+
+            // the child underflowed --> merge it with a neighbour, or move entries over from that neighbour
+            final int leftIdx = childIdx == children.length-1 ? childIdx-1 : childIdx;
+            final Node left  = leftIdx == childIdx ? newChild : children[leftIdx];
+            final Node right = leftIdx == childIdx ? children[leftIdx+1] : newChild;
+
+            final Split split = new Split ();
+            final Node merged = left.mergeWith (right, separators[leftIdx], maxNumEntries, split);
+
+            if (split.right == null) {
+                final long[] newSeparators = new long[separators.length - 1];
+                System.arraycopy (separators, 0, newSeparators, 0, leftIdx);
+                System.arraycopy (separators, leftIdx+1, newSeparators, leftIdx, separators.length - leftIdx - 1);
+
+                final Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy (children, 0, newChildren, 0, leftIdx);
+                newChildren[leftIdx] = merged;
+                System.arraycopy (children, leftIdx+2, newChildren, leftIdx+1, children.length - leftIdx - 2);
+
+                return new LongIndexNode (newSeparators, newChildren);
+            }
+
+            final long[] newSeparators = separators.clone ();
+            newSeparators[leftIdx] = split.separator;
+
+            final Node[] newChildren = children.clone ();
+            newChildren[leftIdx] = merged;
+            newChildren[leftIdx+1] = split.right;
+
+            return new LongIndexNode (newSeparators, newChildren);
+        }
+
+        @Override Node mergeWith (Node rightNeighbour, long separator, int maxNumEntries, Split split) {
+            final LongIndexNode right = (LongIndexNode) rightNeighbour;
+
+            final long[] allSeparators = new long[separators.length + right.separators.length + 1];
+            System.arraycopy (separators, 0, allSeparators, 0, separators.length);
+            allSeparators[separators.length] = separator;
+            System.arraycopy (right.separators, 0, allSeparators, separators.length+1, right.separators.length);
+
+            final Node[] allChildren = Arrays.copyOf (children, children.length + right.children.length);
+            System.arraycopy (right.children, 0, allChildren, children.length, right.children.length);
+
+            return splitIfNecessary (allSeparators, allChildren, maxNumEntries, split);
+        }
+
+        @Override LongEntry<?> firstEntry () {
+            return children[0].firstEntry ();
+        }
+        @Override LongEntry<?> lastEntry () {
+            return children[children.length-1].lastEntry ();
+        }
+
+        @Override LongEntry<?> firstGreater (long key, boolean inclusive) {
+            final int childIdx = upperBound (separators, key);
+            final LongEntry<?> result = children[childIdx].firstGreater (key, inclusive);
+            if (result == null && childIdx < children.length-1) {
+                return children[childIdx+1].firstEntry ();
+            }
+            return result;
+        }
+        @Override LongEntry<?> lastSmaller (long key, boolean inclusive) {
+            final int childIdx = upperBound (separators, key);
+            final LongEntry<?> result = children[childIdx].lastSmaller (key, inclusive);
+            if (result == null && childIdx > 0) {
+                return children[childIdx-1].lastEntry ();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An immutable entry, returned by the methods that look up a single entry
+     */
+    static class LongEntry<V> implements AMapEntry<Long,V> {
+        private final long key;
+        private final V value;
+
+        LongEntry (long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override public Long getKey () {
+            return key;
+        }
+        @Override public V getValue () {
+            return value;
+        }
+
+        @Override public String toString () {
+            return "LongEntry{" + key + "=" + value + "}";
+        }
+    }
+
+    /**
+     * This cursor iterates over the entries with keys in an inclusive range. It keeps the path from the root to the current leaf in
+     *  arrays that are allocated once, so moving from one leaf to the next requires no allocation.
+     */
+    private static class LongCursor<V> implements ALongMapIterator<V> {
+        private final long to;
+
+        // all leaves are at the same depth, so the path always has the same length
+        private final LongIndexNode[] path;
+        private final int[] pathIdx;
+
+        private LongLeafNode leaf;
+        private int leafIdx;
+
+        private long curKey;
+        private V curValue;
+        private boolean hasCurrent = false;
+
+        LongCursor (Node root, long from, long to) {
+            this.to = to;
+
+            int depth = 0;
+            for (Node node = root; node instanceof LongIndexNode; node = ((LongIndexNode) node).children[0]) {
+                depth += 1;
+            }
+            path = new LongIndexNode[depth];
+            pathIdx = new int[depth];
+
+            Node node = root;
+            for (int level=0; level<depth; level++) {
+                path[level] = (LongIndexNode) node;
+                pathIdx[level] = upperBound (path[level].separators, from);
+                node = path[level].children[pathIdx[level]];
+            }
+
+            leaf = (LongLeafNode) node;
+            leafIdx = lowerBound (leaf.keys, from);
+            if (leafIdx == leaf.keys.length) {
+                nextLeaf ();
+            }
+        }
+
+        private void nextLeaf () {
+            int level = path.length - 1;
+            while (level >= 0 && pathIdx[level] == path[level].children.length - 1) {
+                level -= 1;
+            }
+            if (level < 0) {
+                leaf = null;
+                return;
+            }
+
+            pathIdx[level] += 1;
+            Node node = path[level].children[pathIdx[level]];
+            for (level += 1; level < path.length; level++) {
+                path[level] = (LongIndexNode) node;
+                pathIdx[level] = 0;
+                node = path[level].children[0];
+            }
+
+            leaf = (LongLeafNode) node;
+            leafIdx = 0;
+        }
+
+        @Override public boolean hasNext () {
+            return leaf != null && leaf.keys[leafIdx] <= to;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override public void next () {
+            if (! hasNext ()) {
+                throw new NoSuchElementException ();
+            }
+
+            curKey = leaf.keys[leafIdx];
+            curValue = (V) leaf.values[leafIdx];
+            hasCurrent = true;
+
+            leafIdx += 1;
+            if (leafIdx == leaf.keys.length) {
+                nextLeaf ();
+            }
+        }
+
+        @Override public long getLongKey () {
+            if (! hasCurrent) throw new NoSuchElementException ();
+            return curKey;
+        }
+        @Override public Long getKey () {
+            return getLongKey ();
+        }
+        @Override public V getValue () {
+            if (! hasCurrent) throw new NoSuchElementException ();
+            return curValue;
+        }
+    }
+}
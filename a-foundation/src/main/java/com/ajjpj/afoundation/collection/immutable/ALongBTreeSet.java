@@ -0,0 +1,47 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import java.util.Arrays;
+
+
+/**
+ * @author arno
+ */
+public class ALongBTreeSet extends MapAsSetWrapper<Long, ALongBTreeSet> {
+    public static ALongBTreeSet empty () {
+        return new ALongBTreeSet (ALongBTreeMap.<Boolean> empty ());
+    }
+
+    public static ALongBTreeSet create (long... elements) {
+        ALongBTreeMap<Boolean> result = ALongBTreeMap.empty ();
+
+        for (long el: elements) {
+            result = result.updated (el, Boolean.TRUE);
+        }
+        return new ALongBTreeSet (result);
+    }
+
+    public static ALongBTreeSet create (Long... elements) {
+        return create (Arrays.asList (elements));
+    }
+
+    public static ALongBTreeSet create (Iterable<Long> elements) {
+        ALongBTreeSet result = empty ();
+
+        for (Long el: elements) {
+            result = result.with (el);
+        }
+        return result;
+    }
+
+    public static ALongBTreeSet create (ALongBTreeMap<?> inner) {
+        return new ALongBTreeSet (inner);
+    }
+
+    private ALongBTreeSet (AMap<Long, ?> inner) {
+        super (inner);
+    }
+
+    @Override protected ALongBTreeSet wrapAsSet (AMap<Long, ?> inner) {
+        return new ALongBTreeSet (inner);
+    }
+}
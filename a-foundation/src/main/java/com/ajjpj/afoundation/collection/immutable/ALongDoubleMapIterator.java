@@ -0,0 +1,14 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+/**
+ * This is an iterator for {@link ALongDoubleHashMap}s, allowing access to keys and values without boxing.
+ *
+ * @author arno
+ */
+public interface ALongDoubleMapIterator extends AMapEntry<Long, Double> {
+    boolean hasNext();
+    void next();
+
+    long getLongKey();
+    double getDoubleValue();
+}
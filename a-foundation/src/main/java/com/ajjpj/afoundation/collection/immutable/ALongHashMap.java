@@ -146,6 +146,22 @@ public class ALongHashMap<V> extends AbstractAMap<Long,V> {
         };
     }
 
+    /**
+     * The spliterator splits along the trie's child arrays. Unlike the iterator, it passes on a separate entry object for every entry.
+     */
+    @Override public Spliterator<AMapEntry<Long, V>> spliterator() {
+        return new TreeSpliterator<>(this, size(), new TreeSpliterator.Shape<AMapEntry<Long, V>>() {
+            @Override public Object[] split(Object subtree) {
+                return subtree instanceof LongHashTrieMap ? ((LongHashTrieMap) subtree).elems : null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override public Iterator<AMapEntry<Long, V>> iterator(Object subtree) {
+                return copyingIterator(((ALongHashMap<V>) subtree).iterator(), ALongBTreeMap.LongEntry::new);
+            }
+        }, Spliterator.DISTINCT);
+    }
+
     public ALongMapIterator<V> longIterator() { //TODO test this - and all map iterator() implementations
         return new LongIteratorImpl<> (this);
     }
@@ -231,6 +247,69 @@ public class ALongHashMap<V> extends AbstractAMap<Long,V> {
         }
     }
 
+    /**
+     * This is the structural diff for {@link AMapDiff}. It walks both tries in lockstep, skipping subtrees that are shared by both maps.
+     */
+    static <V> void collectChanges (ALongHashMap<V> oldMap, ALongHashMap<V> newMap, int level, AMapDiff.Builder<Long, V> result) {
+        if (oldMap == newMap) {
+            return;
+        }
+
+        if (oldMap instanceof LongHashTrieMap && newMap instanceof LongHashTrieMap) {
+            final LongHashTrieMap<V> to = (LongHashTrieMap<V>) oldMap;
+            final LongHashTrieMap<V> tn = (LongHashTrieMap<V>) newMap;
+
+            int io = 0, in = 0;
+            for (long bits = to.bitmap | tn.bitmap; bits != 0; bits &= bits - 1) {
+                final long mask = Long.lowestOneBit (bits);
+                final ALongHashMap<V> subOld = (to.bitmap & mask) != 0 ? to.elems[io++] : ALongHashMap.<V>empty ();
+                final ALongHashMap<V> subNew = (tn.bitmap & mask) != 0 ? tn.elems[in++] : ALongHashMap.<V>empty ();
+                collectChanges (subOld, subNew, level + LEVEL_INCREMENT, result);
+            }
+            return;
+        }
+
+        // at least one of the nodes is a leaf or empty, so the other node's entries are looked up in it
+        if (! (oldMap instanceof LongHashTrieMap)) {
+            if (oldMap instanceof LongHashMap1) {
+                final LongHashMap1<V> o = (LongHashMap1<V>) oldMap;
+                final AOption<V> newValue = newMap.doGet (o.key, o.hash, level);
+                if (newValue.isEmpty ()) {
+                    result.removed (new AMapDiff.Entry<> (o.key, o.value));
+                }
+                else if (! Objects.equals (o.value, newValue.get ())) {
+                    result.changed (o.key, o.value, newValue.get ());
+                }
+            }
+            final LongIteratorImpl<V> iter = new LongIteratorImpl<> (newMap);
+            while (iter.hasNext ()) {
+                iter.next ();
+                if (oldMap.doGet (iter.getLongKey (), computeHash (iter.getLongKey ()), level).isEmpty ()) {
+                    result.added (new AMapDiff.Entry<> (iter.getKey (), iter.getValue ()));
+                }
+            }
+        }
+        else {
+            if (newMap instanceof LongHashMap1) {
+                final LongHashMap1<V> n = (LongHashMap1<V>) newMap;
+                final AOption<V> oldValue = oldMap.doGet (n.key, n.hash, level);
+                if (oldValue.isEmpty ()) {
+                    result.added (new AMapDiff.Entry<> (n.key, n.value));
+                }
+                else if (! Objects.equals (oldValue.get (), n.value)) {
+                    result.changed (n.key, oldValue.get (), n.value);
+                }
+            }
+            final LongIteratorImpl<V> iter = new LongIteratorImpl<> (oldMap);
+            while (iter.hasNext ()) {
+                iter.next ();
+                if (newMap.doGet (iter.getLongKey (), computeHash (iter.getLongKey ()), level).isEmpty ()) {
+                    result.removed (new AMapDiff.Entry<> (iter.getKey (), iter.getValue ()));
+                }
+            }
+        }
+    }
+
     static class LongIteratorImpl<V> implements ALongMapIterator<V> { //TODO test this - and all 'iterator()' methods for all maps
         private final Deque<ALongHashMap<V>> stack = new ArrayDeque<> ();
         private LongHashMap1<V> current;
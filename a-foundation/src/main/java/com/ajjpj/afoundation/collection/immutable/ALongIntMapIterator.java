@@ -0,0 +1,14 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+/**
+ * This is an iterator for {@link ALongIntHashMap}s, allowing access to keys and values without boxing.
+ *
+ * @author arno
+ */
+public interface ALongIntMapIterator extends AMapEntry<Long, Integer> {
+    boolean hasNext();
+    void next();
+
+    long getLongKey();
+    int getIntValue();
+}
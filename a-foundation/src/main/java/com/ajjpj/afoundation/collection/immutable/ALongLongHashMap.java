@@ -0,0 +1,464 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import com.ajjpj.afoundation.collection.AEquality;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+
+/**
+ * This is an immutable hash map from primitive 'long' keys to primitive 'long' values. Both keys and values are stored in primitive
+ *  arrays inside the trie nodes, so unlike {@link ALongHashMap}&lt;Long&gt; it holds neither boxed values nor per-entry objects.<p>
+ *
+ * The trie has 64 branches per level. Every node keeps the entries that are unique in their branch inline in its own arrays, and
+ *  only branches with more than one entry get a child node. The hash function is a bijection on 64 bit values, so two different
+ *  keys always have different hashes, and there is no need for collision nodes.<p>
+ *
+ * The API is duplicated to support both efficient primitive access and the generified {@link AMap} interface. The latter boxes keys
+ *  and values on every call, so performance critical code should use the primitive overloads and {@link #longIterator()}.
+ *
+ * @author arno
+ */
+public class ALongLongHashMap extends AbstractAMap<Long,Long> {
+    private static final int LEVEL_INCREMENT = 6;
+
+    private static final long[] NO_KEYS = new long[0];
+    private static final long[] NO_VALUES = new long[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final ALongLongHashMap EMPTY = new ALongLongHashMap (new Node (0, 0, NO_KEYS, NO_VALUES, NO_CHILDREN), 0);
+
+    final Node root;
+    private final int size;
+
+    /**
+     * Returns the empty ALongLongHashMap instance.
+     */
+    public static ALongLongHashMap empty () {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a ALongLongHashMap with the entries keys[i] -&gt; values[i]. If a key occurs several times, the last value wins.
+     */
+    public static ALongLongHashMap fromKeysAndValues (long[] keys, long[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException ("different number of keys and values: " + keys.length + " vs. " + values.length);
+        }
+
+        ALongLongHashMap result = empty ();
+        for (int i=0; i<keys.length; i++) {
+            result = result.updated (keys[i], values[i]);
+        }
+        return result;
+    }
+
+    private ALongLongHashMap (Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Override public AEquality keyEquality () {
+        return AEquality.EQUALS;
+    }
+
+    @Override public ALongLongHashMap clear () {
+        return empty ();
+    }
+
+    @Override public int size () {
+        return size;
+    }
+
+    @Override public boolean containsKey (Long key) {
+        return containsKey (key.longValue ());
+    }
+    public boolean containsKey (long key) {
+        return root.containsKey (key, computeHash (key));
+    }
+
+    @Override public AOption<Long> get (Long key) {
+        final long hash = computeHash (key);
+        if (! root.containsKey (key, hash)) {
+            return AOption.none ();
+        }
+        return AOption.some (root.getOrElse (key, hash, 0L));
+    }
+
+    /**
+     * @return the value stored for the key, or {@code defaultValue} if there is no entry for the key
+     */
+    public long getOrElse (long key, long defaultValue) {
+        return root.getOrElse (key, computeHash (key), defaultValue);
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no entry for the key
+     */
+    public long getRequired (long key) {
+        final long hash = computeHash (key);
+        if (! root.containsKey (key, hash)) {
+            throw new NoSuchElementException ("no entry for key " + key);
+        }
+        return root.getOrElse (key, hash, 0L);
+    }
+
+    @Override public ALongLongHashMap updated (Long key, Long value) {
+        return updated (key.longValue (), value.longValue ());
+    }
+    public ALongLongHashMap updated (long key, long value) {
+        final SizeChange sizeChange = new SizeChange ();
+        final Node newRoot = root.updated (key, computeHash (key), value, 0, sizeChange);
+        if (newRoot == root) {
+            return this;
+        }
+        return new ALongLongHashMap (newRoot, sizeChange.added ? size + 1 : size);
+    }
+
+    @Override public ALongLongHashMap removed (Long key) {
+        return removed (key.longValue ());
+    }
+    public ALongLongHashMap removed (long key) {
+        final Node newRoot = root.removed (key, computeHash (key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        if (size == 1) {
+            return empty ();
+        }
+        return new ALongLongHashMap (newRoot, size - 1);
+    }
+
+    /**
+     * This creates a copy of the keys because an {@link ASet} must be able to hold the values of the underlying map.
+     */
+    @Override public ASet<Long> keys () {
+        ALongHashSet result = ALongHashSet.empty ();
+        final ALongLongMapIterator iter = longIterator ();
+        while (iter.hasNext ()) {
+            iter.next ();
+            result = result.with (iter.getLongKey ());
+        }
+        return result;
+    }
+
+    @Override public Iterator<AMapEntry<Long, Long>> iterator () {
+        return new Iterator<AMapEntry<Long, Long>> () {
+            final ALongLongMapIterator inner = longIterator ();
+
+            @Override public boolean hasNext () {
+                return inner.hasNext ();
+            }
+
+            @Override public AMapEntry<Long, Long> next () {
+                inner.next ();
+                return inner;
+            }
+
+            @Override public void remove () {
+                throw new UnsupportedOperationException ();
+            }
+        };
+    }
+
+    /**
+     * Unlike the iterator, the spliterator passes on a separate entry object for every entry.
+     */
+    @Override public Spliterator<AMapEntry<Long, Long>> spliterator () {
+        return Spliterators.spliterator (copyingIterator (iterator (), ALongBTreeMap.LongEntry::new), size (), Spliterator.IMMUTABLE | Spliterator.DISTINCT);
+    }
+
+    /**
+     * This iterator accesses keys and values without boxing. Like the iterators of the other maps, it iterates in an unspecified order.
+     */
+    public ALongLongMapIterator longIterator () {
+        return new IteratorImpl (this);
+    }
+
+    /**
+     * This is murmur3's 64 bit finalizer. All of its steps are invertible, so different keys are guaranteed to have different hashes.
+     */
+    static long computeHash (long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static boolean sameValue (long v1, long v2) {
+        return v1 == v2;
+    }
+
+    /**
+     * returns true if the structure below 'node' is canonical, i.e. no node except the root holds a single entry and no children
+     */
+    static boolean validate (Node node, boolean isRoot) {
+        if (Long.bitCount (node.dataMap) != node.keys.length || Long.bitCount (node.dataMap) != node.values.length) return false;
+        if (Long.bitCount (node.nodeMap) != node.children.length) return false;
+        if ((node.dataMap & node.nodeMap) != 0) return false;
+        if (! isRoot && node.children.length == 0 && node.keys.length < 2) return false;
+
+        for (Node child: node.children) {
+            if (! validate (child, false)) return false;
+        }
+        return true;
+    }
+
+    static class SizeChange {
+        boolean added;
+    }
+
+    /**
+     * A trie node. Entries that are alone in their branch are stored inline in 'keys' and 'values', ordered by their branch index,
+     *  and 'dataMap' has a bit set for each of these branches. Branches with several entries have a child node, and 'nodeMap' has
+     *  the corresponding bits set.
+     */
+    static final class Node {
+        final long dataMap;
+        final long nodeMap;
+        final long[] keys;
+        final long[] values;
+        final Node[] children;
+
+        Node (long dataMap, long nodeMap, long[] keys, long[] values, Node[] children) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.keys = keys;
+            this.values = values;
+            this.children = children;
+        }
+
+        boolean containsKey (long key, long hash) {
+            Node node = this;
+            int shift = 0;
+            while (true) {
+                final long bit = 1L << (hash >>> shift);
+                if ((node.dataMap & bit) != 0) {
+                    return node.keys[Long.bitCount (node.dataMap & (bit - 1))] == key;
+                }
+                if ((node.nodeMap & bit) == 0) {
+                    return false;
+                }
+                node = node.children[Long.bitCount (node.nodeMap & (bit - 1))];
+                shift += LEVEL_INCREMENT;
+            }
+        }
+
+        long getOrElse (long key, long hash, long defaultValue) {
+            Node node = this;
+            int shift = 0;
+            while (true) {
+                final long bit = 1L << (hash >>> shift);
+                if ((node.dataMap & bit) != 0) {
+                    final int idx = Long.bitCount (node.dataMap & (bit - 1));
+                    return node.keys[idx] == key ? node.values[idx] : defaultValue;
+                }
+                if ((node.nodeMap & bit) == 0) {
+                    return defaultValue;
+                }
+                node = node.children[Long.bitCount (node.nodeMap & (bit - 1))];
+                shift += LEVEL_INCREMENT;
+            }
+        }
+
+        Node updated (long key, long hash, long value, int shift, SizeChange sizeChange) {
+            final long bit = 1L << (hash >>> shift);
+
+            if ((dataMap & bit) != 0) {
+                final int idx = Long.bitCount (dataMap & (bit - 1));
+                if (keys[idx] == key) {
+                    if (sameValue (values[idx], value)) {
+                        return this;
+                    }
+                    final long[] newValues = values.clone ();
+                    newValues[idx] = value;
+                    return new Node (dataMap, nodeMap, keys, newValues, children);
+                }
+
+                // two entries in the same branch: move both of them to a new child node
+                sizeChange.added = true;
+                final Node child = merge (keys[idx], computeHash (keys[idx]), values[idx], key, hash, value, shift + LEVEL_INCREMENT);
+                final int childIdx = Long.bitCount (nodeMap & (bit - 1));
+                return new Node (dataMap ^ bit, nodeMap | bit, removeLong (keys, idx), removeLong (values, idx), insertNode (children, childIdx, child));
+            }
+
+            if ((nodeMap & bit) != 0) {
+                final int childIdx = Long.bitCount (nodeMap & (bit - 1));
+                final Node child = children[childIdx];
+                final Node newChild = child.updated (key, hash, value, shift + LEVEL_INCREMENT, sizeChange);
+                if (newChild == child) {
+                    return this;
+                }
+                final Node[] newChildren = children.clone ();
+                newChildren[childIdx] = newChild;
+                return new Node (dataMap, nodeMap, keys, values, newChildren);
+            }
+
+            sizeChange.added = true;
+            final int idx = Long.bitCount (dataMap & (bit - 1));
+            return new Node (dataMap | bit, nodeMap, insertLong (keys, idx, key), insertLong (values, idx, value), children);
+        }
+
+        Node removed (long key, long hash, int shift) {
+            final long bit = 1L << (hash >>> shift);
+
+            if ((dataMap & bit) != 0) {
+                final int idx = Long.bitCount (dataMap & (bit - 1));
+                if (keys[idx] != key) {
+                    return this;
+                }
+                return new Node (dataMap ^ bit, nodeMap, removeLong (keys, idx), removeLong (values, idx), children);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                final int childIdx = Long.bitCount (nodeMap & (bit - 1));
+                final Node child = children[childIdx];
+                final Node newChild = child.removed (key, hash, shift + LEVEL_INCREMENT);
+                if (newChild == child) {
+                    return this;
+                }
+
+                if (newChild.children.length == 0 && newChild.keys.length == 1) {
+                    // the child's last entry is alone in this branch now, so it is moved up into this node
+                    final int idx = Long.bitCount (dataMap & (bit - 1));
+                    return new Node (dataMap | bit, nodeMap ^ bit,
+                            insertLong (keys, idx, newChild.keys[0]), insertLong (values, idx, newChild.values[0]), removeNode (children, childIdx));
+                }
+
+                final Node[] newChildren = children.clone ();
+                newChildren[childIdx] = newChild;
+                return new Node (dataMap, nodeMap, keys, values, newChildren);
+            }
+
+            return this;
+        }
+
+        /**
+         * creates a node holding two entries whose hashes are identical below 'shift'
+         */
+        private static Node merge (long key0, long hash0, long value0, long key1, long hash1, long value1, int shift) {
+            final long bit0 = 1L << (hash0 >>> shift);
+            final long bit1 = 1L << (hash1 >>> shift);
+
+            if (bit0 == bit1) {
+                return new Node (0, bit0, NO_KEYS, NO_VALUES, new Node[] {merge (key0, hash0, value0, key1, hash1, value1, shift + LEVEL_INCREMENT)});
+            }
+            if (Long.compareUnsigned (bit0, bit1) < 0) {
+                return new Node (bit0 | bit1, 0, new long[] {key0, key1}, new long[] {value0, value1}, NO_CHILDREN);
+            }
+            return new Node (bit0 | bit1, 0, new long[] {key1, key0}, new long[] {value1, value0}, NO_CHILDREN);
+        }
+    }
+
+    private static long[] insertLong (long[] arr, int idx, long value) {
+        final long[] result = new long[arr.length + 1];
+        System.arraycopy (arr, 0, result, 0, idx);
+        result[idx] = value;
+        System.arraycopy (arr, idx, result, idx + 1, arr.length - idx);
+        return result;
+    }
+    private static long[] removeLong (long[] arr, int idx) {
+        if (arr.length == 1) {
+            return NO_KEYS;
+        }
+        final long[] result = new long[arr.length - 1];
+        System.arraycopy (arr, 0, result, 0, idx);
+        System.arraycopy (arr, idx + 1, result, idx, arr.length - idx - 1);
+        return result;
+    }
+    private static Node[] insertNode (Node[] arr, int idx, Node node) {
+        final Node[] result = new Node[arr.length + 1];
+        System.arraycopy (arr, 0, result, 0, idx);
+        result[idx] = node;
+        System.arraycopy (arr, idx, result, idx + 1, arr.length - idx);
+        return result;
+    }
+    private static Node[] removeNode (Node[] arr, int idx) {
+        if (arr.length == 1) {
+            return NO_CHILDREN;
+        }
+        final Node[] result = new Node[arr.length - 1];
+        System.arraycopy (arr, 0, result, 0, idx);
+        System.arraycopy (arr, idx + 1, result, idx, arr.length - idx - 1);
+        return result;
+    }
+
+    /**
+     * This iterates depth first, returning a node's inline entries before descending into its children. Tries are at most eleven
+     *  levels deep because each level consumes six bits of the hash.
+     */
+    static class IteratorImpl implements ALongLongMapIterator {
+        private final Node[] path = new Node[12];
+        private final int[] childIdx = new int[12];
+        private int depth = 0;
+        private int dataIdx = 0;
+        private int remaining;
+
+        private Node currentNode;
+        private int currentIdx;
+
+        IteratorImpl (ALongLongHashMap map) {
+            path[0] = map.root;
+            remaining = map.size;
+        }
+
+        @Override public boolean hasNext () {
+            return remaining > 0;
+        }
+
+        @Override public void next () {
+            if (remaining == 0) {
+                currentNode = null;
+                throw new NoSuchElementException ();
+            }
+
+            while (true) {
+                final Node node = path[depth];
+                if (dataIdx < node.keys.length) {
+                    currentNode = node;
+                    currentIdx = dataIdx++;
+                    remaining -= 1;
+                    return;
+                }
+                if (childIdx[depth] < node.children.length) {
+                    path[depth+1] = node.children[childIdx[depth]++];
+                    depth += 1;
+                    childIdx[depth] = 0;
+                    dataIdx = 0;
+                }
+                else {
+                    // all of the parent's inline entries were returned before descending
+                    depth -= 1;
+                    dataIdx = Integer.MAX_VALUE;
+                }
+            }
+        }
+
+        @Override public long getLongKey () {
+            if (currentNode == null) {
+                throw new NoSuchElementException ();
+            }
+            return currentNode.keys[currentIdx];
+        }
+
+        @Override public long getLongValue () {
+            if (currentNode == null) {
+                throw new NoSuchElementException ();
+            }
+            return currentNode.values[currentIdx];
+        }
+
+        @Override public Long getKey () {
+            return getLongKey ();
+        }
+
+        @Override public Long getValue () {
+            return getLongValue ();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+/**
+ * This is an iterator for {@link ALongLongHashMap}s, allowing access to keys and values without boxing.
+ *
+ * @author arno
+ */
+public interface ALongLongMapIterator extends AMapEntry<Long, Long> {
+    boolean hasNext();
+    void next();
+
+    long getLongKey();
+    long getLongValue();
+}
@@ -3,6 +3,7 @@ package com.ajjpj.afoundation.collection.immutable;
 import com.ajjpj.afoundation.collection.AEquality;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 
@@ -22,6 +23,129 @@ public class ALongRedBlackTreeMap<V> extends AbstractAMap<Long,V> {
         return EMPTY;
     }
 
+    /**
+     * Creates an ALongRedBlackTreeMap from keys that are sorted in ascending order and their corresponding values, building a balanced
+     *  tree bottom-up in O(n) rather than inserting the entries one at a time. If a key occurs several times, the last of its values is used.
+     *  The arrays passed in are not modified.
+     *
+     * @throws IllegalArgumentException if the keys are not sorted, or if there is not exactly one value per key
+     */
+    public static <V> ALongRedBlackTreeMap<V> fromSortedKeysAndValues (long[] keys, List<? extends V> values) {
+        if (keys.length != values.size ()) {
+            throw new IllegalArgumentException ("got " + keys.length + " keys but " + values.size () + " values");
+        }
+        return fromSorted (keys, values.toArray (), false);
+    }
+
+    /**
+     * Creates an ALongRedBlackTreeMap from keys in arbitrary order and their corresponding values. They are sorted first, and the tree is
+     *  then built in O(n) as in {@link #fromSortedKeysAndValues}. If a key occurs several times, the last of its values is used.
+     *
+     * @throws IllegalArgumentException if there is not exactly one value per key
+     */
+    public static <V> ALongRedBlackTreeMap<V> fromKeysAndValues (long[] keys, List<? extends V> values) {
+        if (keys.length != values.size ()) {
+            throw new IllegalArgumentException ("got " + keys.length + " keys but " + values.size () + " values");
+        }
+
+        final Object[] valueArr = values.toArray ();
+        if (isSorted (keys)) {
+            return fromSorted (keys, valueArr, false);
+        }
+
+        // sort an index permutation rather than the keys themselves so values can follow their keys. The merge sort is stable, so the
+        //  last value for a key remains the last one after sorting
+        int[] perm = new int[keys.length];
+        for (int i=0; i<perm.length; i++) {
+            perm[i] = i;
+        }
+        int[] tmp = new int[keys.length];
+        for (int width=1; width<perm.length; width*=2) {
+            for (int lo=0; lo<perm.length; lo+=2*width) {
+                final int mid = Math.min (lo+width, perm.length);
+                final int hi = Math.min (lo+2*width, perm.length);
+                int i=lo, j=mid, k=lo;
+                while (i<mid && j<hi) {
+                    tmp[k++] = keys[perm[j]] < keys[perm[i]] ? perm[j++] : perm[i++];
+                }
+                while (i<mid) tmp[k++] = perm[i++];
+                while (j<hi)  tmp[k++] = perm[j++];
+            }
+            final int[] swap = perm;
+            perm = tmp;
+            tmp = swap;
+        }
+
+        final long[] sortedKeys = new long[keys.length];
+        final Object[] sortedValues = new Object[keys.length];
+        for (int i=0; i<perm.length; i++) {
+            sortedKeys[i] = keys[perm[i]];
+            sortedValues[i] = valueArr[perm[i]];
+        }
+        return fromSorted (sortedKeys, sortedValues, true);
+    }
+
+    private static boolean isSorted (long[] keys) {
+        for (int i=1; i<keys.length; i++) {
+            if (keys[i-1] > keys[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param mayModifyArrays if false, arrays are copied before duplicate keys are removed
+     */
+    private static <V> ALongRedBlackTreeMap<V> fromSorted (long[] keys, Object[] values, boolean mayModifyArrays) {
+        int numDuplicates = 0;
+        for (int i=1; i<keys.length; i++) {
+            if (keys[i-1] > keys[i]) {
+                throw new IllegalArgumentException ("keys are not sorted: " + keys[i-1] + " is followed by " + keys[i]);
+            }
+            if (keys[i-1] == keys[i]) {
+                numDuplicates += 1;
+            }
+        }
+
+        if (numDuplicates > 0) {
+            if (! mayModifyArrays) {
+                keys = keys.clone ();
+                values = values.clone ();
+            }
+
+            int n = 0;
+            for (int i=0; i<keys.length; i++) {
+                if (n > 0 && keys[n-1] == keys[i]) {
+                    values[n-1] = values[i];
+                    continue;
+                }
+                keys[n] = keys[i];
+                values[n] = values[i];
+                n += 1;
+            }
+        }
+
+        final int n = keys.length - numDuplicates;
+        return new ALongRedBlackTreeMap<> (buildBalanced (keys, values, 0, n-1, 0, ARedBlackTreeMap.redLevel (n)));
+    }
+
+    @SuppressWarnings ("unchecked")
+    private static <V> Tree<V> buildBalanced (long[] keys, Object[] values, int lo, int hi, int level, int redLevel) {
+        if (lo > hi) {
+            return null;
+        }
+
+        final int mid = (lo + hi) >>> 1;
+        final Tree<V> left = buildBalanced (keys, values, lo, mid-1, level+1, redLevel);
+        final Tree<V> right = buildBalanced (keys, values, mid+1, hi, level+1, redLevel);
+
+        if (level == redLevel) {
+            return new RedTree<> (keys[mid], (V) values[mid], left, right);
+        }
+        return new BlackTree<> (keys[mid], (V) values[mid], left, right);
+    }
+
     private ALongRedBlackTreeMap (Tree<V> root) {
         this.root = root;
     }
@@ -6,6 +6,10 @@ import com.ajjpj.afoundation.function.AFunction1;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -139,4 +143,26 @@ public interface AMap<K,V> extends Iterable<AMapEntry<K,V>>, Serializable {
      *  key trigger the value's calculation anew each time.
      */
     AMap<K,V> withDefault(AFunction1<? super K, ? extends V, ? extends RuntimeException> function);
+
+    /**
+     * The spliterator reports the map's exact size. Hash maps and tree maps split along their internal structure without copying, so
+     *  they are efficient sources for parallel streams; the default implementation splits by copying batches of entries from the iterator.
+     */
+    @Override default Spliterator<AMapEntry<K,V>> spliterator () {
+        return Spliterators.spliterator (iterator (), size (), Spliterator.IMMUTABLE | Spliterator.DISTINCT);
+    }
+
+    /**
+     * @return a sequential {@link Stream} of this map's entries
+     */
+    default Stream<AMapEntry<K,V>> stream () {
+        return StreamSupport.stream (spliterator (), false);
+    }
+
+    /**
+     * @return a possibly parallel {@link Stream} of this map's entries
+     */
+    default Stream<AMapEntry<K,V>> parallelStream () {
+        return StreamSupport.stream (spliterator (), true);
+    }
 }
@@ -0,0 +1,340 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Objects;
+
+
+/**
+ * This is the difference between two versions of a map: the entries that were added, removed, or changed to a different value.<p>
+ *
+ * Immutable maps that were derived from each other share all subtrees that were not touched by the modifications. For AHashMap,
+ *  ALongHashMap, ARedBlackTreeMap and ABTreeMap, {@link #diff(AMap, AMap)} skips subtrees that are shared by reference, so its cost is
+ *  proportional to the number of changes rather than the size of the maps. For other maps, or for maps with different key equalities
+ *  or comparators, it compares the maps entry by entry.<p>
+ *
+ * Values are compared with equals(). For sorted maps, the entries are in key order; for hash maps, their order is unspecified.
+ *
+ * @author arno
+ */
+public class AMapDiff<K,V> {
+    private final AList<AMapEntry<K,V>> added;
+    private final AList<AMapEntry<K,V>> removed;
+    private final AList<Change<K,V>> changed;
+
+    private AMapDiff (AList<AMapEntry<K, V>> added, AList<AMapEntry<K, V>> removed, AList<Change<K, V>> changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    @SuppressWarnings ("unchecked")
+    public static <K,V> AMapDiff<K,V> diff (AMap<K,V> oldMap, AMap<K,V> newMap) {
+        final Builder<K,V> result = new Builder<> ();
+
+        if (oldMap instanceof AHashMap && newMap instanceof AHashMap && oldMap.keyEquality ().equals (newMap.keyEquality ())) {
+            AHashMap.collectChanges ((AHashMap<K,V>) oldMap, (AHashMap<K,V>) newMap, 0, result);
+        }
+        else if (oldMap instanceof ALongHashMap && newMap instanceof ALongHashMap) {
+            ALongHashMap.collectChanges ((ALongHashMap<V>) oldMap, (ALongHashMap<V>) newMap, 0, (Builder<Long, V>) result);
+        }
+        else if (oldMap instanceof ARedBlackTreeMap && newMap instanceof ARedBlackTreeMap &&
+                ((ARedBlackTreeMap<K,V>) oldMap).comparator.equals (((ARedBlackTreeMap<K,V>) newMap).comparator)) {
+            new RedBlackTreeDiff<K,V> (((ARedBlackTreeMap<K,V>) oldMap).comparator).diff (((ARedBlackTreeMap<K,V>) oldMap).root, ((ARedBlackTreeMap<K,V>) newMap).root, result);
+        }
+        else if (oldMap instanceof ABTreeMap && newMap instanceof ABTreeMap &&
+                ((ABTreeMap<K,V>) oldMap).spec.comparator.equals (((ABTreeMap<K,V>) newMap).spec.comparator)) {
+            // an empty B-tree is an empty leaf, which has no smallest key
+            new BTreeDiff<K,V> (((ABTreeMap<K,V>) oldMap).spec.comparator).diff (oldMap.isEmpty () ? null : oldMap, newMap.isEmpty () ? null : newMap, result);
+        }
+        else {
+            // entries are copied because some maps' iterators reuse a single entry object
+            for (AMapEntry<K,V> e: oldMap) {
+                final AOption<V> newValue = newMap.get (e.getKey ());
+                if (newValue.isEmpty ()) {
+                    result.removed (new Entry<> (e.getKey (), e.getValue ()));
+                }
+                else if (! Objects.equals (e.getValue (), newValue.get ())) {
+                    result.changed (e.getKey (), e.getValue (), newValue.get ());
+                }
+            }
+            for (AMapEntry<K,V> e: newMap) {
+                if (! oldMap.containsKey (e.getKey ())) {
+                    result.added (new Entry<> (e.getKey (), e.getValue ()));
+                }
+            }
+        }
+
+        return result.build ();
+    }
+
+    /**
+     * @return the entries whose keys are contained in the new map but not in the old map
+     */
+    public AList<AMapEntry<K,V>> added () {
+        return added;
+    }
+
+    /**
+     * @return the entries whose keys are contained in the old map but not in the new map
+     */
+    public AList<AMapEntry<K,V>> removed () {
+        return removed;
+    }
+
+    /**
+     * @return the keys that are contained in both maps, but with different values
+     */
+    public AList<Change<K,V>> changed () {
+        return changed;
+    }
+
+    public boolean isEmpty () {
+        return added.isEmpty () && removed.isEmpty () && changed.isEmpty ();
+    }
+
+    @Override public String toString () {
+        return "AMapDiff{added=" + added + ", removed=" + removed + ", changed=" + changed + "}";
+    }
+
+    public static class Change<K,V> {
+        private final K key;
+        private final V oldValue;
+        private final V newValue;
+
+        Change (K key, V oldValue, V newValue) {
+            this.key = key;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        public K getKey () {
+            return key;
+        }
+        public V getOldValue () {
+            return oldValue;
+        }
+        public V getNewValue () {
+            return newValue;
+        }
+
+        @Override public String toString () {
+            return key + ": " + oldValue + "->" + newValue;
+        }
+    }
+
+    /**
+     * collects the differences while the maps' data structures are traversed
+     */
+    static class Builder<K,V> {
+        private AList<AMapEntry<K,V>> added = AList.nil ();
+        private AList<AMapEntry<K,V>> removed = AList.nil ();
+        private AList<Change<K,V>> changed = AList.nil ();
+
+        void added (AMapEntry<K,V> entry) {
+            added = added.cons (entry);
+        }
+        void removed (AMapEntry<K,V> entry) {
+            removed = removed.cons (entry);
+        }
+        void changed (K key, V oldValue, V newValue) {
+            changed = changed.cons (new Change<> (key, oldValue, newValue));
+        }
+
+        AMapDiff<K,V> build () {
+            return new AMapDiff<> (added.reverse (), removed.reverse (), changed.reverse ());
+        }
+    }
+
+    static class Entry<K,V> implements AMapEntry<K,V> {
+        private final K key;
+        private final V value;
+
+        Entry (K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override public K getKey () {
+            return key;
+        }
+        @Override public V getValue () {
+            return value;
+        }
+
+        @Override public String toString () {
+            return key + "->" + value;
+        }
+    }
+
+    /**
+     * This walks two search trees in key order, each represented by a stack of subtrees and entries with the smallest keys on top. Subtrees
+     *  are expanded only when necessary, and subtrees that are on top of both stacks are skipped if they are identical.<p>
+     *
+     * A subtree that is shared by both trees is reached without expanding it on either side: The larger of two subtrees is expanded first
+     *  (which never is the shared subtree, because a proper subtree is always smaller), and an entry on one side causes a subtree on the other
+     *  side to be expanded only if that subtree contains keys that are not greater than the entry's key.
+     */
+    static abstract class SortedTreeDiff<K,V> {
+        private final Comparator<? super K> comparator;
+
+        SortedTreeDiff (Comparator<? super K> comparator) {
+            this.comparator = comparator;
+        }
+
+        abstract boolean isNode (Object item);
+        abstract int size (Object node);
+        abstract K minKey (Object node);
+
+        /**
+         * pushes the node's children and entries onto the stack so that the smallest key ends up on top
+         */
+        abstract void expand (Object node, Deque<Object> stack);
+
+        @SuppressWarnings ("unchecked")
+        void diff (Object oldRoot, Object newRoot, Builder<K,V> result) {
+            final Deque<Object> olds = new ArrayDeque<> ();
+            final Deque<Object> news = new ArrayDeque<> ();
+            if (oldRoot != null) olds.push (oldRoot);
+            if (newRoot != null) news.push (newRoot);
+
+            while (! olds.isEmpty () || ! news.isEmpty ()) {
+                if (olds.isEmpty ()) {
+                    final Object n = news.pop ();
+                    if (isNode (n)) expand (n, news);
+                    else result.added ((AMapEntry<K,V>) n);
+                    continue;
+                }
+                if (news.isEmpty ()) {
+                    final Object o = olds.pop ();
+                    if (isNode (o)) expand (o, olds);
+                    else result.removed ((AMapEntry<K,V>) o);
+                    continue;
+                }
+
+                final Object o = olds.peek ();
+                final Object n = news.peek ();
+                if (o == n) {
+                    olds.pop ();
+                    news.pop ();
+                    continue;
+                }
+
+                final boolean oIsNode = isNode (o);
+                final boolean nIsNode = isNode (n);
+                if (oIsNode && nIsNode) {
+                    final int oSize = size (o);
+                    final int nSize = size (n);
+                    if (oSize > nSize || (oSize == nSize && comparator.compare (minKey (o), minKey (n)) <= 0)) {
+                        expand (olds.pop (), olds);
+                    }
+                    else {
+                        expand (news.pop (), news);
+                    }
+                }
+                else if (oIsNode) {
+                    if (comparator.compare (((AMapEntry<K,V>) n).getKey (), minKey (o)) < 0) {
+                        result.added ((AMapEntry<K,V>) news.pop ());
+                    }
+                    else {
+                        expand (olds.pop (), olds);
+                    }
+                }
+                else if (nIsNode) {
+                    if (comparator.compare (((AMapEntry<K,V>) o).getKey (), minKey (n)) < 0) {
+                        result.removed ((AMapEntry<K,V>) olds.pop ());
+                    }
+                    else {
+                        expand (news.pop (), news);
+                    }
+                }
+                else {
+                    final AMapEntry<K,V> oe = (AMapEntry<K,V>) o;
+                    final AMapEntry<K,V> ne = (AMapEntry<K,V>) n;
+                    final int cmp = comparator.compare (oe.getKey (), ne.getKey ());
+                    if (cmp < 0) {
+                        result.removed (oe);
+                        olds.pop ();
+                    }
+                    else if (cmp > 0) {
+                        result.added (ne);
+                        news.pop ();
+                    }
+                    else {
+                        if (! Objects.equals (oe.getValue (), ne.getValue ())) {
+                            result.changed (oe.getKey (), oe.getValue (), ne.getValue ());
+                        }
+                        olds.pop ();
+                        news.pop ();
+                    }
+                }
+            }
+        }
+    }
+
+    private static class RedBlackTreeDiff<K,V> extends SortedTreeDiff<K,V> {
+        RedBlackTreeDiff (Comparator<? super K> comparator) {
+            super (comparator);
+        }
+
+        @Override boolean isNode (Object item) {
+            return item instanceof ARedBlackTreeMap.Tree;
+        }
+
+        @Override int size (Object node) {
+            return ((ARedBlackTreeMap.Tree) node).count;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override K minKey (Object node) {
+            ARedBlackTreeMap.Tree<K,V> tree = (ARedBlackTreeMap.Tree<K,V>) node;
+            while (tree.left != null) {
+                tree = tree.left;
+            }
+            return tree.key;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override void expand (Object node, Deque<Object> stack) {
+            final ARedBlackTreeMap.Tree<K,V> tree = (ARedBlackTreeMap.Tree<K,V>) node;
+            if (tree.right != null) stack.push (tree.right);
+            stack.push (new Entry<> (tree.key, tree.value));
+            if (tree.left != null) stack.push (tree.left);
+        }
+    }
+
+    private static class BTreeDiff<K,V> extends SortedTreeDiff<K,V> {
+        BTreeDiff (Comparator<? super K> comparator) {
+            super (comparator);
+        }
+
+        @Override boolean isNode (Object item) {
+            return item instanceof ABTreeMap;
+        }
+
+        @Override int size (Object node) {
+            return ((ABTreeMap) node).size ();
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override K minKey (Object node) {
+            return ((ABTreeMap<K,V>) node).firstEntry ().getKey ();
+        }
+
+        @Override void expand (Object node, Deque<Object> stack) {
+            if (node instanceof IndexNode) {
+                final ABTreeMap[] children = ((IndexNode) node).children;
+                for (int i=children.length-1; i>=0; i--) {
+                    stack.push (children[i]);
+                }
+            }
+            else {
+                final LeafNode leaf = (LeafNode) node;
+                for (int i=leaf.keys.length-1; i>=0; i--) {
+                    stack.push (new Entry<> (leaf.keys[i], leaf.values[i]));
+                }
+            }
+        }
+    }
+}
@@ -2,10 +2,17 @@ package com.ajjpj.afoundation.collection.immutable;
 
 import com.ajjpj.afoundation.collection.AEquality;
 
+import java.util.AbstractMap;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.Spliterator;
 
 
 /**
@@ -13,12 +20,141 @@ import java.util.NoSuchElementException;
  */
 public class ARedBlackTreeMap<K,V> extends AbstractAMap<K,V> implements ASortedMap<K,V> {
     final Tree<K,V> root;
-    private final Comparator<K> comparator;
+    final Comparator<K> comparator;
 
     public static <K,V> ARedBlackTreeMap<K,V> empty (Comparator<K> comparator) {
         return new ARedBlackTreeMap<> (null, comparator);
     }
 
+    /**
+     * Creates an ARedBlackTreeMap from keys and values that are sorted in ascending key order, building a balanced tree bottom-up in O(n)
+     *  rather than inserting the entries one at a time. Both collections are iterated exactly once, and are expected to have the same
+     *  size. If a key occurs several times, the last of its values is used.
+     *
+     * @throws IllegalArgumentException if the keys are not sorted, or if there is not exactly one value per key
+     */
+    public static <K,V> ARedBlackTreeMap<K,V> fromSortedKeysAndValues (Comparator<K> comparator, Iterable<K> keys, Iterable<V> values) {
+        final List<Object> keyList = new ArrayList<> ();
+        final List<Object> valueList = new ArrayList<> ();
+
+        final Iterator<K> ki = keys.iterator ();
+        final Iterator<V> vi = values.iterator ();
+        while (ki.hasNext ()) {
+            keyList.add (ki.next ());
+            if (! vi.hasNext ()) throw sizeMismatch (keyList.size (), ki, valueList.size (), vi);
+            valueList.add (vi.next ());
+        }
+        if (vi.hasNext ()) throw sizeMismatch (keyList.size (), ki, valueList.size (), vi);
+        return fromSorted (comparator, keyList.toArray (), valueList.toArray ());
+    }
+
+    /**
+     * Creates an ARedBlackTreeMap from keys and values in arbitrary order. They are sorted first, and the tree is then built in O(n) as
+     *  in {@link #fromSortedKeysAndValues}. If a key occurs several times, the last of its values is used.
+     *
+     * @throws IllegalArgumentException if there is not exactly one value per key
+     */
+    public static <K,V> ARedBlackTreeMap<K,V> fromKeysAndValues (Comparator<K> comparator, Iterable<K> keys, Iterable<V> values) {
+        final List<Map.Entry<K,V>> entries = new ArrayList<> ();
+
+        final Iterator<K> ki = keys.iterator ();
+        final Iterator<V> vi = values.iterator ();
+        while (ki.hasNext ()) {
+            final K key = ki.next ();
+            if (! vi.hasNext ()) throw sizeMismatch (entries.size () + 1, ki, entries.size (), vi);
+            entries.add (new AbstractMap.SimpleImmutableEntry<> (key, vi.next ()));
+        }
+        if (vi.hasNext ()) throw sizeMismatch (entries.size (), ki, entries.size (), vi);
+        return fromUnsortedEntries (comparator, entries);
+    }
+
+    /**
+     * This counts the remaining elements of both iterators so that the message reports the actual sizes.
+     */
+    private static IllegalArgumentException sizeMismatch (int numKeys, Iterator<?> ki, int numValues, Iterator<?> vi) {
+        for (; ki.hasNext (); ki.next ()) numKeys += 1;
+        for (; vi.hasNext (); vi.next ()) numValues += 1;
+        return new IllegalArgumentException ("got " + numKeys + " keys but " + numValues + " values");
+    }
+
+    /**
+     * Creates an ARedBlackTreeMap from the contents of a given {@code java.util.Map}. If that map is a {@link SortedMap} with the same
+     *  comparator, its order is used directly.
+     */
+    public static <K,V> ARedBlackTreeMap<K,V> fromJavaUtilMap (Comparator<K> comparator, Map<K,V> map) {
+        if (map instanceof SortedMap && comparator.equals (((SortedMap<K,V>) map).comparator ())) {
+            return fromSortedKeysAndValues (comparator, map.keySet (), map.values ());
+        }
+        return fromUnsortedEntries (comparator, new ArrayList<> (map.entrySet ()));
+    }
+
+    private static <K,V> ARedBlackTreeMap<K,V> fromUnsortedEntries (Comparator<K> comparator, List<Map.Entry<K,V>> entries) {
+        // the sort is stable, so the last value for a key remains the last one after sorting
+        entries.sort ((e1, e2) -> comparator.compare (e1.getKey (), e2.getKey ()));
+
+        final Object[] keys = new Object[entries.size ()];
+        final Object[] values = new Object[entries.size ()];
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = entries.get (i).getKey ();
+            values[i] = entries.get (i).getValue ();
+        }
+        return fromSorted (comparator, keys, values);
+    }
+
+    /**
+     * This may modify the arrays that are passed in.
+     */
+    @SuppressWarnings ("unchecked")
+    private static <K,V> ARedBlackTreeMap<K,V> fromSorted (Comparator<K> comparator, Object[] keys, Object[] values) {
+        // verify the order, and remove duplicates in place
+        int n = 0;
+        for (int i=0; i<keys.length; i++) {
+            if (n > 0) {
+                final int cmp = comparator.compare ((K) keys[n-1], (K) keys[i]);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException ("keys are not sorted: " + keys[n-1] + " is followed by " + keys[i]);
+                }
+                if (cmp == 0) {
+                    values[n-1] = values[i];
+                    continue;
+                }
+            }
+            keys[n] = keys[i];
+            values[n] = values[i];
+            n += 1;
+        }
+
+        return new ARedBlackTreeMap<> (buildBalanced (keys, values, 0, n-1, 0, redLevel (n)), comparator);
+    }
+
+    /**
+     * A perfectly balanced tree is a valid red-black tree if all nodes are black, except for those on the deepest level if that level is
+     *  incomplete. This returns the (zero-based) level whose nodes must be red - it is beyond the deepest level if that level is complete.
+     */
+    static int redLevel (int size) {
+        int level = 0;
+        for (int m = size-1; m >= 0; m = m/2 - 1) {
+            level += 1;
+        }
+        return level;
+    }
+
+    @SuppressWarnings ("unchecked")
+    private static <K,V> Tree<K,V> buildBalanced (Object[] keys, Object[] values, int lo, int hi, int level, int redLevel) {
+        if (lo > hi) {
+            return null;
+        }
+
+        final int mid = (lo + hi) >>> 1;
+        final Tree<K,V> left = buildBalanced (keys, values, lo, mid-1, level+1, redLevel);
+        final Tree<K,V> right = buildBalanced (keys, values, mid+1, hi, level+1, redLevel);
+
+        if (level == redLevel) {
+            return new RedTree<> ((K) keys[mid], (V) values[mid], left, right);
+        }
+        return new BlackTree<> ((K) keys[mid], (V) values[mid], left, right);
+    }
+
     private ARedBlackTreeMap (Tree<K, V> root, Comparator<K> comparator) {
         this.root = root;
         this.comparator = comparator;
@@ -67,6 +203,52 @@ public class ARedBlackTreeMap<K,V> extends AbstractAMap<K,V> implements ASortedM
         };
     }
 
+    /**
+     * The spliterator splits a tree into its left subtree, its root entry and its right subtree, traversing entries in key order.
+     */
+    @Override public Spliterator<AMapEntry<K, V>> spliterator () {
+        return new TreeSpliterator<> (this, size (), new SubtreeShape<> (comparator), Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+
+    /**
+     * Parts are either subtrees, wrapped as ARedBlackTreeMap instances, or single tree nodes standing for their own entry.
+     */
+    private static class SubtreeShape<K,V> implements TreeSpliterator.Shape<AMapEntry<K,V>> {
+        private final Comparator<K> comparator;
+
+        SubtreeShape (Comparator<K> comparator) {
+            this.comparator = comparator;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override public Object[] split (Object subtree) {
+            if (! (subtree instanceof ARedBlackTreeMap)) {
+                return null;
+            }
+
+            final Tree<K,V> tree = ((ARedBlackTreeMap<K,V>) subtree).root;
+            if (tree.left == null && tree.right == null) {
+                return new Object[] {tree};
+            }
+            if (tree.left == null) {
+                return new Object[] {tree, new ARedBlackTreeMap<> (tree.right, comparator)};
+            }
+            if (tree.right == null) {
+                return new Object[] {new ARedBlackTreeMap<> (tree.left, comparator), tree};
+            }
+            return new Object[] {new ARedBlackTreeMap<> (tree.left, comparator), tree, new ARedBlackTreeMap<> (tree.right, comparator)};
+        }
+
+        @Override public long size (Object subtree) {
+            return subtree instanceof ARedBlackTreeMap ? ((ARedBlackTreeMap) subtree).size () : 1;
+        }
+
+        @SuppressWarnings ("unchecked")
+        @Override public Iterator<AMapEntry<K,V>> iterator (Object subtree) {
+            return subtree instanceof ARedBlackTreeMap ? ((ARedBlackTreeMap<K,V>) subtree).iterator () : Collections.<AMapEntry<K,V>>singleton ((Tree<K,V>) subtree).iterator ();
+        }
+    }
+
 
 
 
@@ -1,5 +1,9 @@
 package com.ajjpj.afoundation.collection.immutable;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+
 /**
  * This interface extends {@link AMap}, adding methods that only make sense if there
  *  is an ordering on the keys.<p>
@@ -16,6 +20,13 @@ public interface ASortedMap<K,V> extends AMap<K,V> { //TODO ASortedSet
     @Override ASortedMap<K, V> updated (K key, V value);
     @Override ASortedMap<K, V> removed (K key);
 
+    /**
+     * The spliterator traverses entries in key order.
+     */
+    @Override default Spliterator<AMapEntry<K,V>> spliterator () {
+        return Spliterators.spliterator (iterator (), size (), Spliterator.IMMUTABLE | Spliterator.DISTINCT | Spliterator.ORDERED);
+    }
+
     /**
      * @return the first entry of the map, i.e. the entry with the 'smallest' key relative
      *          to the underlying sort order - or {@link AOption#none()} if the map is empty.
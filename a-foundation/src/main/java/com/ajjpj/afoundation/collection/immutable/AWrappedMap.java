@@ -6,6 +6,7 @@ import com.ajjpj.afoundation.function.AFunction1;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
 
 
 /**
@@ -73,6 +74,10 @@ abstract class AWrappedMap<K,V> implements AMap<K,V>, Serializable {
         return inner.iterator();
     }
 
+    @Override public Spliterator<AMapEntry<K,V>> spliterator() {
+        return inner.spliterator();
+    }
+
     @Override public Map<K,V> asJavaUtilMap() {
         return inner.asJavaUtilMap();
     }
@@ -5,6 +5,7 @@ import com.ajjpj.afoundation.function.AFunction1;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiFunction;
 
 
 /**
@@ -96,4 +97,25 @@ abstract class AbstractAMap<K,V> implements AMap<K,V> {
         result.append ("}");
         return result.toString ();
     }
+
+    /**
+     * Some maps' iterators return a single entry object that changes with every call to {@code next()}. This wraps such an iterator,
+     *  returning a copy of each entry, for spliterators: streams may hold on to the entries they are passed.
+     */
+    static <K,V> Iterator<AMapEntry<K,V>> copyingIterator (Iterator<AMapEntry<K,V>> inner, BiFunction<K, V, AMapEntry<K,V>> entryFactory) {
+        return new Iterator<AMapEntry<K,V>> () {
+            @Override public boolean hasNext () {
+                return inner.hasNext ();
+            }
+
+            @Override public AMapEntry<K,V> next () {
+                final AMapEntry<K,V> e = inner.next ();
+                return entryFactory.apply (e.getKey (), e.getValue ());
+            }
+
+            @Override public void remove () {
+                throw new UnsupportedOperationException ();
+            }
+        };
+    }
 }
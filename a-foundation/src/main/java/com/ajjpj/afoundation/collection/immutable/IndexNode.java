@@ -1,6 +1,8 @@
 package com.ajjpj.afoundation.collection.immutable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -12,17 +14,26 @@ class IndexNode extends ABTreeMap {
     final Object[] separators;
     final ABTreeMap[] children;
 
+    // the number of entries in this subtree. Storing it makes size() O(1) and allows positional access in O(log n).
+    private final int size;
+
     IndexNode (ABTreeSpec spec, Object[] separators, ABTreeMap[] children) {
         super (spec);
         this.separators = separators;
         this.children = children;
+
+        int size = 0;
+        for (ABTreeMap child: children) {
+            size += child.size ();
+        }
+        this.size = size;
     }
 
     /**
      * returns the index of the first separator that is greater than the key
      */
     @SuppressWarnings ("unchecked")
-    private int lookupKey (Object key) {
+    int lookupKey (Object key) {
         return lookupKeyInInterval (key, 0, separators.length);
     }
 
@@ -51,6 +62,138 @@ class IndexNode extends ABTreeMap {
         return children[lookupKey (key)].get (key);
     }
 
+    @Override int numEntries () {
+        return children.length;
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override void _updatedAll (Object[] keys, Object[] values, int from, int to, List result) {
+        final List<ABTreeMap> newChildren = new ArrayList<> ();
+        int lo = from;
+        for (int i=0; i<children.length; i++) {
+            final int hi = batchEnd (keys, lo, to, i);
+            if (lo == hi) {
+                newChildren.add (children[i]);
+            }
+            else {
+                children[i]._updatedAll (keys, values, lo, hi, newChildren);
+            }
+            lo = hi;
+        }
+        result.addAll (chunked (spec, newChildren));
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override void _removedAll (Object[] keys, int from, int to, List result) {
+        final List<ABTreeMap> newChildren = new ArrayList<> ();
+        boolean changed = false;
+        int lo = from;
+        for (int i=0; i<children.length; i++) {
+            final int hi = batchEnd (keys, lo, to, i);
+            if (lo == hi) {
+                newChildren.add (children[i]);
+            }
+            else {
+                final int numBefore = newChildren.size ();
+                children[i]._removedAll (keys, lo, hi, newChildren);
+                changed = changed || newChildren.size () != numBefore + 1 || newChildren.get (numBefore) != children[i];
+            }
+            lo = hi;
+        }
+
+        if (changed) {
+            result.addAll (chunked (spec, normalize (spec, newChildren)));
+        }
+        else {
+            result.add (this);
+        }
+    }
+
+    /**
+     * @return the end of the part of a sorted batch of keys that belongs to a given child, starting at {@code from}
+     */
+    @SuppressWarnings ("unchecked")
+    private int batchEnd (Object[] keys, int from, int to, int childIdx) {
+        if (childIdx == separators.length) {
+            return to;
+        }
+
+        int result = from;
+        while (result < to && spec.comparator.compare (keys[result], separators[childIdx]) < 0) {
+            result += 1;
+        }
+        return result;
+    }
+
+    /**
+     * This distributes children evenly between as many index nodes as are necessary to avoid overfull nodes. Separators are taken from
+     *  the children's smallest keys.
+     */
+    static List<ABTreeMap> chunked (ABTreeSpec spec, List<ABTreeMap> children) {
+        final int numChunks = numChunks (spec, children.size ());
+        final List<ABTreeMap> result = new ArrayList<> (numChunks);
+
+        int offs = 0;
+        for (int i=0; i<numChunks; i++) {
+            final int end = (int) ((long) children.size () * (i+1) / numChunks);
+
+            final ABTreeMap[] chunkChildren = children.subList (offs, end).toArray (new ABTreeMap[end - offs]);
+            final Object[] chunkSeparators = new Object[chunkChildren.length - 1];
+            for (int j=0; j<chunkSeparators.length; j++) {
+                chunkSeparators[j] = smallestKey (chunkChildren[j+1]);
+            }
+            result.add (new IndexNode (spec, chunkSeparators, chunkChildren));
+            offs = end;
+        }
+        return result;
+    }
+
+    @Override AMapEntry entryAt (int index) {
+        for (ABTreeMap child: children) {
+            if (index < child.size ()) {
+                return child.entryAt (index);
+            }
+            index -= child.size ();
+        }
+        throw new IllegalStateException ("inconsistent subtree sizes");
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override public int rank (Object key) {
+        final int childIdx = lookupKey (key);
+        int result = 0;
+        for (int i=0; i<childIdx; i++) {
+            result += children[i].size ();
+        }
+        return result + children[childIdx].rank (key);
+    }
+
+    @Override AMapEntry firstEntry () {
+        return children[0].firstEntry ();
+    }
+    @Override AMapEntry lastEntry () {
+        return children[children.length-1].lastEntry ();
+    }
+
+    @Override AMapEntry firstGreater (Object key, boolean inclusive) {
+        // all keys in the next child are greater than the separator, which in turn is greater than the key
+        final int childIdx = lookupKey (key);
+        final AMapEntry result = children[childIdx].firstGreater (key, inclusive);
+        if (result == null && childIdx < children.length-1) {
+            return children[childIdx+1].firstEntry ();
+        }
+        return result;
+    }
+    @Override AMapEntry lastSmaller (Object key, boolean inclusive) {
+        // all keys in the previous child are smaller than the separator, which in turn is smaller than or equal to the key
+        final int childIdx = lookupKey (key);
+        final AMapEntry result = children[childIdx].lastSmaller (key, inclusive);
+        if (result == null && childIdx > 0) {
+            return children[childIdx-1].lastEntry ();
+        }
+        return result;
+    }
+
     @Override UpdateResult merge (ABTreeMap rightNeighbour, Object separator) {
         final IndexNode right = (IndexNode) rightNeighbour;
         final int len = children.length + right.children.length;
@@ -270,11 +413,7 @@ class IndexNode extends ABTreeMap {
     }
 
     @Override public int size () {
-        int result = 0;
-        for (ABTreeMap child: children) {
-            result += child.size ();
-        }
-        return result;
+        return size;
     }
 
     @Override public boolean isEmpty () {
@@ -1,7 +1,9 @@
 package com.ajjpj.afoundation.collection.immutable;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -58,6 +60,126 @@ class LeafNode extends ABTreeMap {
         }
     }
 
+    /**
+     * @return the index of the first key that is greater than (or equal to, if {@code inclusive} is true) a given key, or the number of
+     *  keys if there is no such key
+     */
+    @SuppressWarnings ("unchecked")
+    int indexOfFirstGreater (Object key, boolean inclusive) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int cmp = spec.comparator.compare (keys[mid], key);
+            if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override int numEntries () {
+        return keys.length;
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override void _updatedAll (Object[] batchKeys, Object[] batchValues, int from, int to, List result) {
+        final Object[] newKeys = new Object[keys.length + to - from];
+        final Object[] newValues = new Object[keys.length + to - from];
+
+        // merge the two sorted sequences, with the batch taking precedence for keys that are in both
+        int i = 0;
+        int j = from;
+        int n = 0;
+        while (i < keys.length || j < to) {
+            final int cmp = (i == keys.length) ? 1 : (j == to) ? -1 : spec.comparator.compare (keys[i], batchKeys[j]);
+            if (cmp < 0) {
+                newKeys[n] = keys[i];
+                newValues[n] = values[i];
+                i += 1;
+            }
+            else {
+                newKeys[n] = batchKeys[j];
+                newValues[n] = batchValues[j];
+                j += 1;
+                if (cmp == 0) i += 1;
+            }
+            n += 1;
+        }
+
+        result.addAll (chunked (spec, newKeys, newValues, n));
+    }
+
+    @SuppressWarnings ("unchecked")
+    @Override void _removedAll (Object[] batchKeys, int from, int to, List result) {
+        final Object[] newKeys = new Object[keys.length];
+        final Object[] newValues = new Object[keys.length];
+
+        int j = from;
+        int n = 0;
+        for (int i=0; i<keys.length; i++) {
+            while (j < to && spec.comparator.compare (batchKeys[j], keys[i]) < 0) {
+                j += 1;
+            }
+            if (j < to && spec.comparator.compare (batchKeys[j], keys[i]) == 0) {
+                continue;
+            }
+            newKeys[n] = keys[i];
+            newValues[n] = values[i];
+            n += 1;
+        }
+
+        if (n == keys.length) {
+            result.add (this);
+        }
+        else {
+            result.add (new LeafNode (spec, Arrays.copyOf (newKeys, n), Arrays.copyOf (newValues, n)));
+        }
+    }
+
+    /**
+     * This distributes the first {@code n} entries evenly between as many leaves as are necessary to avoid overfull leaves.
+     */
+    static List<ABTreeMap> chunked (ABTreeSpec spec, Object[] keys, Object[] values, int n) {
+        final int numChunks = numChunks (spec, n);
+        final List<ABTreeMap> result = new ArrayList<> (numChunks);
+
+        int offs = 0;
+        for (int i=0; i<numChunks; i++) {
+            final int end = (int) ((long) n * (i+1) / numChunks);
+            result.add (new LeafNode (spec, Arrays.copyOfRange (keys, offs, end), Arrays.copyOfRange (values, offs, end)));
+            offs = end;
+        }
+        return result;
+    }
+
+    @Override AMapEntry entryAt (int index) {
+        return new BTreeEntry<> (keys[index], values[index]);
+    }
+
+    @Override public int rank (Object key) {
+        return indexOfFirstGreater (key, true);
+    }
+
+    @Override AMapEntry firstEntry () {
+        return keys.length == 0 ? null : new BTreeEntry<> (keys[0], values[0]);
+    }
+    @Override AMapEntry lastEntry () {
+        return keys.length == 0 ? null : new BTreeEntry<> (keys[keys.length-1], values[keys.length-1]);
+    }
+
+    @Override AMapEntry firstGreater (Object key, boolean inclusive) {
+        final int idx = indexOfFirstGreater (key, inclusive);
+        return idx == keys.length ? null : new BTreeEntry<> (keys[idx], values[idx]);
+    }
+    @Override AMapEntry lastSmaller (Object key, boolean inclusive) {
+        final int idx = indexOfFirstGreater (key, !inclusive) - 1;
+        return idx < 0 ? null : new BTreeEntry<> (keys[idx], values[idx]);
+    }
+
     @Override public AOption<Object> get (Object key) {
         final LookupResult lookupResult = lookupKey (key);
         if (lookupResult.kind == LookupResult.MATCH) {
@@ -9,6 +9,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 
 /**
@@ -22,6 +24,10 @@ abstract class MapAsSetWrapper<K, C extends MapAsSetWrapper<K, C>> implements AS
         this.inner = (AMap<K, Boolean>) inner;
     }
 
+    AMap<K, Boolean> inner () {
+        return inner;
+    }
+
     @Override public C clear () {
         return wrapAsSet (inner.clear ());
     }
@@ -219,4 +225,41 @@ abstract class MapAsSetWrapper<K, C extends MapAsSetWrapper<K, C>> implements AS
     @Override public <E extends Throwable> boolean exists (APredicate<? super K, E> pred) throws E {
         return ACollectionHelper.exists (this, pred);
     }
+
+    /**
+     * The spliterator is based on the underlying map's spliterator, so sets backed by hash maps or tree maps split along the maps'
+     *  internal structure.
+     */
+    @Override public Spliterator<K> spliterator () {
+        return new KeySpliterator<> (inner.spliterator ());
+    }
+
+    static class KeySpliterator<K> implements Spliterator<K> {
+        private final Spliterator<? extends AMapEntry<K,?>> inner;
+
+        KeySpliterator (Spliterator<? extends AMapEntry<K, ?>> inner) {
+            this.inner = inner;
+        }
+
+        @Override public boolean tryAdvance (Consumer<? super K> action) {
+            return inner.tryAdvance (e -> action.accept (e.getKey ()));
+        }
+
+        @Override public void forEachRemaining (Consumer<? super K> action) {
+            inner.forEachRemaining (e -> action.accept (e.getKey ()));
+        }
+
+        @Override public Spliterator<K> trySplit () {
+            final Spliterator<? extends AMapEntry<K,?>> prefix = inner.trySplit ();
+            return prefix == null ? null : new KeySpliterator<> (prefix);
+        }
+
+        @Override public long estimateSize () {
+            return inner.estimateSize ();
+        }
+
+        @Override public int characteristics () {
+            return inner.characteristics ();
+        }
+    }
 }
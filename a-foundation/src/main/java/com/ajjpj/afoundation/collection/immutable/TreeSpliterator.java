@@ -0,0 +1,137 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/**
+ * This is a spliterator for tree-shaped collections. It holds a range of subtrees that were not yet traversed, and it splits by handing
+ *  the first half of them to a new spliterator. If only a single subtree is left, that subtree is replaced by its parts first.<p>
+ *
+ * Subtrees are traversed with their own iterators, so neither splitting nor traversal copies the data structure. Sizes of subtrees are
+ *  known, so the spliterator and all spliterators split from it report exact sizes.
+ *
+ * @author arno
+ */
+class TreeSpliterator<T> implements Spliterator<T> {
+    /**
+     * This defines how a specific data structure is split into subtrees. Subtrees are AMap instances by default.
+     */
+    interface Shape<T> {
+        /**
+         * @return the parts of a subtree in encounter order, or null if the subtree can not be split any further
+         */
+        Object[] split (Object subtree);
+
+        default long size (Object subtree) {
+            return ((AMap<?,?>) subtree).size ();
+        }
+
+        @SuppressWarnings ("unchecked")
+        default Iterator<T> iterator (Object subtree) {
+            return ((Iterable<T>) subtree).iterator ();
+        }
+    }
+
+    private final Shape<T> shape;
+    private final int characteristics;
+
+    // subtrees that were not started yet are pending[from] to pending[to-1]
+    private Object[] pending;
+    private int from;
+    private int to;
+
+    // the subtree that is currently being traversed, or null
+    private Iterator<T> current;
+
+    // the exact number of remaining elements, including those in 'current'
+    private long size;
+
+    TreeSpliterator (Object root, long size, Shape<T> shape, int characteristics) {
+        this (size == 0 ? new Object[0] : new Object[] {root}, 0, size == 0 ? 0 : 1, null, size, shape, characteristics);
+    }
+
+    private TreeSpliterator (Object[] pending, int from, int to, Iterator<T> current, long size, Shape<T> shape, int characteristics) {
+        this.pending = pending;
+        this.from = from;
+        this.to = to;
+        this.current = current;
+        this.size = size;
+        this.shape = shape;
+        this.characteristics = characteristics | Spliterator.IMMUTABLE | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+
+    @Override public boolean tryAdvance (Consumer<? super T> action) {
+        while (current == null || ! current.hasNext ()) {
+            if (from == to) {
+                current = null;
+                return false;
+            }
+            current = shape.iterator (pending[from++]);
+        }
+
+        size -= 1;
+        action.accept (current.next ());
+        return true;
+    }
+
+    @Override public void forEachRemaining (Consumer<? super T> action) {
+        if (current != null) {
+            while (current.hasNext ()) {
+                action.accept (current.next ());
+            }
+            current = null;
+        }
+        while (from < to) {
+            final Iterator<T> iter = shape.iterator (pending[from++]);
+            while (iter.hasNext ()) {
+                action.accept (iter.next ());
+            }
+        }
+        size = 0;
+    }
+
+    @Override public Spliterator<T> trySplit () {
+        if (current == null) {
+            while (to - from == 1) {
+                final Object[] parts = shape.split (pending[from]);
+                if (parts == null) {
+                    return null;
+                }
+                pending = parts;
+                from = 0;
+                to = parts.length;
+            }
+            if (to - from < 2) {
+                return null;
+            }
+        }
+        else if (to == from) {
+            // the partially traversed subtree can not be split
+            return null;
+        }
+
+        // the prefix takes the partially traversed subtree (if any) and the first half of the pending subtrees
+        final int mid = from + (to - from) / 2;
+
+        long suffixSize = 0;
+        for (int i=mid; i<to; i++) {
+            suffixSize += shape.size (pending[i]);
+        }
+
+        final Spliterator<T> prefix = new TreeSpliterator<> (pending, from, mid, current, size - suffixSize, shape, characteristics);
+        from = mid;
+        current = null;
+        size = suffixSize;
+        return prefix;
+    }
+
+    @Override public long estimateSize () {
+        return size;
+    }
+
+    @Override public int characteristics () {
+        return characteristics;
+    }
+}
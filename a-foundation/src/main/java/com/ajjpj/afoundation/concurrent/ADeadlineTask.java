@@ -0,0 +1,36 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * An ADeadlineTask is a task with a deadline by which it should be executed. Thread pools that were built with
+ *  {@link SharedQueueStrategy#Deadline} execute tasks with earlier deadlines first, and they can drop tasks whose deadline expired before
+ *  they were started, see {@link AThreadPoolBuilder#withExpiredTaskHandler}. Other thread pools treat ADeadlineTasks like any other task.<p>
+ *
+ * Deadlines are based on {@link System#nanoTime()}.
+ *
+ * @author arno
+ */
+public interface ADeadlineTask extends Runnable {
+    /**
+     * @return the deadline in terms of {@link System#nanoTime()}
+     */
+    long getDeadlineNanos ();
+
+    /**
+     * This creates an ADeadlineTask with a deadline relative to the current time.
+     */
+    static ADeadlineTask create (Runnable task, long timeout, TimeUnit timeUnit) {
+        final long deadlineNanos = System.nanoTime () + timeUnit.toNanos (timeout);
+        return new ADeadlineTask () {
+            @Override public long getDeadlineNanos () {
+                return deadlineNanos;
+            }
+
+            @Override public void run () {
+                task.run ();
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+
+/**
+ * This class renders event trace dumps (see {@link AThreadPoolWithAdmin#dumpEventTrace}) as human readable per-worker timelines. It is
+ *  intended for offline analysis, so it has a {@code main} method taking the dump file's name:
+ *
+ * <pre>
+ * {@code
+ *   java -cp a-foundation.jar com.ajjpj.afoundation.concurrent.AEventTraceDecoder pool-trace.bin
+ * }</pre>
+ *
+ * Timestamps are rendered in microseconds relative to the earliest event in the dump, so timelines of different workers can be compared.
+ *
+ * @author arno
+ */
+public class AEventTraceDecoder {
+    static final int MAGIC = 0x41455654; // "AEVT"
+    static final int VERSION = 1;
+
+    public static void main (String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println ("usage: AEventTraceDecoder <dump file>");
+            System.exit (1);
+        }
+
+        try (InputStream in = new FileInputStream (args[0])) {
+            final Writer out = new OutputStreamWriter (System.out);
+            render (in, out);
+            out.flush ();
+        }
+    }
+
+    /**
+     * The binary format is: magic number, version and number of workers, followed by each worker's name, number of events, and the
+     *  events as pairs of longs in the format of {@link WorkerEventTrace}.
+     */
+    static void write (OutputStream out, String[] workerNames, long[][] events) throws IOException {
+        final DataOutputStream data = new DataOutputStream (out);
+        data.writeInt (MAGIC);
+        data.writeInt (VERSION);
+        data.writeInt (workerNames.length);
+
+        for (int i=0; i<workerNames.length; i++) {
+            data.writeUTF (workerNames[i]);
+            data.writeInt (events[i].length / 2);
+            for (long l: events[i]) {
+                data.writeLong (l);
+            }
+        }
+        data.flush ();
+    }
+
+    public static void render (InputStream in, Appendable out) throws IOException {
+        final DataInputStream data = new DataInputStream (in);
+        if (data.readInt () != MAGIC) throw new IOException ("not an event trace dump");
+        final int version = data.readInt ();
+        if (version != VERSION) throw new IOException ("unsupported event trace version " + version);
+
+        final int numWorkers = data.readInt ();
+        final String[] workerNames = new String[numWorkers];
+        final long[][] events = new long[numWorkers][];
+
+        long startNanos = Long.MAX_VALUE;
+        for (int i=0; i<numWorkers; i++) {
+            workerNames[i] = data.readUTF ();
+            events[i] = new long[2 * data.readInt ()];
+            for (int j=0; j<events[i].length; j++) {
+                events[i][j] = data.readLong ();
+            }
+            if (events[i].length > 0) {
+                startNanos = Math.min (startNanos, events[i][0]);
+            }
+        }
+
+        for (int i=0; i<numWorkers; i++) {
+            out.append (String.format ("worker %d (%s): %d events%n", i, workerNames[i], events[i].length / 2));
+            for (int j=0; j<events[i].length; j+=2) {
+                final long encoded = events[i][j+1];
+                out.append (String.format ("  %14.3f us  %-17s %d%n", (events[i][j] - startNanos) / 1000.0, WorkerEventTrace.type (encoded), WorkerEventTrace.arg (encoded)));
+            }
+        }
+    }
+}
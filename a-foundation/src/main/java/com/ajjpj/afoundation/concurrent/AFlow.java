@@ -0,0 +1,126 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AList;
+import com.ajjpj.afoundation.function.AFunction0;
+import com.ajjpj.afoundation.function.AFunction1;
+import com.ajjpj.afoundation.function.AFunction2;
+import com.ajjpj.afoundation.function.APredicate;
+import com.ajjpj.afoundation.function.AStatement1;
+
+import java.util.Iterator;
+
+
+/**
+ * An AFlow is a fluent wrapper around an {@link APublisher}, i.e. a stream of elements with demand-driven back pressure. Elements are
+ *  produced by tasks in an {@link AThreadPool}, but only as many as downstream subscribers requested, so memory consumption stays bounded
+ *  even for unbounded sources.<p>
+ *
+ * Synchronous operators ({@link #map}, {@link #filter}, {@link #buffer}) are fused with their upstream: They process each element in the
+ *  thread that produced it, so a chain of such operators runs as a single task per batch of elements rather than as one task per element
+ *  and stage.<p>
+ *
+ * AFlow instances are 'cold' and immutable: Nothing happens until a subscriber subscribes, and every subscription starts a separate
+ *  stream of elements from the source.
+ *
+ * @author arno
+ */
+public class AFlow<T> implements APublisher<T> {
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final APublisher<T> source;
+
+    private AFlow (APublisher<T> source) {
+        this.source = source;
+    }
+
+    public static <T> AFlow<T> wrap (APublisher<T> source) {
+        if (source instanceof AFlow) {
+            return (AFlow<T>) source;
+        }
+        return new AFlow<> (source);
+    }
+
+    public static <T> AFlow<T> fromIterable (AThreadPool pool, Iterable<? extends T> iterable) {
+        return fromIterable (pool, iterable, DEFAULT_BATCH_SIZE);
+    }
+
+    public static <T> AFlow<T> fromIterable (AThreadPool pool, Iterable<? extends T> iterable, int batchSize) {
+        return fromIterator (pool, iterable::iterator, batchSize);
+    }
+
+    /**
+     * This creates an AFlow from an iterator. The factory is called once per subscription, creating a separate iterator for every
+     *  subscriber. The iterator's {@code next()} method is called from tasks submitted to {@code pool}, emitting at most
+     *  {@code batchSize} elements per task.<p>
+     *
+     * If the iterator implements {@link AutoCloseable}, it is closed when the stream completes, fails or is cancelled.
+     */
+    public static <T> AFlow<T> fromIterator (AThreadPool pool, AFunction0<? extends Iterator<? extends T>, ?> iteratorFactory, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException ("batch size must be positive");
+        return new AFlow<> (subscriber -> subscriber.onSubscribe (new FlowIteratorSubscription<> (pool, subscriber, iteratorFactory, batchSize)));
+    }
+
+    @Override public void subscribe (ASubscriber<? super T> subscriber) {
+        source.subscribe (subscriber);
+    }
+
+    public <R> AFlow<R> map (AFunction1<? super T, ? extends R, ?> f) {
+        return new AFlow<> (subscriber -> source.subscribe (new FlowSupport.MapSubscriber<> (subscriber, f)));
+    }
+
+    public AFlow<T> filter (APredicate<? super T, ?> pred) {
+        return new AFlow<> (subscriber -> source.subscribe (new FlowSupport.FilterSubscriber<> (subscriber, pred)));
+    }
+
+    /**
+     * This collects elements into lists of {@code size} elements each. The last list may be shorter if the number of elements is not a
+     *  multiple of {@code size}.
+     */
+    public AFlow<AList<T>> buffer (int size) {
+        if (size <= 0) throw new IllegalArgumentException ("buffer size must be positive");
+        return new AFlow<> (subscriber -> source.subscribe (new FlowSupport.BufferSubscriber<> (subscriber, size)));
+    }
+
+    public <R> AFlow<R> flatMap (AFunction1<? super T, ? extends APublisher<? extends R>, ?> f, int maxConcurrency) {
+        return flatMap (f, maxConcurrency, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * This maps every element to a publisher, merging their elements into a single stream. At most {@code maxConcurrency} of these publishers
+     *  are subscribed to at any given time, and each of them has at most {@code prefetch} elements requested, so no more than
+     *  {@code maxConcurrency * prefetch} elements are buffered.<p>
+     *
+     * Elements of different inner publishers are interleaved in the order they become available, i.e. the resulting stream does not
+     *  preserve the order of upstream elements.
+     */
+    public <R> AFlow<R> flatMap (AFunction1<? super T, ? extends APublisher<? extends R>, ?> f, int maxConcurrency, int prefetch) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException ("maxConcurrency must be positive");
+        if (prefetch <= 0) throw new IllegalArgumentException ("prefetch must be positive");
+        return new AFlow<> (subscriber -> source.subscribe (new FlowFlatMapSubscriber<> (subscriber, f, maxConcurrency, prefetch)));
+    }
+
+    /**
+     * This subscribes to the flow, calling {@code f} for every element. The resulting future completes when the flow completes, or
+     *  fails with the first exception from either the flow or {@code f}.
+     */
+    public AFuture<Void> foreach (AStatement1<? super T, ?> f) {
+        return fold (null, (Void acc, T el) -> {
+            f.apply (el);
+            return null;
+        });
+    }
+
+    public <R> AFuture<R> fold (R start, AFunction2<R, ? super T, R, ?> f) {
+        return fold (start, f, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * This subscribes to the flow, combining all elements into a single value. It keeps at most {@code batchSize} elements requested.
+     */
+    public <R> AFuture<R> fold (R start, AFunction2<R, ? super T, R, ?> f, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException ("batch size must be positive");
+        final AFutureImpl<R> result = new AFutureImpl<> (AThreadPool.SYNC_THREADPOOL);
+        source.subscribe (new FlowSupport.FoldSubscriber<> (result, start, f, batchSize));
+        return result;
+    }
+}
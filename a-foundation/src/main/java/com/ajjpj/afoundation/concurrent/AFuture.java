@@ -6,6 +6,8 @@ import com.ajjpj.afoundation.collection.immutable.ATry;
 import com.ajjpj.afoundation.collection.tuples.ATuple2;
 import com.ajjpj.afoundation.function.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -198,6 +200,19 @@ public interface AFuture<T> {
      */
     AFuture<T> andThen (AThreadPool tp, APartialStatement<ATry<T>, ?> f);
 
+    /**
+     * This method returns a {@link CompletableFuture} that completes with this AFuture's result, allowing AFuture to be used with
+     *  libraries that are based on {@link CompletionStage}. The conversion registers a single listener with this AFuture, and an
+     *  AFuture that was created by {@link AFuture#fromCompletionStage} is converted back to the original CompletionStage's
+     *  CompletableFuture without any additional wrapping.<p>
+     *
+     * Since every {@link AThreadPool} is an {@link java.util.concurrent.Executor}, it can be passed to the returned CompletableFuture's
+     *  {@code *Async} methods.
+     */
+    default CompletableFuture<T> toCompletableFuture () {
+        return CompletableFutureAdapter.create (this);
+    }
+
 
     /**
      * This method returns a new AFuture that is completed successfully with the given value.
@@ -220,6 +235,18 @@ public interface AFuture<T> {
         return AFutureImpl.fromTry (AThreadPool.SYNC_THREADPOOL, t);
     }
 
+    /**
+     * This method creates an AFuture that completes with the result of a given {@link CompletionStage}. The conversion registers a single
+     *  listener with the CompletionStage, and a CompletableFuture that was created by {@link AFuture#toCompletableFuture} is converted
+     *  back to the original AFuture without any additional wrapping.<p>
+     *
+     * If the CompletionStage fails with a {@link java.util.concurrent.CompletionException}, the resulting AFuture fails with that
+     *  exception's cause.
+     */
+    static <T> AFuture<T> fromCompletionStage (CompletionStage<T> stage) {
+        return CompletionStageAdapter.create (stage);
+    }
+
     /**
      * This method submits a given function to a given AThreadPool, returning an AFuture that completes once the
      *  function completes. The returned AFuture will complete successfully with the function's return value if the
@@ -282,6 +309,19 @@ public interface AFuture<T> {
     static <T, R, E extends Throwable> AFuture<AList<R>> traverse (AThreadPool tp, Iterable<T> values, AFunction1<T, AFuture<R>, E> f) throws E {
         return StaticFutureMethods.traverse (tp, values, f);
     }
+
+    /**
+     * This is a variant of {@link AFuture#traverse(AThreadPool, Iterable, AFunction1)} that keeps at most {@code maxParallelism} of the
+     *  function's AFutures 'in flight' at any given time: The function is applied to the next value only when one of the previously
+     *  returned AFutures completes. This allows fanning out to a large number of downstream calls without flooding either the thread pool
+     *  or the downstream system.<p>
+     *
+     * The function is initially applied in the caller's thread, and subsequently in the thread pool. If the function throws a Throwable or
+     *  one of its AFutures fails, the resulting AFuture fails and no further values are processed.
+     */
+    static <T, R> AFuture<AList<R>> traverse (AThreadPool tp, Iterable<T> values, AFunction1<T, AFuture<R>, ?> f, int maxParallelism) {
+        return StaticFutureMethods.traverse (tp, values, f, maxParallelism);
+    }
 }
 
 
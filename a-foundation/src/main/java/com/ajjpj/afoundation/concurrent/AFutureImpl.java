@@ -53,7 +53,7 @@ class AFutureImpl<T> implements ASettableFuture<T> {
     @Override public void await (long atMost, TimeUnit timeUnit) throws TimeoutException, InterruptedException {
         final CompletionLatch l = new CompletionLatch ();
         onComplete (AThreadPool.SYNC_THREADPOOL, x -> l.releaseShared (1));
-        if (! l.tryAcquireNanos (1, timeUnit.toNanos (atMost))) {
+        if (! l.tryAcquireSharedNanos (1, timeUnit.toNanos (atMost))) {
             throw new TimeoutExceptionWithoutStackTrace ();
         }
     }
@@ -257,7 +257,7 @@ class AFutureImpl<T> implements ASettableFuture<T> {
 
     static class CompletionLatch extends AbstractQueuedSynchronizer {
         @Override protected int tryAcquireShared (int ignored) {
-            return getState () == 0 ? 1 : -1;
+            return getState () != 0 ? 1 : -1;
         }
 
         @Override protected boolean tryReleaseShared (int ignored) {
@@ -0,0 +1,95 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * An AKeyedExecutor runs tasks for the same key strictly in submission order and never concurrently, while tasks for different keys
+ *  can run in parallel. This is useful for processing events per entity, e.g. all events for a given account in the order they arrived,
+ *  without locking and without dedicating a thread to each group of entities.<p>
+ *
+ * Keys are hashed to a fixed number of 'lanes', each of which is an {@link ASerialExecutor} on top of a shared {@link AThreadPool}. Keys
+ *  that share a lane are processed serially with respect to each other as well, so the number of lanes limits parallelism: It should
+ *  be significantly bigger than the number of threads in the pool to keep the probability of 'hot' keys blocking each other low. Lanes
+ *  are created on first use and then kept for reuse, so a lane that was never used costs no more than an array slot, and submitting to
+ *  an idle lane does not allocate a new one.
+ *
+ * @author arno
+ */
+public class AKeyedExecutor<K> {
+    private final AThreadPool pool;
+    private final int batchSize;
+    private final AtomicReferenceArray<ASerialExecutor> lanes;
+
+    private AKeyedExecutor (AThreadPool pool, int numLanes, int batchSize) {
+        if (numLanes <= 0) throw new IllegalArgumentException ("number of lanes must be positive");
+        if (batchSize <= 0) throw new IllegalArgumentException ("batch size must be positive");
+
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.lanes = new AtomicReferenceArray<> (numLanes);
+    }
+
+    public static <K> AKeyedExecutor<K> create (AThreadPool pool, int numLanes) {
+        return create (pool, numLanes, ASerialExecutor.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize the maximum number of tasks a lane runs before yielding its thread, see {@link ASerialExecutor#create(AThreadPool, int)}
+     */
+    public static <K> AKeyedExecutor<K> create (AThreadPool pool, int numLanes, int batchSize) {
+        return new AKeyedExecutor<> (pool, numLanes, batchSize);
+    }
+
+    public int getNumLanes () {
+        return lanes.length ();
+    }
+
+    public void submit (K key, Runnable task) {
+        submit (laneIndex (key), task);
+    }
+
+    /**
+     * @return a serial executor for a given key. Tasks submitted through it are ordered with regard to all other tasks for the same key,
+     *  no matter how they were submitted.
+     */
+    public AThreadPool forKey (K key) {
+        final int idx = laneIndex (key);
+        return task -> submit (idx, task);
+    }
+
+    /**
+     * @return the lane with a given index, or null if no task was submitted to it so far
+     */
+    ASerialExecutor lane (int idx) {
+        return lanes.get (idx);
+    }
+
+    int laneIndex (K key) {
+        int h = key == null ? 0 : key.hashCode ();
+        h ^= (h >>> 16); // spread higher bits downwards because many hash codes differ mostly in the higher bits
+        return Math.floorMod (h * 0x9E3779B9, lanes.length ());
+    }
+
+    private void submit (int idx, Runnable task) {
+        if (task == null) throw new NullPointerException ();
+        getOrCreateLane (idx).submit (task);
+    }
+
+    /**
+     * A lane is never replaced once it is in its slot, so all tasks for a key go through the same serial executor. If two threads race to
+     *  create a lane, the loser's executor is discarded before it ever received a task.
+     */
+    private ASerialExecutor getOrCreateLane (int idx) {
+        final ASerialExecutor existing = lanes.get (idx);
+        if (existing != null) {
+            return existing;
+        }
+
+        final ASerialExecutor lane = ASerialExecutor.create (pool, batchSize);
+        if (lanes.compareAndSet (idx, null, lane)) {
+            return lane;
+        }
+        return lanes.get (idx);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * An APublisher provides a potentially unbounded sequence of elements to its {@link ASubscriber}s, honoring the demand they signal
+ *  through their {@link ASubscription}s. This follows the semantics of the <a href="http://www.reactive-streams.org">reactive streams</a>
+ *  specification (and of {@code java.util.concurrent.Flow.Publisher} in JDK 9), so adapting to either is a matter of delegation.<p>
+ *
+ * See {@link AFlow} for a fluent API to create and transform APublishers.
+ */
+public interface APublisher<T> {
+    /**
+     * This method requests the publisher to start streaming data to a subscriber. The publisher calls the subscriber's
+     *  {@link ASubscriber#onSubscribe} exactly once, and then calls {@link ASubscriber#onNext} no more often than the
+     *  subscriber requested.
+     */
+    void subscribe (ASubscriber<? super T> subscriber);
+}
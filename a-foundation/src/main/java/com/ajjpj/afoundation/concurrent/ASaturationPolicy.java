@@ -0,0 +1,136 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.function.AStatement1NoThrow;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * A saturation policy determines what happens when a task is submitted to an {@link AThreadPool} whose queues are full. A worker thread
+ *  whose local queue is full falls back to a shared queue first, so the policy is invoked only when the shared queue is full as well.
+ *  Use {@link AThreadPoolBuilder#withSaturationPolicy} to configure a pool's policy; the default is {@link #reject()}.<p>
+ *
+ * The pool counts how often its policy is invoked, and how many tasks are run inline, dropped or rejected as a result, see
+ *  {@link AThreadPoolStatistics}.
+ *
+ * @author arno
+ */
+public interface ASaturationPolicy {
+    /**
+     * This method is called in the submitting thread when the task can not be added to the pool's queues. It can throw a
+     *  {@link java.util.concurrent.RejectedExecutionException} to reject the task.
+     */
+    void onSaturation (Runnable task, ASaturatedQueue queue);
+
+    /**
+     * This is the API that a saturation policy uses to interact with the full queue.
+     */
+    interface ASaturatedQueue {
+        /**
+         * @return true if the task was added to the queue, false if the queue is still full
+         */
+        boolean tryPush (Runnable task);
+
+        /**
+         * This method removes the oldest task from the queue, i.e. the task that would be executed next.
+         *
+         * @return the removed task, or null if the queue is empty in the meantime
+         */
+        Runnable pollOldest ();
+
+        /**
+         * This method executes a task immediately, in the calling thread.
+         */
+        void runInline (Runnable task);
+
+        /**
+         * This method rejects the task, throwing a {@link java.util.concurrent.RejectedExecutionException}.
+         */
+        void reject (Runnable task);
+
+        /**
+         * @return true if and only if the submitting thread is one of the pool's worker threads
+         */
+        boolean isWorkerThread ();
+
+        /**
+         * @return true if the pool was shut down, e.g. while the policy was waiting for space in the queue
+         */
+        boolean isShutdown ();
+    }
+
+    /**
+     * This policy rejects the task by throwing a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    static ASaturationPolicy reject () {
+        return (task, queue) -> queue.reject (task);
+    }
+
+    /**
+     * This policy executes the task in the submitting thread, whether that is one of the pool's worker threads or not. This throttles
+     *  external producers naturally because they are busy executing tasks instead of submitting new ones.
+     */
+    static ASaturationPolicy callerRuns () {
+        return (task, queue) -> queue.runInline (task);
+    }
+
+    /**
+     * This policy executes the task inline if it is submitted by one of the pool's worker threads, and rejects it otherwise. For recursive
+     *  workloads, running a spawned task inline is typically both the fastest and most memory efficient way of dealing with saturation.
+     */
+    static ASaturationPolicy inlineIfWorker () {
+        return (task, queue) -> {
+            if (queue.isWorkerThread ()) queue.runInline (task);
+            else queue.reject (task);
+        };
+    }
+
+    /**
+     * This policy blocks external submitting threads until there is space in the queue. Worker threads run the task inline instead: If all
+     *  worker threads blocked on a full queue, there would be no-one left to process it. A blocked submitter's task is rejected if the
+     *  pool is shut down while it is waiting, because the queue may never drain.
+     */
+    static ASaturationPolicy block () {
+        return (task, queue) -> {
+            if (queue.isWorkerThread ()) {
+                queue.runInline (task);
+                return;
+            }
+
+            long parkNanos = 1_000;
+            while (! queue.tryPush (task)) {
+                if (queue.isShutdown ()) {
+                    queue.reject (task);
+                }
+                if (Thread.interrupted ()) {
+                    Thread.currentThread ().interrupt ();
+                    queue.reject (task);
+                }
+                LockSupport.parkNanos (parkNanos);
+                parkNanos = Math.min (1_000_000, 2*parkNanos);
+            }
+        };
+    }
+
+    /**
+     * This policy discards the oldest task in the queue to make room for the new task, passing the discarded task to a callback. The
+     *  callback is called in the submitting thread, and it should be fast and not throw exceptions.
+     */
+    static ASaturationPolicy dropOldest (AStatement1NoThrow<Runnable> onDropped) {
+        return (task, queue) -> {
+            while (true) {
+                final Runnable dropped = queue.pollOldest ();
+                if (dropped != null) {
+                    onDropped.apply (dropped);
+                }
+                if (queue.tryPush (task)) {
+                    return;
+                }
+                if (dropped == null) {
+                    // the queue is full, but we can not remove anything from it, e.g. because it does not support removal
+                    queue.reject (task);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * These are the types of events that worker threads record if event tracing is enabled, see {@link AThreadPoolBuilder#withEventTracing}.
+ *  Every event has a numeric argument whose meaning depends on the event type.
+ *
+ * @author arno
+ */
+public enum ASchedulerEventType {
+    /**
+     * a worker thread submitted a task to its local queue (argument 0) or, because the local queue was full, to a shared queue (argument 1).
+     *  Submissions from threads outside the pool are not recorded.
+     */
+    Submit,
+    /**
+     * a worker thread took a task from another worker's local queue. The argument is the other worker's index.
+     */
+    Steal,
+    /**
+     * a worker thread took a task from another worker's pinned queue, see {@link AThreadPool#submitToWorker}. The argument is the other
+     *  worker's index.
+     */
+    StealPinned,
+    /**
+     * a worker thread switched to a different shared queue. The argument is the new shared queue's index.
+     */
+    SharedQueueSwitch,
+    /**
+     * a worker thread went to sleep because it found no work. The argument is 1 if it executed no task since it last went to sleep, i.e.
+     *  if it was woken up by a false alarm, and 0 otherwise.
+     */
+    Park,
+    /**
+     * a worker thread woke up
+     */
+    Unpark,
+    /**
+     * a worker thread woke up another worker because there was available work. The argument is the other worker's index.
+     */
+    WakeUpOther
+}
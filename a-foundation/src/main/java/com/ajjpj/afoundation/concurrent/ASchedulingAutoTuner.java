@@ -0,0 +1,167 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * An ASchedulingAutoTuner periodically adjusts a thread pool's {@link ASchedulingParameters} based on the pool's statistics during the
+ *  most recent interval. It runs in a daemon thread of its own and stops when it is {@link #close closed}.<p>
+ *
+ * The adjustments are deliberately simple heuristics, each changing a parameter by a factor of two per interval and within fixed bounds:
+ * <ul>
+ *     <li> Frequent stealing means that work is created unevenly among worker threads, so a thread that steals fetches more tasks
+ *           at once ({@code numPrefetchLocal}). If stealing is rare, prefetching is reduced again.
+ *     <li> Frequent 'false alarm' wake-ups (i.e. a thread is woken up but finds no work) mean that threads that take from shared queues
+ *           leave nothing for the others, so fewer tasks are prefetched from shared queues ({@code prefetchBatchSize}). If there are
+ *           few false alarms and most work comes from shared queues, more tasks are prefetched to amortize access to shared queues.
+ *     <li> If some shared queues fill up while others are empty, threads switch between shared queues more often
+ *           ({@code switchSharedQueueInterval}) and look at shared queues even when there is local work ({@code skipLocalWorkInterval}).
+ *           If shared queues are balanced, both intervals are increased again for better locality.
+ * </ul>
+ *
+ * Statistics gathering must be enabled for this to work, see {@link AThreadPoolImpl#SHOULD_GATHER_STATISTICS}.
+ *
+ * @author arno
+ */
+public class ASchedulingAutoTuner implements AutoCloseable {
+    static final long MIN_TASKS_PER_INTERVAL = 1000;
+
+    static final int MAX_NUM_PREFETCH_LOCAL = 16;
+    static final int MAX_PREFETCH_BATCH_SIZE = 64;
+    static final int MIN_SWITCH_SHARED_QUEUE_INTERVAL = 64;
+    static final int MAX_SWITCH_SHARED_QUEUE_INTERVAL = 1_000_000;
+    static final int MIN_SKIP_LOCAL_WORK_INTERVAL = 64;
+    static final int MAX_SKIP_LOCAL_WORK_INTERVAL = 100_000;
+
+    private final AThreadPoolWithAdmin pool;
+    private final long intervalMillis;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    private ASchedulingAutoTuner (AThreadPoolWithAdmin pool, long interval, TimeUnit timeUnit) {
+        this.pool = pool;
+        this.intervalMillis = timeUnit.toMillis (interval);
+        if (intervalMillis <= 0) throw new IllegalArgumentException ("interval must be at least one millisecond");
+
+        this.thread = new Thread (this::run, "ASchedulingAutoTuner");
+        this.thread.setDaemon (true);
+    }
+
+    public static ASchedulingAutoTuner start (AThreadPoolWithAdmin pool, long interval, TimeUnit timeUnit) {
+        final ASchedulingAutoTuner result = new ASchedulingAutoTuner (pool, interval, timeUnit);
+        result.thread.start ();
+        return result;
+    }
+
+    @Override public void close () {
+        closed = true;
+        thread.interrupt ();
+    }
+
+    private void run () {
+        AThreadPoolStatistics prev = pool.getStatistics ();
+
+        while (! closed && pool.getState () == AThreadPoolWithAdmin.State.Running) {
+            try {
+                Thread.sleep (intervalMillis);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+
+            final AThreadPoolStatistics cur = pool.getStatistics ();
+            final ASchedulingParameters before = pool.getSchedulingParameters ();
+            final ASchedulingParameters after = adjust (before, prev, cur);
+            if (! after.equals (before)) {
+                try {
+                    pool.setSchedulingParameters (after);
+                }
+                catch (IllegalArgumentException e) {
+                    // the pool's configuration does not allow these parameters, e.g. because its local queues are too small --> keep the current ones
+                }
+            }
+            prev = cur;
+        }
+    }
+
+    /**
+     * This is the actual tuning heuristic, calculating new parameters based on the change between two statistics snapshots.
+     */
+    static ASchedulingParameters adjust (ASchedulingParameters params, AThreadPoolStatistics prev, AThreadPoolStatistics cur) {
+        long numTasks = 0, numSharedTasks = 0, numSteals = 0, numParks = 0, numFalseAlarmUnparks = 0;
+        for (int i=0; i<cur.workerThreadStatistics.length && i<prev.workerThreadStatistics.length; i++) {
+            final AWorkerThreadStatistics p = prev.workerThreadStatistics[i];
+            final AWorkerThreadStatistics c = cur.workerThreadStatistics[i];
+
+            numTasks             += c.numTasksExecuted       - p.numTasksExecuted;
+            numSharedTasks       += c.numSharedTasksExecuted - p.numSharedTasksExecuted;
+            numSteals            += c.numSteals              - p.numSteals;
+            numParks             += c.numParks               - p.numParks;
+            numFalseAlarmUnparks += c.numFalseAlarmUnparks   - p.numFalseAlarmUnparks;
+        }
+
+        if (numTasks < MIN_TASKS_PER_INTERVAL) {
+            // not enough data to base decisions on
+            return params;
+        }
+
+        ASchedulingParameters result = params;
+
+        final double stealRatio = (double) numSteals / numTasks;
+        if (stealRatio > 0.1) {
+            result = result.withNumPrefetchLocal (Math.max (1, grow (result.numPrefetchLocal, MAX_NUM_PREFETCH_LOCAL)));
+        }
+        else if (stealRatio < 0.01) {
+            result = result.withNumPrefetchLocal (result.numPrefetchLocal / 2);
+        }
+
+        if (numParks > 0) {
+            final double falseAlarmRatio = (double) numFalseAlarmUnparks / numParks;
+            if (falseAlarmRatio > 0.5) {
+                result = result.withPrefetchBatchSize (Math.max (1, result.prefetchBatchSize / 2));
+            }
+            else if (falseAlarmRatio < 0.1 && numSharedTasks > numTasks / 2) {
+                result = result.withPrefetchBatchSize (grow (result.prefetchBatchSize, MAX_PREFETCH_BATCH_SIZE));
+            }
+        }
+
+        if (isSharedQueueImbalanced (cur.sharedQueueStatisticses)) {
+            result = result
+                    .withSwitchSharedQueueInterval (shrink (result.switchSharedQueueInterval, MIN_SWITCH_SHARED_QUEUE_INTERVAL))
+                    .withSkipLocalWorkInterval (shrink (result.skipLocalWorkInterval, MIN_SKIP_LOCAL_WORK_INTERVAL));
+        }
+        else {
+            result = result
+                    .withSwitchSharedQueueInterval (grow (result.switchSharedQueueInterval, MAX_SWITCH_SHARED_QUEUE_INTERVAL))
+                    .withSkipLocalWorkInterval (grow (result.skipLocalWorkInterval, MAX_SKIP_LOCAL_WORK_INTERVAL));
+        }
+
+        return result;
+    }
+
+    /**
+     * These helpers leave values alone that were configured outside the tuner's bounds.
+     */
+    private static int grow (int value, int max) {
+        return value < max ? Math.min (max, 2*value) : value;
+    }
+    private static int shrink (int value, int min) {
+        return value > min ? Math.max (min, value/2) : value;
+    }
+
+    /**
+     * Shared queues are regarded as imbalanced if the biggest of them holds a significant number of tasks, and more than four times as many
+     *  as the smallest.
+     */
+    static boolean isSharedQueueImbalanced (ASharedQueueStatistics[] stats) {
+        if (stats.length < 2) return false;
+
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (ASharedQueueStatistics s: stats) {
+            min = Math.min (min, s.approximateSize);
+            max = Math.max (max, s.approximateSize);
+        }
+        return max >= 100 && max > 4 * min;
+    }
+}
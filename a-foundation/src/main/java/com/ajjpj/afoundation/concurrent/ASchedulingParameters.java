@@ -0,0 +1,83 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * This class holds those of a thread pool's scheduling parameters that can be changed while the pool is running, see
+ *  {@link AThreadPoolWithAdmin#setSchedulingParameters}. Instances are immutable; use the {@code withXyz} methods to create modified copies.<p>
+ *
+ * See {@link AThreadPoolBuilder} for the meaning of the individual parameters.
+ *
+ * @author arno
+ */
+public class ASchedulingParameters {
+    public final int ownLocalFifoInterval;
+    public final int skipLocalWorkInterval;
+    public final int switchSharedQueueInterval;
+    public final int numPrefetchLocal;
+    public final int prefetchBatchSize;
+
+    public ASchedulingParameters (int ownLocalFifoInterval, int skipLocalWorkInterval, int switchSharedQueueInterval, int numPrefetchLocal, int prefetchBatchSize) {
+        if (ownLocalFifoInterval < 0) throw new IllegalArgumentException ("ownLocalFifoInterval must not be negative");
+        if (skipLocalWorkInterval < 0) throw new IllegalArgumentException ("skipLocalWorkInterval must not be negative");
+        if (switchSharedQueueInterval < 0) throw new IllegalArgumentException ("switchSharedQueueInterval must not be negative");
+        if (numPrefetchLocal < 0) throw new IllegalArgumentException ("numPrefetchLocal must not be negative");
+        if (prefetchBatchSize < 1) throw new IllegalArgumentException ("worker threads must (attempt to) fetch a minimum of 1 task");
+
+        this.ownLocalFifoInterval = ownLocalFifoInterval;
+        this.skipLocalWorkInterval = skipLocalWorkInterval;
+        this.switchSharedQueueInterval = switchSharedQueueInterval;
+        this.numPrefetchLocal = numPrefetchLocal;
+        this.prefetchBatchSize = prefetchBatchSize;
+    }
+
+    public ASchedulingParameters withOwnLocalFifoInterval (int ownLocalFifoInterval) {
+        return new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, prefetchBatchSize);
+    }
+
+    public ASchedulingParameters withSkipLocalWorkInterval (int skipLocalWorkInterval) {
+        return new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, prefetchBatchSize);
+    }
+
+    public ASchedulingParameters withSwitchSharedQueueInterval (int switchSharedQueueInterval) {
+        return new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, prefetchBatchSize);
+    }
+
+    public ASchedulingParameters withNumPrefetchLocal (int numPrefetchLocal) {
+        return new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, prefetchBatchSize);
+    }
+
+    public ASchedulingParameters withPrefetchBatchSize (int prefetchBatchSize) {
+        return new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, prefetchBatchSize);
+    }
+
+    @Override public boolean equals (Object o) {
+        if (this == o) return true;
+        if (o == null || getClass () != o.getClass ()) return false;
+
+        final ASchedulingParameters that = (ASchedulingParameters) o;
+        return ownLocalFifoInterval == that.ownLocalFifoInterval &&
+                skipLocalWorkInterval == that.skipLocalWorkInterval &&
+                switchSharedQueueInterval == that.switchSharedQueueInterval &&
+                numPrefetchLocal == that.numPrefetchLocal &&
+                prefetchBatchSize == that.prefetchBatchSize;
+    }
+
+    @Override public int hashCode () {
+        int result = ownLocalFifoInterval;
+        result = 31 * result + skipLocalWorkInterval;
+        result = 31 * result + switchSharedQueueInterval;
+        result = 31 * result + numPrefetchLocal;
+        result = 31 * result + prefetchBatchSize;
+        return result;
+    }
+
+    @Override public String toString () {
+        return "ASchedulingParameters{" +
+                "ownLocalFifoInterval=" + ownLocalFifoInterval +
+                ", skipLocalWorkInterval=" + skipLocalWorkInterval +
+                ", switchSharedQueueInterval=" + switchSharedQueueInterval +
+                ", numPrefetchLocal=" + numPrefetchLocal +
+                ", prefetchBatchSize=" + prefetchBatchSize +
+                '}';
+    }
+}
@@ -0,0 +1,179 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.util.AUnchecker;
+import sun.misc.Contended;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+
+/**
+ * An ASerialExecutor runs tasks strictly one after the other, in the order in which they were submitted, on top of a shared
+ *  {@link AThreadPool}. This is the scheduling model of an actor's mailbox: Code running in an ASerialExecutor needs no synchronization
+ *  for state that is accessed only from that executor, while many ASerialExecutors can share a small number of threads.<p>
+ *
+ * Submitted tasks are added to a lock-free multi-producer / single-consumer queue. The first submission to an idle executor schedules
+ *  a single 'drain' task in the underlying pool, which then runs up to {@code batchSize} tasks before it resubmits itself to the pool, yielding
+ *  to other work. There is never more than one such drain task per executor, which is what guarantees serial execution. Tasks may run in
+ *  different threads of the underlying pool, but every task sees all memory effects of the tasks that ran before it.<p>
+ *
+ * If a task throws an exception, the exception is passed to the underlying pool (and its exception handler) after execution of the
+ *  remaining tasks was rescheduled, so a failing task does not block the executor.
+ *
+ * @author arno
+ */
+@Contended
+public class ASerialExecutor implements AThreadPool {
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+
+    long p1, p2, p3, p4, p5, p6, p7;
+
+    /**
+     * This is the end of the queue where producers append nodes. It is modified only by atomically swapping in a new node.
+     */
+    @SuppressWarnings ("unused")
+    private volatile Node tail;
+
+    long q1, q2, q3, q4, q5, q6, q7;
+
+    /**
+     * the stub node preceding the first node that was not consumed yet. This is accessed only by the drain task.
+     */
+    private Node head;
+
+    @SuppressWarnings ("unused")
+    private volatile int state = IDLE;
+
+    long r1, r2, r3, r4, r5, r6, r7;
+
+    private final AThreadPool pool;
+    private final int batchSize;
+    private final Runnable drainTask = this::drain;
+
+    private ASerialExecutor (AThreadPool pool, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException ("batch size must be positive");
+
+        this.pool = pool;
+        this.batchSize = batchSize;
+
+        final Node stub = new Node (null);
+        this.head = stub;
+        this.tail = stub;
+    }
+
+    public static ASerialExecutor create (AThreadPool pool) {
+        return create (pool, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize the maximum number of tasks that are run before yielding the thread to other work in the underlying pool. Higher
+     *                  values increase throughput, lower values increase fairness between this executor and other work in the pool.
+     */
+    public static ASerialExecutor create (AThreadPool pool, int batchSize) {
+        return new ASerialExecutor (pool, batchSize);
+    }
+
+    @Override public void submit (Runnable task) {
+        if (task == null) throw new NullPointerException ();
+
+        final Node node = new Node (task);
+        final Node prev = (Node) UNSAFE.getAndSetObject (this, OFFS_TAIL, node);
+        // between the swap and this write, the node is invisible to the consumer, which spins until it becomes visible
+        UNSAFE.putOrderedObject (prev, OFFS_NEXT, node);
+
+        if (state == IDLE && UNSAFE.compareAndSwapInt (this, OFFS_STATE, IDLE, SCHEDULED)) {
+            pool.submit (drainTask);
+        }
+    }
+
+    /**
+     * @return true if and only if there are no tasks waiting for execution. This is an approximation if there is concurrent
+     *         submission or execution of tasks.
+     */
+    public boolean isIdle () {
+        return state == IDLE && tail == head;
+    }
+
+    private void drain () {
+        for (int i=0; i<batchSize; i++) {
+            final Runnable task = poll ();
+            if (task == null) {
+                state = IDLE;
+
+                // A producer may have added a task after our last poll, but seen 'SCHEDULED' and therefore not rescheduled this executor.
+                if (tail == head || ! UNSAFE.compareAndSwapInt (this, OFFS_STATE, IDLE, SCHEDULED)) {
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                task.run ();
+            }
+            catch (Throwable th) {
+                pool.submit (drainTask);
+                throw th;
+            }
+        }
+
+        // leave 'state' as SCHEDULED so that producers do not submit a second drain task in the meantime
+        pool.submit (drainTask);
+    }
+
+    /**
+     * @return the next task, or null if the queue is empty. This method is called only from the drain task.
+     */
+    private Runnable poll () {
+        final Node h = head;
+        Node next = h.next;
+        if (next == null) {
+            if (h == tail) {
+                return null;
+            }
+            // a producer swapped the tail but did not link the node yet
+            while ((next = h.next) == null) {
+                Thread.yield ();
+            }
+        }
+
+        final Runnable result = next.task;
+        next.task = null; // next is the new stub node, so we release the reference to the task
+        head = next;
+        return result;
+    }
+
+    static class Node {
+        Runnable task;
+        volatile Node next;
+
+        Node (Runnable task) {
+            this.task = task;
+        }
+    }
+
+    //------------- Unsafe stuff
+    private static final Unsafe UNSAFE;
+
+    private static final long OFFS_TAIL;
+    private static final long OFFS_STATE;
+    private static final long OFFS_NEXT;
+
+    static {
+        try {
+            final Field f = Unsafe.class.getDeclaredField ("theUnsafe");
+            f.setAccessible (true);
+            UNSAFE = (Unsafe) f.get (null);
+
+            OFFS_TAIL = UNSAFE.objectFieldOffset (ASerialExecutor.class.getDeclaredField ("tail"));
+            OFFS_STATE = UNSAFE.objectFieldOffset (ASerialExecutor.class.getDeclaredField ("state"));
+            OFFS_NEXT = UNSAFE.objectFieldOffset (Node.class.getDeclaredField ("next"));
+        }
+        catch (Exception e) {
+            AUnchecker.throwUnchecked (e);
+            throw new RuntimeException(); // for the compiler
+        }
+    }
+}
@@ -13,6 +13,23 @@ public interface ASharedQueue {
      */
     Runnable popFifo (LocalQueue localQueue);
 
+    /**
+     * Removes and returns the oldest task from this queue without prefetching, or returns null if the queue is empty. This method can be
+     *  called from any thread; it is used by saturation policies that drop tasks, see {@link ASaturationPolicy#dropOldest}. It is optional,
+     *  and implementations that do not support it return null.
+     */
+    default Runnable pollOldest () {
+        return null;
+    }
+
+    /**
+     * An ordered queue determines the order of execution itself, e.g. by task deadlines. Worker threads then submit new tasks to the shared
+     *  queues rather than to their local queues, which would be processed in LIFO order.
+     */
+    default boolean isOrdered () {
+        return false;
+    }
+
     /**
      * for shutdown only
      */
@@ -25,4 +42,11 @@ public interface ASharedQueue {
      * @return an approximation to the queue's current size
      */
     int approximateSize ();
+
+    /**
+     * This method changes the number of tasks a worker thread fetches at once while the pool is running, see
+     *  {@link AThreadPoolWithAdmin#setSchedulingParameters}. It is optional, and implementations that do not prefetch can ignore it.
+     */
+    default void setPrefetchBatchSize (int prefetchBatchSize) {
+    }
 }
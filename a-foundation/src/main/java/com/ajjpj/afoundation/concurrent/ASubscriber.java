@@ -0,0 +1,22 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * An ASubscriber receives elements from an {@link APublisher} after registering with it. All methods are called sequentially (though not
+ *  necessarily from the same thread), and {@link ASubscriber#onNext} is called at most as often as the subscriber requested elements through
+ *  its {@link ASubscription}. A stream ends with either {@link ASubscriber#onComplete} or {@link ASubscriber#onError}, after which no
+ *  further methods are called.
+ */
+public interface ASubscriber<T> {
+    /**
+     * This method is called exactly once, before any other method. No elements are delivered until the subscriber calls
+     *  {@link ASubscription#request}.
+     */
+    void onSubscribe (ASubscription subscription);
+
+    void onNext (T element);
+
+    void onError (Throwable th);
+
+    void onComplete ();
+}
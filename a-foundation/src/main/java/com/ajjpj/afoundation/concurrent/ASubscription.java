@@ -0,0 +1,20 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * An ASubscription links an {@link ASubscriber} to an {@link APublisher}, allowing the subscriber to signal demand and to cancel the
+ *  subscription. Both methods are thread safe, and they may be called from inside the subscriber's callbacks.
+ */
+public interface ASubscription {
+    /**
+     * This method adds {@code n} elements to the subscriber's demand. Demand is cumulative, and a total of {@link Long#MAX_VALUE} is treated
+     *  as unbounded. A non-positive {@code n} causes the subscription to fail with an {@link IllegalArgumentException}.
+     */
+    void request (long n);
+
+    /**
+     * This method requests the publisher to stop sending elements and to release resources. Elements may still arrive for a short time
+     *  after the call.
+     */
+    void cancel ();
+}
@@ -0,0 +1,29 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * A task decorator transports context (e.g. logging MDC or tracing spans) from the thread submitting a task to the thread executing it,
+ *  see {@link AThreadPoolBuilder#withTaskDecorator}:
+ *
+ * <ul>
+ *     <li> {@link #capture()} is called on the submitting thread for every task, including tasks submitted by other tasks of the pool. It
+ *           sees the submitting thread's current context, so a task can change its context before submitting subtasks.
+ *     <li> {@link #beforeExecute} and {@link #afterExecute} are called around the task on the thread executing it, with
+ *           {@code afterExecute} being called even if the task throws an exception.
+ * </ul>
+ *
+ * If no decorator is configured, tasks are neither captured nor wrapped.
+ *
+ * @param <C> the type of context this decorator captures
+ *
+ * @author arno
+ */
+public interface ATaskDecorator<C> {
+    /**
+     * This is called on the submitting thread, and its result is passed to {@link #beforeExecute} and {@link #afterExecute}.
+     */
+    C capture ();
+
+    void beforeExecute (C context);
+    void afterExecute (C context);
+}
@@ -0,0 +1,264 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+
+/**
+ * An ATaskGroup is a set of related tasks that are joined or cancelled together, e.g. all tasks started for a given request. Tasks are
+ *  submitted to the group, which in turn submits them to the underlying {@link AThreadPool}, and {@link #join()} waits until all of
+ *  them are finished.<p>
+ *
+ * The group keeps track of its own unstarted tasks, which has two benefits:
+ *
+ * <ul>
+ *     <li> {@link #join()} called from a worker thread of an {@link AThreadPoolBuilder} pool executes the group's unstarted tasks
+ *           itself instead of blocking while they wait in the pool's queues. Apart from being more efficient, this prevents the dead
+ *           locks that blocking worker threads can otherwise cause.
+ *     <li> {@link #cancel()} drops all unstarted tasks in time proportional to their number. The tasks remain in the pool's queues
+ *           and are skipped there at negligible cost. Running tasks are not interrupted, but they can check {@link #isCancelled()}.
+ * </ul>
+ *
+ * Tasks that fail do not cause the pool's exception handler to be called. Their exceptions are collected and thrown by {@link #join()}
+ *  instead, and depending on the {@link FailurePolicy}, the first failure cancels the group.<p>
+ *
+ * Every ATaskGroup is an {@link AThreadPool}, so it can be passed to code that submits tasks to a pool.
+ *
+ * @author arno
+ */
+public class ATaskGroup implements AThreadPool {
+    public enum FailurePolicy {
+        /**
+         * all tasks are executed even if some of them fail
+         */
+        ContinueOnFailure,
+        /**
+         * the first failing task cancels the group
+         */
+        CancelOnFirstFailure
+    }
+
+    private static final AtomicIntegerFieldUpdater<GroupTask> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater (GroupTask.class, "state");
+
+    private final AThreadPool pool;
+    private final FailurePolicy failurePolicy;
+
+    private final PendingCounter pending = new PendingCounter ();
+
+    /**
+     * Tasks are added here when they are submitted, and whoever claims a task removes it. This is a set rather than a queue so that
+     *  removal takes constant time regardless of the order in which the pool executes the tasks.
+     */
+    private final Set<GroupTask> unstarted = ConcurrentHashMap.newKeySet ();
+
+    private final List<Throwable> failures = new ArrayList<> (); // guarded by 'this'
+    private volatile boolean cancelled = false;
+
+    private ATaskGroup (AThreadPool pool, FailurePolicy failurePolicy) {
+        this.pool = pool;
+        this.failurePolicy = failurePolicy;
+    }
+
+    public static ATaskGroup create (AThreadPool pool) {
+        return create (pool, FailurePolicy.CancelOnFirstFailure);
+    }
+
+    public static ATaskGroup create (AThreadPool pool, FailurePolicy failurePolicy) {
+        return new ATaskGroup (pool, failurePolicy);
+    }
+
+    /**
+     * Tasks submitted after the group was cancelled are silently dropped.
+     */
+    @Override public void submit (Runnable task) {
+        if (cancelled) {
+            return;
+        }
+
+        final GroupTask groupTask = new GroupTask (task);
+        pending.increment ();
+        unstarted.add (groupTask);
+
+        // the group may have been cancelled concurrently, after the check above but before the task was added
+        if (cancelled) {
+            if (groupTask.claim (GroupTask.DROPPED)) {
+                unstarted.remove (groupTask);
+                pending.decrement ();
+            }
+            return;
+        }
+
+        try {
+            pool.submit (groupTask);
+        }
+        catch (RuntimeException e) {
+            // the pool rejected the task, so it will never be executed - unless a saturation policy executed it already
+            if (groupTask.claim (GroupTask.DROPPED)) {
+                unstarted.remove (groupTask);
+                pending.decrement ();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * This drops all tasks that were not started yet. Tasks that are running continue to run, and {@link #join()} waits for them to finish.
+     */
+    public void cancel () {
+        cancelled = true;
+
+        for (GroupTask task: unstarted) {
+            if (task.claim (GroupTask.DROPPED)) {
+                unstarted.remove (task);
+                pending.decrement ();
+            }
+        }
+    }
+
+    public boolean isCancelled () {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of tasks that were submitted but did not finish yet
+     */
+    public int getNumPending () {
+        return pending.get ();
+    }
+
+    int getNumUnstarted () {
+        return unstarted.size ();
+    }
+
+    /**
+     * This method blocks until all of the group's tasks are finished, executing unstarted tasks in the calling thread if it is a worker thread.
+     *  The group can be used again after it was joined, unless it was cancelled.
+     *
+     * @throws ExecutionException if tasks failed. The first failure is the cause, and all other failures are added as suppressed exceptions.
+     *          Failures are reported only once, so a subsequent call to {@code join()} does not throw them again.
+     * @throws CancellationException if the group was cancelled although none of its tasks failed
+     */
+    public void join () throws InterruptedException, ExecutionException {
+        if (Thread.currentThread () instanceof WorkerThread) {
+            // tasks executed here can submit more tasks, so iterate until no unstarted tasks are left
+            boolean executedAny;
+            do {
+                executedAny = false;
+                for (GroupTask task: unstarted) {
+                    if (task.state == GroupTask.NEW) {
+                        task.run ();
+                        executedAny = true;
+                    }
+                }
+            }
+            while (executedAny);
+        }
+        pending.await ();
+
+        synchronized (this) {
+            if (! failures.isEmpty ()) {
+                final ExecutionException exc = new ExecutionException (failures.get (0));
+                for (int i=1; i<failures.size (); i++) {
+                    exc.addSuppressed (failures.get (i));
+                }
+                failures.clear ();
+                throw exc;
+            }
+        }
+        if (cancelled) {
+            throw new CancellationException ();
+        }
+    }
+
+    private void onFailure (Throwable th) {
+        synchronized (this) {
+            failures.add (th);
+        }
+        if (failurePolicy == FailurePolicy.CancelOnFirstFailure) {
+            cancel ();
+        }
+    }
+
+    /**
+     * A GroupTask is executed at most once, either by the pool or by a joining thread, whichever claims it first. Cancellation claims it
+     *  as well, leaving a task in the pool's queues that does nothing when it is run.
+     */
+    private class GroupTask implements Runnable {
+        static final int NEW = 0;
+        static final int STARTED = 1;
+        static final int DROPPED = 2;
+
+        private final Runnable task;
+        volatile int state = NEW;
+
+        GroupTask (Runnable task) {
+            this.task = task;
+        }
+
+        boolean claim (int newState) {
+            return state == NEW && STATE_UPDATER.compareAndSet (this, NEW, newState);
+        }
+
+        @Override public void run () {
+            if (! claim (STARTED)) {
+                return;
+            }
+            unstarted.remove (this);
+
+            try {
+                task.run ();
+            }
+            catch (Throwable th) {
+                onFailure (th);
+            }
+            finally {
+                pending.decrement ();
+            }
+        }
+    }
+
+    /**
+     * This counts the group's pending tasks, allowing threads to wait until there are none.
+     */
+    private static class PendingCounter extends AbstractQueuedSynchronizer {
+        void increment () {
+            while (true) {
+                final int before = getState ();
+                if (compareAndSetState (before, before + 1)) {
+                    return;
+                }
+            }
+        }
+
+        void decrement () {
+            releaseShared (1);
+        }
+
+        int get () {
+            return getState ();
+        }
+
+        void await () throws InterruptedException {
+            acquireSharedInterruptibly (1);
+        }
+
+        @Override protected int tryAcquireShared (int ignored) {
+            return getState () == 0 ? 1 : -1;
+        }
+
+        @Override protected boolean tryReleaseShared (int n) {
+            while (true) {
+                final int before = getState ();
+                if (compareAndSetState (before, before - n)) {
+                    return before - n == 0;
+                }
+            }
+        }
+    }
+}
@@ -12,11 +12,13 @@ import java.util.concurrent.ExecutorService;
  *  all not be able to shut down a thread pool, so why hand them the API to do that? See {@link AThreadPoolWithAdmin}
  *  for the admin API.<p>
  * AThreadPool's API is intentionally 'bare bones'. {@link AFuture} provides a rich API built on top of AThreadPool,
- *  see {@link AThreadPool#submit} for details.
+ *  see {@link AThreadPool#submit} for details.<p>
+ * Every AThreadPool is an {@link Executor}, so it can be passed to APIs that expect an Executor, e.g. the {@code *Async}
+ *  methods of {@link java.util.concurrent.CompletableFuture}.
  */
-public interface AThreadPool {
+public interface AThreadPool extends Executor {
     /**
-     * This method submits a task for scheduling and execution in this thread pool. It is AThreadPool's only method, and
+     * This method submits a task for scheduling and execution in this thread pool. It is AThreadPool's only abstract method, and
      *  it intentional that there is no way for the submitted task to return any value, or notify callers of success
      *  or failure.<p>
      * There is a strict separation between scheduling and execution - which is AThreadPool's responsibility - and
@@ -37,6 +39,34 @@ public interface AThreadPool {
      */
     void submit (Runnable task);
 
+    /**
+     * This method submits a task with a hint that it should be executed by a specific worker thread, e.g. because the worker processed
+     *  related data before and still has it in its CPU cache. Implementations are free to ignore the hint, and the default implementation
+     *  does just that. Pools created by {@link AThreadPoolBuilder} keep the task in a separate queue of the given worker, and other workers
+     *  take it from there only if that worker makes no progress.
+     *
+     * @param workerIndex the index of the worker thread, in the range from 0 to the pool's number of threads (exclusive)
+     */
+    default void submitToWorker (int workerIndex, Runnable task) {
+        submit (task);
+    }
+
+    /**
+     * This method submits a task with a hint that all tasks with the same key should be executed by the same worker thread, which is
+     *  useful e.g. for repeatedly processing the same partitions of data. This does not guarantee serial execution per key (see
+     *  {@link AKeyedExecutor} for that), it is only a hint for cache locality.
+     */
+    default void submitWithAffinity (Object key, Runnable task) {
+        submit (task);
+    }
+
+    /**
+     * This is a synonym for {@link AThreadPool#submit}, implementing {@link Executor}.
+     */
+    @Override default void execute (Runnable task) {
+        submit (task);
+    }
+
     /**
      * This method wraps an {@link Executor} in an AThreadPool API. This allows application code to be written against
      *  AThreadPool API and to use {@link AFuture} even when using {@link Executor} implementations, e.g. from the
@@ -62,7 +92,10 @@ public interface AThreadPool {
      * This method wraps an AThreadPool instance to provide the full {@link ExecutorService} API. This is both less efficient and less expressive than using an AThreadPool directly
      *  with AFutures added where needed, which is why this method intentionally adds syntactic overhead, but it exists nonetheless to facilitate migration and experimentation.<p>
      *
-     * It is possible to combine both abstractions, e.g. using an {@link ExecutorService} for submitting work, and {@link AThreadPoolWithAdmin} to initiate and track shutdown.
+     * It is possible to combine both abstractions, e.g. using an {@link ExecutorService} for submitting work, and {@link AThreadPoolWithAdmin} to initiate and track shutdown.<p>
+     *
+     * The {@link java.util.concurrent.Future}s returned by the ExecutorService are {@link AFuture}s as well. If {@code pool} was created by
+     *  {@link AThreadPoolBuilder}, {@link ExecutorService#shutdownNow} returns the tasks that were submitted but not yet started.
      */
     static ExecutorService wrapAsExecutorService (AThreadPool pool) {
         return new ExecutorServiceWrapper (pool);
@@ -47,6 +47,10 @@ public class AThreadPoolBuilder {
     private SharedQueueStrategy sharedQueueStrategy = SharedQueueStrategy.SyncPush;
     private ASharedQueueAffinityStrategy sharedQueueAffinityStrategy = ASharedQueueAffinityStrategy.createDefault ();
     private AWorkerThreadLifecycleCallback workerThreadLifecycleCallback = AWorkerThreadLifecycleCallback.DEFAULT;
+    private ASaturationPolicy saturationPolicy = ASaturationPolicy.reject ();
+    private AStatement1NoThrow<ADeadlineTask> expiredTaskHandler = null;
+    private ATaskDecorator<?> taskDecorator = null;
+    private int eventTraceSize = 0;
 
     private boolean isDaemon = false;
     private AFunction0NoThrow<String> threadNameFactory = new DefaultThreadNameFactory ("AThreadPool");
@@ -57,6 +61,7 @@ public class AThreadPoolBuilder {
             case SyncPush:        return new SharedQueueBlockPushBlockPopImpl    (prefetchBatchSize, pool, sharedQueueSize);
             case LockPush:        return new SharedQueueNonblockPushBlockPopImpl (prefetchBatchSize, pool, sharedQueueSize);
             case NonBlockingPush: return new SharedQueueNonBlockingImpl          (prefetchBatchSize, pool, sharedQueueSize);
+            case Deadline:        return new SharedQueueDeadlineImpl             (pool, 2*numThreads, sharedQueueSize, expiredTaskHandler);
         }
         throw new IllegalStateException ("unknown shared queue strategy " + sharedQueueStrategy);
     };
@@ -170,6 +175,47 @@ public class AThreadPoolBuilder {
         return this;
     }
 
+    /**
+     * The saturation policy determines what happens to a submitted task if the pool's queues are full, see {@link ASaturationPolicy}.
+     *  The default is to reject the task with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    public AThreadPoolBuilder withSaturationPolicy (ASaturationPolicy saturationPolicy) {
+        this.saturationPolicy = saturationPolicy;
+        return this;
+    }
+
+    /**
+     * This handler is called for {@link ADeadlineTask}s whose deadline expired before a worker thread could start them. These tasks are
+     *  dropped instead of being executed. This is supported only for {@link SharedQueueStrategy#Deadline}; by default, expired tasks are
+     *  executed nonetheless.
+     */
+    public AThreadPoolBuilder withExpiredTaskHandler (AStatement1NoThrow<ADeadlineTask> expiredTaskHandler) {
+        this.expiredTaskHandler = expiredTaskHandler;
+        return this;
+    }
+
+    /**
+     * A task decorator transports context like a logging MDC from submitting threads to the worker threads executing the tasks, see
+     *  {@link ATaskDecorator}. There is no decorator by default.
+     */
+    public AThreadPoolBuilder withTaskDecorator (ATaskDecorator<?> taskDecorator) {
+        this.taskDecorator = taskDecorator;
+        return this;
+    }
+
+    /**
+     * This enables event tracing: Every worker thread records scheduling events (see {@link ASchedulerEventType}) in a ring buffer of
+     *  its own, overwriting the oldest events. The buffers can be dumped with {@link AThreadPoolWithAdmin#dumpEventTrace} and rendered
+     *  with {@link AEventTraceDecoder} for post-mortem analysis of scheduling anomalies. Recording an event takes a few nanoseconds and
+     *  does not allocate, and if tracing is disabled (which is the default) it costs no more than a null check.
+     *
+     * @param numEventsPerWorker the capacity of each worker's ring buffer. This must be a power of two, or 0 to disable tracing.
+     */
+    public AThreadPoolBuilder withEventTracing (int numEventsPerWorker) {
+        this.eventTraceSize = numEventsPerWorker;
+        return this;
+    }
+
     public <T extends Throwable> AThreadPoolBuilder log (AStatement1<String, T> logOperation) throws T {
         final String stringRepresentation = toString ();
         logOperation.apply (stringRepresentation);
@@ -178,8 +224,8 @@ public class AThreadPoolBuilder {
 
     public AThreadPoolWithAdmin build() {
         return new AThreadPoolImpl (isDaemon, threadNameFactory, exceptionHandler, numThreads, localQueueSize, numSharedQueues, checkShutdownOnSubmission, sharedQueueFactory,
-                ownLocalFifoInterval, numPrefetchLocal, skipLocalWorkInterval, switchScharedQueueInterval,
-                sharedQueueAffinityStrategy, workerThreadLifecycleCallback);
+                new ASchedulingParameters (ownLocalFifoInterval, skipLocalWorkInterval, switchScharedQueueInterval, numPrefetchLocal, prefetchBatchSize),
+                sharedQueueAffinityStrategy, workerThreadLifecycleCallback, saturationPolicy, taskDecorator, eventTraceSize);
     }
 
     @Override
@@ -199,6 +245,10 @@ public class AThreadPoolBuilder {
                 ", threadNameFactory=" + threadNameFactory +
                 ", exceptionHandler=" + exceptionHandler +
                 ", sharedQueueFactory=" + sharedQueueFactory +
+                ", saturationPolicy=" + saturationPolicy +
+                ", expiredTaskHandler=" + expiredTaskHandler +
+                ", taskDecorator=" + taskDecorator +
+                ", eventTraceSize=" + eventTraceSize +
                 '}';
     }
 }
@@ -1,5 +1,6 @@
 package com.ajjpj.afoundation.concurrent;
 
+import com.ajjpj.afoundation.collection.immutable.AList;
 import com.ajjpj.afoundation.function.AFunction0NoThrow;
 import com.ajjpj.afoundation.function.AFunction1NoThrow;
 import com.ajjpj.afoundation.function.AStatement1NoThrow;
@@ -7,11 +8,15 @@ import com.ajjpj.afoundation.util.AUnchecker;
 import sun.misc.Contended;
 import sun.misc.Unsafe;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -43,27 +48,77 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
 
     static final long MASK_IDLE_THREAD_SCANNING = Long.MIN_VALUE; // top-most bit reserved to signify 'scanning'
 
+    /**
+     * This counts the number of times a worker thread was marked as busy after being idle. It is modified only on the 'wake up' path, and
+     *  it allows quiescence detection to verify that no worker thread picked up work while the queues were checked.
+     */
+    @SuppressWarnings({"unused"})
+    private volatile long numBusyTransitions = 0;
+
+    /**
+     * a bit mask with the 'idle' bits of all worker threads set
+     */
+    private final long allWorkersIdleMask;
+
+    private final AtomicReference<AList<ASettableFuture<Void>>> quiescenceListeners = new AtomicReference<> (AList.nil ());
+
     private final ASharedQueue[] sharedQueues;
     final LocalQueue[] localQueues;
 
     private final Map<Integer, Integer> producerToQueueAffinity = new ConcurrentHashMap<> ();
     private final ASharedQueueAffinityStrategy sharedQueueAffinityStrategy;
     private final AWorkerThreadLifecycleCallback workerThreadLifecycleCallback;
+    private final AStatement1NoThrow<Throwable> exceptionHandler;
+
+    /**
+     * This is null if no task decorator is configured, and submission then bypasses all decoration code after a single null check.
+     */
+    private final ATaskDecorator<Object> taskDecorator;
+
+    /**
+     * If this is set, every worker thread has an event trace, see {@link AThreadPoolBuilder#withEventTracing}.
+     */
+    private final boolean traceEvents;
+
+    private final ASaturationPolicy saturationPolicy;
+    private final AtomicLong numSaturations = new AtomicLong ();
+    private final AtomicLong numInlineExecutions = new AtomicLong ();
+    private final AtomicLong numDroppedTasks = new AtomicLong ();
+    private final AtomicLong numRejectedTasks = new AtomicLong ();
 
     final AtomicBoolean shutdown = new AtomicBoolean (false);
     final boolean checkShutdownOnSubmission;
 
+    private final int localQueueSize;
+
+    /**
+     * If the shared queues order tasks themselves (e.g. by deadline), worker threads submit to them rather than to their own LIFO local queues.
+     */
+    private final boolean submitToSharedQueues;
+
+    /**
+     * Worker threads read this field every few tasks and when they wake up, so changes take effect with some delay but without
+     *  requiring a volatile read per task.
+     */
+    volatile ASchedulingParameters schedulingParameters;
+
     long q1, q2, q3, q4, q5, q6, q7;
 
     public AThreadPoolImpl (boolean isDaemon, AFunction0NoThrow<String> threadNameFactory, AStatement1NoThrow<Throwable> exceptionHandler,
                             int numThreads, int localQueueSize, int numSharedQueues, boolean checkShutdownOnSubmission, AFunction1NoThrow<AThreadPoolImpl, ASharedQueue> sharedQueueFactory,
-                            int ownLocalFifoInterval, int numPrefetchLocal, int skipLocalWorkInterval, int switchSharedQueueInterval, ASharedQueueAffinityStrategy sharedQueueAffinityStrategy,
-                            AWorkerThreadLifecycleCallback workerThreadLifecycleCallback) {
+                            ASchedulingParameters schedulingParameters, ASharedQueueAffinityStrategy sharedQueueAffinityStrategy,
+                            AWorkerThreadLifecycleCallback workerThreadLifecycleCallback, ASaturationPolicy saturationPolicy,
+                            ATaskDecorator<?> taskDecorator, int eventTraceSize) {
         this.sharedQueueAffinityStrategy = sharedQueueAffinityStrategy;
         this.workerThreadLifecycleCallback = workerThreadLifecycleCallback;
-        if (numPrefetchLocal >= localQueueSize - 2) {
-            throw new IllegalArgumentException ("prefetch number must be smaller than local queue size");
-        }
+        this.exceptionHandler = exceptionHandler;
+        this.saturationPolicy = saturationPolicy;
+        //noinspection unchecked
+        this.taskDecorator = (ATaskDecorator<Object>) taskDecorator;
+        this.traceEvents = eventTraceSize > 0;
+        this.localQueueSize = localQueueSize;
+        verifySchedulingParameters (schedulingParameters);
+        this.schedulingParameters = schedulingParameters;
 
         this.checkShutdownOnSubmission = checkShutdownOnSubmission;
         sharedQueues = new ASharedQueue[numSharedQueues];
@@ -71,12 +126,17 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
             sharedQueues[i] = sharedQueueFactory.apply (this);
         }
 
+        submitToSharedQueues = sharedQueues[0].isOrdered ();
+
         final Set<Integer> sharedQueuePrimes = primeFactors (numSharedQueues);
 
+        allWorkersIdleMask = numThreads >= 64 ? ~MASK_IDLE_THREAD_SCANNING : (1L << numThreads) - 1;
+
         localQueues = new LocalQueue[numThreads];
         for (int i=0; i<numThreads; i++) {
             localQueues[i] = new LocalQueue (this, localQueueSize);
-            final WorkerThread thread = new WorkerThread (ownLocalFifoInterval, skipLocalWorkInterval, switchSharedQueueInterval, numPrefetchLocal, localQueues[i], sharedQueues, this, i, prime (i, sharedQueuePrimes), exceptionHandler);
+            final WorkerThread thread = new WorkerThread (schedulingParameters, localQueues[i], new SharedQueueNonBlockingImpl (1, this, localQueueSize), sharedQueues, this, i, prime (i, sharedQueuePrimes), exceptionHandler,
+                    traceEvents ? new WorkerEventTrace (eventTraceSize) : null);
             //TODO onCreatedThread callback --> core affinity etc. --> ThreadLifecycleCallback: onPostStart, onPreFinish
             thread.setDaemon (isDaemon);
             thread.setName (threadNameFactory.apply ());
@@ -109,7 +169,45 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
             sharedQueueStats[i] = new ASharedQueueStatistics (sharedQueues[i].approximateSize());
         }
 
-        return new AThreadPoolStatistics (workerStats, sharedQueueStats);
+        return new AThreadPoolStatistics (workerStats, sharedQueueStats, numSaturations.get (), numInlineExecutions.get (), numDroppedTasks.get (), numRejectedTasks.get ());
+    }
+
+    @Override public void dumpEventTrace (OutputStream out) throws IOException {
+        if (! traceEvents) {
+            throw new IllegalStateException ("event tracing is not enabled for this pool");
+        }
+
+        final String[] workerNames = new String[localQueues.length];
+        final long[][] events = new long[localQueues.length][];
+        for (int i=0; i<localQueues.length; i++) {
+            //noinspection ConstantConditions
+            workerNames[i] = localQueues[i].thread.getName ();
+            events[i] = localQueues[i].thread.eventTrace.snapshot ();
+        }
+        AEventTraceDecoder.write (out, workerNames, events);
+    }
+
+    @Override public ASchedulingParameters getSchedulingParameters () {
+        return schedulingParameters;
+    }
+
+    /**
+     * This method publishes new scheduling parameters to all worker threads. Shared queues use the new prefetch batch size immediately,
+     *  while worker threads pick up the new values after a small number of tasks, or when they wake up.
+     */
+    @Override public void setSchedulingParameters (ASchedulingParameters schedulingParameters) {
+        verifySchedulingParameters (schedulingParameters);
+
+        for (ASharedQueue sharedQueue: sharedQueues) {
+            sharedQueue.setPrefetchBatchSize (schedulingParameters.prefetchBatchSize);
+        }
+        this.schedulingParameters = schedulingParameters;
+    }
+
+    private void verifySchedulingParameters (ASchedulingParameters schedulingParameters) {
+        if (schedulingParameters.numPrefetchLocal >= localQueueSize - 2) {
+            throw new IllegalArgumentException ("prefetch number must be smaller than local queue size");
+        }
     }
 
     static Set<Integer> primeFactors (int n) {
@@ -145,28 +243,149 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
         return true;
     }
 
+    @Override public void submitToWorker (int workerIndex, Runnable code) {
+        if (workerIndex < 0 || workerIndex >= localQueues.length) throw new IllegalArgumentException ("worker index " + workerIndex + " out of range 0.." + (localQueues.length-1));
+
+        if (checkShutdownOnSubmission && shutdown.get ()) {
+            throw new IllegalStateException ("pool is already shut down");
+        }
+
+        final WorkerThread target = localQueues[workerIndex].thread;
+        if (Thread.currentThread () == target) {
+            // the hint is trivially satisfied, and the local queue is the fastest way to get there
+            submit (code);
+            return;
+        }
+
+        if (taskDecorator != null) code = decorate (code);
+
+        final ASharedQueue pinnedQueue = target.pinnedQueue;
+        try {
+            pinnedQueue.push (code);
+        }
+        catch (RejectedExecutionException e) {
+            onSaturation (code, pinnedQueue);
+            return;
+        }
+
+        // pushing may have woken up some other worker, but it is the target that should process the task
+        if (markWorkerAsBusy (target.idleThreadMask)) {
+            UNSAFE.unpark (target);
+        }
+    }
+
+    @Override public void submitWithAffinity (Object key, Runnable code) {
+        int h = key == null ? 0 : key.hashCode ();
+        h ^= (h >>> 16); // spread higher bits downwards because many hash codes differ mostly in the higher bits
+        submitToWorker (Math.floorMod (h * 0x9E3779B9, localQueues.length), code);
+    }
+
     @Override public void submit (Runnable code) {
         // check to reject submissions after shutdown, but only if this check is enabled - it does incur a volatile read on each submission, after all
         if (checkShutdownOnSubmission && shutdown.get ()) {
             throw new IllegalStateException ("pool is already shut down");
         }
 
+        if (taskDecorator != null) code = decorate (code);
+
         final WorkerThread wt;
         final Thread curThread = Thread.currentThread ();
-        if (curThread.getClass () == WorkerThread.class && (wt = (WorkerThread) curThread).pool == this) {
+        if (! submitToSharedQueues && curThread.getClass () == WorkerThread.class && (wt = (WorkerThread) curThread).pool == this) {
             if (SHOULD_GATHER_STATISTICS) wt.stat_numLocalSubmits += 1;
             try {
                 wt.localQueue.push (code);
+                if (wt.eventTrace != null) wt.eventTrace.record (ASchedulerEventType.Submit, 0);
             }
             catch (RejectedExecutionException e) {
-                sharedQueues[getSharedQueueForCurrentThread ()].push (code);
+                if (wt.eventTrace != null) wt.eventTrace.record (ASchedulerEventType.Submit, 1);
+                pushToSharedQueue (code);
             }
         }
         else {
-            sharedQueues[getSharedQueueForCurrentThread ()].push (code);
+            pushToSharedQueue (code);
         }
     }
 
+    /**
+     * This captures the submitting thread's current context, see {@link ATaskDecorator}. Capturing can not be deferred until a task is stolen
+     *  or moved to a shared queue: context is typically thread local, and by then the submitting thread may have moved on.
+     */
+    private Runnable decorate (Runnable code) {
+        return DecoratedTask.create (code, taskDecorator, taskDecorator.capture ());
+    }
+
+    private void pushToSharedQueue (Runnable code) {
+        final ASharedQueue sharedQueue = sharedQueues[getSharedQueueForCurrentThread ()];
+        try {
+            sharedQueue.push (code);
+        }
+        catch (RejectedExecutionException e) {
+            onSaturation (code, sharedQueue);
+        }
+    }
+
+    /**
+     * This is the slow path for submissions to full queues, so there is no need to optimize allocations or atomic counter updates here.
+     */
+    private void onSaturation (Runnable code, ASharedQueue sharedQueue) {
+        final boolean isWorkerThread = Thread.currentThread () instanceof WorkerThread && ((WorkerThread) Thread.currentThread ()).pool == this;
+        if (SHOULD_GATHER_STATISTICS) numSaturations.incrementAndGet ();
+
+        try {
+            saturationPolicy.onSaturation (code, new ASaturationPolicy.ASaturatedQueue () {
+                @Override public boolean tryPush (Runnable task) {
+                    try {
+                        sharedQueue.push (task);
+                        return true;
+                    }
+                    catch (RejectedExecutionException e) {
+                        return false;
+                    }
+                }
+
+                @Override public Runnable pollOldest () {
+                    final Runnable result = sharedQueue.pollOldest ();
+                    if (SHOULD_GATHER_STATISTICS && result != null) numDroppedTasks.incrementAndGet ();
+                    return DecoratedTask.undecorated (result);
+                }
+
+                @Override public void runInline (Runnable task) {
+                    if (SHOULD_GATHER_STATISTICS) numInlineExecutions.incrementAndGet ();
+                    try {
+                        task.run ();
+                    }
+                    catch (Throwable th) {
+                        // an inlined task's failure belongs to that task rather than to the code that submitted it
+                        exceptionHandler.apply (th);
+                    }
+                }
+
+                @Override public void reject (Runnable task) {
+                    throw new RejectedExecutionExceptionWithoutStacktrace ("Queue overflow");
+                }
+
+                @Override public boolean isWorkerThread () {
+                    return isWorkerThread;
+                }
+
+                @Override public boolean isShutdown () {
+                    return shutdown.get ();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            if (SHOULD_GATHER_STATISTICS) numRejectedTasks.incrementAndGet ();
+            throw e;
+        }
+    }
+
+    /**
+     * This is called by shared queues when they discard a task, e.g. because its deadline expired.
+     */
+    void onTaskDropped () {
+        if (SHOULD_GATHER_STATISTICS) numDroppedTasks.incrementAndGet ();
+    }
+
     private int getSharedQueueForCurrentThread() {
         final int key = System.identityHashCode (Thread.currentThread ());
 
@@ -199,26 +418,23 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
      *  AFuture for all worker threads, use {@code AFuture.lift()} on the result.
      */
     @Override public List<AFuture<Void>> shutdown (ShutdownMode shutdownMode) {
+        return shutdown (shutdownMode, null);
+    }
+
+    /**
+     * @param unstartedTasks if this is not null, tasks that are discarded by the shutdown are added to it. This allows the
+     *                        {@link java.util.concurrent.ExecutorService} facade to implement {@code shutdownNow()}.
+     */
+    List<AFuture<Void>> shutdown (ShutdownMode shutdownMode, List<Runnable> unstartedTasks) {
         if (! shutdown.compareAndSet (false, true)) {
             throw new IllegalStateException ("pool can be shut down only once");
         }
 
         if (shutdownMode == ShutdownMode.SkipUnstarted || shutdownMode == ShutdownMode.InterruptRunning) {
-            for (ASharedQueue sharedQueue: sharedQueues) {
-                sharedQueue.clear ();
-            }
-
-            for (LocalQueue queue: localQueues) {
-                //noinspection StatementWithEmptyBody
-                while (queue.popFifo () != null) {
-                    // do nothing, just drain the queue
-                }
-            }
+            discardUnstarted (unstartedTasks);
 
             if (shutdownMode == ShutdownMode.InterruptRunning) {
-                for (LocalQueue queue: localQueues) {
-                    queue.thread.interrupt ();
-                }
+                interruptWorkers ();
             }
         }
 
@@ -226,10 +442,7 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
 
         for (LocalQueue localQueue : localQueues) {
             final ASettableFuture<Void> f = ASettableFuture.create ();
-            sharedQueues[0].push (() -> {
-                workerThreadLifecycleCallback.onPreDie (localQueue.thread);
-                throw new PoolShutdown (f);
-            });
+            sharedQueues[0].push (new ShutdownTask (localQueue.thread, f));
             UNSAFE.unpark (localQueue.thread);
             result.add (f);
 
@@ -239,6 +452,161 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
         return result;
     }
 
+    /**
+     * This escalates a shutdown that is already in progress to {@link ShutdownMode#InterruptRunning}, discarding all tasks that were not
+     *  started yet and interrupting all worker threads. It allows the {@link java.util.concurrent.ExecutorService} facade to implement
+     *  {@code shutdownNow()} after {@code shutdown()}.
+     *
+     * @param unstartedTasks if this is not null, discarded tasks are added to it
+     */
+    void interruptAfterShutdown (List<Runnable> unstartedTasks) {
+        if (! shutdown.get ()) {
+            throw new IllegalStateException ("pool was not shut down");
+        }
+
+        // the tasks that terminate the worker threads are in the shared queues, so they must be put back
+        final List<Runnable> shutdownTasks = new ArrayList<> ();
+        for (ASharedQueue sharedQueue: sharedQueues) {
+            Runnable task;
+            while ((task = sharedQueue.pollOldest ()) != null) {
+                if (task instanceof ShutdownTask) shutdownTasks.add (task);
+                else if (unstartedTasks != null) unstartedTasks.add (DecoratedTask.undecorated (task));
+            }
+        }
+        discardLocallyQueued (unstartedTasks);
+
+        for (Runnable task: shutdownTasks) {
+            sharedQueues[0].push (task);
+        }
+        interruptWorkers ();
+        for (LocalQueue queue: localQueues) {
+            UNSAFE.unpark (queue.thread);
+        }
+    }
+
+    private void discardUnstarted (List<Runnable> unstartedTasks) {
+        for (ASharedQueue sharedQueue: sharedQueues) {
+            if (unstartedTasks != null) {
+                Runnable task;
+                while ((task = sharedQueue.pollOldest ()) != null) {
+                    unstartedTasks.add (DecoratedTask.undecorated (task));
+                }
+            }
+            // clear queues that do not support pollOldest()
+            sharedQueue.clear ();
+        }
+        discardLocallyQueued (unstartedTasks);
+    }
+
+    private void discardLocallyQueued (List<Runnable> unstartedTasks) {
+        for (LocalQueue queue: localQueues) {
+            Runnable task;
+            while ((task = queue.thread.pinnedQueue.pollOldest ()) != null) {
+                if (unstartedTasks != null) unstartedTasks.add (DecoratedTask.undecorated (task));
+            }
+            queue.thread.pinnedQueue.clear ();
+
+            while ((task = queue.popFifo ()) != null) {
+                if (unstartedTasks != null) unstartedTasks.add (DecoratedTask.undecorated (task));
+            }
+        }
+    }
+
+    private void interruptWorkers () {
+        for (LocalQueue queue: localQueues) {
+            queue.thread.interrupt ();
+        }
+    }
+
+    /**
+     * This task terminates the worker thread that runs it, completing the worker's shutdown future.
+     */
+    private class ShutdownTask implements Runnable {
+        private final WorkerThread thread;
+        private final ASettableFuture<Void> shutdownFuture;
+
+        ShutdownTask (WorkerThread thread, ASettableFuture<Void> shutdownFuture) {
+            this.thread = thread;
+            this.shutdownFuture = shutdownFuture;
+        }
+
+        @Override public void run () {
+            workerThreadLifecycleCallback.onPreDie (thread);
+            throw new PoolShutdown (shutdownFuture);
+        }
+    }
+
+    /**
+     * The returned AFuture completes as soon as there is no work left in the pool, i.e. all queues are empty and all worker threads are idle.
+     *  Detection is done by worker threads when they run out of work, so there is no polling, and submission of tasks is not affected at all.
+     */
+    @Override public AFuture<Void> awaitQuiescence () {
+        final ASettableFuture<Void> result = ASettableFuture.create ();
+
+        AList<ASettableFuture<Void>> prev;
+        do {
+            prev = quiescenceListeners.get ();
+        }
+        while (! quiescenceListeners.compareAndSet (prev, prev.cons (result)));
+
+        // the pool may be idle already, with no worker thread that is going to check
+        checkQuiescence ();
+        return result;
+    }
+
+    boolean hasQuiescenceListeners () {
+        return quiescenceListeners.get ().nonEmpty ();
+    }
+
+    /**
+     * This method checks if the pool is quiescent, notifying and removing all registered listeners if it is. It is called only by worker threads
+     *  that are about to go to sleep, and when a listener is registered.
+     *
+     * @return true if and only if listeners were notified
+     */
+    boolean checkQuiescence () {
+        // A worker thread clears its 'idle' bit before it takes a task from a queue, so if all threads are idle before and after all queues
+        //  were found to be empty, and no thread became busy in between, there was no task in any queue and none was running.
+        final long busyTransitionsBefore = UNSAFE.getLongVolatile (this, OFFS_NUM_BUSY_TRANSITIONS);
+        if ((UNSAFE.getLongVolatile (this, OFFS_IDLE_THREADS) & allWorkersIdleMask) != allWorkersIdleMask) {
+            return false;
+        }
+
+        for (ASharedQueue sharedQueue: sharedQueues) {
+            if (sharedQueue.approximateSize () != 0) return false;
+        }
+        for (LocalQueue localQueue: localQueues) {
+            if (localQueue.approximateSize () != 0) return false;
+            if (localQueue.thread.pinnedQueue.approximateSize () != 0) return false;
+        }
+
+        if (UNSAFE.getLongVolatile (this, OFFS_NUM_BUSY_TRANSITIONS) != busyTransitionsBefore) {
+            return false;
+        }
+
+        final AList<ASettableFuture<Void>> listeners = quiescenceListeners.getAndSet (AList.nil ());
+        for (ASettableFuture<Void> l: listeners) {
+            l.completeAsSuccess (null);
+        }
+        return listeners.nonEmpty ();
+    }
+
+    /**
+     * This is an approximation that is intended only for a worker's decision whether to go to sleep: It may be true when the task was taken
+     *  by another thread in the meantime.<p>
+     *
+     * This includes the calling worker's own local queue, which may contain tasks if the worker skipped its own work in favor of shared work.
+     */
+    boolean hasAvailableWork () {
+        for (ASharedQueue sharedQueue: sharedQueues) {
+            if (sharedQueue.approximateSize () > 0) return true;
+        }
+        for (LocalQueue localQueue: localQueues) {
+            if (localQueue.approximateSize () > 0) return true;
+            if (localQueue.thread.pinnedQueue.approximateSize () > 0) return true;
+        }
+        return false;
+    }
 
     void onAvailableTask () {
         long idleBitMask = UNSAFE.getLongVolatile (this, OFFS_IDLE_THREADS);
@@ -265,6 +633,7 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
                 //noinspection ConstantConditions
                 if (markWorkerAsBusyAndScanning (localQueue.thread)) {
                     // wake up the worker only if no-one else woke up the thread in the meantime
+                    if (traceEvents) traceWakeUp (localQueue.thread);
                     UNSAFE.unpark (localQueue.thread);
                 }
                 // even if someone else woke up the thread in the meantime, at least one thread is scanning --> we can safely abort here
@@ -274,6 +643,16 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
         }
     }
 
+    /**
+     * Wake-ups are recorded in the waking worker's trace. Threads outside the pool have no trace, so their wake-ups are not recorded.
+     */
+    private void traceWakeUp (WorkerThread target) {
+        final Thread curThread = Thread.currentThread ();
+        if (curThread instanceof WorkerThread && ((WorkerThread) curThread).pool == this) {
+            ((WorkerThread) curThread).eventTrace.record (ASchedulerEventType.WakeUpOther, Long.numberOfTrailingZeros (target.idleThreadMask));
+        }
+    }
+
     void markWorkerAsIdle (long mask) {
         long prev, after;
         do {
@@ -301,6 +680,7 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
         }
         while (! UNSAFE.compareAndSwapLong (this, OFFS_IDLE_THREADS, prev, after));
 
+        UNSAFE.getAndAddLong (this, OFFS_NUM_BUSY_TRANSITIONS, 1);
         return true;
     }
 
@@ -318,6 +698,8 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
             after = after | MASK_IDLE_THREAD_SCANNING;
         }
         while (! UNSAFE.compareAndSwapLong (this, OFFS_IDLE_THREADS, prev, after));
+
+        UNSAFE.getAndAddLong (this, OFFS_NUM_BUSY_TRANSITIONS, 1);
         return true;
     }
 
@@ -337,6 +719,7 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
     private static final Unsafe UNSAFE;
 
     private static final long OFFS_IDLE_THREADS;
+    private static final long OFFS_NUM_BUSY_TRANSITIONS;
 
     static {
         try {
@@ -345,6 +728,7 @@ public class AThreadPoolImpl implements AThreadPoolWithAdmin {
             UNSAFE = (Unsafe) f.get (null);
 
             OFFS_IDLE_THREADS = UNSAFE.objectFieldOffset (AThreadPoolImpl.class.getDeclaredField ("idleThreads"));
+            OFFS_NUM_BUSY_TRANSITIONS = UNSAFE.objectFieldOffset (AThreadPoolImpl.class.getDeclaredField ("numBusyTransitions"));
         }
         catch (Exception e) {
             AUnchecker.throwUnchecked (e);
@@ -12,15 +12,36 @@ public class AThreadPoolStatistics {
     public final AWorkerThreadStatistics[] workerThreadStatistics;
     public final ASharedQueueStatistics[] sharedQueueStatisticses;
 
+    /**
+     * the number of submissions that found the pool's queues full and were passed to its {@link ASaturationPolicy}
+     */
+    public final long numSaturations;
+    public final long numInlineExecutions;
+    public final long numDroppedTasks;
+    public final long numRejectedTasks;
+
     public AThreadPoolStatistics (AWorkerThreadStatistics[] workerThreadStatistics, ASharedQueueStatistics[] sharedQueueStatisticses) {
+        this (workerThreadStatistics, sharedQueueStatisticses, 0, 0, 0, 0);
+    }
+
+    public AThreadPoolStatistics (AWorkerThreadStatistics[] workerThreadStatistics, ASharedQueueStatistics[] sharedQueueStatisticses,
+                                  long numSaturations, long numInlineExecutions, long numDroppedTasks, long numRejectedTasks) {
         this.workerThreadStatistics = workerThreadStatistics;
         this.sharedQueueStatisticses = sharedQueueStatisticses;
+        this.numSaturations = numSaturations;
+        this.numInlineExecutions = numInlineExecutions;
+        this.numDroppedTasks = numDroppedTasks;
+        this.numRejectedTasks = numRejectedTasks;
     }
 
     @Override public String toString () {
         return "AThreadPoolStatistics{" +
                 "workerThreadStatistics=" + Arrays.toString (workerThreadStatistics) +
                 ", sharedQueueStatisticses=" + Arrays.toString (sharedQueueStatisticses) +
+                ", numSaturations=" + numSaturations +
+                ", numInlineExecutions=" + numInlineExecutions +
+                ", numDroppedTasks=" + numDroppedTasks +
+                ", numRejectedTasks=" + numRejectedTasks +
                 '}';
     }
 }
@@ -1,5 +1,7 @@
 package com.ajjpj.afoundation.concurrent;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,6 +34,26 @@ public interface AThreadPoolWithAdmin extends AThreadPool {
      */
     State getState ();
 
+    /**
+     * This method writes a binary dump of the worker threads' recent scheduling events to a stream, see {@link AThreadPoolBuilder#withEventTracing}.
+     *  Use {@link AEventTraceDecoder} to render the dump as human readable timelines. Worker threads continue recording events while
+     *  the dump is written; events that are overwritten in the meantime are left out.
+     *
+     * @throws IllegalStateException if event tracing is not enabled for this pool
+     */
+    void dumpEventTrace (OutputStream out) throws IOException;
+
+    /**
+     * @return the scheduling parameters that are currently in effect, or that were most recently set
+     */
+    ASchedulingParameters getSchedulingParameters ();
+
+    /**
+     * This method changes scheduling parameters of a running thread pool, allowing them to be tuned without restarting the pool, e.g. with
+     *  {@link ASchedulingAutoTuner}. Worker threads pick up the new values asynchronously, typically within a few tasks.
+     */
+    void setSchedulingParameters (ASchedulingParameters schedulingParameters);
+
     /**
      * This method triggers a shutdown of the thread pool, causing its state to transition to 'ShuttingDown' immediately
      *  and on to 'Down' once all threads have completed.
@@ -53,6 +75,17 @@ public interface AThreadPoolWithAdmin extends AThreadPool {
      */
     List<AFuture<Void>> shutdown (ShutdownMode shutdownMode);
 
+    /**
+     * This method returns an AFuture that completes when the thread pool becomes quiescent, i.e. when no task is running and no submitted
+     *  task is waiting for execution. This is useful for batch jobs that spawn tasks recursively, where there is no single task whose
+     *  completion signifies that all work is done.<p>
+     *
+     * Quiescence is a snapshot: Tasks that are submitted from outside the pool after the AFuture completed (or concurrently with its
+     *  completion) are not taken into account. Calling this method from inside one of the pool's tasks is pointless because the pool
+     *  can not become quiescent before that task finishes.
+     */
+    AFuture<Void> awaitQuiescence ();
+
     /**
      * This method adds a non-functional 'dummy' admin API to any given AThreadPool. This probably has limited usefulness
      *  in application code, but it allows e.g. wrapped {@link java.util.concurrent.Executor} instances to be used
@@ -72,13 +105,37 @@ public interface AThreadPoolWithAdmin extends AThreadPool {
                 return State.Running;
             }
 
+            @Override public void dumpEventTrace (OutputStream out) {
+                throw new UnsupportedOperationException ("wrapped thread pools have no event trace");
+            }
+
+            @Override public ASchedulingParameters getSchedulingParameters () {
+                throw new UnsupportedOperationException ("wrapped thread pools have no scheduling parameters");
+            }
+
+            @Override public void setSchedulingParameters (ASchedulingParameters schedulingParameters) {
+                throw new UnsupportedOperationException ("wrapped thread pools have no scheduling parameters");
+            }
+
             @Override public List<AFuture<Void>> shutdown (ShutdownMode shutdownMode) {
                 return Collections.emptyList ();
             }
 
+            @Override public AFuture<Void> awaitQuiescence () {
+                return AFuture.createFailed (new UnsupportedOperationException ("quiescence detection is not supported for wrapped thread pools"));
+            }
+
             @Override public void submit (Runnable task) {
                 pool.submit (task);
             }
+
+            @Override public void submitToWorker (int workerIndex, Runnable task) {
+                pool.submitToWorker (workerIndex, task);
+            }
+
+            @Override public void submitWithAffinity (Object key, Runnable task) {
+                pool.submitWithAffinity (key, task);
+            }
         };
     }
 }
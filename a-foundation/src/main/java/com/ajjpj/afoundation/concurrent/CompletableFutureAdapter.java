@@ -0,0 +1,35 @@
+package com.ajjpj.afoundation.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * This is a {@link CompletableFuture} that is completed with the result of an {@link AFuture}. It registers a single listener with the
+ *  AFuture (or none at all if the AFuture is already completed), and it remembers the AFuture so that converting it back to an AFuture
+ *  can return the original rather than adding another layer of adapters.
+ */
+class CompletableFutureAdapter<T> extends CompletableFuture<T> {
+    final AFuture<T> source;
+
+    private CompletableFutureAdapter (AFuture<T> source) {
+        this.source = source;
+    }
+
+    static <T> CompletableFuture<T> create (AFuture<T> source) {
+        if (source instanceof CompletionStageAdapter) {
+            return ((CompletionStageAdapter<T>) source).source.toCompletableFuture ();
+        }
+
+        final CompletableFutureAdapter<T> result = new CompletableFutureAdapter<> (source);
+        // onComplete() runs the listener immediately if the AFuture is already completed, so there is no need to treat that case separately
+        source.onComplete (AThreadPool.SYNC_THREADPOOL, t -> {
+            if (t.isSuccess ()) {
+                result.complete (t.getValue ());
+            }
+            else {
+                result.completeExceptionally (t.inverse ().getValue ());
+            }
+        });
+        return result;
+    }
+}
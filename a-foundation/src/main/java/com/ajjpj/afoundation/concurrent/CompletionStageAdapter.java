@@ -0,0 +1,62 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.ATry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+
+/**
+ * This is an {@link AFuture} that is completed with the result of a {@link CompletionStage}. It registers a single listener with the
+ *  CompletionStage (or none at all if it is a {@link CompletableFuture} that is already done), and it remembers the CompletionStage
+ *  so that converting it back to a {@link CompletableFuture} can return the original rather than adding another layer of adapters.
+ */
+class CompletionStageAdapter<T> extends AFutureImpl<T> {
+    final CompletionStage<T> source;
+
+    private CompletionStageAdapter (CompletionStage<T> source) {
+        super (AThreadPool.SYNC_THREADPOOL);
+        this.source = source;
+    }
+
+    static <T> AFuture<T> create (CompletionStage<T> source) {
+        if (source instanceof CompletableFutureAdapter) {
+            return ((CompletableFutureAdapter<T>) source).source;
+        }
+
+        final CompletionStageAdapter<T> result = new CompletionStageAdapter<> (source);
+
+        if (source instanceof CompletableFuture && ((CompletableFuture<T>) source).isDone ()) {
+            final CompletableFuture<T> cf = (CompletableFuture<T>) source;
+            try {
+                result.complete (ATry.success (cf.join ()));
+            }
+            catch (Throwable th) {
+                result.complete (ATry.failure (unwrap (th)));
+            }
+        }
+        else {
+            source.whenComplete ((value, th) -> {
+                if (th == null) {
+                    result.complete (ATry.success (value));
+                }
+                else {
+                    result.complete (ATry.failure (unwrap (th)));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * CompletionStages wrap failures of dependent stages in {@link CompletionException}s, while AFuture passes the original Throwable
+     *  to its callbacks.
+     */
+    private static Throwable unwrap (Throwable th) {
+        if (th instanceof CompletionException && th.getCause () != null) {
+            return th.getCause ();
+        }
+        return th;
+    }
+}
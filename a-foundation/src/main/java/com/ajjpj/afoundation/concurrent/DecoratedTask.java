@@ -0,0 +1,60 @@
+package com.ajjpj.afoundation.concurrent;
+
+
+/**
+ * This wraps a task together with the context its pool's {@link ATaskDecorator} captured for it.
+ *
+ * @author arno
+ */
+class DecoratedTask<C> implements Runnable {
+    final Runnable task;
+    final ATaskDecorator<C> decorator;
+    final C context;
+
+    private DecoratedTask (Runnable task, ATaskDecorator<C> decorator, C context) {
+        this.task = task;
+        this.decorator = decorator;
+        this.context = context;
+    }
+
+    /**
+     * deadline tasks are wrapped so that they remain deadline tasks for {@link SharedQueueDeadlineImpl}
+     */
+    static <C> DecoratedTask<C> create (Runnable task, ATaskDecorator<C> decorator, C context) {
+        if (task instanceof ADeadlineTask) {
+            return new DecoratedDeadlineTask<> ((ADeadlineTask) task, decorator, context);
+        }
+        return new DecoratedTask<> (task, decorator, context);
+    }
+
+    /**
+     * @return the task as it was originally submitted, for passing it to application code
+     */
+    static Runnable undecorated (Runnable task) {
+        return task instanceof DecoratedTask ? ((DecoratedTask<?>) task).task : task;
+    }
+
+    @Override public void run () {
+        decorator.beforeExecute (context);
+        try {
+            task.run ();
+        }
+        finally {
+            decorator.afterExecute (context);
+        }
+    }
+
+    @Override public String toString () {
+        return "DecoratedTask{" + task + "}";
+    }
+
+    static class DecoratedDeadlineTask<C> extends DecoratedTask<C> implements ADeadlineTask {
+        DecoratedDeadlineTask (ADeadlineTask task, ATaskDecorator<C> decorator, C context) {
+            super (task, decorator, context);
+        }
+
+        @Override public long getDeadlineNanos () {
+            return ((ADeadlineTask) task).getDeadlineNanos ();
+        }
+    }
+}
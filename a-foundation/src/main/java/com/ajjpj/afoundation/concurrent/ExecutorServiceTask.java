@@ -0,0 +1,189 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AOption;
+import com.ajjpj.afoundation.collection.immutable.ATry;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+
+/**
+ * This is the task that {@link ExecutorServiceWrapper} submits to a thread pool. It is both the task and its {@link java.util.concurrent.Future},
+ *  and it is an {@link AFuture} as well, so application code can use AFuture's API on futures returned by the ExecutorService API.<p>
+ *
+ * A task can be part of a group of tasks that share a single {@link Countdown}, which is how {@code invokeAll} and {@code invokeAny} wait
+ *  for tasks without registering a listener per task.
+ */
+class ExecutorServiceTask<T> extends AFutureImpl<T> implements RunnableFuture<T> {
+    @SuppressWarnings ("unchecked")
+    private static final AtomicIntegerFieldUpdater<ExecutorServiceTask> RUN_STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater (ExecutorServiceTask.class, "runState");
+
+    /*
+     * The run state hands interrupts from cancel() to run(): cancel() interrupts the runner only after moving the state from RUNNING to
+     *  INTERRUPTING, and run() finishes only after moving it from RUNNING to FINISHED. So an interrupt is never delivered after run()
+     *  returned, where it would hit whatever the worker thread does next.
+     */
+    private static final int NOT_STARTED = 0;
+    private static final int RUNNING = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int INTERRUPTED = 3;
+    private static final int FINISHED = 4;
+
+    private final Callable<T> callable;
+    private final Countdown countdown;
+
+    /**
+     * the thread running this task, used for interrupting it on cancellation
+     */
+    private volatile Thread runner;
+    private volatile int runState = NOT_STARTED;
+
+    ExecutorServiceTask (Callable<T> callable, Countdown countdown) {
+        super (AThreadPool.SYNC_THREADPOOL);
+        this.callable = callable;
+        this.countdown = countdown;
+    }
+
+    @Override public void run () {
+        if (isComplete ()) {
+            // cancelled before it was started
+            return;
+        }
+
+        runner = Thread.currentThread ();
+        if (! RUN_STATE_UPDATER.compareAndSet (this, NOT_STARTED, RUNNING)) {
+            runner = null;
+            return;
+        }
+        try {
+            onCompleted (tryComplete (ATry.success (callable.call ())), true);
+        }
+        catch (Throwable th) {
+            onCompleted (tryComplete (ATry.failure (th)), false);
+        }
+        finally {
+            if (! RUN_STATE_UPDATER.compareAndSet (this, RUNNING, FINISHED)) {
+                handleCancellationInterrupt ();
+            }
+            runner = null;
+        }
+    }
+
+    /**
+     * A concurrent cancel() interrupts or is about to interrupt this thread. This waits for the interrupt and then clears it: The worker
+     *  thread would otherwise carry it into the next task, and an idle worker with its interrupt flag set could not park.
+     */
+    private void handleCancellationInterrupt () {
+        while (runState == INTERRUPTING) {
+            Thread.yield ();
+        }
+        Thread.interrupted ();
+    }
+
+    private void onCompleted (boolean wasCompletedNow, boolean success) {
+        if (wasCompletedNow && countdown != null) {
+            countdown.onTaskCompleted (success);
+        }
+    }
+
+    @Override public boolean cancel (boolean mayInterruptIfRunning) {
+        if (! tryComplete (ATry.failure (new CancellationException ()))) {
+            return false;
+        }
+
+        if (mayInterruptIfRunning && RUN_STATE_UPDATER.compareAndSet (this, RUNNING, INTERRUPTING)) {
+            try {
+                runner.interrupt ();
+            }
+            finally {
+                runState = INTERRUPTED;
+            }
+        }
+        onCompleted (true, false);
+        return true;
+    }
+
+    @Override public boolean isCancelled () {
+        final AOption<ATry<T>> result = optValue ();
+        return result.isDefined () && result.get ().isFailure () && result.get ().inverse ().getValue () instanceof CancellationException;
+    }
+
+    @Override public boolean isDone () {
+        return isComplete ();
+    }
+
+    @Override public T get () throws InterruptedException, ExecutionException {
+        try {
+            return get (Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            throw new IllegalStateException (e); // can not happen in practice
+        }
+    }
+
+    @Override public T get (long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (! isComplete ()) {
+            await (timeout, unit);
+        }
+
+        final ATry<T> result = optValue ().get ();
+        if (result.isSuccess ()) {
+            return result.getValue ();
+        }
+        final Throwable failure = result.inverse ().getValue ();
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        }
+        throw new ExecutionException (failure);
+    }
+
+    /**
+     * This is a latch shared by a group of tasks. It is released when all tasks are completed or, if {@code releaseOnFirstSuccess} is set,
+     *  when the first of them completes successfully.
+     */
+    static class Countdown extends AbstractQueuedSynchronizer {
+        private final boolean releaseOnFirstSuccess;
+
+        Countdown (int numTasks, boolean releaseOnFirstSuccess) {
+            this.releaseOnFirstSuccess = releaseOnFirstSuccess;
+            setState (numTasks);
+        }
+
+        void onTaskCompleted (boolean success) {
+            releaseShared (releaseOnFirstSuccess && success ? Integer.MAX_VALUE : 1);
+        }
+
+        void await () throws InterruptedException {
+            acquireSharedInterruptibly (1);
+        }
+
+        /**
+         * @return false if and only if the timeout expired
+         */
+        boolean await (long timeoutNanos) throws InterruptedException {
+            return tryAcquireSharedNanos (1, timeoutNanos);
+        }
+
+        @Override protected int tryAcquireShared (int ignored) {
+            return getState () == 0 ? 1 : -1;
+        }
+
+        @Override protected boolean tryReleaseShared (int n) {
+            while (true) {
+                final int before = getState ();
+                if (before == 0) return false;
+
+                final int after = Math.max (0, before - n);
+                if (compareAndSetState (before, after)) {
+                    return after == 0;
+                }
+            }
+        }
+    }
+}
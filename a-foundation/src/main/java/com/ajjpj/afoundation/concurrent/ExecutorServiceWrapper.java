@@ -1,17 +1,39 @@
 package com.ajjpj.afoundation.concurrent;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicReference;
 
 
-class ExecutorServiceWrapper extends AbstractExecutorService {
+/**
+ * This is the {@link ExecutorService} facade for {@link AThreadPool}, see {@link AThreadPool#wrapAsExecutorService}. Every task is
+ *  submitted as a single {@link ExecutorServiceTask} object which is both the task and its future, and {@code invokeAll} and
+ *  {@code invokeAny} wait for all their tasks with a single shared latch.<p>
+ *
+ * If the wrapped pool is an {@link AThreadPoolImpl}, {@link #shutdownNow} returns the tasks that were submitted but not started.
+ */
+class ExecutorServiceWrapper implements ExecutorService {
     private final AThreadPool pool;
     private final AThreadPoolWithAdmin poolWithAdmin;
-    private final AtomicReference<AFuture<?>> shutdown = new AtomicReference<> ();
+
+    /**
+     * guarded by 'this'
+     */
+    private AFuture<?> shutdown;
+
+    /**
+     * guarded by 'this'
+     */
+    private boolean shutdownNow;
 
     ExecutorServiceWrapper (AThreadPool pool) {
         this.pool = pool;
@@ -24,36 +46,185 @@ class ExecutorServiceWrapper extends AbstractExecutorService {
     }
 
     @Override public void execute (Runnable command) {
-        pool.submit (command);
+        try {
+            pool.submit (command);
+        }
+        catch (IllegalStateException e) {
+            // AThreadPool signals submission after shutdown this way, ExecutorService requires a RejectedExecutionException
+            throw new RejectedExecutionException (e.getMessage (), e);
+        }
+    }
+
+    @Override public <T> Future<T> submit (Callable<T> task) {
+        if (task == null) throw new NullPointerException ();
+        final ExecutorServiceTask<T> result = new ExecutorServiceTask<> (task, null);
+        execute (result);
+        return result;
+    }
+
+    @Override public <T> Future<T> submit (Runnable task, T result) {
+        if (task == null) throw new NullPointerException ();
+        return submit (Executors.callable (task, result));
+    }
+
+    @Override public Future<?> submit (Runnable task) {
+        return submit (task, null);
+    }
+
+    @Override public <T> List<Future<T>> invokeAll (Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        final ExecutorServiceTask.Countdown countdown = new ExecutorServiceTask.Countdown (tasks.size (), false);
+        final List<Future<T>> result = submitAll (tasks, countdown);
+        try {
+            countdown.await ();
+        }
+        catch (InterruptedException e) {
+            cancelAll (result);
+            throw e;
+        }
+        return result;
+    }
+
+    @Override public <T> List<Future<T>> invokeAll (Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+        final ExecutorServiceTask.Countdown countdown = new ExecutorServiceTask.Countdown (tasks.size (), false);
+        final List<Future<T>> result = submitAll (tasks, countdown);
+        try {
+            if (! countdown.await (unit.toNanos (timeout))) {
+                cancelAll (result);
+            }
+        }
+        catch (InterruptedException e) {
+            cancelAll (result);
+            throw e;
+        }
+        return result;
+    }
+
+    @Override public <T> T invokeAny (Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        try {
+            return invokeAny (tasks, false, 0);
+        }
+        catch (TimeoutException e) {
+            throw new IllegalStateException (e); // can not happen without a timeout
+        }
+    }
+
+    @Override public <T> T invokeAny (Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return invokeAny (tasks, true, unit.toNanos (timeout));
+    }
+
+    private <T> T invokeAny (Collection<? extends Callable<T>> tasks, boolean timed, long timeoutNanos) throws InterruptedException, ExecutionException, TimeoutException {
+        if (tasks.isEmpty ()) throw new IllegalArgumentException ("no tasks");
+
+        final ExecutorServiceTask.Countdown countdown = new ExecutorServiceTask.Countdown (tasks.size (), true);
+        final List<Future<T>> futures = submitAll (tasks, countdown);
+        try {
+            if (timed) {
+                if (! countdown.await (timeoutNanos)) throw new TimeoutExceptionWithoutStackTrace ();
+            }
+            else {
+                countdown.await ();
+            }
+
+            // The latch was released either by the first successful task or because all tasks failed
+            ExecutionException failure = null;
+            for (Future<T> f: futures) {
+                if (f.isDone () && ! f.isCancelled ()) {
+                    try {
+                        return f.get ();
+                    }
+                    catch (ExecutionException e) {
+                        failure = e;
+                    }
+                }
+            }
+            throw failure != null ? failure : new ExecutionException (new IllegalStateException ("no task completed"));
+        }
+        finally {
+            cancelAll (futures);
+        }
+    }
+
+    private <T> List<Future<T>> submitAll (Collection<? extends Callable<T>> tasks, ExecutorServiceTask.Countdown countdown) {
+        final List<Future<T>> result = new ArrayList<> (tasks.size ());
+        for (Callable<T> task: tasks) {
+            if (task == null) throw new NullPointerException ();
+            result.add (new ExecutorServiceTask<> (task, countdown));
+        }
+
+        try {
+            for (Future<T> f: result) {
+                execute ((ExecutorServiceTask<T>) f);
+            }
+        }
+        catch (RuntimeException e) {
+            cancelAll (result);
+            throw e;
+        }
+        return result;
+    }
+
+    private static void cancelAll (List<? extends Future<?>> futures) {
+        for (Future<?> f: futures) {
+            f.cancel (true);
+        }
     }
 
     //------------------- shutdown handling below this point ---------------------
 
-    @Override public void shutdown () {
+    @Override public synchronized void shutdown () {
         if (poolWithAdmin == null) throw new UnsupportedOperationException ("shutdown only supported for AThreadPoolWithAdmin");
-        shutdown.set (AFuture.lift (AThreadPool.SYNC_THREADPOOL, poolWithAdmin.shutdown (AThreadPoolWithAdmin.ShutdownMode.ExecuteSubmitted)));
+        if (shutdown != null) return;
+
+        shutdown = AFuture.lift (AThreadPool.SYNC_THREADPOOL, poolWithAdmin.shutdown (AThreadPoolWithAdmin.ShutdownMode.ExecuteSubmitted));
     }
 
-    @Override public List<Runnable> shutdownNow () {
+    /**
+     * This method attempts to interrupt running tasks. It returns the tasks that were discarded from the wrapped pool's queues if the pool is
+     *  an {@link AThreadPoolImpl}, or an empty list otherwise.<p>
+     *
+     * If {@link #shutdown()} was called before, this still discards queued tasks and interrupts running tasks if the wrapped pool is an
+     *  {@link AThreadPoolImpl}. Other pools can not be shut down a second time, so for them, this only returns an empty list. Calling this
+     *  method a second time has no effect.
+     */
+    @Override public synchronized List<Runnable> shutdownNow () {
         if (poolWithAdmin == null) throw new UnsupportedOperationException ("shutdown only supported for AThreadPoolWithAdmin");
-        shutdown.set (AFuture.lift (AThreadPool.SYNC_THREADPOOL, poolWithAdmin.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted)));
-        System.err.println ("Work may have been lost - keeping track of unfinished work on pool shutdown is not supported by AThreadPool");
+        if (shutdownNow) return Collections.emptyList ();
+        shutdownNow = true;
+
+        if (poolWithAdmin instanceof AThreadPoolImpl) {
+            final List<Runnable> result = new ArrayList<> ();
+            if (shutdown == null) {
+                shutdown = AFuture.lift (AThreadPool.SYNC_THREADPOOL, ((AThreadPoolImpl) poolWithAdmin).shutdown (AThreadPoolWithAdmin.ShutdownMode.InterruptRunning, result));
+            }
+            else {
+                ((AThreadPoolImpl) poolWithAdmin).interruptAfterShutdown (result);
+            }
+            return result;
+        }
+
+        if (shutdown == null) {
+            shutdown = AFuture.lift (AThreadPool.SYNC_THREADPOOL, poolWithAdmin.shutdown (AThreadPoolWithAdmin.ShutdownMode.InterruptRunning));
+        }
         return Collections.emptyList ();
     }
 
-    @Override public boolean isShutdown () {
-        return shutdown.get() != null;
+    @Override public synchronized boolean isShutdown () {
+        return shutdown != null;
     }
 
-    @Override public boolean isTerminated () {
-        return isShutdown() && shutdown.get().isComplete ();
+    @Override public synchronized boolean isTerminated () {
+        return isShutdown () && shutdown.isComplete ();
     }
 
     @Override public boolean awaitTermination (long timeout, TimeUnit unit) throws InterruptedException {
-        if (!isShutdown ()) return false;
+        final AFuture<?> f;
+        synchronized (this) {
+            f = shutdown;
+        }
+        if (f == null) return false;
 
         try {
-            shutdown.get().await (timeout, unit);
+            f.await (timeout, unit);
             return true;
         }
         catch (TimeoutException e) {
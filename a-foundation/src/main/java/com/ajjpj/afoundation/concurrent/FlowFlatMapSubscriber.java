@@ -0,0 +1,223 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.function.AFunction1;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * This is the implementation of {@link AFlow#flatMap}. It subscribes to at most {@code maxConcurrency} inner publishers at any given time,
+ *  requesting a new element from upstream only when one of them completes. Each inner subscriber keeps at most {@code prefetch} elements
+ *  requested, so no more than {@code maxConcurrency * prefetch} elements are buffered in total.<p>
+ *
+ * Elements are emitted downstream by a 'drain' loop that is entered by whichever thread delivers a signal, and the {@code wip} counter
+ *  ensures that only one thread is inside the loop at any given time: Threads that find the loop occupied just increment the counter,
+ *  causing the thread inside the loop to do another round.
+ */
+class FlowFlatMapSubscriber<T,R> implements ASubscriber<T>, ASubscription {
+    private final ASubscriber<? super R> downstream;
+    private final AFunction1<? super T, ? extends APublisher<? extends R>, ?> f;
+    private final int maxConcurrency;
+    private final int prefetch;
+
+    private volatile ASubscription upstream;
+    private volatile boolean upstreamDone;
+    private volatile boolean cancelled;
+
+    private final AtomicReference<Throwable> error = new AtomicReference<> ();
+    private final AtomicLong requested = new AtomicLong ();
+    private final AtomicInteger wip = new AtomicInteger ();
+
+    private final Set<Inner> inners = ConcurrentHashMap.newKeySet ();
+    private final AtomicInteger numActive = new AtomicInteger ();
+
+    /**
+     * accessed only from inside the drain loop
+     */
+    private boolean done;
+
+    FlowFlatMapSubscriber (ASubscriber<? super R> downstream, AFunction1<? super T, ? extends APublisher<? extends R>, ?> f, int maxConcurrency, int prefetch) {
+        this.downstream = downstream;
+        this.f = f;
+        this.maxConcurrency = maxConcurrency;
+        this.prefetch = prefetch;
+    }
+
+    @Override public void onSubscribe (ASubscription subscription) {
+        this.upstream = subscription;
+        downstream.onSubscribe (this);
+        subscription.request (maxConcurrency);
+    }
+
+    @Override public void onNext (T element) {
+        if (upstreamDone || cancelled) return;
+
+        final APublisher<? extends R> publisher;
+        try {
+            publisher = f.apply (element);
+        }
+        catch (Throwable th) {
+            upstream.cancel ();
+            onError (th);
+            return;
+        }
+
+        final Inner inner = new Inner ();
+        numActive.incrementAndGet ();
+        inners.add (inner);
+        publisher.subscribe (inner);
+    }
+
+    @Override public void onError (Throwable th) {
+        if (upstreamDone) return;
+        error.compareAndSet (null, th);
+        upstreamDone = true;
+        drain ();
+    }
+
+    @Override public void onComplete () {
+        if (upstreamDone) return;
+        upstreamDone = true;
+        drain ();
+    }
+
+    @Override public void request (long n) {
+        if (n <= 0) {
+            error.compareAndSet (null, new IllegalArgumentException ("request must be positive, was " + n));
+        }
+        else {
+            FlowSupport.addDemand (requested, n);
+        }
+        drain ();
+    }
+
+    @Override public void cancel () {
+        if (cancelled) return;
+        cancelled = true;
+        cancelAll ();
+    }
+
+    private void cancelAll () {
+        upstream.cancel ();
+        for (Inner inner: inners) {
+            inner.cancel ();
+        }
+    }
+
+    private void drain () {
+        if (wip.getAndIncrement () != 0) {
+            return;
+        }
+
+        int missed = 1;
+        while (true) {
+            if (done) return;
+
+            if (cancelled) {
+                inners.clear ();
+                return;
+            }
+
+            final Throwable th = error.get ();
+            if (th != null) {
+                done = true;
+                cancelAll ();
+                inners.clear ();
+                downstream.onError (th);
+                return;
+            }
+
+            final long r = requested.get ();
+            long emitted = 0;
+
+            for (Inner inner: inners) {
+                R element;
+                while (emitted != r && ! cancelled && (element = inner.queue.poll ()) != null) {
+                    downstream.onNext (element);
+                    emitted += 1;
+                    inner.onConsumed ();
+                }
+
+                if (inner.done && inner.queue.isEmpty ()) {
+                    inners.remove (inner);
+                    numActive.decrementAndGet ();
+                    if (! upstreamDone) {
+                        upstream.request (1);
+                    }
+                }
+            }
+
+            if (emitted != 0 && r != Long.MAX_VALUE) {
+                requested.addAndGet (-emitted);
+            }
+
+            if (upstreamDone && numActive.get () == 0 && error.get () == null && ! cancelled) {
+                done = true;
+                downstream.onComplete ();
+                return;
+            }
+
+            missed = wip.addAndGet (-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private class Inner implements ASubscriber<R> {
+        final Queue<R> queue = new ConcurrentLinkedQueue<> ();
+        private final int replenishThreshold = Math.max (1, prefetch / 2);
+
+        private volatile ASubscription subscription;
+        volatile boolean done;
+
+        /**
+         * accessed only from inside the drain loop
+         */
+        private int consumed;
+
+        @Override public void onSubscribe (ASubscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel ();
+            }
+            else {
+                subscription.request (prefetch);
+            }
+        }
+
+        @Override public void onNext (R element) {
+            queue.offer (element);
+            drain ();
+        }
+
+        @Override public void onError (Throwable th) {
+            error.compareAndSet (null, th);
+            done = true;
+            drain ();
+        }
+
+        @Override public void onComplete () {
+            done = true;
+            drain ();
+        }
+
+        void onConsumed () {
+            if (++consumed == replenishThreshold) {
+                consumed = 0;
+                subscription.request (replenishThreshold);
+            }
+        }
+
+        void cancel () {
+            final ASubscription s = subscription;
+            if (s != null) s.cancel ();
+        }
+    }
+}
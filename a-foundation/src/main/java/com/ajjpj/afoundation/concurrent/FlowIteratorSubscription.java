@@ -0,0 +1,134 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.function.AFunction0;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This is the subscription of an {@link AFlow} that reads its elements from an Iterator. Elements are emitted by a task in the thread pool,
+ *  and only as far as there is demand. A single task emits at most {@code batchSize} elements before it resubmits itself to the pool,
+ *  yielding to other work.<p>
+ *
+ * Calls to {@code request()} and {@code cancel()} only ever schedule the emitting task if it is not running or scheduled already, so there
+ *  is at most one such task at any given time and all access to the iterator is serialized. If the iterator is {@link AutoCloseable}, it is
+ *  closed when the stream terminates or is cancelled.
+ */
+class FlowIteratorSubscription<T> implements ASubscription, Runnable {
+    private final AThreadPool pool;
+    private final ASubscriber<? super T> subscriber;
+    private final AFunction0<? extends Iterator<? extends T>, ?> iteratorFactory;
+    private final int batchSize;
+
+    private final AtomicLong requested = new AtomicLong ();
+    private final AtomicInteger wip = new AtomicInteger ();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    /**
+     * accessed only from the emitting task
+     */
+    private Iterator<? extends T> iterator;
+
+    FlowIteratorSubscription (AThreadPool pool, ASubscriber<? super T> subscriber, AFunction0<? extends Iterator<? extends T>, ?> iteratorFactory, int batchSize) {
+        this.pool = pool;
+        this.subscriber = subscriber;
+        this.iteratorFactory = iteratorFactory;
+        this.batchSize = batchSize;
+    }
+
+    @Override public void request (long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException ("request must be positive, was " + n);
+        }
+        else {
+            FlowSupport.addDemand (requested, n);
+        }
+        schedule ();
+    }
+
+    @Override public void cancel () {
+        cancelled = true;
+        schedule ();
+    }
+
+    private void schedule () {
+        if (wip.getAndIncrement () == 0) {
+            pool.submit (this);
+        }
+    }
+
+    @Override public void run () {
+        int missed = 1;
+
+        while (true) {
+            if (cancelled) {
+                close ();
+                return;
+            }
+            if (invalidRequest != null) {
+                close ();
+                subscriber.onError (invalidRequest);
+                return;
+            }
+
+            final long r = requested.get ();
+            int emitted = 0;
+
+            try {
+                if (iterator == null) {
+                    iterator = iteratorFactory.apply ();
+                }
+
+                while (emitted < r && emitted < batchSize && ! cancelled) {
+                    if (! iterator.hasNext ()) break;
+                    subscriber.onNext (iterator.next ());
+                    emitted += 1;
+                }
+
+                if (! cancelled && emitted < batchSize && ! iterator.hasNext ()) {
+                    // prevent further emission in case a subscriber calls request() in violation of the protocol
+                    cancelled = true;
+                    close ();
+                    subscriber.onComplete ();
+                    return;
+                }
+            }
+            catch (Throwable th) {
+                cancelled = true;
+                close ();
+                subscriber.onError (th);
+                return;
+            }
+
+            if (r != Long.MAX_VALUE) {
+                requested.addAndGet (-emitted);
+            }
+
+            if (emitted == batchSize) {
+                // yield to other tasks, leaving 'wip' non-zero so that no other emitting task is scheduled in the meantime
+                pool.submit (this);
+                return;
+            }
+
+            missed = wip.addAndGet (-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void close () {
+        if (iterator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) iterator).close ();
+            }
+            catch (Exception e) {
+                // there is no-one to report this to, the stream is terminated already
+            }
+        }
+        iterator = null;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AList;
+import com.ajjpj.afoundation.function.AFunction1;
+import com.ajjpj.afoundation.function.AFunction2;
+import com.ajjpj.afoundation.function.APredicate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * This class contains the implementations of {@link AFlow}'s synchronous operators. They are 'fused' with their upstream: Each of them
+ *  processes an element in the thread that delivers it, without an intermediate queue or task, and translates downstream demand into
+ *  upstream demand directly.
+ */
+class FlowSupport {
+    /**
+     * adds to an outstanding demand, treating {@link Long#MAX_VALUE} as 'unbounded'
+     */
+    static long addDemand (AtomicLong requested, long n) {
+        long prev, next;
+        do {
+            prev = requested.get ();
+            if (prev == Long.MAX_VALUE) return prev;
+            next = prev + n;
+            if (next < 0) next = Long.MAX_VALUE;
+        }
+        while (! requested.compareAndSet (prev, next));
+        return prev;
+    }
+
+    static long multiplyCapped (long n, int factor) {
+        if (n > Long.MAX_VALUE / factor) return Long.MAX_VALUE;
+        return n * factor;
+    }
+
+    /**
+     * common base class for operators that forward each upstream signal to a single downstream subscriber
+     */
+    abstract static class ForwardingSubscriber<T,R> implements ASubscriber<T>, ASubscription {
+        final ASubscriber<? super R> downstream;
+        ASubscription upstream;
+        boolean done;
+
+        ForwardingSubscriber (ASubscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override public void onSubscribe (ASubscription subscription) {
+            this.upstream = subscription;
+            downstream.onSubscribe (this);
+        }
+
+        @Override public void onError (Throwable th) {
+            if (done) return;
+            done = true;
+            downstream.onError (th);
+        }
+
+        @Override public void onComplete () {
+            if (done) return;
+            done = true;
+            downstream.onComplete ();
+        }
+
+        void fail (Throwable th) {
+            upstream.cancel ();
+            onError (th);
+        }
+
+        @Override public void request (long n) {
+            upstream.request (n);
+        }
+
+        @Override public void cancel () {
+            upstream.cancel ();
+        }
+    }
+
+    static class MapSubscriber<T,R> extends ForwardingSubscriber<T,R> {
+        private final AFunction1<? super T, ? extends R, ?> f;
+
+        MapSubscriber (ASubscriber<? super R> downstream, AFunction1<? super T, ? extends R, ?> f) {
+            super (downstream);
+            this.f = f;
+        }
+
+        @Override public void onNext (T element) {
+            if (done) return;
+
+            final R mapped;
+            try {
+                mapped = f.apply (element);
+            }
+            catch (Throwable th) {
+                fail (th);
+                return;
+            }
+            downstream.onNext (mapped);
+        }
+    }
+
+    static class FilterSubscriber<T> extends ForwardingSubscriber<T,T> {
+        private final APredicate<? super T, ?> pred;
+
+        FilterSubscriber (ASubscriber<? super T> downstream, APredicate<? super T, ?> pred) {
+            super (downstream);
+            this.pred = pred;
+        }
+
+        @Override public void onNext (T element) {
+            if (done) return;
+
+            final boolean matches;
+            try {
+                matches = pred.apply (element);
+            }
+            catch (Throwable th) {
+                fail (th);
+                return;
+            }
+
+            if (matches) {
+                downstream.onNext (element);
+            }
+            else {
+                // the element was requested but not delivered, so we need to replace it
+                upstream.request (1);
+            }
+        }
+    }
+
+    /**
+     * This operator collects elements into ALists of a given size, translating a demand of n lists into a demand of {@code n*size} elements.
+     *  A final list that is not full is emitted when the upstream completes.
+     */
+    static class BufferSubscriber<T> extends ForwardingSubscriber<T, AList<T>> {
+        private final int size;
+        private Object[] buffer;
+        private int count;
+
+        BufferSubscriber (ASubscriber<? super AList<T>> downstream, int size) {
+            super (downstream);
+            this.size = size;
+        }
+
+        @Override public void onNext (T element) {
+            if (done) return;
+
+            if (buffer == null) {
+                buffer = new Object[size];
+            }
+            buffer[count++] = element;
+
+            if (count == size) {
+                final Object[] full = buffer;
+                buffer = null;
+                count = 0;
+                downstream.onNext (StaticFutureMethods.asAList (full));
+            }
+        }
+
+        @Override public void onComplete () {
+            if (done) return;
+
+            if (count > 0) {
+                final Object[] partial = new Object[count];
+                System.arraycopy (buffer, 0, partial, 0, count);
+                buffer = null;
+                downstream.onNext (StaticFutureMethods.asAList (partial));
+            }
+            super.onComplete ();
+        }
+
+        @Override public void request (long n) {
+            upstream.request (n <= 0 ? n : multiplyCapped (n, size));
+        }
+    }
+
+    /**
+     * This is the terminal subscriber that folds all elements into a single value, completing an AFuture with the result. It keeps at most
+     *  {@code batchSize} elements requested, replenishing demand after every half batch it consumes.
+     */
+    static class FoldSubscriber<T,R> implements ASubscriber<T> {
+        private final AFutureImpl<R> result;
+        private final AFunction2<R, ? super T, R, ?> f;
+        private final int batchSize;
+        private final int replenishThreshold;
+
+        private ASubscription subscription;
+        private R acc;
+        private int consumed;
+        private boolean done;
+
+        FoldSubscriber (AFutureImpl<R> result, R start, AFunction2<R, ? super T, R, ?> f, int batchSize) {
+            this.result = result;
+            this.acc = start;
+            this.f = f;
+            this.batchSize = batchSize;
+            this.replenishThreshold = Math.max (1, batchSize / 2);
+        }
+
+        @Override public void onSubscribe (ASubscription subscription) {
+            this.subscription = subscription;
+            subscription.request (batchSize);
+        }
+
+        @Override public void onNext (T element) {
+            if (done) return;
+
+            try {
+                acc = f.apply (acc, element);
+            }
+            catch (Throwable th) {
+                done = true;
+                subscription.cancel ();
+                result.completeAsFailure (th);
+                return;
+            }
+
+            if (++consumed == replenishThreshold) {
+                consumed = 0;
+                subscription.request (replenishThreshold);
+            }
+        }
+
+        @Override public void onError (Throwable th) {
+            if (done) return;
+            done = true;
+            result.completeAsFailure (th);
+        }
+
+        @Override public void onComplete () {
+            if (done) return;
+            done = true;
+            result.completeAsSuccess (acc);
+        }
+    }
+}
@@ -62,6 +62,14 @@ class LocalQueue {
         );
     }
 
+    /**
+     * @return the number of tasks that can be added before the queue overflows. This is only ever called from the owning thread, so the
+     *  actual capacity can only be bigger than the returned value because of concurrent steals.
+     */
+    int remainingCapacity () {
+        return (int) (mask - (top - UNSAFE.getLongVolatile (this, OFFS_BASE)));
+    }
+
     /**
      * Add a new task to the top of the localQueue, incrementing 'top'. This is only ever called from the owning thread.
      */
@@ -73,14 +81,19 @@ class LocalQueue {
         }
 
         tasks[asArrayindex (_top)] = task;
-        // 'top' is only ever modified by the owning thread, so we need no CAS here. Storing 'top' with volatile semantics publishes the task and ensures that changes to the task
-        //  can never overtake changes to 'top' wrt visibility.
-        UNSAFE.putLongVolatile (this, OFFS_TOP, _top+1);
 
-        // Notify pool only for the first added item per queue.
+        // 'top' is only ever modified by the owning thread, so we need no CAS here. An ordered ('release') store of 'top' publishes the task
+        //  and ensures that changes to the task can never overtake changes to 'top' wrt visibility. That is all stealing threads need, and
+        //  it saves the full fence of a volatile store on the owner's hot path.
+        // Notify pool only for the first added item per queue. Notification reads the pool's idle mask, and that read must not be reordered
+        //  before the store of 'top' - otherwise a worker going idle concurrently could miss the new task --> volatile store in that case.
         if (_top - _base <= 1) {
+            UNSAFE.putLongVolatile (this, OFFS_TOP, _top+1);
             pool.onAvailableTask();
         }
+        else {
+            UNSAFE.putOrderedLong (this, OFFS_TOP, _top+1);
+        }
     }
 
     /**
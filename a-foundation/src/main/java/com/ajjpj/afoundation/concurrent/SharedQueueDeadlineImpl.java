@@ -0,0 +1,232 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.function.AStatement1NoThrow;
+import sun.misc.Contended;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * This is a shared queue for earliest-deadline-first scheduling, see {@link SharedQueueStrategy#Deadline}. A single priority queue would
+ *  be a point of contention for all workers, so this is a 'MultiQueue': It consists of several heaps, each protected by a lock of its own.
+ *  Tasks are pushed to a random heap, and a worker pops from the better of two randomly chosen heaps. The result is not strictly
+ *  ordered, but tasks with early deadlines are taken with high probability, and contention is low.<p>
+ *
+ * Tasks without a deadline are ordered after all tasks with deadlines, in FIFO order per heap. This queue never prefetches, since
+ *  prefetched tasks would be executed in LIFO order from the worker's local queue.
+ *
+ * @author arno
+ */
+class SharedQueueDeadlineImpl implements ASharedQueue {
+    private static final int INITIAL_HEAP_CAPACITY = 64;
+
+    private final AThreadPoolImpl pool;
+    private final Heap[] heaps;
+    private final int maxHeapCapacity;
+    private final AStatement1NoThrow<ADeadlineTask> expiredTaskHandler;
+
+    /**
+     * @param expiredTaskHandler if this is not null, tasks whose deadline expired before a worker took them are passed to this handler
+     *                           instead of being executed.
+     */
+    SharedQueueDeadlineImpl (AThreadPoolImpl pool, int numHeaps, int maxHeapCapacity, AStatement1NoThrow<ADeadlineTask> expiredTaskHandler) {
+        if (numHeaps < 1) throw new IllegalArgumentException ("there must be at least one heap");
+        if (maxHeapCapacity < 1) throw new IllegalArgumentException ("heap capacity must be positive");
+
+        this.pool = pool;
+        this.maxHeapCapacity = maxHeapCapacity;
+        this.expiredTaskHandler = expiredTaskHandler;
+
+        this.heaps = new Heap[numHeaps];
+        for (int i=0; i<numHeaps; i++) {
+            heaps[i] = new Heap ();
+        }
+    }
+
+    @Override public boolean isOrdered () {
+        return true;
+    }
+
+    @Override public void push (Runnable task) {
+        final long deadline = task instanceof ADeadlineTask ? ((ADeadlineTask) task).getDeadlineNanos () : Long.MAX_VALUE;
+
+        // try other heaps if the random one is full, and reject the task only if all of them are
+        final int start = ThreadLocalRandom.current ().nextInt (heaps.length);
+        for (int i=0; i<heaps.length; i++) {
+            if (heaps[(start + i) % heaps.length].push (task, deadline, maxHeapCapacity)) {
+                pool.onAvailableTask ();
+                return;
+            }
+        }
+        throw new RejectedExecutionExceptionWithoutStacktrace ("Shared queue overflow");
+    }
+
+    @Override public Runnable popFifo (LocalQueue localQueue) {
+        while (true) {
+            final Runnable task = popMin ();
+            if (expiredTaskHandler == null || ! (task instanceof ADeadlineTask)) {
+                return task;
+            }
+
+            final ADeadlineTask deadlineTask = (ADeadlineTask) task;
+            if (deadlineTask.getDeadlineNanos () - System.nanoTime () >= 0) {
+                return task;
+            }
+
+            pool.onTaskDropped ();
+            expiredTaskHandler.apply ((ADeadlineTask) DecoratedTask.undecorated (deadlineTask));
+        }
+    }
+
+    @Override public Runnable pollOldest () {
+        return popMin ();
+    }
+
+    private Runnable popMin () {
+        if (heaps.length > 1) {
+            // 'power of two choices': the better of two random heaps
+            final ThreadLocalRandom rand = ThreadLocalRandom.current ();
+            final int i = rand.nextInt (heaps.length);
+            final int j = (i + 1 + rand.nextInt (heaps.length - 1)) % heaps.length;
+
+            final Heap a = heaps[i];
+            final Heap b = heaps[j];
+            final Heap better;
+            if (a.size == 0) better = b;
+            else if (b.size == 0) better = a;
+            else better = a.minDeadline <= b.minDeadline ? a : b;
+
+            final Runnable result = better.pop ();
+            if (result != null) {
+                return result;
+            }
+        }
+
+        // both heaps were empty, or emptied concurrently --> look at all heaps before reporting an empty queue, a worker may go to sleep otherwise
+        final int start = ThreadLocalRandom.current ().nextInt (heaps.length);
+        for (int i=0; i<heaps.length; i++) {
+            final Runnable result = heaps[(start + i) % heaps.length].pop ();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    @Override public void clear () {
+        for (Heap heap: heaps) {
+            heap.clear ();
+        }
+    }
+
+    @Override public int approximateSize () {
+        int result = 0;
+        for (Heap heap: heaps) {
+            result += heap.size;
+        }
+        return result;
+    }
+
+    /**
+     * This is a binary min-heap ordered by deadline and, for equal deadlines, by insertion order. It grows as needed up to a maximum capacity.
+     */
+    @Contended
+    static class Heap {
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        private Runnable[] tasks = new Runnable[INITIAL_HEAP_CAPACITY];
+        private long[] deadlines = new long[INITIAL_HEAP_CAPACITY];
+        private long[] seqs = new long[INITIAL_HEAP_CAPACITY];
+        private long nextSeq = 0;
+
+        /**
+         * These are written only while holding the lock, and read without it to choose a heap.
+         */
+        volatile int size = 0;
+        volatile long minDeadline = Long.MAX_VALUE;
+
+        long q1, q2, q3, q4, q5, q6, q7;
+
+        synchronized boolean push (Runnable task, long deadline, int maxCapacity) {
+            final int _size = size;
+            if (_size == maxCapacity) {
+                return false;
+            }
+            if (_size == tasks.length) {
+                final int newCapacity = (int) Math.min (maxCapacity, 2L * tasks.length);
+                tasks = Arrays.copyOf (tasks, newCapacity);
+                deadlines = Arrays.copyOf (deadlines, newCapacity);
+                seqs = Arrays.copyOf (seqs, newCapacity);
+            }
+
+            final long seq = nextSeq++;
+            int idx = _size;
+            while (idx > 0) {
+                final int parent = (idx - 1) >>> 1;
+                if (! isBefore (deadline, seq, deadlines[parent], seqs[parent])) {
+                    break;
+                }
+                set (idx, tasks[parent], deadlines[parent], seqs[parent]);
+                idx = parent;
+            }
+            set (idx, task, deadline, seq);
+
+            minDeadline = deadlines[0];
+            size = _size + 1;
+            return true;
+        }
+
+        synchronized Runnable pop () {
+            final int _size = size;
+            if (_size == 0) {
+                return null;
+            }
+
+            final Runnable result = tasks[0];
+
+            final int newSize = _size - 1;
+            final Runnable lastTask = tasks[newSize];
+            final long lastDeadline = deadlines[newSize];
+            final long lastSeq = seqs[newSize];
+            tasks[newSize] = null;
+
+            if (newSize > 0) {
+                int idx = 0;
+                while (true) {
+                    int child = 2*idx + 1;
+                    if (child >= newSize) break;
+                    if (child+1 < newSize && isBefore (deadlines[child+1], seqs[child+1], deadlines[child], seqs[child])) {
+                        child += 1;
+                    }
+                    if (! isBefore (deadlines[child], seqs[child], lastDeadline, lastSeq)) {
+                        break;
+                    }
+                    set (idx, tasks[child], deadlines[child], seqs[child]);
+                    idx = child;
+                }
+                set (idx, lastTask, lastDeadline, lastSeq);
+            }
+
+            minDeadline = newSize > 0 ? deadlines[0] : Long.MAX_VALUE;
+            size = newSize;
+            return result;
+        }
+
+        synchronized void clear () {
+            Arrays.fill (tasks, 0, size, null);
+            minDeadline = Long.MAX_VALUE;
+            size = 0;
+        }
+
+        private void set (int idx, Runnable task, long deadline, long seq) {
+            tasks[idx] = task;
+            deadlines[idx] = deadline;
+            seqs[idx] = seq;
+        }
+
+        private static boolean isBefore (long deadline1, long seq1, long deadline2, long seq2) {
+            return deadline1 < deadline2 || (deadline1 == deadline2 && seq1 < seq2);
+        }
+    }
+}
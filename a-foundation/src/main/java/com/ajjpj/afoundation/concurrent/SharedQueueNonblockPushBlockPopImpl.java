@@ -14,7 +14,7 @@ import java.lang.reflect.Field;
 class SharedQueueNonblockPushBlockPopImpl implements ASharedQueue {
     long p1, p2, p3, p4, p5, p6, p7;
 
-    private final int prefetchBatchSize;
+    private volatile int prefetchBatchSize;
     /**
      * an array holding all currently submitted tasks.
      */
@@ -61,6 +61,11 @@ class SharedQueueNonblockPushBlockPopImpl implements ASharedQueue {
         );
     }
 
+    @Override public void setPrefetchBatchSize (int prefetchBatchSize) {
+        if (prefetchBatchSize < 1) throw new IllegalArgumentException ("worker threads must (attempt to) fetch a minimum of 1 task");
+        this.prefetchBatchSize = prefetchBatchSize;
+    }
+
     /**
      * Add a new task to the top of the shared queue, incrementing 'top'.
      */
@@ -89,6 +94,10 @@ class SharedQueueNonblockPushBlockPopImpl implements ASharedQueue {
         pool.onAvailableTask ();
     }
 
+    @Override public Runnable pollOldest () {
+        return popFifo (null);
+    }
+
     @Override public synchronized Runnable popFifo (LocalQueue localQueue) {
         final long _base = base;
         final long _top = top;
@@ -109,8 +118,10 @@ class SharedQueueNonblockPushBlockPopImpl implements ASharedQueue {
 
         int idx;
 
-        long newLocalTop = localQueue.top;
-        for (idx=1; idx < size && idx < prefetchBatchSize; idx++) {
+        // never prefetch more tasks than the local queue can hold
+        final int _prefetchBatchSize = localQueue == null ? 1 : Math.min (prefetchBatchSize, 1 + localQueue.remainingCapacity ());
+        long newLocalTop = localQueue == null ? 0 : localQueue.top;
+        for (idx=1; idx < size && idx < _prefetchBatchSize; idx++) {
             final Runnable task = fetchTask (_base+idx);
             if (task == null) {
                 System.err.println ("************************ fetched task[base+" + idx + "] is null although it really couldn't *******************************");
@@ -119,9 +130,10 @@ class SharedQueueNonblockPushBlockPopImpl implements ASharedQueue {
             localQueue.tasks [localQueue.asArrayindex (newLocalTop++)] = task;
         }
 
-        // volatile put for atomicity and to ensure ordering wrt. nulling the task --> read operations do not hold the same monitor
+        // an ordered put publishes the prefetched tasks to stealing threads. It needs no full fence of its own: the volatile put of 'base'
+        //  below emits one anyway
         if (idx > 1) {
-            UNSAFE.putLongVolatile (localQueue, LocalQueue.OFFS_TOP, newLocalTop);
+            UNSAFE.putOrderedLong (localQueue, LocalQueue.OFFS_TOP, newLocalTop);
         }
 
         // volatile put for atomicity and to ensure ordering wrt. nulling the task --> read operations do not hold the same monitor
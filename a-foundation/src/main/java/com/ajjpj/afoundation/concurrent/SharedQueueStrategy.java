@@ -4,5 +4,12 @@ package com.ajjpj.afoundation.concurrent;
 public enum SharedQueueStrategy {
     SyncPush,
     LockPush,
-    NonBlockingPush
+    NonBlockingPush,
+
+    /**
+     * Earliest deadline first: Tasks are ordered by their deadlines (see {@link ADeadlineTask}), with tasks without a deadline coming last
+     *  in FIFO order. Workers submit new tasks to the shared queues rather than to their local queues in this mode, trading some cache
+     *  locality for deadline ordering.
+     */
+    Deadline
 }
@@ -9,6 +9,7 @@ import com.ajjpj.afoundation.function.AFunction2;
 import com.ajjpj.afoundation.function.APredicate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -28,40 +29,71 @@ class StaticFutureMethods {
         return result;
     }
 
+    /**
+     * This method copies an Iterable's elements into an array, iterating it exactly once. Collections are copied in a single step.
+     */
+    static Object[] toArray (Iterable<?> it) {
+        if (it instanceof Collection) {
+            // passing in an Object[] is necessary because Collection.toArray() may return an array of a more specific type
+            final Collection<?> coll = (Collection<?>) it;
+            return coll.toArray (new Object[coll.size ()]);
+        }
+
+        final List<Object> result = new ArrayList<> ();
+        for (Object o: it) {
+            result.add (o);
+        }
+        return result.toArray ();
+    }
+
+    /**
+     * This method turns an array of results into an AList without any intermediate copying.
+     */
+    @SuppressWarnings ("unchecked")
+    static <T> AList<T> asAList (Object[] values) {
+        AList<T> result = AList.nil ();
+        for (int i=values.length-1; i>=0; i--) {
+            result = result.cons ((T) values[i]);
+        }
+        return result;
+    }
+
     public static <T> AFuture<AList<T>> lift (AThreadPool tp, Iterable<AFuture<T>> futures) {
-        final AFutureImpl<AList<T>> result = new AFutureImpl<> (tp);
+        return lift (tp, toArray (futures));
+    }
 
-        int numFutures = 0;
-        for (AFuture<T> ignored: futures) numFutures += 1;
-        final AtomicInteger numUnbound = new AtomicInteger (numFutures);
+    /**
+     * Every future's result is written into its own slot of a presized array. The plain array writes are published to the thread that completes the
+     *  result by the countdown's volatile semantics, so there is no need for any additional synchronization.
+     */
+    @SuppressWarnings ("unchecked")
+    private static <T> AFuture<AList<T>> lift (AThreadPool tp, Object[] futures) {
+        if (futures.length == 0) {
+            return AFutureImpl.fromTry (tp, ATry.success (AList.nil ()));
+        }
 
-        final List<T> list = new ArrayList<> ();
-        for (AFuture<T> f: futures) {
-            int idx = list.size();
-            list.add (null);
+        final AFutureImpl<AList<T>> result = new AFutureImpl<> (tp);
+        final Object[] values = new Object[futures.length];
+        final AtomicInteger numUnbound = new AtomicInteger (futures.length);
 
-            f.onComplete (AThreadPool.SYNC_THREADPOOL, tr -> {
+        for (int i=0; i<futures.length; i++) {
+            final int idx = i;
+            ((AFuture<T>) futures[i]).onComplete (AThreadPool.SYNC_THREADPOOL, tr -> {
                 if (tr.isSuccess ()) {
-                    list.set (idx, tr.getValue ());
+                    values[idx] = tr.getValue ();
                     if (numUnbound.decrementAndGet () == 0) {
-                        result.tryComplete (ATry.success (AList.create (list)));
+                        result.tryComplete (ATry.success (asAList (values)));
                     }
                 }
                 else {
-                    //noinspection unchecked
-                    result.tryComplete ((ATry<AList<T>>) tr);
+                    result.tryComplete ((ATry<AList<T>>) (ATry<?>) tr);
                 }
             });
         }
 
-        if (list.isEmpty ()) {
-            result.completeAsSuccess (AList.nil ());
-        }
-
         return result;
     }
 
-
     public static <T> AFuture<T> firstCompleted (AThreadPool tp, Iterable<AFuture<T>> futures) {
         final AFutureImpl<T> result = new AFutureImpl<> (tp);
 
@@ -72,19 +104,18 @@ class StaticFutureMethods {
         return result;
     }
 
+    @SuppressWarnings ("unchecked")
     public static <T> AFuture<AOption<T>> find (AThreadPool tp, Iterable<AFuture<T>> futures, APredicate<T, ?> f) {
-        int numFutures = 0;
-        for (AFuture<T> ignored: futures) numFutures += 1;
-        final AtomicInteger numOpen = new AtomicInteger (numFutures);
-
-        if (numFutures == 0) {
+        final Object[] arr = toArray (futures);
+        if (arr.length == 0) {
             return AFuture.createSuccessful (AOption.none ());
         }
 
         final AFutureImpl<AOption<T>> result = new AFutureImpl<> (tp);
+        final AtomicInteger numOpen = new AtomicInteger (arr.length);
 
-        for (AFuture<T> future: futures) {
-            future.onComplete (tp, tr -> {
+        for (Object future: arr) {
+            ((AFuture<T>) future).onComplete (tp, tr -> {
                 if (tr.isSuccess () && f.apply (tr.getValue ())) {
                     result.tryComplete (tr.map (AOption::some));
                 }
@@ -99,11 +130,52 @@ class StaticFutureMethods {
         return result;
     }
 
+    /**
+     * The callback of the last completing future submits the fold to {@code tp}, without creating an intermediate AList or an additional
+     *  mapped AFuture. So {@code f} runs in {@code tp} like the functions passed to other methods of this class.
+     */
+    @SuppressWarnings ("unchecked")
     public static <R, T, E extends Throwable> AFuture<R> fold (AThreadPool tp, R start, Iterable<AFuture<T>> futures, AFunction2<R, T, R, E> f) {
-        if (! futures.iterator ().hasNext ()) return AFuture.createSuccessful (start);
+        final Object[] arr = toArray (futures);
+        if (arr.length == 0) return AFuture.createSuccessful (start);
+
+        final AFutureImpl<R> result = new AFutureImpl<> (tp);
+        final Object[] values = new Object[arr.length];
+        final AtomicInteger numUnbound = new AtomicInteger (arr.length);
+
+        for (int i=0; i<arr.length; i++) {
+            final int idx = i;
+            ((AFuture<T>) arr[i]).onComplete (AThreadPool.SYNC_THREADPOOL, tr -> {
+                if (tr.isFailure ()) {
+                    result.tryComplete ((ATry<R>) (ATry<?>) tr);
+                    return;
+                }
 
-        final AFuture<AList<T>> lifted = StaticFutureMethods.lift (tp, futures);
-        return lifted.map (tp, x -> x.foldLeft (start, f));
+                values[idx] = tr.getValue ();
+                if (numUnbound.decrementAndGet () == 0) {
+                    try {
+                        tp.submit (() -> {
+                            try {
+                                R acc = start;
+                                for (Object o: values) {
+                                    acc = f.apply (acc, (T) o);
+                                }
+                                result.tryComplete (ATry.success (acc));
+                            }
+                            catch (Throwable th) {
+                                result.tryComplete (ATry.failure (th));
+                            }
+                        });
+                    }
+                    catch (Throwable th) {
+                        // the pool rejected the task
+                        result.tryComplete (ATry.failure (th));
+                    }
+                }
+            });
+        }
+
+        return result;
     }
 
     //TODO AMonadicOps.reduceLeft
@@ -112,11 +184,105 @@ class StaticFutureMethods {
 //        return lifted.map (tp, x -> ACollectionHelper.asACollectionView (x).<R,E>reduceLeft (f));
 //    }
 
+    @SuppressWarnings ("unchecked")
     public static <R, T, E extends Throwable> AFuture<AList<R>> traverse (AThreadPool tp, Iterable<T> values, AFunction1<T, AFuture<R>, E> f) throws E {
-        final List<AFuture<R>> result = new ArrayList<> ();
-        for (T o: values) {
-            result.add (f.apply (o));
+        final Object[] futures = toArray (values);
+        for (int i=0; i<futures.length; i++) {
+            // the array holds the values initially and is overwritten with the corresponding futures
+            futures[i] = f.apply ((T) futures[i]);
+        }
+        return lift (tp, futures);
+    }
+
+    public static <R, T> AFuture<AList<R>> traverse (AThreadPool tp, Iterable<T> values, AFunction1<T, AFuture<R>, ?> f, int maxParallelism) {
+        if (maxParallelism < 1) throw new IllegalArgumentException ("maxParallelism must be at least 1");
+
+        final Object[] arr = toArray (values);
+        if (arr.length == 0) {
+            return AFutureImpl.fromTry (tp, ATry.success (AList.nil ()));
+        }
+
+        final BoundedTraversal<T,R> traversal = new BoundedTraversal<> (tp, arr, f);
+        for (int i=0; i<Math.min (maxParallelism, arr.length); i++) {
+            traversal.startNext ();
+        }
+        return traversal.result;
+    }
+
+    /**
+     * This class keeps track of a traversal that has at most a given number of futures 'in flight'. Every completing future starts the next
+     *  value's computation, so each of the initially started 'lanes' processes values until no unstarted values remain.<p>
+     *
+     * The input array is overwritten in place with the results, and {@code nextIdx} and {@code numUnbound} are the only synchronization
+     *  required: Every slot is written by exactly one lane, and the countdown publishes all writes to the thread completing the result.
+     */
+    private static class BoundedTraversal<T,R> {
+        final AThreadPool tp;
+        final Object[] values;
+        final AFunction1<T, AFuture<R>, ?> f;
+        final AFutureImpl<AList<R>> result;
+
+        final AtomicInteger nextIdx = new AtomicInteger (0);
+        final AtomicInteger numUnbound;
+
+        BoundedTraversal (AThreadPool tp, Object[] values, AFunction1<T, AFuture<R>, ?> f) {
+            this.tp = tp;
+            this.values = values;
+            this.f = f;
+            this.result = new AFutureImpl<> (tp);
+            this.numUnbound = new AtomicInteger (values.length);
+        }
+
+        /**
+         * Starts values' computations until there are none left or one of them does not complete synchronously. The loop (rather than
+         *  recursion from the callback) keeps the stack flat if many of the function's futures are completed when they are returned.
+         */
+        @SuppressWarnings ("unchecked")
+        void startNext () {
+            while (! result.isComplete ()) {
+                final int idx = nextIdx.getAndIncrement ();
+                if (idx >= values.length) {
+                    return;
+                }
+
+                final AFuture<R> f;
+                try {
+                    f = this.f.apply ((T) values[idx]);
+                }
+                catch (Throwable th) {
+                    result.tryComplete (ATry.failure (th));
+                    return;
+                }
+
+                final AOption<ATry<R>> optValue = f.optValue ();
+                if (optValue.isDefined ()) {
+                    if (! onCompleted (idx, optValue.get ())) return;
+                }
+                else {
+                    f.onComplete (tp, tr -> {
+                        if (onCompleted (idx, tr)) startNext ();
+                    });
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true if and only if the lane should proceed with the next value
+         */
+        @SuppressWarnings ("unchecked")
+        private boolean onCompleted (int idx, ATry<R> tr) {
+            if (tr.isFailure ()) {
+                result.tryComplete ((ATry<AList<R>>) (ATry<?>) tr);
+                return false;
+            }
+
+            values[idx] = tr.getValue ();
+            if (numUnbound.decrementAndGet () == 0) {
+                result.tryComplete (ATry.success (asAList (values)));
+                return false;
+            }
+            return true;
         }
-        return lift (tp, result);
     }
 }
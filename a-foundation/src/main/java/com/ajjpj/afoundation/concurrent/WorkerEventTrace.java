@@ -0,0 +1,99 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.util.AUnchecker;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+
+/**
+ * This is a worker thread's event ring buffer, see {@link AThreadPoolBuilder#withEventTracing}. It is written only by its worker thread,
+ *  overwriting the oldest events in place, and it can be read by any thread at any time.<p>
+ *
+ * Every event takes two longs: the timestamp (as returned by {@link System#nanoTime()}), and the event type's ordinal in the top byte
+ *  combined with the event's argument in the lower bytes. The number of events that were ever recorded is published with an ordered put
+ *  after every event, which is all readers need to find out which entries are consistent.
+ *
+ * @author arno
+ */
+class WorkerEventTrace {
+    private static final int TYPE_SHIFT = 56;
+    private static final long ARG_MASK = (1L << TYPE_SHIFT) - 1;
+
+    private static final ASchedulerEventType[] EVENT_TYPES = ASchedulerEventType.values ();
+
+    private final long[] data;
+    private final int mask;
+
+    @SuppressWarnings ("unused")
+    private long numRecorded = 0;
+
+    WorkerEventTrace (int capacity) {
+        if (1 != Integer.bitCount (capacity)) throw new IllegalArgumentException ("event trace capacity must be a power of 2");
+
+        this.data = new long[2*capacity];
+        this.mask = capacity-1;
+    }
+
+    /**
+     * This is only ever called from the owning thread.
+     */
+    void record (ASchedulerEventType type, long arg) {
+        final long n = numRecorded;
+        final int idx = 2 * (int) (n & mask);
+        data[idx] = System.nanoTime ();
+        data[idx+1] = ((long) type.ordinal () << TYPE_SHIFT) | (arg & ARG_MASK);
+        UNSAFE.putOrderedLong (this, OFFS_NUM_RECORDED, n+1);
+    }
+
+    /**
+     * @return a copy of all consistent events in the order in which they were recorded, with two longs per event as described above. Events
+     *  that the owning thread overwrites while the copy is made are left out.
+     */
+    long[] snapshot () {
+        final long before = UNSAFE.getLongVolatile (this, OFFS_NUM_RECORDED);
+        final long[] raw = data.clone ();
+        UNSAFE.loadFence ();
+        final long after = UNSAFE.getLongVolatile (this, OFFS_NUM_RECORDED);
+
+        // events up to 'before' were complete before the copy started. The event recorded when 'after' was read may be in the middle
+        //  of being written, overwriting the slot of event 'after - capacity'.
+        final long capacity = mask + 1;
+        final long first = Math.max (0, after - capacity + 1);
+
+        final long[] result = new long[2 * (int) Math.max (0, before - first)];
+        for (long n=first; n<before; n++) {
+            final int from = 2 * (int) (n & mask);
+            final int to = 2 * (int) (n - first);
+            result[to] = raw[from];
+            result[to+1] = raw[from+1];
+        }
+        return result;
+    }
+
+    static ASchedulerEventType type (long encoded) {
+        return EVENT_TYPES[(int) (encoded >>> TYPE_SHIFT)];
+    }
+
+    static long arg (long encoded) {
+        return encoded & ARG_MASK;
+    }
+
+    //------------- Unsafe stuff
+    private static final Unsafe UNSAFE;
+    private static final long OFFS_NUM_RECORDED;
+
+    static {
+        try {
+            final Field f = Unsafe.class.getDeclaredField ("theUnsafe");
+            f.setAccessible (true);
+            UNSAFE = (Unsafe) f.get (null);
+
+            OFFS_NUM_RECORDED = UNSAFE.objectFieldOffset (WorkerEventTrace.class.getDeclaredField ("numRecorded"));
+        }
+        catch (Exception e) {
+            AUnchecker.throwUnchecked (e);
+            throw new RuntimeException(); // for the compiler
+        }
+    }
+}
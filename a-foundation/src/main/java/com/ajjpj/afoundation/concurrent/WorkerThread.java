@@ -6,6 +6,7 @@ import sun.misc.Contended;
 import sun.misc.Unsafe;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 
 
 /**
@@ -16,25 +17,31 @@ class WorkerThread extends Thread {
     long a1, a2, a3, a4, a5, a6, a7;
 
     final LocalQueue localQueue;                 // accessed only from this thread
+    /**
+     * tasks submitted with a hint that they should run in this thread, see {@link AThreadPool#submitToWorker}. This queue does not prefetch
+     *  because prefetched tasks end up in the local queue where other workers can steal them.
+     */
+    final ASharedQueue pinnedQueue;
     private final ASharedQueue[] sharedQueues;   // accessed only from this thread
     private final LocalQueue[] allLocalQueues;   // accessed only from this thread
     final AThreadPoolImpl pool;                  // accessed only from this thread
     private final int queueTraversalIncrement;   // accessed only from this thread
     private final AStatement1NoThrow<Throwable> exceptionHandler; // accessed only from this thread
-    private final int ownLocalFifoInterval;      // accessed only from this thread
-    private final int skipLocalWorkInterval;     // accessed only from this thread
-    private final int switchSharedQueueInterval; // accessed only from this thread
 
     /**
-     * Processing the 'top', i.e. LIFO, element of a thread's local queue is typically desirable because caches tend to still be
-     *  hot. It can however lead to starvation with 'old' work never getting done in very specific (pretty pathological) load
-     *  scenarios where every work item spawns a new work item. To avoid these starvation scenarios, a WorkerThread reads from
-     *  the bottom of its local queue once in a while.
+     * This is null unless event tracing is enabled, see {@link AThreadPoolBuilder#withEventTracing}. It is written only by this thread.
      */
-    private final int numPrefetchLocal;        // accessed only from this thread
+    final WorkerEventTrace eventTrace;
 
     final long idleThreadMask;                 //accessed from arbitrary other thread during thread wake-up
 
+    /**
+     * This is incremented whenever this thread takes a task from its pinned queue. Other threads read it to determine whether this thread makes
+     *  progress on its pinned tasks, and leave them alone if it does. It is written only when a pinned task is actually taken, so threads
+     *  that are not used with locality hints do not pay for the volatile write.
+     */
+    volatile long numPinnedTasksTaken = 0;
+
     long p1, p2, p3, p4, p5, p6, p7;
 
     //---------------------------------------------------------------------------------------------------------
@@ -52,34 +59,79 @@ class WorkerThread extends Thread {
 
     long stat_numLocalSubmits = 0;
 
+    /**
+     * The scheduling parameters can be changed while the pool is running. This thread checks for changes every PARAMETER_CHECK_INTERVAL tasks
+     *  and after waking up, copying them into the fields below.
+     */
+    private static final int PARAMETER_CHECK_INTERVAL = 1024;
+    private ASchedulingParameters schedulingParameters;
+    private int checkParametersCounter = PARAMETER_CHECK_INTERVAL;
+
+    private int ownLocalFifoInterval;
+    private int skipLocalWorkInterval;
+    private int switchSharedQueueInterval;
+
+    /**
+     * Processing the 'top', i.e. LIFO, element of a thread's local queue is typically desirable because caches tend to still be
+     *  hot. It can however lead to starvation with 'old' work never getting done in very specific (pretty pathological) load
+     *  scenarios where every work item spawns a new work item. To avoid these starvation scenarios, a WorkerThread reads from
+     *  the bottom of its local queue once in a while.
+     */
+    private int numPrefetchLocal;
+
     /**
      * This is the index of the shared queue that this thread currently feeds from.
      */
     private int currentSharedQueue = 0;
 
+    /**
+     * Other workers' pinned tasks are stolen only if the owner took none of its pinned tasks for this long, see {@link #tryStealPinnedWork}.
+     */
+    static final long PINNED_STEAL_DELAY_NANOS = 200_000;
+
+    /**
+     * the values of other workers' 'numPinnedTasksTaken' when this thread first saw tasks in their pinned queues, and when that was. A value
+     *  of -1 means that the pinned queue was empty when this thread last looked.
+     */
+    private final long[] observedPinnedTasksTaken;
+    private final long[] observedPinnedSinceNanos;
+
+    /**
+     * If the most recent attempt to steal pinned work found pinned tasks that were not up for stealing yet, this is the time until the
+     *  first of them becomes eligible. It is 0 otherwise.
+     */
+    private long nanosUntilPinnedSteal = 0;
+
     private int localIntermittentFifoCounter = 0;
     private int skipLocalWorkCounter = 0;
     private int switchSharedQueueCounter = 0;
 
     long q1, q2, q3, q4, q5, q6, q7;
 
-    WorkerThread (int ownLocalFifoInterval, int skipLocalWorkInterval, int switchSharedQueueInterval, int numPrefetchLocal, LocalQueue localQueue, ASharedQueue[] sharedQueues, AThreadPoolImpl pool, int threadIdx, int queueTraversalIncrement, AStatement1NoThrow<Throwable> exceptionHandler) {
-        this.ownLocalFifoInterval = ownLocalFifoInterval;
-        this.skipLocalWorkInterval = skipLocalWorkInterval;
-        this.switchSharedQueueInterval = switchSharedQueueInterval;
+    WorkerThread (ASchedulingParameters schedulingParameters, LocalQueue localQueue, ASharedQueue pinnedQueue, ASharedQueue[] sharedQueues, AThreadPoolImpl pool, int threadIdx,
+                  int queueTraversalIncrement, AStatement1NoThrow<Throwable> exceptionHandler, WorkerEventTrace eventTrace) {
+        this.schedulingParameters = schedulingParameters;
+        this.ownLocalFifoInterval = schedulingParameters.ownLocalFifoInterval;
+        this.skipLocalWorkInterval = schedulingParameters.skipLocalWorkInterval;
+        this.switchSharedQueueInterval = schedulingParameters.switchSharedQueueInterval;
+        this.numPrefetchLocal = schedulingParameters.numPrefetchLocal;
 
         this.localIntermittentFifoCounter = ownLocalFifoInterval;
         this.skipLocalWorkCounter = skipLocalWorkInterval;
         this.switchSharedQueueCounter = switchSharedQueueInterval;
 
-        this.numPrefetchLocal = numPrefetchLocal;
         this.exceptionHandler = exceptionHandler;
+        this.eventTrace = eventTrace;
 
         this.localQueue = localQueue;
+        this.pinnedQueue = pinnedQueue;
         this.sharedQueues = sharedQueues;
         this.pool = pool;
 
         this.allLocalQueues = pool.localQueues;
+        this.observedPinnedTasksTaken = new long[allLocalQueues.length];
+        this.observedPinnedSinceNanos = new long[allLocalQueues.length];
+        Arrays.fill (observedPinnedTasksTaken, -1);
         idleThreadMask = 1L << threadIdx;
         this.queueTraversalIncrement = queueTraversalIncrement;
 
@@ -120,18 +172,33 @@ class WorkerThread extends Thread {
 
                     pool.markWorkerAsIdle (idleThreadMask);
 
-                    // re-check availability of work after marking the thread as idle --> avoid races
-                    if ((task = tryGetForeignWork ()) != null) {
+                    // re-check availability of work after marking the thread as idle --> avoid races. The thread is marked as busy before it takes
+                    //  a task so that quiescence detection never sees a task that is taken from a queue but not yet running.
+                    if (pool.hasAvailableWork ()) {
                         if (! pool.markWorkerAsBusy (idleThreadMask)) {
                             // thread was 'woken up' because of available work --> cause some other thread to be notified instead
                             pool.unmarkScanning (); //TODO merge with 'markWorkerAsBusy'
                             pool.onAvailableTask ();
                         }
-                        if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numTasksExecuted += 1;
-                        task.run ();
+                        if ((task = tryGetForeignWork ()) != null) {
+                            if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numTasksExecuted += 1;
+                            task.run ();
+                        }
+                        else if (nanosUntilPinnedSteal > 0) {
+                            // the work is pinned to another worker that is probably about to take it --> wait until it would be up for
+                            //  stealing rather than spinning. The timeout is positive, so this never parks indefinitely.
+                            UNSAFE.park (false, nanosUntilPinnedSteal);
+                        }
                         continue;
                     }
 
+                    if (pool.hasQuiescenceListeners () && pool.checkQuiescence ()) {
+                        // listeners may have submitted new work
+                        pool.markWorkerAsBusy (idleThreadMask);
+                        continue;
+                    }
+
+                    if (eventTrace != null) eventTrace.record (ASchedulerEventType.Park, tasksAtPark == stat_numTasksExecuted ? 1 : 0);
                     if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numParks += 1;
                     if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) {
                         if (tasksAtPark == stat_numTasksExecuted) {
@@ -143,6 +210,8 @@ class WorkerThread extends Thread {
                     }
 
                     UNSAFE.park (false, 0L);
+                    if (eventTrace != null) eventTrace.record (ASchedulerEventType.Unpark, 0);
+                    refreshSchedulingParameters ();
 
                     // This flag is usually set before the call unpark(), but some races cause a thread to be unparked redundantly, causing the flag to be out of sync.
                     // Setting the flag before unpark() is piggybacked on another CAS operation and therefore basically for free, so we leave it there, but we need it
@@ -178,12 +247,38 @@ class WorkerThread extends Thread {
         }
     }
 
+    private void refreshSchedulingParameters () {
+        final ASchedulingParameters newParameters = pool.schedulingParameters;
+        if (newParameters == schedulingParameters) {
+            return;
+        }
+
+        schedulingParameters = newParameters;
+        ownLocalFifoInterval = newParameters.ownLocalFifoInterval;
+        skipLocalWorkInterval = newParameters.skipLocalWorkInterval;
+        switchSharedQueueInterval = newParameters.switchSharedQueueInterval;
+        numPrefetchLocal = newParameters.numPrefetchLocal;
+
+        // counters must not exceed the new intervals, otherwise it would take arbitrarily long for a reduced interval to take effect
+        localIntermittentFifoCounter = Math.min (localIntermittentFifoCounter, ownLocalFifoInterval);
+        skipLocalWorkCounter = Math.min (skipLocalWorkCounter, skipLocalWorkInterval);
+        switchSharedQueueCounter = Math.min (switchSharedQueueCounter, switchSharedQueueInterval);
+    }
+
     private Runnable tryGetWork() {
         Runnable task;
 
+        if (--checkParametersCounter == 0) {
+            checkParametersCounter = PARAMETER_CHECK_INTERVAL;
+            refreshSchedulingParameters ();
+        }
+
         if ((task = getOwnWork ()) != null) {
             return task;
         }
+        else if ((task = tryGetPinnedWork ()) != null) {
+            return task;
+        }
         else if ((task = tryGetSharedWork ()) != null) {
             return task;
         }
@@ -219,7 +314,10 @@ class WorkerThread extends Thread {
     private Runnable tryGetForeignWork () {
         Runnable task;
 
-        if ((task = tryGetSharedWork ()) != null) {
+        if ((task = tryGetPinnedWork ()) != null) {
+            return task;
+        }
+        else if ((task = tryGetSharedWork ()) != null) {
             return task;
         }
         else if ((task = tryStealWork ()) != null) {
@@ -228,6 +326,19 @@ class WorkerThread extends Thread {
         return null;
     }
 
+    private Runnable tryGetPinnedWork () {
+        // popFifo() is synchronized, so avoid it in the common case of a pool that is not used with locality hints
+        if (pinnedQueue.approximateSize () <= 0) {
+            return null;
+        }
+
+        final Runnable task = pinnedQueue.popFifo (localQueue);
+        if (task != null) {
+            numPinnedTasksTaken += 1; // only this thread writes the field, so there is no need for an atomic increment
+        }
+        return task;
+    }
+
     private Runnable tryGetSharedWork() {
         Runnable task;
 
@@ -246,6 +357,7 @@ class WorkerThread extends Thread {
                 if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numSharedTasksExecuted += 1;
                 //noinspection PointlessBooleanExpression,ConstantConditions
                 if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS && prevQueue != currentSharedQueue) stat_numSharedQueueSwitches += 1;
+                if (eventTrace != null && prevQueue != currentSharedQueue) eventTrace.record (ASchedulerEventType.SharedQueueSwitch, currentSharedQueue);
 
                 switchSharedQueueCounter -= 1;
                 return task;
@@ -264,6 +376,8 @@ class WorkerThread extends Thread {
             }
             if ((task = otherQueue.popFifo ()) != null) {
                 if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numSteals += 1;
+                //noinspection ConstantConditions
+                if (eventTrace != null) eventTrace.record (ASchedulerEventType.Steal, Long.numberOfTrailingZeros (otherQueue.thread.idleThreadMask));
 
                 //TODO refine prefetching based on other queue's size
                 //TODO other LocalQueue implementations
@@ -277,9 +391,57 @@ class WorkerThread extends Thread {
             }
         }
 
+        return tryStealPinnedWork ();
+    }
+
+    /**
+     * Other workers' pinned tasks are taken only if the owner took none of its pinned tasks for {@link #PINNED_STEAL_DELAY_NANOS} while
+     *  there were pinned tasks waiting. This leaves short bursts of pinned tasks to the worker they were intended for (and gives an idle
+     *  owner time to wake up), while a worker that is blocked or busy with a long-running task does not hold up its pinned tasks
+     *  indefinitely. Pinned tasks are stolen one at a time, without prefetching.
+     */
+    private Runnable tryStealPinnedWork () {
+        nanosUntilPinnedSteal = 0;
+        for (int i=0; i<allLocalQueues.length; i++) {
+            final WorkerThread other = allLocalQueues[i].thread;
+            if (other == this) {
+                continue;
+            }
+            if (other.pinnedQueue.approximateSize () == 0) {
+                observedPinnedTasksTaken[i] = -1;
+                continue;
+            }
+
+            final long taken = other.numPinnedTasksTaken;
+            if (taken != observedPinnedTasksTaken[i]) {
+                // the owner made progress since we last looked, or we did not see pinned tasks before
+                observedPinnedTasksTaken[i] = taken;
+                observedPinnedSinceNanos[i] = System.nanoTime ();
+                updateNanosUntilPinnedSteal (PINNED_STEAL_DELAY_NANOS);
+                continue;
+            }
+            final long age = System.nanoTime () - observedPinnedSinceNanos[i];
+            if (age < PINNED_STEAL_DELAY_NANOS) {
+                updateNanosUntilPinnedSteal (PINNED_STEAL_DELAY_NANOS - age);
+                continue;
+            }
+
+            final Runnable task = other.pinnedQueue.pollOldest ();
+            if (task != null) {
+                if (AThreadPoolImpl.SHOULD_GATHER_STATISTICS) stat_numSteals += 1;
+                if (eventTrace != null) eventTrace.record (ASchedulerEventType.StealPinned, i);
+                return task;
+            }
+        }
         return null;
     }
 
+    private void updateNanosUntilPinnedSteal (long nanos) {
+        if (nanosUntilPinnedSteal == 0 || nanos < nanosUntilPinnedSteal) {
+            nanosUntilPinnedSteal = nanos;
+        }
+    }
+
     //-------------------- Unsafe stuff
     private static final Unsafe UNSAFE;
 
@@ -3,6 +3,8 @@ package com.ajjpj.afoundation.io;
 import com.ajjpj.afoundation.collection.ACollectionHelper;
 import com.ajjpj.afoundation.collection.immutable.AOption;
 import com.ajjpj.afoundation.collection.immutable.ATraversable;
+import com.ajjpj.afoundation.concurrent.AFlow;
+import com.ajjpj.afoundation.concurrent.AThreadPool;
 import com.ajjpj.afoundation.function.*;
 import com.ajjpj.afoundation.util.AUnchecker;
 
@@ -45,6 +47,60 @@ public class AFile implements ATraversable<String> {
         return result;
     }
 
+    /**
+     * This streams the file's lines as an {@link AFlow}, reading them in tasks on the given thread pool and only as fast as subscribers
+     *  request them. The file is opened separately for every subscriber, and closed when the stream terminates or is cancelled.
+     */
+    public AFlow<String> linesFlow(AThreadPool pool) {
+        return AFlow.fromIterator(pool, () -> new ClosingLineIterator(new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding))), AFlow.DEFAULT_BATCH_SIZE);
+    }
+
+    private static class ClosingLineIterator implements Iterator<String>, AutoCloseable {
+        private final BufferedReader r;
+        private String line;
+
+        ClosingLineIterator(BufferedReader r) throws IOException {
+            this.r = r;
+            try {
+                this.line = r.readLine();
+            } catch (IOException e) {
+                // no-one else has a reference to the reader yet
+                try {
+                    r.close();
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return line != null;
+        }
+
+        @Override
+        public String next() {
+            final String result = line;
+            try {
+                line = r.readLine();
+            } catch (IOException e) {
+                AUnchecker.throwUnchecked(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            r.close();
+        }
+    }
+
     public <E extends Throwable> void iterate(AStatement1<Iterator<String>, E> callback) throws E, IOException {
         try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding))) {
             final Iterator<String> iter = new Iterator<String>() {
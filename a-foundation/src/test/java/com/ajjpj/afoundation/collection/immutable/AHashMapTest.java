@@ -224,6 +224,68 @@ public class AHashMapTest {
         assertEquals(AOption.some(withHash1), map.get(withHash1));
     }
 
+    @Test
+    public void testBuilder() {
+        final Random rand = new Random(12345);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        AMap<Integer, Integer> persistent = AHashMap.empty();
+        final AHashMap.Builder<Integer, Integer> builder = AHashMap.builder();
+
+        for(int i=0; i<100_000; i++) {
+            final int key = rand.nextInt(50_000);
+            expected.put(key, i);
+            persistent = persistent.updated(key, i);
+            builder.add(key, i);
+        }
+        assertEquals(expected.size(), builder.size());
+
+        final AHashMap<Integer, Integer> built = builder.build();
+        assertNoTransientNodes(built);
+        assertEquals(expected.size(), built.size());
+        assertEquals(persistent, built);
+        for(Map.Entry<Integer, Integer> e: expected.entrySet()) {
+            assertEquals(AOption.some(e.getValue()), built.get(e.getKey()));
+        }
+
+        // adding to the builder after build() must not modify the map that was returned
+        for(int i=0; i<100_000; i++) {
+            builder.add(i, -1);
+        }
+        assertEquals(persistent, built);
+        assertNoTransientNodes(builder.build());
+        assertEquals(100_000, builder.build().size());
+        assertEquals(AOption.some(-1), builder.build().get(0));
+    }
+
+    /**
+     * maps returned by a builder consist of immutable trie nodes only, so they can be shared between threads like all other maps
+     */
+    private static void assertNoTransientNodes(AHashMap<?,?> map) {
+        assertFalse(map instanceof AHashMap.TransientTrieMap);
+        if (map instanceof AHashMap.HashTrieMap) {
+            for (AHashMap<?,?> child: ((AHashMap.HashTrieMap<?,?>) map).elems) {
+                assertNoTransientNodes(child);
+            }
+        }
+    }
+
+    @Test
+    public void testBuilderHashCollision() {
+        final Long withHash1 = 0x100000000L;
+
+        final AHashMap<Long, Long> map = AHashMap.<Long, Long>builder()
+                .add(1L, 1L)
+                .add(withHash1, withHash1)
+                .add(2L, 2L)
+                .add(1L, 3L)
+                .build();
+
+        assertEquals(3, map.size());
+        assertEquals(AOption.some(3L), map.get(1L));
+        assertEquals(AOption.some(withHash1), map.get(withHash1));
+        assertEquals(AOption.some(2L), map.get(2L));
+    }
+
     @Test
     public void testCustomEquality() {
         final AEquality equality = new AEquality() {
@@ -277,4 +339,99 @@ public class AHashMapTest {
         assertEquals (AOption.<String>none (), map.get (key2));
         assertEquals ("3", map.getRequired (key3));
     }
+
+    @Test
+    public void testSetAlgebra() {
+        final Random rand = new Random(12345);
+
+        for (int iter=0; iter<50; iter++) {
+            // small key ranges and colliding hash codes provoke all combinations of trie nodes, leaves and collision nodes
+            final int keyRange = 1 + rand.nextInt(3000);
+            final Map<CollidingKey, Integer> ju1 = new HashMap<>();
+            final Map<CollidingKey, Integer> ju2 = new HashMap<>();
+            AHashMap<CollidingKey, Integer> a1 = AHashMap.empty();
+            AHashMap<CollidingKey, Integer> a2 = AHashMap.empty();
+
+            for (int i=0; i<rand.nextInt(2000); i++) {
+                final CollidingKey key = new CollidingKey(rand.nextInt(keyRange));
+                ju1.put(key, i);
+                a1 = a1.updated(key, i);
+            }
+            for (int i=0; i<rand.nextInt(2000); i++) {
+                final CollidingKey key = new CollidingKey(rand.nextInt(keyRange));
+                ju2.put(key, -i);
+                a2 = a2.updated(key, -i);
+            }
+
+            final Map<CollidingKey, Integer> union = new HashMap<>(ju2);
+            for (Map.Entry<CollidingKey, Integer> e: ju1.entrySet()) {
+                union.merge(e.getKey(), e.getValue(), (v2, v1) -> v1 - v2);
+            }
+            assertEquals(union, new HashMap<>(a1.union(a2, (v1, v2) -> v1 - v2).asJavaUtilMap()));
+
+            final Map<CollidingKey, Integer> intersection = new HashMap<>(ju1);
+            intersection.keySet().retainAll(ju2.keySet());
+            assertEquals(intersection, new HashMap<>(a1.intersect(a2).asJavaUtilMap()));
+            assertEquals(intersection, new HashMap<>(a1.filterKeys(AHashSet.fromMap(a2)).asJavaUtilMap()));
+
+            final Map<CollidingKey, Integer> diff = new HashMap<>(ju1);
+            diff.keySet().removeAll(ju2.keySet());
+            assertEquals(diff, new HashMap<>(a1.diff(a2).asJavaUtilMap()));
+
+            assertSame(a1, a1.union(a1, (v1, v2) -> { throw new IllegalStateException(); }));
+            assertSame(a1, a1.intersect(a1));
+            assertTrue(a1.diff(a1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testSetAlgebraSharesStructure() {
+        AHashMap<Integer, Integer> base = AHashMap.empty();
+        for (int i=0; i<100_000; i++) {
+            base = base.updated(i, i);
+        }
+        final AHashMap<Integer, Integer> withoutFive = base.removed(5);
+        final AHashMap<Integer, Integer> changed = withoutFive.updated(100_000, 0).updated(7, 8);
+
+        final AHashMap<Integer, Integer> union = base.union(changed, (v1, v2) -> v2);
+        assertEquals(100_001, union.size());
+        assertEquals(AOption.some(8), union.get(7));
+        assertEquals(AOption.some(5), union.get(5));
+
+        // subtrees that are shared by both maps are reused by the result
+        assertSame(base, base.union(withoutFive, (v1, v2) -> v2));
+        assertSame(changed, withoutFive.union(changed, (v1, v2) -> v2));
+        assertSame(changed, changed.union(withoutFive, (v1, v2) -> v1));
+        assertSame(withoutFive, withoutFive.intersect(base));
+
+        assertEquals(AHashMap.empty().updated(5, 5), base.diff(withoutFive));
+        assertEquals(AHashMap.empty().updated(100_000, 0), changed.diff(base));
+        assertSame(withoutFive, withoutFive.diff(AHashMap.<Integer, Integer>empty().updated(5, 5)));
+    }
+
+    @Test
+    public void testSetAlgebraDifferentEquality() {
+        final AHashMap<String, String> identity = AHashMap.<String, String>empty(AEquality.IDENTITY).updated("a", "1").updated("b", "2");
+        final AHashMap<String, String> equals = AHashMap.<String, String>empty().updated("b", "3").updated("c", "4");
+
+        assertEquals(AHashMap.<String, String>empty(AEquality.IDENTITY).updated("a", "1").updated("b", "23").updated("c", "4"), identity.union(equals, (v1, v2) -> v1 + v2));
+        assertEquals(AHashMap.<String, String>empty(AEquality.IDENTITY).updated("b", "2"), identity.intersect(equals));
+        assertEquals(AHashMap.<String, String>empty(AEquality.IDENTITY).updated("a", "1"), identity.diff(equals));
+    }
+
+    static class CollidingKey {
+        final int value;
+
+        CollidingKey(int value) {
+            this.value = value;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).value == value;
+        }
+
+        @Override public int hashCode() {
+            return value / 3;
+        }
+    }
 }
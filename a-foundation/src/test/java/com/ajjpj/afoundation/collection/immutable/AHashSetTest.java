@@ -101,4 +101,34 @@ public class AHashSetTest extends AbstractCollectionTest<AHashSet<String>, AHash
     }
 
     //TODO testEquality
+
+    @Test
+    public void testBuilder() {
+        final AHashSet.Builder<Integer> builder = AHashSet.builder ();
+        for (int i=0; i<10_000; i++) {
+            builder.add (i % 5_000);
+        }
+        final AHashSet<Integer> set = builder.build ();
+        assertEquals (5_000, set.size ());
+        for (int i=0; i<5_000; i++) {
+            assertTrue (set.contains (i));
+        }
+
+        assertSame (AHashSet.empty (), AHashSet.builder ().build ());
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        final AHashSet<Integer> s1 = AHashSet.create (1, 2, 3, 4);
+        final AHashSet<Integer> s2 = AHashSet.create (3, 4, 5);
+
+        assertEquals (AHashSet.create (1, 2, 3, 4, 5), s1.union (s2));
+        assertEquals (AHashSet.create (3, 4), s1.intersect (s2));
+        assertEquals (AHashSet.create (1, 2), s1.diff (s2));
+
+        assertSame (s1, s1.union (s1));
+        assertSame (s1, s1.union (AHashSet.<Integer>empty ()));
+        assertSame (AHashSet.empty (), s1.diff (s1));
+        assertSame (AHashSet.empty (), s1.intersect (AHashSet.<Integer>empty ()));
+    }
 }
@@ -0,0 +1,158 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ALongBTreeMapTest {
+    @Test
+    public void testBinarySearch() {
+        final Random rand = new Random (12345);
+        for (int len=0; len<40; len++) {
+            final long[] arr = new long[len];
+            for (int i=0; i<len; i++) {
+                arr[i] = 2*i;
+            }
+            for (long key=-2; key<=2*len+1; key++) {
+                assertEquals (naiveLowerBound (arr, key), ALongBTreeMap.lowerBound (arr, key));
+                assertEquals (naiveUpperBound (arr, key), ALongBTreeMap.upperBound (arr, key));
+            }
+            assertEquals (naiveLowerBound (arr, Long.MIN_VALUE), ALongBTreeMap.lowerBound (arr, Long.MIN_VALUE));
+            assertEquals (naiveUpperBound (arr, Long.MAX_VALUE), ALongBTreeMap.upperBound (arr, Long.MAX_VALUE));
+
+            final long key = rand.nextLong ();
+            assertEquals (naiveLowerBound (arr, key), ALongBTreeMap.lowerBound (arr, key));
+        }
+    }
+
+    private static int naiveLowerBound (long[] arr, long key) {
+        int result = 0;
+        while (result < arr.length && arr[result] < key) result++;
+        return result;
+    }
+    private static int naiveUpperBound (long[] arr, long key) {
+        int result = 0;
+        while (result < arr.length && arr[result] <= key) result++;
+        return result;
+    }
+
+    @Test
+    public void testShotgun() {
+        for (int maxNumEntries: new int[] {4, 5, 16}) {
+            final Random rand = new Random (12345);
+            ALongBTreeMap<Integer> map = ALongBTreeMap.empty (maxNumEntries);
+            final TreeMap<Long, Integer> reference = new TreeMap<> ();
+
+            for (int i=0; i<50_000; i++) {
+                final long key = rand.nextInt (5_000) - 2_500;
+                if (rand.nextInt (10) < 6) {
+                    map = map.updated (key, Integer.valueOf (i));
+                    reference.put (key, i);
+                }
+                else {
+                    map = map.removed (key);
+                    reference.remove (key);
+                }
+
+                if (i%1000 == 0) {
+                    validate (map);
+                    assertEquals (reference.size (), map.size ());
+                    assertEquals (reference, map.asJavaUtilMap ());
+                }
+            }
+
+            validate (map);
+            for (long key=-2_501; key<=2_500; key++) {
+                assertEquals (reference.get (key), map.get (key).getOrElse (null));
+            }
+        }
+    }
+
+    @Test
+    public void testLongIterator() {
+        ALongBTreeMap<String> map = ALongBTreeMap.empty (4);
+        assertFalse (map.longIterator ().hasNext ());
+
+        for (long key: new long[] {Long.MIN_VALUE, -5, 0, 5, Long.MAX_VALUE}) {
+            map = map.updated (key, "v" + key);
+        }
+
+        final ALongMapIterator<String> iter = map.longIterator ();
+        for (long key: new long[] {Long.MIN_VALUE, -5, 0, 5, Long.MAX_VALUE}) {
+            assertTrue (iter.hasNext ());
+            iter.next ();
+            assertEquals (key, iter.getLongKey ());
+            assertEquals ("v" + key, iter.getValue ());
+        }
+        assertFalse (iter.hasNext ());
+
+        assertKeys (map.longIterator (-5, false, 5, false), 0);
+        assertKeys (map.longIterator (-5, true, 5, true), -5, 0, 5);
+        assertKeys (map.longIterator (Long.MAX_VALUE, false, Long.MAX_VALUE, true));
+        assertKeys (map.longIterator (Long.MIN_VALUE, true, Long.MIN_VALUE, false));
+        assertKeys (map.longIterator (Long.MIN_VALUE, true, Long.MIN_VALUE, true), Long.MIN_VALUE);
+        assertKeys (map.longIterator (Long.MAX_VALUE, true, Long.MAX_VALUE, true), Long.MAX_VALUE);
+        assertKeys (map.longIterator (1, true, -1, true));
+    }
+
+    private void assertKeys (ALongMapIterator<?> iter, long... expected) {
+        for (long key: expected) {
+            assertTrue (iter.hasNext ());
+            iter.next ();
+            assertEquals (key, iter.getLongKey ());
+        }
+        assertFalse (iter.hasNext ());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testMinimumNumEntries() {
+        ALongBTreeMap.empty (3);
+    }
+
+    /**
+     * checks that all leaves are at the same depth, that nodes are neither overfull nor (except for the root) underfull, and that
+     *  separators are consistent with the keys they separate
+     */
+    private static void validate (ALongBTreeMap<?> map) {
+        validate (map.root, map.maxNumEntries, true, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static int validate (ALongBTreeMap.Node node, int maxNumEntries, boolean isRoot, long min, long max) {
+        assertTrue (node.numEntries () <= maxNumEntries);
+        if (! isRoot) {
+            assertTrue (node.numEntries () >= maxNumEntries/2);
+        }
+
+        if (node instanceof ALongBTreeMap.LongLeafNode) {
+            final long[] keys = ((ALongBTreeMap.LongLeafNode) node).keys;
+            for (int i=0; i<keys.length; i++) {
+                assertTrue (keys[i] >= min && keys[i] <= max);
+                if (i > 0) assertTrue (keys[i-1] < keys[i]);
+            }
+            return 0;
+        }
+
+        final ALongBTreeMap.LongIndexNode indexNode = (ALongBTreeMap.LongIndexNode) node;
+        assertTrue (indexNode.children.length >= 2);
+        assertEquals (indexNode.children.length - 1, indexNode.separators.length);
+
+        int depth = -1;
+        int size = 0;
+        for (int i=0; i<indexNode.children.length; i++) {
+            final long childMin = i == 0 ? min : indexNode.separators[i-1];
+            final long childMax = i == indexNode.separators.length ? max : indexNode.separators[i] - 1;
+            final int childDepth = validate (indexNode.children[i], maxNumEntries, false, childMin, childMax);
+            if (depth != -1) assertEquals (depth, childDepth);
+            depth = childDepth;
+            size += indexNode.children[i].size ();
+        }
+        assertEquals (size, indexNode.size ());
+        return depth + 1;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ALongIntHashMapTest {
+    @Test
+    public void testSimple() {
+        final ALongIntHashMap m0 = ALongIntHashMap.empty ();
+        assertEquals (0, m0.size ());
+        assertFalse (m0.containsKey (1));
+        assertEquals (-1, m0.getOrElse (1, -1));
+        assertFalse (m0.longIterator ().hasNext ());
+
+        final ALongIntHashMap m1 = m0.updated (1, 10);
+        assertEquals (1, m1.size ());
+        assertTrue (m1.containsKey (1));
+        assertEquals (10, m1.getRequired (1));
+        assertEquals (AOption.some (10), m1.get (1L));
+        assertSame (m1, m1.updated (1, 10));
+        assertSame (m1, m1.removed (2));
+
+        assertSame (ALongIntHashMap.empty (), m1.removed (1));
+        assertEquals (m0, m1.removed (1L));
+    }
+
+    @Test (expected = NoSuchElementException.class)
+    public void testGetRequiredMissing() {
+        ALongIntHashMap.empty ().updated (1, 2).getRequired (2);
+    }
+
+    @Test
+    public void testShotgun() {
+        final Random rand = new Random (12345);
+        ALongIntHashMap map = ALongIntHashMap.empty ();
+        final Map<Long, Integer> reference = new HashMap<> ();
+
+        for (int i=0; i<200_000; i++) {
+            final long key = rand.nextInt (20_000) - 10_000;
+            if (rand.nextInt (10) < 6) {
+                map = map.updated (key, i);
+                reference.put (key, i);
+            }
+            else {
+                map = map.removed (key);
+                reference.remove (key);
+            }
+
+            if (i%10_000 == 0) {
+                assertTrue (ALongIntHashMap.validate (map.root, true));
+                assertEquals (reference.size (), map.size ());
+                assertEquals (reference, map.asJavaUtilMap ());
+            }
+        }
+
+        assertTrue (ALongIntHashMap.validate (map.root, true));
+        for (long key=-10_001; key<10_000; key++) {
+            assertEquals (reference.containsKey (key), map.containsKey (key));
+            assertEquals (reference.containsKey (key) ? reference.get (key).intValue () : Integer.MIN_VALUE, map.getOrElse (key, Integer.MIN_VALUE));
+        }
+
+        final Map<Long, Integer> iterated = new HashMap<> ();
+        final ALongIntMapIterator iter = map.longIterator ();
+        while (iter.hasNext ()) {
+            iter.next ();
+            assertNull (iterated.put (iter.getLongKey (), iter.getIntValue ()));
+        }
+        assertEquals (reference, iterated);
+
+        // removing everything must collapse the trie back to the empty map
+        for (long key: reference.keySet ()) {
+            map = map.removed (key);
+        }
+        assertSame (ALongIntHashMap.empty (), map);
+    }
+
+    @Test
+    public void testExtremeKeys() {
+        final long[] keys = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+        final ALongIntHashMap map = ALongIntHashMap.fromKeysAndValues (keys, new int[] {1, 2, 3, 4, 5});
+        assertEquals (5, map.size ());
+        for (int i=0; i<keys.length; i++) {
+            assertEquals (i+1, map.getRequired (keys[i]));
+        }
+        assertEquals (ALongHashSet.create (keys), map.keys ());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromKeysAndValuesSizeMismatch() {
+        ALongIntHashMap.fromKeysAndValues (new long[] {1, 2}, new int[] {1});
+    }
+}
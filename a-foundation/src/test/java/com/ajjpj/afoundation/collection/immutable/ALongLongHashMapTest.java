@@ -0,0 +1,155 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ALongLongHashMapTest {
+    @Test
+    public void testSimple() {
+        final ALongLongHashMap m0 = ALongLongHashMap.empty ();
+        assertEquals (0, m0.size ());
+        assertFalse (m0.containsKey (1));
+        assertEquals (-1L, m0.getOrElse (1, -1));
+        assertFalse (m0.longIterator ().hasNext ());
+
+        final ALongLongHashMap m1 = m0.updated (1, 10);
+        assertEquals (1, m1.size ());
+        assertTrue (m1.containsKey (1));
+        assertEquals (10L, m1.getRequired (1));
+        assertEquals (AOption.some (10L), m1.get (1L));
+        assertSame (m1, m1.updated (1, 10));
+        assertSame (m1, m1.removed (2));
+
+        assertSame (ALongLongHashMap.empty (), m1.removed (1));
+        assertEquals (m0, m1.removed (1L));
+    }
+
+    @Test (expected = NoSuchElementException.class)
+    public void testGetRequiredMissing() {
+        ALongLongHashMap.empty ().updated (1, 2).getRequired (2);
+    }
+
+    @Test
+    public void testHashIsBijective() {
+        // keys whose hashes share long prefixes must still be distinguishable at the deepest level
+        final Set<Long> hashes = new HashSet<> ();
+        for (long key=-10_000; key<10_000; key++) {
+            assertTrue (hashes.add (ALongLongHashMap.computeHash (key)));
+        }
+    }
+
+    @Test
+    public void testShotgun() {
+        final Random rand = new Random (12345);
+        ALongLongHashMap map = ALongLongHashMap.empty ();
+        final Map<Long, Long> reference = new HashMap<> ();
+
+        for (int i=0; i<200_000; i++) {
+            final long key = rand.nextInt (20_000) - 10_000;
+            if (rand.nextInt (10) < 6) {
+                map = map.updated (key, (long) i);
+                reference.put (key, (long) i);
+            }
+            else {
+                map = map.removed (key);
+                reference.remove (key);
+            }
+
+            if (i%10_000 == 0) {
+                assertTrue (ALongLongHashMap.validate (map.root, true));
+                assertEquals (reference.size (), map.size ());
+                assertEquals (reference, map.asJavaUtilMap ());
+            }
+        }
+
+        assertTrue (ALongLongHashMap.validate (map.root, true));
+        for (long key=-10_001; key<10_000; key++) {
+            assertEquals (reference.containsKey (key), map.containsKey (key));
+            assertEquals (reference.containsKey (key) ? reference.get (key).longValue () : Long.MIN_VALUE, map.getOrElse (key, Long.MIN_VALUE));
+        }
+
+        final Map<Long, Long> iterated = new HashMap<> ();
+        final ALongLongMapIterator iter = map.longIterator ();
+        while (iter.hasNext ()) {
+            iter.next ();
+            assertNull (iterated.put (iter.getLongKey (), iter.getLongValue ()));
+        }
+        assertEquals (reference, iterated);
+
+        // removing everything must collapse the trie back to the empty map
+        for (long key: reference.keySet ()) {
+            map = map.removed (key);
+        }
+        assertSame (ALongLongHashMap.empty (), map);
+    }
+
+    @Test
+    public void testExtremeKeys() {
+        final long[] keys = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+        ALongLongHashMap map = ALongLongHashMap.fromKeysAndValues (keys, new long[] {1, 2, 3, 4, 5});
+        assertEquals (5, map.size ());
+        for (int i=0; i<keys.length; i++) {
+            assertEquals (i+1, map.getRequired (keys[i]));
+        }
+        assertEquals (ALongHashSet.create (keys), map.keys ());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromKeysAndValuesSizeMismatch() {
+        ALongLongHashMap.fromKeysAndValues (new long[] {1, 2}, new long[] {1});
+    }
+
+    @Test
+    public void testIntValues() {
+        final Random rand = new Random (12345);
+        ALongIntHashMap map = ALongIntHashMap.empty ();
+        final Map<Long, Integer> reference = new HashMap<> ();
+
+        for (int i=0; i<50_000; i++) {
+            final long key = rand.nextLong () % 5_000;
+            if (rand.nextBoolean ()) {
+                map = map.updated (key, i);
+                reference.put (key, i);
+            }
+            else {
+                map = map.removed (key);
+                reference.remove (key);
+            }
+        }
+
+        assertTrue (ALongIntHashMap.validate (map.root, true));
+        assertEquals (reference, map.asJavaUtilMap ());
+
+        final ALongIntMapIterator iter = map.longIterator ();
+        int count = 0;
+        while (iter.hasNext ()) {
+            iter.next ();
+            assertEquals ((int) reference.get (iter.getLongKey ()), iter.getIntValue ());
+            count += 1;
+        }
+        assertEquals (reference.size (), count);
+    }
+
+    @Test
+    public void testDoubleValues() {
+        final ALongDoubleHashMap m1 = ALongDoubleHashMap.empty ().updated (1, 0.0).updated (2, Double.NaN);
+        assertEquals (2, m1.size ());
+        assertTrue (Double.isNaN (m1.getRequired (2)));
+
+        // -0.0 == 0.0, but it is still a different value
+        final ALongDoubleHashMap m2 = m1.updated (1, -0.0);
+        assertNotSame (m1, m2);
+        assertEquals (Double.doubleToRawLongBits (-0.0), Double.doubleToRawLongBits (m2.getRequired (1)));
+
+        assertEquals (AOption.some (0.0), m1.get (1L));
+        assertEquals (AOption.none (), m1.get (3L));
+        assertEquals (1.5, m1.getOrElse (3, 1.5), 0.0);
+    }
+}
@@ -0,0 +1,208 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class AMapDiffTest {
+    private static final AtomicInteger numKeyOperations = new AtomicInteger ();
+
+    private static final Comparator<CountingKey> COUNTING_ORDER = new Comparator<CountingKey> () {
+        @Override public int compare (CountingKey o1, CountingKey o2) {
+            numKeyOperations.incrementAndGet ();
+            return Integer.compare (o1.value, o2.value);
+        }
+    };
+
+    private static List<AMap<CountingKey, Integer>> emptyMaps () {
+        return Arrays.asList (
+                AHashMap.<CountingKey, Integer>empty (),
+                ARedBlackTreeMap.<CountingKey, Integer>empty (COUNTING_ORDER),
+                ABTreeMap.<CountingKey, Integer>empty (new ABTreeSpec (4, COUNTING_ORDER)),
+                ABTreeMap.<CountingKey, Integer>empty (new ABTreeSpec (16, COUNTING_ORDER)),
+                AListMap.<CountingKey, Integer>empty ()
+        );
+    }
+
+    @Test
+    public void testRandomChanges() {
+        for (AMap<CountingKey, Integer> empty: emptyMaps ()) {
+            final Random rand = new Random (12345);
+            for (int iter=0; iter<30; iter++) {
+                final int keyRange = 1 + rand.nextInt (2000);
+
+                AMap<CountingKey, Integer> oldMap = empty;
+                for (int i=0; i<rand.nextInt (1000); i++) {
+                    oldMap = oldMap.updated (new CountingKey (rand.nextInt (keyRange)), rand.nextInt (3));
+                }
+                AMap<CountingKey, Integer> newMap = oldMap;
+                for (int i=0; i<rand.nextInt (100); i++) {
+                    final CountingKey key = new CountingKey (rand.nextInt (keyRange));
+                    newMap = rand.nextBoolean () ? newMap.updated (key, rand.nextInt (3)) : newMap.removed (key);
+                }
+
+                assertDiff (oldMap, newMap);
+                assertDiff (newMap, oldMap);
+                assertDiff (empty, newMap);
+                assertDiff (newMap, empty);
+                assertTrue (AMapDiff.diff (newMap, newMap).isEmpty ());
+            }
+        }
+    }
+
+    @Test
+    public void testLongHashMap() {
+        final Random rand = new Random (12345);
+        for (int iter=0; iter<30; iter++) {
+            ALongHashMap<Integer> oldMap = ALongHashMap.empty ();
+            for (int i=0; i<rand.nextInt (1000); i++) {
+                oldMap = oldMap.updated (rand.nextInt (2000), Integer.valueOf (rand.nextInt (3)));
+            }
+            ALongHashMap<Integer> newMap = oldMap;
+            for (int i=0; i<rand.nextInt (100); i++) {
+                final long key = rand.nextInt (2000);
+                newMap = rand.nextBoolean () ? newMap.updated (key, Integer.valueOf (rand.nextInt (3))) : newMap.removed (key);
+            }
+
+            assertDiff (oldMap, newMap);
+            assertDiff (newMap, oldMap);
+            assertDiff (ALongHashMap.<Integer>empty (), newMap);
+        }
+    }
+
+    @Test
+    public void testFallbackWithReusedEntries() {
+        // ALongBTreeMap has no structural diff, and its iterator reuses a single entry object
+        final Random rand = new Random (12345);
+        for (int iter=0; iter<30; iter++) {
+            ALongBTreeMap<Integer> oldMap = ALongBTreeMap.empty ();
+            for (int i=0; i<rand.nextInt (1000); i++) {
+                oldMap = oldMap.updated (rand.nextInt (2000), Integer.valueOf (rand.nextInt (3)));
+            }
+            ALongBTreeMap<Integer> newMap = oldMap;
+            for (int i=0; i<rand.nextInt (100); i++) {
+                final long key = rand.nextInt (2000);
+                newMap = rand.nextBoolean () ? newMap.updated (key, Integer.valueOf (rand.nextInt (3))) : newMap.removed (key);
+            }
+
+            assertDiff (oldMap, newMap);
+            assertDiff (newMap, oldMap);
+            assertDiff (ALongBTreeMap.<Integer>empty (), newMap);
+        }
+    }
+
+    @Test
+    public void testSortedOrder() {
+        AMap<Integer, String> oldMap = ARedBlackTreeMap.empty (Comparator.<Integer>naturalOrder ());
+        for (int i=0; i<100; i++) {
+            oldMap = oldMap.updated (i, "a" + i);
+        }
+        final AMap<Integer, String> newMap = oldMap.updated (50, "x").removed (10).updated (200, "y").updated (-1, "z").removed (90);
+
+        final AMapDiff<Integer, String> diff = AMapDiff.diff (oldMap, newMap);
+        assertEquals (Arrays.asList (-1, 200), keys (diff.added ()));
+        assertEquals (Arrays.asList (10, 90), keys (diff.removed ()));
+        assertEquals (1, diff.changed ().size ());
+        assertEquals (Integer.valueOf (50), diff.changed ().head ().getKey ());
+        assertEquals ("a50", diff.changed ().head ().getOldValue ());
+        assertEquals ("x", diff.changed ().head ().getNewValue ());
+    }
+
+    @Test
+    public void testSharedSubtreesAreSkipped() {
+        for (AMap<CountingKey, Integer> empty: emptyMaps ()) {
+            if (empty instanceof AListMap) {
+                continue;
+            }
+
+            AMap<CountingKey, Integer> oldMap = empty;
+            for (int i=0; i<100_000; i++) {
+                oldMap = oldMap.updated (new CountingKey (i), i);
+            }
+            final AMap<CountingKey, Integer> newMap = oldMap.updated (new CountingKey (-5), 1).removed (new CountingKey (50_000)).updated (new CountingKey (777), 1);
+
+            numKeyOperations.set (0);
+            final AMapDiff<CountingKey, Integer> diff = AMapDiff.diff (oldMap, newMap);
+            assertEquals (1, diff.added ().size ());
+            assertEquals (1, diff.removed ().size ());
+            assertEquals (1, diff.changed ().size ());
+
+            // a full comparison would take at least one operation per key
+            assertTrue (empty.getClass () + ": " + numKeyOperations.get (), numKeyOperations.get () < 2_000);
+        }
+    }
+
+    private static <K,V> void assertDiff (AMap<K,V> oldMap, AMap<K,V> newMap) {
+        final Map<K,V> expectedAdded = new HashMap<> ();
+        final Map<K,V> expectedRemoved = new HashMap<> ();
+        final Map<K,List<V>> expectedChanged = new HashMap<> ();
+        for (AMapEntry<K,V> e: oldMap) {
+            if (! newMap.containsKey (e.getKey ())) {
+                expectedRemoved.put (e.getKey (), e.getValue ());
+            }
+            else if (! newMap.getRequired (e.getKey ()).equals (e.getValue ())) {
+                expectedChanged.put (e.getKey (), Arrays.asList (e.getValue (), newMap.getRequired (e.getKey ())));
+            }
+        }
+        for (AMapEntry<K,V> e: newMap) {
+            if (! oldMap.containsKey (e.getKey ())) {
+                expectedAdded.put (e.getKey (), e.getValue ());
+            }
+        }
+
+        final AMapDiff<K,V> diff = AMapDiff.diff (oldMap, newMap);
+        assertEquals (expectedAdded, toMap (diff.added ()));
+        assertEquals (expectedRemoved, toMap (diff.removed ()));
+
+        final Map<K,List<V>> changed = new HashMap<> ();
+        for (AMapDiff.Change<K,V> c: diff.changed ()) {
+            assertNull (changed.put (c.getKey (), Arrays.asList (c.getOldValue (), c.getNewValue ())));
+        }
+        assertEquals (expectedChanged, changed);
+    }
+
+    private static <K,V> Map<K,V> toMap (AList<AMapEntry<K,V>> entries) {
+        final Map<K,V> result = new HashMap<> ();
+        for (AMapEntry<K,V> e: entries) {
+            assertNull (result.put (e.getKey (), e.getValue ()));
+        }
+        return result;
+    }
+
+    private static <K> List<K> keys (AList<? extends AMapEntry<K,?>> entries) {
+        final List<K> result = new ArrayList<> ();
+        for (AMapEntry<K,?> e: entries) {
+            result.add (e.getKey ());
+        }
+        return result;
+    }
+
+    static class CountingKey {
+        final int value;
+
+        CountingKey (int value) {
+            this.value = value;
+        }
+
+        @Override public boolean equals (Object o) {
+            numKeyOperations.incrementAndGet ();
+            return o instanceof CountingKey && ((CountingKey) o).value == value;
+        }
+
+        @Override public int hashCode () {
+            numKeyOperations.incrementAndGet ();
+            return value;
+        }
+
+        @Override public String toString () {
+            return String.valueOf (value);
+        }
+    }
+}
@@ -32,7 +32,9 @@ public class AMapTest {
                 new Object[] {ABTreeMap.empty (new ABTreeSpec (8, NATURAL_ORDER))},
                 new Object[] {ABTreeMap.empty (new ABTreeSpec (16, NATURAL_ORDER))},
                 new Object[] {ARedBlackTreeMap.empty (NATURAL_ORDER)},
-                new Object[] {ALongRedBlackTreeMap.empty ()}
+                new Object[] {ALongRedBlackTreeMap.empty ()},
+                new Object[] {ALongBTreeMap.empty (4)},
+                new Object[] {ALongBTreeMap.empty ()}
         );
     }
 
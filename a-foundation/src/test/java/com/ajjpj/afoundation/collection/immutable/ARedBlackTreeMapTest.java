@@ -0,0 +1,174 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ARedBlackTreeMapTest {
+    private static final Comparator<Integer> NATURAL_ORDER = Comparator.naturalOrder ();
+
+    @Test
+    public void testFromSortedKeysAndValues() {
+        for (int size=0; size<300; size++) {
+            final List<Integer> keys = new ArrayList<> ();
+            final List<String> values = new ArrayList<> ();
+            for (int i=0; i<size; i++) {
+                keys.add (2*i);
+                values.add ("v" + i);
+            }
+
+            final ARedBlackTreeMap<Integer, String> map = ARedBlackTreeMap.fromSortedKeysAndValues (NATURAL_ORDER, keys, values);
+            ARedBlackTreeMap.validate (map.root);
+            assertTrue (map.root == null || ! ARedBlackTreeMap.isRedTree (map.root));
+
+            assertEquals (size, map.size ());
+            int i=0;
+            for (AMapEntry<Integer, String> e: map) {
+                assertEquals (Integer.valueOf (2*i), e.getKey ());
+                assertEquals ("v" + i, e.getValue ());
+                i += 1;
+            }
+
+            // the result must be a fully functional tree
+            final ARedBlackTreeMap<Integer, String> updated = map.updated (-1, "x").removed (2*(size/2));
+            ARedBlackTreeMap.validate (updated.root);
+            assertEquals (size == 0 ? 1 : size, updated.size ());
+        }
+    }
+
+    @Test
+    public void testFromSortedKeysAndValuesWithDuplicates() {
+        final ARedBlackTreeMap<Integer, String> map = ARedBlackTreeMap.fromSortedKeysAndValues (NATURAL_ORDER, Arrays.asList (1, 2, 2, 2, 3), Arrays.asList ("a", "b", "c", "d", "e"));
+        ARedBlackTreeMap.validate (map.root);
+        assertEquals (3, map.size ());
+        assertEquals ("d", map.getRequired (2));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testFromSortedKeysAndValuesUnsorted() {
+        ARedBlackTreeMap.fromSortedKeysAndValues (NATURAL_ORDER, Arrays.asList (1, 3, 2), Arrays.asList ("a", "b", "c"));
+    }
+
+    @Test
+    public void testFromKeysAndValuesSizeMismatch() {
+        for (List<String> values: Arrays.asList (Arrays.asList ("a", "b"), Arrays.asList ("a", "b", "c", "d"))) {
+            try {
+                ARedBlackTreeMap.fromSortedKeysAndValues (NATURAL_ORDER, Arrays.asList (1, 2, 3), values);
+                fail ("exception expected");
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals ("got 3 keys but " + values.size () + " values", e.getMessage ());
+            }
+            try {
+                ARedBlackTreeMap.fromKeysAndValues (NATURAL_ORDER, Arrays.asList (3, 1, 2), values);
+                fail ("exception expected");
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals ("got 3 keys but " + values.size () + " values", e.getMessage ());
+            }
+        }
+    }
+
+    @Test
+    public void testFromKeysAndValues() {
+        final Random rand = new Random (12345);
+        final List<Integer> keys = new ArrayList<> ();
+        final List<Integer> values = new ArrayList<> ();
+        final Map<Integer, Integer> expected = new TreeMap<> ();
+        for (int i=0; i<10000; i++) {
+            final int key = rand.nextInt (5000);
+            keys.add (key);
+            values.add (i);
+            expected.put (key, i);
+        }
+
+        final ARedBlackTreeMap<Integer, Integer> map = ARedBlackTreeMap.fromKeysAndValues (NATURAL_ORDER, keys, values);
+        ARedBlackTreeMap.validate (map.root);
+        assertEquals (expected, map.asJavaUtilMap ());
+    }
+
+    @Test
+    public void testFromJavaUtilMap() {
+        final Map<Integer, String> hashMap = new HashMap<> ();
+        final TreeMap<Integer, String> treeMap = new TreeMap<> (NATURAL_ORDER);
+        for (int i=0; i<1000; i++) {
+            hashMap.put (i*7 % 1000, "v" + i);
+            treeMap.put (i*7 % 1000, "v" + i);
+        }
+
+        final ARedBlackTreeMap<Integer, String> fromHashMap = ARedBlackTreeMap.fromJavaUtilMap (NATURAL_ORDER, hashMap);
+        ARedBlackTreeMap.validate (fromHashMap.root);
+        assertEquals (hashMap, fromHashMap.asJavaUtilMap ());
+
+        final ARedBlackTreeMap<Integer, String> fromTreeMap = ARedBlackTreeMap.fromJavaUtilMap (NATURAL_ORDER, treeMap);
+        ARedBlackTreeMap.validate (fromTreeMap.root);
+        assertEquals (treeMap, fromTreeMap.asJavaUtilMap ());
+    }
+
+    @Test
+    public void testLongFromSortedKeysAndValues() {
+        for (int size=0; size<300; size++) {
+            final long[] keys = new long[size];
+            final List<String> values = new ArrayList<> ();
+            for (int i=0; i<size; i++) {
+                keys[i] = 3L*i - 100;
+                values.add ("v" + i);
+            }
+
+            final ALongRedBlackTreeMap<String> map = ALongRedBlackTreeMap.fromSortedKeysAndValues (keys, values);
+            ALongRedBlackTreeMap.validate (map.root);
+            assertEquals (size, map.size ());
+            for (int i=0; i<size; i++) {
+                assertEquals ("v" + i, map.getRequired (3L*i - 100));
+            }
+
+            ALongRedBlackTreeMap.validate (map.updated (-1000, "x").removed (-100).root);
+        }
+    }
+
+    @Test
+    public void testLongFromKeysAndValues() {
+        final Random rand = new Random (12345);
+        final long[] keys = new long[10000];
+        final List<Integer> values = new ArrayList<> ();
+        final Map<Long, Integer> expected = new HashMap<> ();
+        for (int i=0; i<keys.length; i++) {
+            keys[i] = rand.nextInt (5000);
+            values.add (i);
+            expected.put (keys[i], i);
+        }
+        final long[] keysCopy = keys.clone ();
+
+        final ALongRedBlackTreeMap<Integer> map = ALongRedBlackTreeMap.fromKeysAndValues (keys, values);
+        ALongRedBlackTreeMap.validate (map.root);
+        assertEquals (expected, map.asJavaUtilMap ());
+        assertArrayEquals (keysCopy, keys);
+    }
+
+    @Test
+    public void testLongFromSortedKeysAndValuesWithDuplicates() {
+        final long[] keys = {1, 1, 2, 5, 5};
+        final ALongRedBlackTreeMap<String> map = ALongRedBlackTreeMap.fromSortedKeysAndValues (keys, Arrays.asList ("a", "b", "c", "d", "e"));
+        ALongRedBlackTreeMap.validate (map.root);
+        assertEquals (3, map.size ());
+        assertEquals ("b", map.getRequired (1));
+        assertEquals ("e", map.getRequired (5));
+        assertArrayEquals (new long[] {1, 1, 2, 5, 5}, keys);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testLongFromSortedKeysAndValuesUnsorted() {
+        ALongRedBlackTreeMap.fromSortedKeysAndValues (new long[] {2, 1}, Arrays.asList ("a", "b"));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testLongFromKeysAndValuesSizeMismatch() {
+        ALongRedBlackTreeMap.fromKeysAndValues (new long[] {2, 1}, Collections.singletonList ("a"));
+    }
+}
@@ -24,10 +24,12 @@ public class ASortedMapTest {
     @Parameterized.Parameters
     public static Collection<Object> emptyMaps () {
         return Arrays.<Object>asList (
-//                new Object[] {ABTreeMap.empty (new ABTreeSpec (4, NATURAL_ORDER))},
-//                new Object[] {ABTreeMap.empty (new ABTreeSpec (8, NATURAL_ORDER))},
-//                new Object[] {ABTreeMap.empty (new ABTreeSpec (16, NATURAL_ORDER))},
-                (Object) new Object[] {ARedBlackTreeMap.empty (NATURAL_ORDER)}
+                new Object[] {ABTreeMap.empty (new ABTreeSpec (4, NATURAL_ORDER))},
+                new Object[] {ABTreeMap.empty (new ABTreeSpec (8, NATURAL_ORDER))},
+                new Object[] {ABTreeMap.empty (new ABTreeSpec (16, NATURAL_ORDER))},
+                new Object[] {ARedBlackTreeMap.empty (NATURAL_ORDER)},
+                new Object[] {ALongBTreeMap.empty (4)},
+                new Object[] {ALongBTreeMap.empty ()}
 //                new Object[] {ALongRedBlackTreeMap.empty ()}
         );
     }
@@ -222,4 +224,46 @@ public class ASortedMapTest {
             }
         }
     }
+
+    @Test
+    public void testRangeAfterRemove() {
+        final Random rand = new Random (12345);
+        final TreeMap<Long, Integer> expected = new TreeMap<> ();
+        ASortedMap<Long, Integer> map = EMPTY;
+
+        for (int i=0; i<5000; i++) {
+            final long key = rand.nextInt (500);
+            if (rand.nextInt (3) == 0) {
+                expected.remove (key);
+                map = map.removed (key);
+            }
+            else {
+                expected.put (key, i);
+                map = map.updated (key, i);
+            }
+
+            if (i%100 == 0) {
+                final long from = rand.nextInt (500);
+                final long to = from + rand.nextInt (100);
+                checkEq (expected.subMap (from, true, to, false), map.rangeIE (from, to));
+                checkEq (expected, map);
+
+                final Map.Entry<Long, Integer> floor = expected.floorEntry (from);
+                checkEqOption (floor == null ? null : floor.getKey (), map.lastSmallerOrEquals (from));
+                final Map.Entry<Long, Integer> higher = expected.higherEntry (from);
+                checkEqOption (higher == null ? null : higher.getKey (), map.firstGreaterThan (from));
+            }
+        }
+    }
+
+    private void checkEq (Map<Long, Integer> expected, Iterable<AMapEntry<Long,Integer>> data) {
+        final Iterator<AMapEntry<Long,Integer>> iter = data.iterator ();
+        for (Map.Entry<Long, Integer> e: expected.entrySet ()) {
+            assertTrue (iter.hasNext ());
+            final AMapEntry<Long, Integer> actual = iter.next ();
+            assertEquals (e.getKey (), actual.getKey ());
+            assertEquals (e.getValue (), actual.getValue ());
+        }
+        assertFalse (iter.hasNext ());
+    }
 }
@@ -2,9 +2,14 @@ package com.ajjpj.afoundation.collection.immutable;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 
 import static org.junit.Assert.*;
 
@@ -82,4 +87,181 @@ public class BTreeBlackBoxTest {
             }
         }
     }
+
+    @Test
+    public void testOrderStatistics() {
+        final Random random = new Random (12345);
+
+        ABTreeMap<Integer, Integer> tree = ABTreeMap.empty (new ABTreeSpec (4, AbstractBTreeTest.naturalOrder));
+        final TreeMap<Integer, Integer> reference = new TreeMap<> ();
+
+        for (int i=0; i<20_000; i++) {
+            final int key = random.nextInt (2_000);
+            if (random.nextInt (10) < 7) {
+                tree = tree.updated (key, i);
+                reference.put (key, i);
+            }
+            else {
+                tree = tree.removed (key);
+                reference.remove (key);
+            }
+            assertEquals (reference.size (), tree.size ());
+
+            if (i%500 == 0) {
+                final List<Integer> keys = new ArrayList<> (reference.keySet ());
+                for (int idx=0; idx<keys.size (); idx++) {
+                    assertEquals (keys.get (idx), tree.getAt (idx).getKey ());
+                    assertEquals (reference.get (keys.get (idx)), tree.getAt (idx).getValue ());
+                }
+                for (int k=-1; k<=2_000; k++) {
+                    assertEquals (reference.headMap (k).size (), tree.rank (k));
+                }
+
+                final int from = keys.isEmpty () ? 0 : random.nextInt (keys.size ());
+                final int to = from + random.nextInt (keys.size () - from + 1);
+                final Iterator<AMapEntry<Integer, Integer>> iter = tree.slice (from, to).iterator ();
+                for (int idx=from; idx<to; idx++) {
+                    assertTrue (iter.hasNext ());
+                    assertEquals (keys.get (idx), iter.next ().getKey ());
+                }
+                assertFalse (iter.hasNext ());
+            }
+        }
+    }
+
+    @Test
+    public void testSliceBoundaries() {
+        ABTreeMap<Integer, Integer> tree = ABTreeMap.empty (new ABTreeSpec (4, AbstractBTreeTest.naturalOrder));
+        assertFalse (tree.slice (0, 0).iterator ().hasNext ());
+
+        for (int i=0; i<100; i++) {
+            tree = tree.updated (i, i);
+        }
+        assertFalse (tree.slice (100, 100).iterator ().hasNext ());
+        assertFalse (tree.slice (50, 50).iterator ().hasNext ());
+
+        int expected = 0;
+        for (AMapEntry<Integer, Integer> e: tree.slice (0, 100)) {
+            assertEquals (Integer.valueOf (expected++), e.getKey ());
+        }
+        assertEquals (100, expected);
+
+        try {
+            tree.slice (0, 101);
+            fail ("exception expected");
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            tree.getAt (100);
+            fail ("exception expected");
+        }
+        catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUpdatedAllRemovedAll() {
+        for (int maxNumEntries: new int[] {4, 5, 8, 16}) {
+            final Random random = new Random (12345);
+            final ABTreeSpec spec = new ABTreeSpec (maxNumEntries, AbstractBTreeTest.naturalOrder);
+
+            ABTreeMap<Integer, Integer> tree = ABTreeMap.empty (spec);
+            final TreeMap<Integer, Integer> reference = new TreeMap<> ();
+
+            for (int i=0; i<300; i++) {
+                // batch sizes vary from single keys to a multiple of the tree's size
+                final int batchSize = random.nextInt (1 + random.nextInt (3_000));
+
+                if (random.nextInt (10) < 6) {
+                    final List<AMapEntry<Integer, Integer>> batch = new ArrayList<> ();
+                    for (int j=0; j<batchSize; j++) {
+                        final int key = random.nextInt (5_000);
+                        final int value = random.nextInt ();
+                        batch.add (new ABTreeMap.BTreeEntry<> (key, value));
+                        reference.put (key, value);
+                    }
+                    tree = tree.updatedAll (batch);
+                }
+                else {
+                    final List<Integer> batch = new ArrayList<> ();
+                    for (int j=0; j<batchSize; j++) {
+                        final int key = random.nextInt (5_000);
+                        batch.add (key);
+                        reference.remove (key);
+                    }
+                    tree = tree.removedAll (batch);
+                }
+
+                validate (tree, spec, true, null, null);
+                assertEquals (reference.size (), tree.size ());
+                assertEquals (reference, tree.asJavaUtilMap ());
+
+                // the result must work with the regular update and remove operations
+                if (i%10 == 0) {
+                    final int key = random.nextInt (5_000);
+                    tree = tree.removed (key).updated (key+1, key);
+                    reference.remove (key);
+                    reference.put (key+1, key);
+                    assertEquals (reference, tree.asJavaUtilMap ());
+                }
+            }
+
+            tree = tree.removedAll (new ArrayList<> (reference.keySet ()));
+            assertTrue (tree.isEmpty ());
+            assertTrue (tree instanceof LeafNode);
+        }
+    }
+
+    @Test
+    public void testUpdatedAllFromBTreeMap() {
+        // a B-tree's iterator reuses its entry object, so the batch must not hold on to the entries
+        final ABTreeSpec reverseSpec = new ABTreeSpec (4, Comparator.<Integer>reverseOrder ());
+        final TreeMap<Integer, Integer> reference = new TreeMap<> ();
+        ABTreeMap<Integer, Integer> source = ABTreeMap.empty (reverseSpec);
+        for (int i=0; i<1000; i++) {
+            source = source.updated (i, 3*i);
+            reference.put (i, 3*i);
+        }
+
+        final ABTreeMap<Integer, Integer> tree = ABTreeMap.<Integer, Integer>empty (new ABTreeSpec (8, AbstractBTreeTest.naturalOrder)).updatedAll (source);
+        assertEquals (reference, tree.asJavaUtilMap ());
+    }
+
+    /**
+     * @return the subtree's height
+     */
+    @SuppressWarnings ("unchecked")
+    private static int validate (ABTreeMap<?,?> node, ABTreeSpec spec, boolean isRoot, Object min, Object maxExclusive) {
+        assertTrue (node.numEntries () <= spec.maxNumEntries);
+        if (! isRoot) {
+            assertTrue (node.numEntries () >= spec.minNumEntries);
+        }
+
+        if (node instanceof LeafNode) {
+            final Object[] keys = ((LeafNode) node).keys;
+            for (int i=0; i<keys.length; i++) {
+                if (min != null) assertTrue (spec.comparator.compare (keys[i], min) >= 0);
+                if (maxExclusive != null) assertTrue (spec.comparator.compare (keys[i], maxExclusive) < 0);
+                if (i > 0) assertTrue (spec.comparator.compare (keys[i-1], keys[i]) < 0);
+            }
+            return 0;
+        }
+
+        final IndexNode indexNode = (IndexNode) node;
+        assertTrue (indexNode.children.length >= 2);
+        assertEquals (indexNode.children.length - 1, indexNode.separators.length);
+
+        int height = -1;
+        for (int i=0; i<indexNode.children.length; i++) {
+            final Object childMin = i == 0 ? min : indexNode.separators[i-1];
+            final Object childMax = i == indexNode.separators.length ? maxExclusive : indexNode.separators[i];
+            final int childHeight = validate (indexNode.children[i], spec, false, childMin, childMax);
+            if (height != -1) assertEquals (height, childHeight);
+            height = childHeight;
+        }
+        return height + 1;
+    }
 }
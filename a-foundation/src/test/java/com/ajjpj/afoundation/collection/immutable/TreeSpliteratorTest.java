@@ -0,0 +1,212 @@
+package com.ajjpj.afoundation.collection.immutable;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class TreeSpliteratorTest {
+    private static final Comparator<Long> NATURAL_ORDER = Comparator.naturalOrder ();
+
+    private static List<AMap<Long, Integer>> emptyMaps () {
+        return Arrays.asList (
+                AHashMap.<Long, Integer>empty (),
+                ALongHashMap.<Integer>empty (),
+                ARedBlackTreeMap.<Long, Integer>empty (NATURAL_ORDER),
+                ABTreeMap.<Long, Integer>empty (new ABTreeSpec (4, NATURAL_ORDER)),
+                ABTreeMap.<Long, Integer>empty (new ABTreeSpec (16, NATURAL_ORDER)),
+                AListMap.<Long, Integer>empty ()
+        );
+    }
+
+    private static AMap<Long, Integer> fill (AMap<Long, Integer> map, int size) {
+        if (map instanceof AListMap) {
+            // AListMap has linear lookup
+            size = Math.min (size, 300);
+        }
+
+        final Random rand = new Random (12345);
+        while (map.size () < size) {
+            final long key = rand.nextInt (4*size) - size;
+            map = map.updated (key, Integer.valueOf ((int) key * 3));
+        }
+        return map;
+    }
+
+    @Test
+    public void testSplitCoversAllEntries() {
+        for (AMap<Long, Integer> empty: emptyMaps ()) {
+            for (int size: new int[] {0, 1, 2, 3, 10, 100, 2000}) {
+                final AMap<Long, Integer> map = fill (empty, size);
+
+                final List<Long> keys = new ArrayList<> ();
+                collectSplit (map.spliterator (), keys);
+
+                final List<Long> expected = new ArrayList<> ();
+                for (AMapEntry<Long, Integer> e: map) {
+                    expected.add (e.getKey ());
+                }
+
+                if (map.spliterator ().hasCharacteristics (Spliterator.ORDERED)) {
+                    assertEquals (expected, keys);
+                }
+                else {
+                    assertEquals (new HashSet<> (expected), new HashSet<> (keys));
+                    assertEquals (expected.size (), keys.size ());
+                }
+            }
+        }
+    }
+
+    /**
+     * splits recursively, checking that every spliterator traverses exactly the number of elements it reports
+     */
+    private static void collectSplit (Spliterator<AMapEntry<Long, Integer>> spliterator, List<Long> result) {
+        assertTrue (spliterator.hasCharacteristics (Spliterator.SIZED));
+        assertTrue (spliterator.hasCharacteristics (Spliterator.IMMUTABLE));
+
+        final long size = spliterator.estimateSize ();
+        final int sizeBefore = result.size ();
+
+        final Spliterator<AMapEntry<Long, Integer>> prefix = spliterator.trySplit ();
+        if (prefix != null) {
+            assertEquals (size, prefix.estimateSize () + spliterator.estimateSize ());
+            collectSplit (prefix, result);
+            collectSplit (spliterator, result);
+        }
+        else {
+            spliterator.forEachRemaining (e -> result.add (e.getKey ()));
+        }
+        assertEquals (size, result.size () - sizeBefore);
+    }
+
+    @Test
+    public void testSplitAfterAdvance() {
+        for (AMap<Long, Integer> empty: emptyMaps ()) {
+            // the JDK's iterator based spliterator does not update its size after advancing
+            if (empty instanceof AListMap) continue;
+
+            final AMap<Long, Integer> map = fill (empty, 500);
+
+            final List<Long> expected = new ArrayList<> ();
+            for (AMapEntry<Long, Integer> e: map) {
+                expected.add (e.getKey ());
+            }
+
+            final List<Long> keys = new ArrayList<> ();
+            final Spliterator<AMapEntry<Long, Integer>> spliterator = map.spliterator ();
+            for (int i=0; i<7; i++) {
+                assertTrue (spliterator.tryAdvance (e -> keys.add (e.getKey ())));
+            }
+            assertEquals (map.size () - 7, spliterator.estimateSize ());
+
+            final Spliterator<AMapEntry<Long, Integer>> prefix = spliterator.trySplit ();
+            if (prefix != null) {
+                collectSplit (prefix, keys);
+            }
+            collectSplit (spliterator, keys);
+            assertFalse (spliterator.tryAdvance (e -> fail ()));
+
+            if (map.spliterator ().hasCharacteristics (Spliterator.ORDERED)) {
+                assertEquals (expected, keys);
+            }
+            else {
+                assertEquals (new HashSet<> (expected), new HashSet<> (keys));
+                assertEquals (expected.size (), keys.size ());
+            }
+        }
+    }
+
+    @Test
+    public void testStructuralSplit() {
+        // the tree-shaped maps split without falling back to copying batches, so the first split divides a big map roughly in half
+        for (AMap<Long, Integer> empty: emptyMaps ()) {
+            if (empty instanceof AListMap) continue;
+
+            final AMap<Long, Integer> map = fill (empty, 10000);
+            final Spliterator<AMapEntry<Long, Integer>> spliterator = map.spliterator ();
+            final Spliterator<AMapEntry<Long, Integer>> prefix = spliterator.trySplit ();
+            assertTrue (empty.getClass ().getName (), prefix.estimateSize () > 2000);
+            assertTrue (empty.getClass ().getName (), spliterator.estimateSize () > 2000);
+        }
+    }
+
+    @Test
+    public void testParallelStream() {
+        for (AMap<Long, Integer> empty: emptyMaps ()) {
+            final AMap<Long, Integer> map = fill (empty, 5000);
+
+            long expected = 0;
+            for (AMapEntry<Long, Integer> e: map) {
+                expected += e.getValue ();
+            }
+
+            assertEquals (expected, map.stream ().mapToLong (AMapEntry::getValue).sum ());
+            assertEquals (expected, map.parallelStream ().mapToLong (AMapEntry::getValue).sum ());
+            assertEquals (expected, map.keys ().parallelStream ().mapToLong (k -> k * 3).sum ());
+            assertEquals (map.size (), map.keys ().parallelStream ().distinct ().count ());
+        }
+    }
+
+    @Test
+    public void testCollectToList() {
+        // some maps' iterators reuse a single entry object, but collected entries must remain intact
+        for (AMap<Long, Integer> empty: emptyMaps ()) {
+            assertCollectedEntries (fill (empty, 1000));
+        }
+        assertCollectedEntries (fill (ALongBTreeMap.<Integer>empty (), 1000));
+        assertCollectedEntries (fill (ALongRedBlackTreeMap.<Integer>empty (), 1000));
+        assertCollectedEntries (fill (ABTreeMap.<Long, Integer>empty (new ABTreeSpec (4, NATURAL_ORDER)), 1000).withDefaultValue (0));
+
+        ALongLongHashMap longLongMap = ALongLongHashMap.empty ();
+        ALongIntHashMap longIntMap = ALongIntHashMap.empty ();
+        ALongDoubleHashMap longDoubleMap = ALongDoubleHashMap.empty ();
+        for (long key=0; key<1000; key++) {
+            longLongMap = longLongMap.updated (key, 2*key);
+            longIntMap = longIntMap.updated (key, (int) (3*key));
+            longDoubleMap = longDoubleMap.updated (key, 0.5*key);
+        }
+        assertCollectedEntries (longLongMap);
+        assertCollectedEntries (longIntMap);
+        assertCollectedEntries (longDoubleMap);
+    }
+
+    private static <V> void assertCollectedEntries (AMap<Long, V> map) {
+        final Map<Long, V> expected = new HashMap<> ();
+        for (AMapEntry<Long, V> e: map) {
+            expected.put (e.getKey (), e.getValue ());
+        }
+
+        for (List<AMapEntry<Long, V>> collected: Arrays.asList (map.stream ().collect (Collectors.toList ()), map.parallelStream ().collect (Collectors.toList ()))) {
+            final Map<Long, V> actual = new HashMap<> ();
+            for (AMapEntry<Long, V> e: collected) {
+                actual.put (e.getKey (), e.getValue ());
+            }
+            assertEquals (map.getClass ().getName (), map.size (), collected.size ());
+            assertEquals (map.getClass ().getName (), expected, actual);
+        }
+    }
+
+    @Test
+    public void testSortedSetStreamIsOrdered() {
+        final ARedBlackTreeSet<Integer> set = ARedBlackTreeSet.create (Comparator.<Integer>naturalOrder (), 5, 3, 9, 1, 7, 2);
+        assertEquals (Arrays.asList (1, 2, 3, 5, 7, 9), set.parallelStream ().collect (Collectors.toList ()));
+
+        final ABTreeSet<Integer> btreeSet = ABTreeSet.create (new ABTreeSpec (4, Comparator.<Integer>naturalOrder ()), 5, 3, 9, 1, 7, 2);
+        assertEquals (Arrays.asList (1, 2, 3, 5, 7, 9), btreeSet.parallelStream ().collect (Collectors.toList ()));
+    }
+
+    @Test
+    public void testListStream() {
+        final AList<Integer> list = AList.create (4, 2, 7, 1);
+        assertEquals (Arrays.asList (4, 2, 7, 1), list.parallelStream ().collect (Collectors.toList ()));
+        assertEquals (4, list.spliterator ().getExactSizeIfKnown ());
+        assertEquals (0, AList.nil ().stream ().count ());
+    }
+}
@@ -0,0 +1,167 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class AFlowTest {
+    private AThreadPoolWithAdmin pool;
+
+    @Before
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    private static List<Integer> range (int from, int to) {
+        final List<Integer> result = new ArrayList<> ();
+        for (int i=from; i<to; i++) result.add (i);
+        return result;
+    }
+
+    @Test
+    public void testMapFilterFold() throws Exception {
+        final AFuture<Long> sum = AFlow.fromIterable (pool, range (0, 1000), 7)
+                .filter (x -> x % 2 == 0)
+                .map (x -> (long) x * 3)
+                .fold (0L, (a, b) -> a+b, 5);
+        assertEquals (Long.valueOf (3 * 249_500), sum.value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testForeach() throws Exception {
+        final List<Integer> collected = Collections.synchronizedList (new ArrayList<> ());
+        AFlow.fromIterable (pool, range (0, 100)).foreach (collected::add).await (1, TimeUnit.SECONDS);
+        assertEquals (range (0, 100), collected);
+    }
+
+    @Test
+    public void testBuffer() throws Exception {
+        final AFuture<AList<AList<Integer>>> buffered = AFlow.fromIterable (pool, range (0, 7))
+                .buffer (3)
+                .fold (AList.<AList<Integer>>nil (), (acc, el) -> acc.cons (el));
+        assertEquals (AList.create (AList.create (6), AList.create (3, 4, 5), AList.create (0, 1, 2)), buffered.value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFlatMap() throws Exception {
+        final AtomicInteger active = new AtomicInteger ();
+        final AtomicInteger maxActive = new AtomicInteger ();
+
+        final AFuture<Integer> count = AFlow.fromIterable (pool, range (0, 100))
+                .flatMap (x -> AFlow.fromIterator (pool, () -> {
+                    maxActive.accumulateAndGet (active.incrementAndGet (), Math::max);
+                    final Iterator<Integer> it = range (0, x).iterator ();
+                    return new Iterator<Integer> () {
+                        @Override public boolean hasNext () {
+                            if (it.hasNext ()) return true;
+                            active.decrementAndGet ();
+                            return false;
+                        }
+                        @Override public Integer next () {
+                            return it.next ();
+                        }
+                    };
+                }, 4), 3, 8)
+                .fold (0, (a, b) -> a+1);
+
+        assertEquals (Integer.valueOf (4950), count.value (5, TimeUnit.SECONDS));
+        assertTrue (maxActive.get () <= 3);
+    }
+
+    @Test
+    public void testFlatMapFailure() throws Exception {
+        final RuntimeException exc = new RuntimeException ();
+        final AFuture<Integer> result = AFlow.fromIterable (pool, range (0, 100))
+                .flatMap (x -> {
+                    if (x == 50) throw exc;
+                    return AFlow.fromIterable (pool, Arrays.asList (x));
+                }, 4)
+                .fold (0, (a, b) -> a+b);
+        assertSame (exc, result.inverse ().value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureInOperator() throws Exception {
+        final RuntimeException exc = new RuntimeException ();
+        final AFuture<Integer> result = AFlow.fromIterable (pool, range (0, 100))
+                .map (x -> {
+                    if (x == 10) throw exc;
+                    return x;
+                })
+                .fold (0, (a, b) -> a+b);
+        assertSame (exc, result.inverse ().value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBoundedDemandForInfiniteSource() throws Exception {
+        final AtomicLong numProduced = new AtomicLong ();
+        final AtomicBoolean closed = new AtomicBoolean ();
+
+        class InfiniteIterator implements Iterator<Long>, AutoCloseable {
+            @Override public boolean hasNext () {
+                return true;
+            }
+            @Override public Long next () {
+                return numProduced.incrementAndGet ();
+            }
+            @Override public void close () {
+                closed.set (true);
+            }
+        }
+
+        final AtomicReference<ASubscription> subscription = new AtomicReference<> ();
+        final AtomicInteger numReceived = new AtomicInteger ();
+        final CountDownLatch received = new CountDownLatch (10);
+
+        AFlow.fromIterator (pool, () -> new InfiniteIterator (), 4).map (x -> 2*x).subscribe (new ASubscriber<Long> () {
+            @Override public void onSubscribe (ASubscription s) {
+                subscription.set (s);
+                s.request (10);
+            }
+            @Override public void onNext (Long element) {
+                numReceived.incrementAndGet ();
+                received.countDown ();
+            }
+            @Override public void onError (Throwable th) {
+            }
+            @Override public void onComplete () {
+            }
+        });
+
+        assertTrue (received.await (1, TimeUnit.SECONDS));
+        Thread.sleep (50);
+        assertEquals (10, numReceived.get ());
+        assertEquals (10, numProduced.get ());
+
+        subscription.get ().cancel ();
+        final long deadline = System.currentTimeMillis () + 1000;
+        while (! closed.get () && System.currentTimeMillis () < deadline) {
+            Thread.sleep (1);
+        }
+        assertTrue (closed.get ());
+    }
+}
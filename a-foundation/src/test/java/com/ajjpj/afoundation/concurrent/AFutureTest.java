@@ -0,0 +1,204 @@
+package com.ajjpj.afoundation.concurrent;
+
+import com.ajjpj.afoundation.collection.immutable.AList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class AFutureTest {
+    private AThreadPoolWithAdmin pool;
+
+    @Before
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Test
+    public void testLift() throws Exception {
+        final List<ASettableFuture<Integer>> futures = new ArrayList<> ();
+        for (int i=0; i<10; i++) {
+            futures.add (ASettableFuture.create ());
+        }
+
+        final AFuture<AList<Integer>> lifted = AFuture.lift (pool, new ArrayList<AFuture<Integer>> (futures));
+        for (int i=9; i>=0; i--) {
+            assertFalse (lifted.isComplete ());
+            futures.get (i).completeAsSuccess (i);
+        }
+
+        assertEquals (AList.create (0, 1, 2, 3, 4, 5, 6, 7, 8, 9), lifted.value (1, TimeUnit.SECONDS));
+        assertEquals (AList.nil (), AFuture.lift (pool, AList.<AFuture<Integer>>nil ()).value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLiftFailure() throws Exception {
+        final RuntimeException exc = new RuntimeException ();
+        final AFuture<AList<Integer>> lifted = AFuture.lift (pool, AList.create (AFuture.createSuccessful (1), AFuture.<Integer>createFailed (exc), ASettableFuture.create ()));
+        assertSame (exc, lifted.inverse ().value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFold() throws Exception {
+        final AFuture<Integer> folded = AFuture.fold (pool, 0, AList.create (AFuture.createSuccessful (1), AFuture.createSuccessful (2), AFuture.submit (pool, () -> 3)), (a, b) -> 10*a + b);
+        assertEquals (Integer.valueOf (123), folded.value (1, TimeUnit.SECONDS));
+
+        assertEquals (Integer.valueOf (99), AFuture.fold (pool, 99, AList.<AFuture<Integer>>nil (), (a, b) -> a+b).value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFoldRunsInThreadPool() throws Exception {
+        final List<Thread> foldingThreads = new CopyOnWriteArrayList<> ();
+
+        // all inputs are complete already, and the caller does not run the fold
+        final AFuture<Integer> completed = AFuture.fold (pool, 0, AList.create (AFuture.createSuccessful (1), AFuture.createSuccessful (2)), (a, b) -> {
+            foldingThreads.add (Thread.currentThread ());
+            return a+b;
+        });
+        assertEquals (Integer.valueOf (3), completed.value (1, TimeUnit.SECONDS));
+
+        // the thread completing the last input does not run the fold either
+        final ASettableFuture<Integer> input = ASettableFuture.create ();
+        final AFuture<Integer> pending = AFuture.fold (pool, 0, AList.<AFuture<Integer>>create (input), (a, b) -> {
+            foldingThreads.add (Thread.currentThread ());
+            return a+b;
+        });
+        input.completeAsSuccess (5);
+        assertEquals (Integer.valueOf (5), pending.value (1, TimeUnit.SECONDS));
+
+        assertEquals (3, foldingThreads.size ());
+        for (Thread t: foldingThreads) {
+            assertTrue (t instanceof WorkerThread);
+        }
+    }
+
+    @Test
+    public void testTraverse() throws Exception {
+        final AFuture<AList<Integer>> traversed = AFuture.traverse (pool, Arrays.asList (1, 2, 3), x -> AFuture.submit (pool, () -> 2*x));
+        assertEquals (AList.create (2, 4, 6), traversed.value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTraverseBounded() throws Exception {
+        final int numValues = 10_000;
+        final int maxParallelism = 3;
+
+        final AtomicInteger inFlight = new AtomicInteger ();
+        final AtomicInteger maxInFlight = new AtomicInteger ();
+
+        final List<Integer> values = new ArrayList<> ();
+        for (int i=0; i<numValues; i++) values.add (i);
+
+        final AFuture<AList<Integer>> traversed = AFuture.traverse (pool, values, x -> {
+            final int cur = inFlight.incrementAndGet ();
+            maxInFlight.accumulateAndGet (cur, Math::max);
+            return AFuture.submit (pool, () -> {
+                inFlight.decrementAndGet ();
+                return x+1;
+            });
+        }, maxParallelism);
+
+        final AList<Integer> result = traversed.value (10, TimeUnit.SECONDS);
+        assertEquals (numValues, result.size ());
+        int expected = 1;
+        for (Integer i: result) {
+            assertEquals (Integer.valueOf (expected++), i);
+        }
+        assertTrue (maxInFlight.get () <= maxParallelism);
+    }
+
+    @Test
+    public void testTraverseBoundedSynchronous() throws Exception {
+        // completed futures are processed in a loop rather than recursively, so this must not overflow the stack
+        final List<Integer> values = new ArrayList<> ();
+        for (int i=0; i<100_000; i++) values.add (i);
+
+        final AList<Integer> result = AFuture.traverse (AThreadPool.SYNC_THREADPOOL, values, AFuture::createSuccessful, 1).value (1, TimeUnit.SECONDS);
+        assertEquals (100_000, result.size ());
+    }
+
+    @Test
+    public void testTraverseBoundedFailure() throws Exception {
+        final RuntimeException exc = new RuntimeException ();
+        final AtomicInteger numCalls = new AtomicInteger ();
+
+        final AFuture<AList<Integer>> traversed = AFuture.traverse (AThreadPool.SYNC_THREADPOOL, Arrays.asList (1, 2, 3, 4), x -> {
+            numCalls.incrementAndGet ();
+            if (x == 2) throw exc;
+            return AFuture.createSuccessful (x);
+        }, 1);
+
+        assertSame (exc, traversed.inverse ().value (1, TimeUnit.SECONDS));
+        assertEquals (2, numCalls.get ());
+    }
+
+    @Test
+    public void testToCompletableFuture() throws Exception {
+        final ASettableFuture<Integer> f = ASettableFuture.create ();
+        final CompletableFuture<Integer> cf = f.toCompletableFuture ();
+        assertFalse (cf.isDone ());
+
+        f.completeAsSuccess (42);
+        assertEquals (Integer.valueOf (42), cf.get (1, TimeUnit.SECONDS));
+
+        final RuntimeException exc = new RuntimeException ();
+        try {
+            AFuture.createFailed (exc).toCompletableFuture ().get (1, TimeUnit.SECONDS);
+            fail ("exception expected");
+        }
+        catch (ExecutionException e) {
+            assertSame (exc, e.getCause ());
+        }
+    }
+
+    @Test
+    public void testFromCompletionStage() throws Exception {
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        final AFuture<Integer> f = AFuture.fromCompletionStage (cf);
+        assertFalse (f.isComplete ());
+
+        cf.complete (42);
+        assertEquals (Integer.valueOf (42), f.value (1, TimeUnit.SECONDS));
+
+        // failures of dependent stages are passed on without the CompletionException wrapper
+        final RuntimeException exc = new RuntimeException ();
+        final CompletableFuture<Integer> failed = new CompletableFuture<> ();
+        final AFuture<Integer> f2 = AFuture.fromCompletionStage (failed.thenApply (x -> x+1));
+        failed.completeExceptionally (exc);
+        assertSame (exc, f2.inverse ().value (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCompletionStageRoundTrip() throws Exception {
+        final ASettableFuture<Integer> f = ASettableFuture.create ();
+        assertSame (f, AFuture.fromCompletionStage (f.toCompletableFuture ()));
+
+        final CompletableFuture<Integer> cf = new CompletableFuture<> ();
+        assertSame (cf, AFuture.fromCompletionStage (cf).toCompletableFuture ());
+    }
+
+    @Test
+    public void testThreadPoolAsExecutor() throws Exception {
+        final String threadName = CompletableFuture.supplyAsync (() -> Thread.currentThread ().getName (), pool).get (1, TimeUnit.SECONDS);
+        assertTrue (threadName, threadName.startsWith ("AThreadPool"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class AKeyedExecutorTest {
+    private AThreadPoolWithAdmin pool;
+
+    @Before
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Test
+    public void testOrderPerKey() throws Exception {
+        final int numKeys = 100;
+        final int numPerKey = 1000;
+
+        final AKeyedExecutor<String> executor = AKeyedExecutor.create (pool, 16);
+        final int[] lastSeen = new int[numKeys];
+        final List<String> errors = Collections.synchronizedList (new ArrayList<> ());
+        final CountDownLatch done = new CountDownLatch (numKeys * numPerKey);
+
+        for (int i=1; i<=numPerKey; i++) {
+            for (int key=0; key<numKeys; key++) {
+                final int k = key;
+                final int value = i;
+                executor.submit ("key-" + key, () -> {
+                    if (lastSeen[k] != value-1) errors.add (k + ": " + lastSeen[k] + " -> " + value);
+                    lastSeen[k] = value;
+                    done.countDown ();
+                });
+            }
+        }
+
+        assertTrue (done.await (10, TimeUnit.SECONDS));
+        assertEquals (new ArrayList<String> (), errors);
+    }
+
+    @Test
+    public void testKeysAreSpreadAcrossLanes() {
+        final AKeyedExecutor<Integer> executor = AKeyedExecutor.create (pool, 16);
+        final Set<Integer> usedLanes = ConcurrentHashMap.newKeySet ();
+        for (int i=0; i<1000; i++) {
+            final int idx = executor.laneIndex (i << 16); // keys that differ only in their higher bits
+            assertTrue (idx >= 0 && idx < 16);
+            usedLanes.add (idx);
+        }
+        assertEquals (16, usedLanes.size ());
+    }
+
+    @Test
+    public void testIdleLanesAreReused() throws Exception {
+        final AKeyedExecutor<Integer> executor = AKeyedExecutor.create (pool, 16);
+        final int idx = executor.laneIndex (5);
+        assertNull (executor.lane (idx));
+
+        final CountDownLatch first = new CountDownLatch (1);
+        executor.submit (5, first::countDown);
+        assertTrue (first.await (10, TimeUnit.SECONDS));
+        final ASerialExecutor lane = executor.lane (idx);
+        assertNotNull (lane);
+
+        final long deadline = System.currentTimeMillis () + 10_000;
+        while (! lane.isIdle () && System.currentTimeMillis () < deadline) {
+            Thread.sleep (1);
+        }
+        assertTrue (lane.isIdle ());
+
+        final CountDownLatch second = new CountDownLatch (1);
+        executor.submit (5, second::countDown);
+        assertTrue (second.await (10, TimeUnit.SECONDS));
+        assertSame (lane, executor.lane (idx));
+    }
+
+    @Test
+    public void testForKeyIsOrderedWithSubmit() throws Exception {
+        final AKeyedExecutor<Integer> executor = AKeyedExecutor.create (pool, 16);
+        final AThreadPool lane = executor.forKey (5);
+        final List<Integer> seen = Collections.synchronizedList (new ArrayList<> ());
+        final CountDownLatch done = new CountDownLatch (1000);
+
+        for (int i=0; i<1000; i++) {
+            final int value = i;
+            final Runnable task = () -> {
+                seen.add (value);
+                done.countDown ();
+            };
+            if (i % 2 == 0) lane.submit (task);
+            else executor.submit (5, task);
+        }
+
+        assertTrue (done.await (10, TimeUnit.SECONDS));
+        for (int i=0; i<1000; i++) {
+            assertEquals (i, seen.get (i).intValue ());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ASchedulingAutoTunerTest {
+    private static final ASchedulingParameters PARAMS = new ASchedulingParameters (100_000, 1024, 1024, 2, 4);
+
+    private static AThreadPoolStatistics stats (long numTasks, long numSharedTasks, long numSteals, long numParks, long numFalseAlarmUnparks, int... sharedQueueSizes) {
+        final ASharedQueueStatistics[] sharedQueueStats = new ASharedQueueStatistics[sharedQueueSizes.length];
+        for (int i=0; i<sharedQueueSizes.length; i++) {
+            sharedQueueStats[i] = new ASharedQueueStatistics (sharedQueueSizes[i]);
+        }
+        return new AThreadPoolStatistics (new AWorkerThreadStatistics[] {
+                new AWorkerThreadStatistics (Thread.State.RUNNABLE, 1, numTasks, numSharedTasks, numSteals, 0, numParks, numFalseAlarmUnparks, 0, 0, 0)
+        }, sharedQueueStats);
+    }
+
+    private static final AThreadPoolStatistics ZERO = stats (0, 0, 0, 0, 0, 0, 0);
+
+    @Test
+    public void testNotEnoughData() {
+        assertSame (PARAMS, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10, 10, 10, 10, 10, 0, 1000)));
+    }
+
+    @Test
+    public void testStealing() {
+        assertEquals (4, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 0, 2_000, 0, 0, 0, 0)).numPrefetchLocal);
+        assertEquals (1, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 0, 0, 0, 0, 0, 0)).numPrefetchLocal);
+        assertEquals (2, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 0, 500, 0, 0, 0, 0)).numPrefetchLocal);
+        assertEquals (1, ASchedulingAutoTuner.adjust (PARAMS.withNumPrefetchLocal (0), ZERO, stats (10_000, 0, 2_000, 0, 0, 0, 0)).numPrefetchLocal);
+    }
+
+    @Test
+    public void testFalseAlarms() {
+        assertEquals (2, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 8_000, 0, 100, 80, 0, 0)).prefetchBatchSize);
+        assertEquals (8, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 8_000, 0, 100, 5, 0, 0)).prefetchBatchSize);
+        // few false alarms, but most work is local
+        assertEquals (4, ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 1_000, 0, 100, 5, 0, 0)).prefetchBatchSize);
+    }
+
+    @Test
+    public void testSharedQueueBalance() {
+        final ASchedulingParameters imbalanced = ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 0, 500, 0, 0, 1000, 10));
+        assertEquals (512, imbalanced.switchSharedQueueInterval);
+        assertEquals (512, imbalanced.skipLocalWorkInterval);
+
+        final ASchedulingParameters balanced = ASchedulingAutoTuner.adjust (PARAMS, ZERO, stats (10_000, 0, 500, 0, 0, 1000, 900));
+        assertEquals (2048, balanced.switchSharedQueueInterval);
+        assertEquals (2048, balanced.skipLocalWorkInterval);
+
+        // values outside the tuner's bounds are left alone
+        final ASchedulingParameters big = PARAMS.withSkipLocalWorkInterval (Integer.MAX_VALUE);
+        assertEquals (Integer.MAX_VALUE, ASchedulingAutoTuner.adjust (big, ZERO, stats (10_000, 0, 500, 0, 0, 0, 0)).skipLocalWorkInterval);
+    }
+
+    @Test
+    public void testRunsAgainstPool() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).build ();
+        try (ASchedulingAutoTuner ignored = ASchedulingAutoTuner.start (pool, 1, TimeUnit.MILLISECONDS)) {
+            // submitting in rounds keeps the shared queue from filling up, especially on machines with few cores
+            for (int round=0; round<100; round++) {
+                for (int i=0; i<1_000; i++) {
+                    pool.submit (() -> {});
+                }
+                pool.awaitQuiescence ().await (5, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ASerialExecutorTest {
+    private AThreadPoolWithAdmin pool;
+
+    @Before
+    public void setUp() {
+        pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).withExceptionHandler (th -> {}).build ();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Test
+    public void testOrderPerProducer() throws Exception {
+        final int numProducers = 4;
+        final int numPerProducer = 10_000;
+
+        final ASerialExecutor serial = ASerialExecutor.create (pool, 16);
+        final int[] lastSeen = new int[numProducers]; // not synchronized, relying on the serial execution guarantee
+        final List<String> errors = new ArrayList<> ();
+        final CountDownLatch done = new CountDownLatch (numProducers * numPerProducer);
+
+        final List<Thread> producers = new ArrayList<> ();
+        for (int p=0; p<numProducers; p++) {
+            final int producer = p;
+            producers.add (new Thread (() -> {
+                for (int i=1; i<=numPerProducer; i++) {
+                    final int value = i;
+                    serial.submit (() -> {
+                        if (lastSeen[producer] != value-1) errors.add (producer + ": " + lastSeen[producer] + " -> " + value);
+                        lastSeen[producer] = value;
+                        done.countDown ();
+                    });
+                }
+            }));
+        }
+        producers.forEach (Thread::start);
+
+        assertTrue (done.await (10, TimeUnit.SECONDS));
+        assertEquals (new ArrayList<String> (), errors);
+    }
+
+    @Test
+    public void testNoConcurrentExecution() throws Exception {
+        final ASerialExecutor serial = ASerialExecutor.create (pool, 3);
+        final AtomicInteger running = new AtomicInteger ();
+        final AtomicInteger maxRunning = new AtomicInteger ();
+        final CountDownLatch done = new CountDownLatch (1000);
+
+        for (int i=0; i<1000; i++) {
+            pool.submit (() -> serial.submit (() -> {
+                maxRunning.accumulateAndGet (running.incrementAndGet (), Math::max);
+                Thread.yield ();
+                running.decrementAndGet ();
+                done.countDown ();
+            }));
+        }
+
+        assertTrue (done.await (10, TimeUnit.SECONDS));
+        assertEquals (1, maxRunning.get ());
+    }
+
+    @Test
+    public void testContinuesAfterException() throws Exception {
+        final ASerialExecutor serial = ASerialExecutor.create (pool);
+        final CountDownLatch done = new CountDownLatch (1);
+
+        serial.submit (() -> {throw new RuntimeException ();});
+        serial.submit (done::countDown);
+
+        assertTrue (done.await (1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testIdle() throws Exception {
+        final ASerialExecutor serial = ASerialExecutor.create (pool);
+        assertTrue (serial.isIdle ());
+
+        final CountDownLatch blocker = new CountDownLatch (1);
+        serial.submit (() -> {
+            try {
+                blocker.await ();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException (e);
+            }
+        });
+        assertFalse (serial.isIdle ());
+
+        blocker.countDown ();
+        final long deadline = System.currentTimeMillis () + 1000;
+        while (! serial.isIdle () && System.currentTimeMillis () < deadline) {
+            Thread.sleep (1);
+        }
+        assertTrue (serial.isIdle ());
+    }
+}
@@ -0,0 +1,223 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ATaskGroupTest {
+    @Test
+    public void testJoin() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+        try {
+            final ATaskGroup group = ATaskGroup.create (pool);
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            for (int i=0; i<1000; i++) {
+                group.submit (() -> {
+                    numExecuted.incrementAndGet ();
+                    // tasks can submit to their own group
+                    group.submit (numExecuted::incrementAndGet);
+                });
+            }
+
+            group.join ();
+            assertEquals (2000, numExecuted.get ());
+            assertEquals (0, group.getNumPending ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testJoinFromWorkerExecutesQueuedTasks() throws Exception {
+        // a single worker thread joining a group would dead lock if it waited for the pool to execute the group's tasks
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+        try {
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            final AtomicReference<Thread> joiningThread = new AtomicReference<> ();
+            final AtomicInteger numExecutedByJoiningThread = new AtomicInteger ();
+
+            final AFuture<Integer> result = AFuture.submit (pool, () -> {
+                joiningThread.set (Thread.currentThread ());
+
+                final ATaskGroup group = ATaskGroup.create (pool);
+                for (int i=0; i<10; i++) {
+                    group.submit (() -> {
+                        numExecuted.incrementAndGet ();
+                        if (Thread.currentThread () == joiningThread.get ()) numExecutedByJoiningThread.incrementAndGet ();
+                    });
+                }
+                group.join ();
+                return numExecuted.get ();
+            });
+
+            assertEquals (10, (int) result.value (1, TimeUnit.SECONDS));
+            assertEquals (10, numExecutedByJoiningThread.get ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+        final CountDownLatch latch = new CountDownLatch (1);
+        try {
+            final CountDownLatch started = new CountDownLatch (1);
+            pool.submit (() -> {
+                started.countDown ();
+                try {
+                    latch.await ();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException (e);
+                }
+            });
+            started.await ();
+
+            final ATaskGroup group = ATaskGroup.create (pool);
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            for (int i=0; i<100; i++) {
+                group.submit (numExecuted::incrementAndGet);
+            }
+            assertEquals (100, group.getNumPending ());
+
+            group.cancel ();
+            assertTrue (group.isCancelled ());
+            assertEquals (0, group.getNumPending ());
+
+            // tasks submitted after cancellation are dropped
+            group.submit (numExecuted::incrementAndGet);
+            assertEquals (0, group.getNumPending ());
+
+            latch.countDown ();
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+            assertEquals (0, numExecuted.get ());
+
+            try {
+                group.join ();
+                fail ("exception expected");
+            }
+            catch (CancellationException e) {
+                // expected
+            }
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testCancelOnFirstFailure() throws Exception {
+        // a single worker thread executes the tasks in order, so the failure happens before the other tasks are started
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+        final CountDownLatch latch = new CountDownLatch (1);
+        try {
+            final CountDownLatch started = new CountDownLatch (1);
+            pool.submit (() -> {
+                started.countDown ();
+                try {
+                    latch.await ();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException (e);
+                }
+            });
+            started.await ();
+
+            final ATaskGroup group = ATaskGroup.create (pool, ATaskGroup.FailurePolicy.CancelOnFirstFailure);
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            group.submit (() -> { throw new IllegalArgumentException (); });
+            for (int i=0; i<10; i++) {
+                group.submit (numExecuted::incrementAndGet);
+            }
+            latch.countDown ();
+
+            try {
+                group.join ();
+                fail ("exception expected");
+            }
+            catch (ExecutionException e) {
+                assertTrue (e.getCause () instanceof IllegalArgumentException);
+            }
+            assertTrue (group.isCancelled ());
+            assertEquals (0, numExecuted.get ());
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testContinueOnFailure() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).build ();
+        try {
+            final ATaskGroup group = ATaskGroup.create (pool, ATaskGroup.FailurePolicy.ContinueOnFailure);
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            for (int i=0; i<10; i++) {
+                group.submit (() -> { throw new IllegalArgumentException (); });
+                group.submit (numExecuted::incrementAndGet);
+            }
+
+            try {
+                group.join ();
+                fail ("exception expected");
+            }
+            catch (ExecutionException e) {
+                assertTrue (e.getCause () instanceof IllegalArgumentException);
+                assertEquals (9, e.getSuppressed ().length);
+            }
+            assertFalse (group.isCancelled ());
+            assertEquals (10, numExecuted.get ());
+
+            // failures are reported only once
+            group.submit (numExecuted::incrementAndGet);
+            group.join ();
+            assertEquals (11, numExecuted.get ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testExecutedTasksAreNotRetained() throws Exception {
+        // a pool that executes tasks in reverse order, so the first task submitted is the last one to finish
+        final List<Runnable> queued = new ArrayList<> ();
+        final ATaskGroup group = ATaskGroup.create (queued::add);
+
+        final AtomicInteger numExecuted = new AtomicInteger ();
+        for (int i=0; i<100; i++) {
+            group.submit (numExecuted::incrementAndGet);
+        }
+        assertEquals (100, group.getNumUnstarted ());
+
+        Collections.reverse (queued);
+        for (int i=0; i<99; i++) {
+            queued.get (i).run ();
+        }
+        assertEquals (99, numExecuted.get ());
+        assertEquals (1, group.getNumUnstarted ());
+
+        queued.get (99).run ();
+        assertEquals (0, group.getNumUnstarted ());
+        group.join ();
+    }
+}
@@ -5,6 +5,15 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -58,4 +67,479 @@ public class AThreadPoolTest {
         assertEquals (new HashSet<Integer>(Arrays.asList (3)), AThreadPoolImpl.primeFactors (9));
         assertEquals (new HashSet<Integer>(Arrays.asList (2,5)), AThreadPoolImpl.primeFactors (10));
     }
+
+    @Test
+    public void testAwaitQuiescence() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+        try {
+            // an idle pool is quiescent
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+
+            for (int round=0; round<20; round++) {
+                final AtomicInteger numExecuted = new AtomicInteger ();
+                pool.submit (new RecursiveTask (pool, 10, numExecuted));
+
+                pool.awaitQuiescence ().await (5, TimeUnit.SECONDS);
+                assertEquals ((1 << 11) - 1, numExecuted.get ());
+            }
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testNoQuiescenceWhileTaskIsRunning() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).build ();
+        try {
+            final CountDownLatch latch = new CountDownLatch (1);
+            pool.submit (() -> {
+                try {
+                    latch.await ();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException (e);
+                }
+            });
+
+            final AFuture<Void> quiescence = pool.awaitQuiescence ();
+            Thread.sleep (100);
+            assertFalse (quiescence.isComplete ());
+
+            latch.countDown ();
+            quiescence.await (1, TimeUnit.SECONDS);
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSetSchedulingParameters() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withLocalQueueSize (16).withDaemonThreads (true).build ();
+        try {
+            final ASchedulingParameters params = pool.getSchedulingParameters ().withOwnLocalFifoInterval (1).withSkipLocalWorkInterval (2).withPrefetchBatchSize (8);
+            pool.setSchedulingParameters (params);
+            assertEquals (params, pool.getSchedulingParameters ());
+
+            final AtomicInteger numExecuted = new AtomicInteger ();
+            pool.submit (new RecursiveTask (pool, 10, numExecuted));
+            pool.awaitQuiescence ().await (5, TimeUnit.SECONDS);
+            assertEquals ((1 << 11) - 1, numExecuted.get ());
+
+            try {
+                pool.setSchedulingParameters (params.withNumPrefetchLocal (14));
+                fail ("exception expected");
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+            assertEquals (params, pool.getSchedulingParameters ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    /**
+     * This task blocks the worker executing it until it is released, unless that worker is the target worker. In that case, it is
+     *  passed on to its owner again.
+     */
+    private static class Blocker implements Runnable {
+        private final AThreadPoolImpl pool;
+        private final int ownerIdx;
+        private final Thread target;
+        private final Set<Thread> blocked;
+        private final CountDownLatch release;
+
+        Blocker (AThreadPoolImpl pool, int ownerIdx, Thread target, Set<Thread> blocked, CountDownLatch release) {
+            this.pool = pool;
+            this.ownerIdx = ownerIdx;
+            this.target = target;
+            this.blocked = blocked;
+            this.release = release;
+        }
+
+        @Override public void run () {
+            if (Thread.currentThread () == target) {
+                pool.submitToWorker (ownerIdx, this);
+                return;
+            }
+
+            blocked.add (Thread.currentThread ());
+            try {
+                release.await ();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException (e);
+            }
+        }
+    }
+
+    @Test
+    public void testSubmitToWorker() throws Exception {
+        final AThreadPoolImpl pool = (AThreadPoolImpl) new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ();
+        try {
+            for (int workerIdx = 0; workerIdx < 4; workerIdx++) {
+                final Thread target = pool.localQueues[workerIdx].thread;
+
+                // locality is only a hint, and idle workers take over tasks from other workers' queues. So all other workers are kept
+                //  busy to make sure that the target is the only worker that can execute the tasks.
+                final Set<Thread> blocked = ConcurrentHashMap.newKeySet ();
+                final CountDownLatch release = new CountDownLatch (1);
+                for (int i=0; i<4; i++) {
+                    if (i != workerIdx) {
+                        pool.submitToWorker (i, new Blocker (pool, i, target, blocked, release));
+                    }
+                }
+                final long deadline = System.currentTimeMillis () + 5000;
+                while (blocked.size () < 3) {
+                    assertTrue (System.currentTimeMillis () < deadline);
+                    Thread.sleep (1);
+                }
+
+                final AtomicInteger numOnTarget = new AtomicInteger ();
+                final CountDownLatch latch = new CountDownLatch (100);
+                for (int i=0; i<100; i++) {
+                    pool.submitToWorker (workerIdx, () -> {
+                        if (Thread.currentThread () == target) numOnTarget.incrementAndGet ();
+                        latch.countDown ();
+                    });
+                }
+                final boolean finished = latch.await (1, TimeUnit.SECONDS);
+                release.countDown ();
+
+                assertTrue (finished);
+                assertEquals (100, numOnTarget.get ());
+                pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+            }
+
+            try {
+                pool.submitToWorker (4, () -> {});
+                fail ("exception expected");
+            }
+            catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testPinnedTasksOfBlockedWorkerAreStolen() throws Exception {
+        final AThreadPoolImpl pool = (AThreadPoolImpl) new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).build ();
+        final CountDownLatch blocker = new CountDownLatch (1);
+        try {
+            final CountDownLatch started = new CountDownLatch (1);
+            final AtomicReference<Thread> blockedThread = new AtomicReference<> ();
+            pool.submitToWorker (0, () -> {
+                blockedThread.set (Thread.currentThread ());
+                started.countDown ();
+                try {
+                    blocker.await ();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException (e);
+                }
+            });
+            started.await ();
+
+            // the pinned tasks can only run if the other worker takes them over
+            final int blockedIdx = pool.localQueues[0].thread == blockedThread.get () ? 0 : 1;
+            final CountDownLatch latch = new CountDownLatch (10);
+            for (int i=0; i<10; i++) {
+                pool.submitToWorker (blockedIdx, latch::countDown);
+            }
+            assertTrue (latch.await (1, TimeUnit.SECONDS));
+        }
+        finally {
+            blocker.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSaturationRejectsByDefault() throws Exception {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final List<Integer> executed = new CopyOnWriteArrayList<> ();
+        final AThreadPoolWithAdmin pool = saturatedPool (new AThreadPoolBuilder (), latch, executed);
+        try {
+            try {
+                pool.submit (() -> executed.add (99));
+                fail ("exception expected");
+            }
+            catch (RejectedExecutionException e) {
+                // expected
+            }
+
+            assertEquals (1, pool.getStatistics ().numSaturations);
+            assertEquals (1, pool.getStatistics ().numRejectedTasks);
+
+            latch.countDown ();
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+            assertEquals (new HashSet<> (Arrays.asList (0, 1, 2, 3, 4, 5, 6)), new HashSet<> (executed));
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSaturationCallerRuns() throws Exception {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final List<Integer> executed = new CopyOnWriteArrayList<> ();
+        final AThreadPoolWithAdmin pool = saturatedPool (new AThreadPoolBuilder ().withSaturationPolicy (ASaturationPolicy.callerRuns ()), latch, executed);
+        try {
+            final Thread submitter = Thread.currentThread ();
+            final AtomicInteger numInSubmitter = new AtomicInteger ();
+            pool.submit (() -> {
+                if (Thread.currentThread () == submitter) numInSubmitter.incrementAndGet ();
+                executed.add (99);
+            });
+
+            assertEquals (1, numInSubmitter.get ());
+            assertEquals (Collections.singletonList (99), executed);
+            assertEquals (1, pool.getStatistics ().numInlineExecutions);
+            assertEquals (0, pool.getStatistics ().numRejectedTasks);
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSaturationInlineIfWorker() throws Exception {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final List<Integer> executed = new CopyOnWriteArrayList<> ();
+        final AThreadPoolWithAdmin pool = saturatedPool (new AThreadPoolBuilder ().withSaturationPolicy (ASaturationPolicy.inlineIfWorker ()), latch, executed);
+        try {
+            pool.submit (() -> executed.add (99));
+            fail ("exception expected");
+        }
+        catch (RejectedExecutionException e) {
+            assertEquals (1, pool.getStatistics ().numRejectedTasks);
+            assertEquals (0, pool.getStatistics ().numInlineExecutions);
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSaturationDropOldest() throws Exception {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final List<Integer> executed = new CopyOnWriteArrayList<> ();
+        final List<Runnable> dropped = new CopyOnWriteArrayList<> ();
+        final AThreadPoolWithAdmin pool = saturatedPool (new AThreadPoolBuilder ().withSaturationPolicy (ASaturationPolicy.dropOldest (dropped::add)), latch, executed);
+        try {
+            pool.submit (() -> executed.add (7));
+            pool.submit (() -> executed.add (8));
+
+            assertEquals (2, dropped.size ());
+            dropped.get (0).run ();
+            assertEquals (Collections.singletonList (0), executed);
+            executed.clear ();
+
+            final AThreadPoolStatistics stats = pool.getStatistics ();
+            assertEquals (2, stats.numSaturations);
+            assertEquals (2, stats.numDroppedTasks);
+            assertEquals (0, stats.numRejectedTasks);
+
+            latch.countDown ();
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+            assertEquals (new HashSet<> (Arrays.asList (2, 3, 4, 5, 6, 7, 8)), new HashSet<> (executed));
+        }
+        finally {
+            latch.countDown ();
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testSaturationBlockIsReleasedByShutdown() throws Exception {
+        // all producers use shared queue 1, while shutdown adds its tasks to shared queue 0 - so queue 1 remains full after shutdown
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ()
+                .withNumThreads (1).withNumSharedQueues (2).withSharedQueueSize (8).withDaemonThreads (true)
+                .withSharedQueueAffinityStrategy ((producer, numSharedQueues) -> 1)
+                .withSaturationPolicy (ASaturationPolicy.block ())
+                .build ();
+
+        final CountDownLatch latch = new CountDownLatch (1);
+        final CountDownLatch started = new CountDownLatch (1);
+        try {
+            pool.submit (() -> {
+                started.countDown ();
+                try {
+                    latch.await ();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException (e);
+                }
+            });
+            started.await ();
+            for (int i=0; i<7; i++) {
+                pool.submit (() -> {});
+            }
+
+            final AtomicReference<Throwable> submitResult = new AtomicReference<> ();
+            final Thread submitter = new Thread (() -> {
+                try {
+                    pool.submit (() -> {});
+                }
+                catch (Throwable th) {
+                    submitResult.set (th);
+                }
+            });
+            submitter.setDaemon (true);
+            submitter.start ();
+
+            submitter.join (100);
+            assertTrue (submitter.isAlive ());
+
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.ExecuteSubmitted);
+            submitter.join (1000);
+            assertFalse (submitter.isAlive ());
+            assertTrue (submitResult.get () instanceof RejectedExecutionException);
+            assertEquals (1, pool.getStatistics ().numRejectedTasks);
+        }
+        finally {
+            latch.countDown ();
+        }
+    }
+
+    @Test
+    public void testTaskDecorator() throws Exception {
+        final ThreadLocal<String> context = new ThreadLocal<> ();
+        final AtomicInteger numCaptures = new AtomicInteger ();
+        final AtomicInteger numAfterExecute = new AtomicInteger ();
+
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).withTaskDecorator (new ATaskDecorator<String> () {
+            @Override public String capture () {
+                numCaptures.incrementAndGet ();
+                return context.get ();
+            }
+
+            @Override public void beforeExecute (String ctx) {
+                context.set (ctx);
+            }
+
+            @Override public void afterExecute (String ctx) {
+                context.remove ();
+                numAfterExecute.incrementAndGet ();
+            }
+        }).build ();
+
+        try {
+            final List<String> seenContexts = new CopyOnWriteArrayList<> ();
+
+            context.set ("a");
+            pool.submit (() -> {
+                seenContexts.add (context.get ());
+                for (int i=0; i<5; i++) {
+                    pool.submit (() -> seenContexts.add (context.get ()));
+                }
+                // subtasks capture the submitting task's current context
+                context.set ("c");
+                for (int i=0; i<5; i++) {
+                    pool.submit (() -> seenContexts.add (context.get ()));
+                }
+            });
+            context.set ("b");
+            pool.submit (() -> { throw new RuntimeException ("exception is expected here"); });
+            context.remove ();
+
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+
+            assertEquals (11, seenContexts.size ());
+            assertEquals (6, Collections.frequency (seenContexts, "a"));
+            assertEquals (5, Collections.frequency (seenContexts, "c"));
+
+            // afterExecute is called even if a task throws
+            assertEquals (12, numCaptures.get ());
+            assertEquals (12, numAfterExecute.get ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test
+    public void testTaskDecoratorReturnsUndecoratedTasks() throws Exception {
+        final CountDownLatch latch = new CountDownLatch (1);
+        final List<Integer> executed = new CopyOnWriteArrayList<> ();
+        final List<Runnable> dropped = new CopyOnWriteArrayList<> ();
+
+        final Runnable task = () -> executed.add (7);
+        final AThreadPoolWithAdmin pool = saturatedPool (new AThreadPoolBuilder ()
+                .withTaskDecorator (new ATaskDecorator<Object> () {
+                    @Override public Object capture () { return null; }
+                    @Override public void beforeExecute (Object context) {}
+                    @Override public void afterExecute (Object context) {}
+                })
+                .withSaturationPolicy (ASaturationPolicy.dropOldest (dropped::add)), latch, executed);
+        try {
+            pool.submit (task);
+            assertEquals (1, dropped.size ());
+            assertFalse (dropped.get (0) instanceof DecoratedTask);
+
+            final List<Runnable> unstarted = new CopyOnWriteArrayList<> ();
+            ((AThreadPoolImpl) pool).shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted, unstarted);
+            assertTrue (unstarted.contains (task));
+        }
+        finally {
+            latch.countDown ();
+        }
+    }
+
+    /**
+     * creates a pool with a single worker thread that is blocked until the latch is released, and a shared queue that is full with
+     *  tasks adding their respective indexes to {@code executed}
+     */
+    private static AThreadPoolWithAdmin saturatedPool (AThreadPoolBuilder builder, CountDownLatch latch, List<Integer> executed) throws InterruptedException {
+        final AThreadPoolWithAdmin pool = builder.withNumThreads (1).withNumSharedQueues (1).withSharedQueueSize (8).withDaemonThreads (true).build ();
+
+        final CountDownLatch started = new CountDownLatch (1);
+        pool.submit (() -> {
+            started.countDown ();
+            try {
+                latch.await ();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException (e);
+            }
+        });
+        started.await ();
+
+        // a shared queue of size 8 holds 7 tasks
+        for (int i=0; i<7; i++) {
+            final int idx = i;
+            pool.submit (() -> executed.add (idx));
+        }
+        return pool;
+    }
+
+    private static class RecursiveTask implements Runnable {
+        private final AThreadPool pool;
+        private final int depth;
+        private final AtomicInteger numExecuted;
+
+        RecursiveTask (AThreadPool pool, int depth, AtomicInteger numExecuted) {
+            this.pool = pool;
+            this.depth = depth;
+            this.numExecuted = numExecuted;
+        }
+
+        @Override public void run () {
+            numExecuted.incrementAndGet ();
+            if (depth > 0) {
+                pool.submit (new RecursiveTask (pool, depth-1, numExecuted));
+                pool.submit (new RecursiveTask (pool, depth-1, numExecuted));
+            }
+        }
+    }
 }
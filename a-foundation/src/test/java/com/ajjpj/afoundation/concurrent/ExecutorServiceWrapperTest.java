@@ -0,0 +1,238 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class ExecutorServiceWrapperTest {
+    @Test
+    public void testSubmit() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).build ());
+        try {
+            final Future<String> f = es.submit (() -> "a");
+            assertEquals ("a", f.get (1, TimeUnit.SECONDS));
+            assertTrue (f.isDone ());
+            assertFalse (f.isCancelled ());
+
+            assertTrue (f instanceof AFuture);
+            assertEquals ("ab", ((AFuture<String>) f).map (AThreadPool.SYNC_THREADPOOL, s -> s + "b").value (1, TimeUnit.SECONDS));
+
+            final Future<?> failed = es.submit ((Callable<Object>) () -> { throw new IllegalArgumentException (); });
+            try {
+                failed.get (1, TimeUnit.SECONDS);
+                fail ("exception expected");
+            }
+            catch (ExecutionException e) {
+                assertTrue (e.getCause () instanceof IllegalArgumentException);
+            }
+        }
+        finally {
+            es.shutdown ();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ());
+        try {
+            final CountDownLatch started = new CountDownLatch (1);
+            final Future<?> f = es.submit (() -> {
+                started.countDown ();
+                Thread.sleep (10_000);
+                return null;
+            });
+            started.await ();
+
+            assertTrue (f.cancel (true));
+            assertFalse (f.cancel (true));
+            assertTrue (f.isCancelled ());
+            try {
+                f.get ();
+                fail ("exception expected");
+            }
+            catch (CancellationException e) {
+                // expected
+            }
+
+            // the worker thread was interrupted and is available again
+            assertEquals (1, (int) es.submit (() -> 1).get (1, TimeUnit.SECONDS));
+        }
+        finally {
+            es.shutdown ();
+        }
+    }
+
+    @Test
+    public void testCancelDoesNotLeaveWorkerInterrupted() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (pool);
+        try {
+            // a task that ignores interrupts, so the interrupt flag is not cleared by an InterruptedException
+            final CountDownLatch started = new CountDownLatch (1);
+            final AtomicBoolean stop = new AtomicBoolean ();
+            final Future<?> f = es.submit (() -> {
+                started.countDown ();
+                while (! stop.get ()) {
+                    // busy wait
+                }
+                return null;
+            });
+            started.await ();
+            assertTrue (f.cancel (true));
+            stop.set (true);
+
+            // the next task on the worker is not interrupted
+            assertFalse (es.submit (() -> Thread.currentThread ().isInterrupted ()).get (1, TimeUnit.SECONDS));
+
+            // ... and the idle worker parks rather than spinning
+            Thread.sleep (50);
+            final long numParksBefore = pool.getStatistics ().workerThreadStatistics[0].numParks;
+            Thread.sleep (200);
+            assertTrue (pool.getStatistics ().workerThreadStatistics[0].numParks - numParksBefore < 100);
+        }
+        finally {
+            es.shutdown ();
+        }
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ());
+        try {
+            final List<Future<Integer>> result = es.invokeAll (Arrays.<Callable<Integer>>asList (() -> 1, () -> 2, () -> { throw new IllegalArgumentException (); }, () -> 4));
+            assertEquals (4, result.size ());
+            for (Future<Integer> f: result) {
+                assertTrue (f.isDone ());
+            }
+            assertEquals (1, (int) result.get (0).get ());
+            assertEquals (2, (int) result.get (1).get ());
+            assertEquals (4, (int) result.get (3).get ());
+            try {
+                result.get (2).get ();
+                fail ("exception expected");
+            }
+            catch (ExecutionException e) {
+                assertTrue (e.getCause () instanceof IllegalArgumentException);
+            }
+
+            final List<Future<Integer>> timedOut = es.invokeAll (Arrays.<Callable<Integer>>asList (() -> 1, () -> { Thread.sleep (10_000); return 2; }), 100, TimeUnit.MILLISECONDS);
+            assertEquals (1, (int) timedOut.get (0).get ());
+            assertTrue (timedOut.get (1).isCancelled ());
+        }
+        finally {
+            es.shutdown ();
+        }
+    }
+
+    @Test
+    public void testInvokeAny() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (4).withDaemonThreads (true).build ());
+        try {
+            assertEquals ("fast", es.invokeAny (Arrays.<Callable<String>>asList (() -> { Thread.sleep (10_000); return "slow"; }, () -> "fast")));
+            assertEquals ("ok", es.invokeAny (Arrays.<Callable<String>>asList (() -> { throw new IllegalArgumentException (); }, () -> "ok")));
+
+            try {
+                es.invokeAny (Arrays.<Callable<String>>asList (() -> { throw new IllegalArgumentException (); }, () -> { throw new IllegalArgumentException (); }));
+                fail ("exception expected");
+            }
+            catch (ExecutionException e) {
+                assertTrue (e.getCause () instanceof IllegalArgumentException);
+            }
+        }
+        finally {
+            es.shutdown ();
+        }
+    }
+
+    @Test
+    public void testShutdownNowReturnsUnstartedTasks() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ());
+
+        final CountDownLatch started = new CountDownLatch (1);
+        final AtomicInteger numInterrupted = new AtomicInteger ();
+        es.execute (() -> {
+            started.countDown ();
+            try {
+                Thread.sleep (10_000);
+            }
+            catch (InterruptedException e) {
+                numInterrupted.incrementAndGet ();
+            }
+        });
+        started.await ();
+
+        final AtomicInteger numExecuted = new AtomicInteger ();
+        for (int i=0; i<10; i++) {
+            es.execute (numExecuted::incrementAndGet);
+        }
+
+        final List<Runnable> unstarted = es.shutdownNow ();
+        assertEquals (10, unstarted.size ());
+        assertTrue (es.isShutdown ());
+        assertTrue (es.awaitTermination (1, TimeUnit.SECONDS));
+        assertTrue (es.isTerminated ());
+        assertEquals (1, numInterrupted.get ());
+        assertEquals (0, numExecuted.get ());
+
+        try {
+            es.execute (numExecuted::incrementAndGet);
+            fail ("exception expected");
+        }
+        catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testShutdownNowAfterShutdown() throws Exception {
+        final ExecutorService es = AThreadPool.wrapAsExecutorService (new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ());
+
+        final CountDownLatch started = new CountDownLatch (1);
+        final AtomicInteger numInterrupted = new AtomicInteger ();
+        es.execute (() -> {
+            started.countDown ();
+            try {
+                Thread.sleep (10_000);
+            }
+            catch (InterruptedException e) {
+                numInterrupted.incrementAndGet ();
+            }
+        });
+        started.await ();
+
+        final AtomicInteger numExecuted = new AtomicInteger ();
+        for (int i=0; i<10; i++) {
+            es.execute (numExecuted::incrementAndGet);
+        }
+
+        // the usual idiom: shut down gracefully, and escalate if termination takes too long
+        es.shutdown ();
+        assertFalse (es.awaitTermination (100, TimeUnit.MILLISECONDS));
+
+        final List<Runnable> unstarted = es.shutdownNow ();
+        assertEquals (10, unstarted.size ());
+        assertTrue (es.awaitTermination (1, TimeUnit.SECONDS));
+        assertTrue (es.isTerminated ());
+        assertEquals (1, numInterrupted.get ());
+        assertEquals (0, numExecuted.get ());
+
+        assertEquals (0, es.shutdownNow ().size ());
+    }
+}
@@ -0,0 +1,192 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class SharedQueueDeadlineImplTest {
+    private AThreadPoolImpl pool;
+
+    @Before
+    public void setUp() {
+        pool = (AThreadPoolImpl) new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+    }
+
+    @Test
+    public void testEarliestDeadlineFirst() {
+        final SharedQueueDeadlineImpl queue = new SharedQueueDeadlineImpl (pool, 1, 1000, null);
+        final List<Integer> order = new ArrayList<> ();
+
+        queue.push (() -> order.add (100));
+        queue.push (task (5, order));
+        queue.push (() -> order.add (101));
+        queue.push (task (3, order));
+        queue.push (task (7, order));
+        queue.push (task (1, order));
+        queue.push (() -> order.add (102));
+
+        assertEquals (7, queue.approximateSize ());
+
+        Runnable r;
+        while ((r = queue.popFifo (null)) != null) {
+            r.run ();
+        }
+        // tasks without deadline come last, in FIFO order
+        assertEquals (Arrays.asList (1, 3, 5, 7, 100, 101, 102), order);
+        assertEquals (0, queue.approximateSize ());
+    }
+
+    @Test
+    public void testManyTasks() {
+        final SharedQueueDeadlineImpl queue = new SharedQueueDeadlineImpl (pool, 1, 100_000, null);
+        final List<Integer> order = new ArrayList<> ();
+
+        for (int i=0; i<10_000; i++) {
+            queue.push (task ((i * 7919) % 10_000, order));
+        }
+
+        Runnable r;
+        while ((r = queue.popFifo (null)) != null) {
+            r.run ();
+        }
+        assertEquals (10_000, order.size ());
+        for (int i=0; i<10_000; i++) {
+            assertEquals (i, (int) order.get (i));
+        }
+    }
+
+    @Test
+    public void testMultipleHeaps() {
+        final SharedQueueDeadlineImpl queue = new SharedQueueDeadlineImpl (pool, 4, 1000, null);
+        final List<Integer> order = new ArrayList<> ();
+
+        for (int i=0; i<100; i++) {
+            queue.push (task (i, order));
+        }
+
+        Runnable r;
+        while ((r = queue.popFifo (null)) != null) {
+            r.run ();
+        }
+        // ordering is relaxed between heaps, but no task is lost
+        assertEquals (100, order.size ());
+        assertEquals (100, order.stream ().distinct ().count ());
+    }
+
+    @Test
+    public void testOverflow() {
+        final SharedQueueDeadlineImpl queue = new SharedQueueDeadlineImpl (pool, 2, 2, null);
+        for (int i=0; i<4; i++) {
+            queue.push (() -> {});
+        }
+        try {
+            queue.push (() -> {});
+            fail ("exception expected");
+        }
+        catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        queue.clear ();
+        assertEquals (0, queue.approximateSize ());
+        assertNull (queue.popFifo (null));
+    }
+
+    @Test
+    public void testExpiredTasksAreDropped() throws Exception {
+        final List<ADeadlineTask> expired = new ArrayList<> ();
+        final SharedQueueDeadlineImpl queue = new SharedQueueDeadlineImpl (pool, 1, 1000, expired::add);
+
+        final ADeadlineTask expiring = ADeadlineTask.create (() -> {}, 1, TimeUnit.MILLISECONDS);
+        final ADeadlineTask notExpiring = ADeadlineTask.create (() -> {}, 1, TimeUnit.HOURS);
+        final Runnable noDeadline = () -> {};
+
+        queue.push (noDeadline);
+        queue.push (notExpiring);
+        queue.push (expiring);
+        Thread.sleep (10);
+
+        assertSame (notExpiring, queue.popFifo (null));
+        assertSame (noDeadline, queue.popFifo (null));
+        assertNull (queue.popFifo (null));
+        assertEquals (Arrays.asList (expiring), expired);
+        assertEquals (1, pool.getStatistics ().numDroppedTasks);
+    }
+
+    @Test
+    public void testDeadlinePool() throws Exception {
+        final List<ADeadlineTask> expired = new ArrayList<> ();
+        final AThreadPoolWithAdmin deadlinePool = new AThreadPoolBuilder ()
+                .withNumThreads (2)
+                .withSharedQueueStrategy (SharedQueueStrategy.Deadline)
+                .withExpiredTaskHandler (t -> { synchronized (expired) { expired.add (t); } })
+                .withDaemonThreads (true)
+                .build ();
+
+        final CountDownLatch latch = new CountDownLatch (1);
+        try {
+            final CountDownLatch started = new CountDownLatch (2);
+            for (int i=0; i<2; i++) {
+                deadlinePool.submit (() -> {
+                    started.countDown ();
+                    try {
+                        latch.await ();
+                    }
+                    catch (InterruptedException e) {
+                        throw new RuntimeException (e);
+                    }
+                });
+            }
+            started.await ();
+
+            final CountDownLatch executed = new CountDownLatch (100);
+            for (int i=0; i<100; i++) {
+                deadlinePool.submit (ADeadlineTask.create (executed::countDown, 1, TimeUnit.HOURS));
+            }
+            deadlinePool.submit (ADeadlineTask.create (() -> fail ("should have been dropped"), 1, TimeUnit.MILLISECONDS));
+            Thread.sleep (10);
+
+            latch.countDown ();
+            assertTrue (executed.await (1, TimeUnit.SECONDS));
+            deadlinePool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+
+            synchronized (expired) {
+                assertEquals (1, expired.size ());
+            }
+        }
+        finally {
+            latch.countDown ();
+            deadlinePool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    private static ADeadlineTask task (int deadline, List<Integer> order) {
+        return new ADeadlineTask () {
+            @Override public long getDeadlineNanos () {
+                return deadline;
+            }
+
+            @Override public void run () {
+                order.add (deadline);
+            }
+        };
+    }
+}
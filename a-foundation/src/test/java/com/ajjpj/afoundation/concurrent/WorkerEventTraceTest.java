@@ -0,0 +1,93 @@
+package com.ajjpj.afoundation.concurrent;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * @author arno
+ */
+public class WorkerEventTraceTest {
+    @Test
+    public void testSnapshot() {
+        final WorkerEventTrace trace = new WorkerEventTrace (8);
+        assertEquals (0, trace.snapshot ().length);
+
+        trace.record (ASchedulerEventType.Park, 1);
+        trace.record (ASchedulerEventType.Steal, 3);
+
+        final long[] events = trace.snapshot ();
+        assertEquals (4, events.length);
+        assertEquals (ASchedulerEventType.Park, WorkerEventTrace.type (events[1]));
+        assertEquals (1, WorkerEventTrace.arg (events[1]));
+        assertEquals (ASchedulerEventType.Steal, WorkerEventTrace.type (events[3]));
+        assertEquals (3, WorkerEventTrace.arg (events[3]));
+        assertTrue (events[0] <= events[2]);
+    }
+
+    @Test
+    public void testOverwrite() {
+        final WorkerEventTrace trace = new WorkerEventTrace (8);
+        for (int i=0; i<20; i++) {
+            trace.record (ASchedulerEventType.Submit, i);
+        }
+
+        // the oldest slot is left out because a concurrent write could be in progress there
+        final long[] events = trace.snapshot ();
+        assertEquals (2*7, events.length);
+        for (int i=0; i<7; i++) {
+            assertEquals (13+i, WorkerEventTrace.arg (events[2*i+1]));
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testCapacityMustBePowerOfTwo() {
+        new WorkerEventTrace (12);
+    }
+
+    @Test
+    public void testDumpAndRender() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (2).withDaemonThreads (true).withEventTracing (1024).build ();
+        try {
+            final CountDownLatch latch = new CountDownLatch (100);
+            pool.submit (() -> {
+                for (int i=0; i<100; i++) {
+                    pool.submit (latch::countDown);
+                }
+            });
+            assertTrue (latch.await (1, TimeUnit.SECONDS));
+            pool.awaitQuiescence ().await (1, TimeUnit.SECONDS);
+
+            final ByteArrayOutputStream dump = new ByteArrayOutputStream ();
+            pool.dumpEventTrace (dump);
+
+            final StringBuilder rendered = new StringBuilder ();
+            AEventTraceDecoder.render (new ByteArrayInputStream (dump.toByteArray ()), rendered);
+
+            assertTrue (rendered.toString (), rendered.toString ().startsWith ("worker 0 ("));
+            assertTrue (rendered.toString (), rendered.toString ().contains ("worker 1 ("));
+            assertTrue (rendered.toString (), rendered.toString ().contains ("Submit"));
+            assertTrue (rendered.toString (), rendered.toString ().contains ("Park"));
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testDumpRequiresTracing() throws Exception {
+        final AThreadPoolWithAdmin pool = new AThreadPoolBuilder ().withNumThreads (1).withDaemonThreads (true).build ();
+        try {
+            pool.dumpEventTrace (new ByteArrayOutputStream ());
+        }
+        finally {
+            pool.shutdown (AThreadPoolWithAdmin.ShutdownMode.SkipUnstarted);
+        }
+    }
+}